@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link InFlight#enqueue} under contention: several threads enqueue
+ * trivial actions over {@link #numKeys} keys, and each waits for its action to complete.
+ * With a single key every action is serialized behind the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class InFlightBenchmark {
+
+    @Param({"1", "16", "1024"})
+    public int numKeys;
+
+    private Vertx vertx;
+    private InFlight<String> inFlight;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        vertx = Vertx.vertx();
+        inFlight = new InFlight<>(vertx);
+        keys = new String[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = "topic-" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object enqueue() throws Exception {
+        String key = keys[ThreadLocalRandom.current().nextInt(numKeys)];
+        CompletableFuture<Object> done = new CompletableFuture<>();
+        inFlight.enqueue(key,
+            ar -> done.complete(ar),
+            fut -> fut.complete());
+        return done.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link LabelPredicate#test}, which is applied to every ConfigMap event we're notified of.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelPredicateBenchmark {
+
+    private LabelPredicate predicate;
+    private ConfigMap matching;
+    private ConfigMap nonMatching;
+    private ConfigMap unlabelled;
+
+    @Setup
+    public void setup() {
+        predicate = LabelPredicate.fromString("strimzi.io/kind=topic,app=strimzi");
+        Map<String, String> labels = new HashMap<>();
+        labels.put("strimzi.io/kind", "topic");
+        labels.put("app", "strimzi");
+        labels.put("team", "payments");
+        labels.put("environment", "production");
+        matching = configMap(labels);
+        Map<String, String> otherLabels = new HashMap<>(labels);
+        otherLabels.put("app", "something-else");
+        nonMatching = configMap(otherLabels);
+        unlabelled = configMap(null);
+    }
+
+    private static ConfigMap configMap(Map<String, String> labels) {
+        return new ConfigMapBuilder().withNewMetadata()
+                .withName("my-topic")
+                .withLabels(labels)
+                .endMetadata()
+                .build();
+    }
+
+    @Benchmark
+    public boolean testMatching() {
+        return predicate.test(matching);
+    }
+
+    @Benchmark
+    public boolean testNonMatching() {
+        return predicate.test(nonMatching);
+    }
+
+    @Benchmark
+    public boolean testUnlabelled() {
+        return predicate.test(unlabelled);
+    }
+}
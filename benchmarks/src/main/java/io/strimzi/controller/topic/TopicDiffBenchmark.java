@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link TopicDiff}, with topics having {@link #configSize} config entries.
+ * The "kafka" and "k8s" topics each change a disjoint tenth of the "private" topic's config,
+ * which is the shape of the three-way reconciliation performed by the {@link Controller}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicDiffBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int configSize;
+
+    private Topic privateTopic;
+    private Topic kafkaTopic;
+    private Topic k8sTopic;
+    private TopicDiff kafkaDiff;
+    private TopicDiff k8sDiff;
+
+    @Setup
+    public void setup() {
+        Map<String, String> config = new HashMap<>(configSize);
+        for (int i = 0; i < configSize; i++) {
+            config.put("config.key." + i, "value-" + i);
+        }
+        privateTopic = new Topic.Builder("my-topic", 12, (short) 3, config).build();
+
+        Topic.Builder kafkaBuilder = new Topic.Builder(privateTopic).withNumPartitions(24);
+        Topic.Builder k8sBuilder = new Topic.Builder(privateTopic);
+        for (int i = 0; i < configSize; i += 10) {
+            kafkaBuilder.withConfigEntry("config.key." + i, "changed-in-kafka");
+            if (i + 1 < configSize) {
+                k8sBuilder.withoutConfigEntry("config.key." + (i + 1));
+            }
+            k8sBuilder.withConfigEntry("added.key." + i, "added-in-k8s");
+        }
+        kafkaTopic = kafkaBuilder.build();
+        k8sTopic = k8sBuilder.build();
+
+        kafkaDiff = TopicDiff.diff(privateTopic, kafkaTopic);
+        k8sDiff = TopicDiff.diff(privateTopic, k8sTopic);
+    }
+
+    @Benchmark
+    public TopicDiff diff() {
+        return TopicDiff.diff(privateTopic, kafkaTopic);
+    }
+
+    @Benchmark
+    public TopicDiff diffIdentical() {
+        return TopicDiff.diff(privateTopic, new Topic.Builder(privateTopic).build());
+    }
+
+    @Benchmark
+    public String conflict() {
+        return kafkaDiff.conflict(k8sDiff);
+    }
+
+    @Benchmark
+    public TopicDiff merge() {
+        return kafkaDiff.merge(k8sDiff);
+    }
+
+    @Benchmark
+    public Topic apply() {
+        return kafkaDiff.merge(k8sDiff).apply(privateTopic);
+    }
+}
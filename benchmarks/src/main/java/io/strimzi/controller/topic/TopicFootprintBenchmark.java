@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory footprint of the {@link Topic}s the {@link Controller} holds for a cluster with {@link #topics} topics.
+ * Like the topics read from Kafka, each has a handful of config overrides drawn from a few common values,
+ * with every key and value a distinct {@code String}, as if freshly deserialized.
+ * <p>
+ * Run the benchmark with {@code -prof gc} for the bytes allocated building the topics
+ * ({@code gc.alloc.rate.norm}), and {@link #main(String[])} for the bytes they retain, measured with JOL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TopicFootprintBenchmark {
+
+    private static final String[][] OVERRIDES = {
+        {"retention.ms", "86400000", "259200000", "604800000", "2592000000"},
+        {"cleanup.policy", "delete", "compact"},
+        {"min.insync.replicas", "1", "2"},
+        {"segment.bytes", "104857600", "1073741824"},
+        {"max.message.bytes", "1048588", "10485760"},
+    };
+
+    @Param({"50000"})
+    public int topics;
+
+    private List<Map<String, String>> configs;
+
+    @Setup
+    public void setup() {
+        configs = configs(topics);
+    }
+
+    @Benchmark
+    public List<Topic> build() {
+        return build(configs);
+    }
+
+    private static List<Map<String, String>> configs(int topics) {
+        Random random = new Random(42);
+        List<Map<String, String>> configs = new ArrayList<>(topics);
+        for (int i = 0; i < topics; i++) {
+            Map<String, String> config = new HashMap<>();
+            for (String[] override : OVERRIDES) {
+                if (random.nextBoolean()) {
+                    config.put(new String(override[0]), new String(override[1 + random.nextInt(override.length - 1)]));
+                }
+            }
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    private static List<Topic> build(List<Map<String, String>> configs) {
+        List<Topic> result = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            result.add(new Topic.Builder("topic-" + i, 12, (short) 3, configs.get(i)).build());
+        }
+        return result;
+    }
+
+    /**
+     * Print the heap retained by the topics, including their names and config.
+     * @param args The number of topics, by default 50000.
+     */
+    public static void main(String[] args) {
+        int topics = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        List<Map<String, String>> configs = configs(topics);
+        Object[] built = build(configs).toArray();
+        configs = null;
+        System.gc();
+
+        GraphLayout layout = GraphLayout.parseInstance(built);
+        long bytes = layout.totalSize();
+        System.out.printf("%d topics retain %d bytes in %d objects (%d bytes per topic)%n",
+                topics, bytes, layout.totalCount(), bytes / topics);
+    }
+}
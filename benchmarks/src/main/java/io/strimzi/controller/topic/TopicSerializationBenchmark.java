@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import kafka.log.LogConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scala.collection.Iterator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the conversions in {@link TopicSerialization}.
+ * Since ConfigMaps are validated against the supported topic configs
+ * the config entries are taken from {@link LogConfig#configNames()},
+ * up to {@link #configSize} of them (there are fewer than 100 of them, so
+ * the largest setting uses all of them).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicSerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int configSize;
+
+    private LabelPredicate cmPredicate;
+    private Topic topic;
+    private ConfigMap configMap;
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        Map<String, String> config = new HashMap<>();
+        Iterator<String> it = LogConfig.configNames().iterator();
+        while (it.hasNext() && config.size() < configSize) {
+            // The value doesn't matter, only that it's a string
+            config.put(it.next(), "1234");
+        }
+        cmPredicate = new LabelPredicate("strimzi.io/kind", "topic");
+        topic = new Topic.Builder("my-topic", 12, (short) 3, config).build();
+        configMap = TopicSerialization.toConfigMap(topic, cmPredicate);
+        json = TopicSerialization.toJson(topic);
+    }
+
+    @Benchmark
+    public Topic fromConfigMap() {
+        return TopicSerialization.fromConfigMap(configMap);
+    }
+
+    @Benchmark
+    public ConfigMap toConfigMap() {
+        return TopicSerialization.toConfigMap(topic, cmPredicate);
+    }
+
+    @Benchmark
+    public Topic fromJson() {
+        return TopicSerialization.fromJson(json);
+    }
+
+    @Benchmark
+    public byte[] toJson() {
+        return TopicSerialization.toJson(topic);
+    }
+}
@@ -0,0 +1,72 @@
+package io.strimzi.controller.cluster;
+
+import io.vertx.core.Future;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs a list of asynchronous tasks with at most a given number of them in flight at once.
+ * Each time a task completes (successfully or not) the next one is started, so a single slow
+ * cluster doesn't hold up the others, but we never flood the API server or the worker pool either.
+ */
+class BoundedFanOut {
+
+    private final Iterator<Supplier<Future<Void>>> tasks;
+    private final AtomicInteger remaining;
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Future<Integer> result = Future.future();
+
+    private BoundedFanOut(List<Supplier<Future<Void>>> tasks) {
+        this.tasks = tasks.iterator();
+        this.remaining = new AtomicInteger(tasks.size());
+    }
+
+    /**
+     * Start the given {@code tasks}, with at most {@code parallelism} of them running at once.
+     * @param tasks The tasks, each of which starts an operation and returns a future for its outcome.
+     * @param parallelism The maximum number of tasks in flight.
+     * @return A future which completes once all the tasks have completed, with the number of tasks which failed.
+     */
+    static Future<Integer> run(List<Supplier<Future<Void>>> tasks, int parallelism) {
+        BoundedFanOut fanOut = new BoundedFanOut(tasks);
+        if (tasks.isEmpty()) {
+            fanOut.result.complete(0);
+        } else {
+            int initial = Math.min(Math.max(parallelism, 1), tasks.size());
+            for (int i = 0; i < initial; i++) {
+                fanOut.next();
+            }
+        }
+        return fanOut.result;
+    }
+
+    private void next() {
+        Supplier<Future<Void>> task;
+        // Completion handlers might run on different threads
+        synchronized (tasks) {
+            if (!tasks.hasNext()) {
+                return;
+            }
+            task = tasks.next();
+        }
+        Future<Void> fut;
+        try {
+            fut = task.get();
+        } catch (Throwable t) {
+            fut = Future.failedFuture(t);
+        }
+        fut.setHandler(ar -> {
+            if (ar.failed()) {
+                failed.incrementAndGet();
+            }
+            if (remaining.decrementAndGet() == 0) {
+                result.complete(failed.get());
+            } else {
+                next();
+            }
+        });
+    }
+}
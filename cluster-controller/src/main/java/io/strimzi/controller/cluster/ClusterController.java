@@ -6,15 +6,20 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.strimzi.controller.cluster.operations.cluster.KafkaClusterOperations;
 import io.strimzi.controller.cluster.operations.cluster.KafkaConnectClusterOperations;
 import io.strimzi.controller.cluster.operations.cluster.ZookeeperClusterOperations;
+import io.strimzi.controller.cluster.operations.resource.AbstractOperations;
 import io.strimzi.controller.cluster.operations.resource.BuildConfigOperations;
 import io.strimzi.controller.cluster.operations.resource.ConfigMapOperations;
 import io.strimzi.controller.cluster.operations.resource.DeploymentOperations;
 import io.strimzi.controller.cluster.operations.resource.ImageStreamOperations;
+import io.strimzi.controller.cluster.operations.resource.PodOperations;
 import io.strimzi.controller.cluster.operations.resource.PvcOperations;
 import io.strimzi.controller.cluster.operations.resource.ServiceOperations;
 import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+import io.strimzi.controller.cluster.resources.AbstractCluster;
 import io.strimzi.controller.cluster.resources.KafkaCluster;
 import io.strimzi.controller.cluster.resources.KafkaConnectCluster;
+import io.strimzi.controller.cluster.resources.ZookeeperCluster;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.api.model.extensions.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
@@ -27,11 +32,18 @@ import io.vertx.core.Handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 public class ClusterController extends AbstractVerticle {
 
@@ -42,19 +54,43 @@ public class ClusterController extends AbstractVerticle {
     public static final String STRIMZI_TYPE_LABEL = STRIMZI_DOMAIN + "/type";
     public static final String STRIMZI_CLUSTER_LABEL = STRIMZI_DOMAIN + "/cluster";
     public static final String STRIMZI_NAME_LABEL = STRIMZI_DOMAIN + "/name";
+    public static final String STRIMZI_SPEC_HASH_ANNOTATION = STRIMZI_CLUSTER_CONTROLLER_DOMAIN + "/spec-hash";
+    /**
+     * Annotation on a cluster's StatefulSet (or Deployment, for Kafka Connect) recording the hash of the
+     * ConfigMap data last successfully applied to the cluster, see {@link AbstractCluster#configHash(ConfigMap)}.
+     */
+    public static final String STRIMZI_CONFIG_HASH_ANNOTATION = STRIMZI_CLUSTER_CONTROLLER_DOMAIN + "/config-hash";
 
     private static final int HEALTH_SERVER_PORT = 8080;
 
     private final KubernetesClient client;
     private final Map<String, String> labels;
-    private final String namespace;
+    private final Set<String> namespaces;
+    private final int reconciliationParallelism;
+    private final int operationsPoolSize;
+    private final int longOperationsPoolSize;
+    private final ReconciliationSchedule reconciliationSchedule;
+    private final ClusterControllerConfig config;
+    private LeaderElector leaderElector;
+    private final List<WorkerPool> workerPools = new ArrayList<>(2);
     private ConfigMapOperations configMapOperations;
     private StatefulSetOperations statefulSetOperations;
     private DeploymentOperations deploymentOperations;
+    private boolean isOpenShift;
+    private final List<AbstractOperations<?, ?, ?, ?, ?>> cachedOperations = new ArrayList<>();
 
-    private Watch configMapWatch;
+    private final Map<String, Watch> configMapWatches = new ConcurrentHashMap<>();
 
     private long reconcileTimer;
+    private long reconcileTick = 0;
+    // Guarded by pendingReconciliations
+    private boolean reconcileInProgress = false;
+    /**
+     * Reconciliations requested while another was in progress, by slice (-1 for all the clusters),
+     * with whether they're full updates. Guarded by itself.
+     */
+    private final Map<Integer, Boolean> pendingReconciliations = new LinkedHashMap<>();
+    private volatile long lastReconcileDurationMs = -1;
     private ZookeeperClusterOperations zookeeperClusterOperations;
     private KafkaClusterOperations kafkaClusterOperations;
     private KafkaConnectClusterOperations kafkaConnectClusterOperations;
@@ -62,8 +98,18 @@ public class ClusterController extends AbstractVerticle {
     public ClusterController(ClusterControllerConfig config) {
         log.info("Creating ClusterController");
 
-        this.namespace = config.getNamespace();
+        this.config = config;
+        this.namespaces = config.getNamespaces();
         this.labels = config.getLabels();
+        this.reconciliationParallelism = config.getReconciliationParallelism();
+        this.operationsPoolSize = config.getOperationsPoolSize();
+        this.longOperationsPoolSize = config.getLongOperationsPoolSize();
+        this.reconciliationSchedule = new ReconciliationSchedule(config.getFullReconciliationIntervalMs(),
+                config.getReconciliationSlices(), new Random());
+        if (config.isLeaderElectionEnabled() && config.getLeaderElectionLockNamespace() == null) {
+            throw new IllegalArgumentException(ClusterControllerConfig.STRIMZI_LEADER_ELECTION_LOCK_NAMESPACE
+                    + " is required for leader election when watching all namespaces");
+        }
         this.client = new DefaultKubernetesClient();
     }
 
@@ -73,13 +119,20 @@ public class ClusterController extends AbstractVerticle {
     private void setupOperations() {
 
         ServiceOperations serviceOperations = new ServiceOperations(vertx, client);
-        statefulSetOperations = new StatefulSetOperations(vertx, client);
+        PodOperations podOperations = new PodOperations(vertx, client);
+        statefulSetOperations = new StatefulSetOperations(vertx, client, podOperations);
         configMapOperations = new ConfigMapOperations(vertx, client);
         PvcOperations pvcOperations = new PvcOperations(vertx, client);
         deploymentOperations = new DeploymentOperations(vertx, client);
+        cachedOperations.add(configMapOperations);
+        cachedOperations.add(statefulSetOperations);
+        cachedOperations.add(deploymentOperations);
+        cachedOperations.add(serviceOperations);
+        cachedOperations.add(pvcOperations);
+        cachedOperations.add(podOperations);
         ImageStreamOperations imagesStreamResources;
         BuildConfigOperations buildConfigOperations;
-        boolean isOpenShift = Boolean.TRUE.equals(client.isAdaptable(OpenShiftClient.class));
+        isOpenShift = Boolean.TRUE.equals(client.isAdaptable(OpenShiftClient.class));
         if (isOpenShift) {
             imagesStreamResources = new ImageStreamOperations(vertx, client.adapt(OpenShiftClient.class));
             buildConfigOperations = new BuildConfigOperations(vertx, client.adapt(OpenShiftClient.class));
@@ -96,32 +149,47 @@ public class ClusterController extends AbstractVerticle {
     public void start(Future<Void> start) {
         log.info("Starting ClusterController");
 
-        this.setupOperations();
+        // Configure the worker pools here, but they are used only in other places
+        workerPools.add(WorkerPool.create(getVertx(), WorkerPool.SHORT_OPERATIONS, operationsPoolSize));
+        workerPools.add(WorkerPool.create(getVertx(), WorkerPool.LONG_OPERATIONS, longOperationsPoolSize));
+        registerGauges();
 
-        // Configure the executor here, but it is used only in other places
-        getVertx().createSharedWorkerExecutor("kubernetes-ops-pool", 5, TimeUnit.SECONDS.toNanos(120));
+        this.setupOperations();
 
-        createConfigMapWatch(res -> {
-            if (res.succeeded())    {
-                configMapWatch = res.result();
+        startCaches().setHandler(cached -> {
+            if (cached.failed()) {
+                log.error("ClusterController startup failed: unable to populate the resource caches", cached.cause());
+                start.fail("ClusterController startup failed");
+                return;
+            }
+            createConfigMapWatches().setHandler(res -> {
+                if (res.succeeded())    {
+                    log.info("Setting up periodical reconciliation of {} slice(s) every {}ms",
+                            reconciliationSchedule.getSlices(), reconciliationSchedule.getTickMs());
+                    this.reconcileTimer = vertx.setPeriodic(reconciliationSchedule.getTickMs(), res2 -> {
+                        long tick = reconcileTick++;
+                        int slice = reconciliationSchedule.sliceOf(tick);
+                        boolean fullUpdate = reconciliationSchedule.intervalOf(tick) % config.getFullUpdateIntervals() == 0;
+                        log.info("Triggering periodic reconciliation of slice {}{} ...", slice, fullUpdate ? " with full updates" : "");
+                        reconcile(slice, fullUpdate);
+                    });
 
-                log.info("Setting up periodical reconciliation");
-                this.reconcileTimer = vertx.setPeriodic(120000, res2 -> {
-                    log.info("Triggering periodic reconciliation ...");
-                    reconcile();
-                });
+                    if (config.isLeaderElectionEnabled()) {
+                        startLeaderElection();
+                    }
 
-                log.info("ClusterController up and running");
+                    log.info("ClusterController up and running");
 
-                // start the HTTP server for healthchecks
-                this.startHealthServer();
+                    // start the HTTP server for healthchecks
+                    this.startHealthServer();
 
-                start.complete();
-            }
-            else {
-                log.error("ClusterController startup failed");
-                start.fail("ClusterController startup failed");
-            }
+                    start.complete();
+                }
+                else {
+                    log.error("ClusterController startup failed");
+                    start.fail("ClusterController startup failed");
+                }
+            });
         });
     }
 
@@ -129,18 +197,113 @@ public class ClusterController extends AbstractVerticle {
     public void stop(Future<Void> stop) throws Exception {
 
         vertx.cancelTimer(reconcileTimer);
-        configMapWatch.close();
-        client.close();
+        for (Watch watch : configMapWatches.values()) {
+            watch.close();
+        }
+        Future<Void> released = leaderElector != null ? leaderElector.stop() : Future.succeededFuture();
+        released.setHandler(ar -> {
+            for (AbstractOperations<?, ?, ?, ?, ?> operations : cachedOperations) {
+                operations.stopCaches();
+            }
+            client.close();
+
+            stop.complete();
+        });
+    }
+
+    /**
+     * Start taking part in leader election. Until this replica is elected it keeps its caches and watch
+     * running, but doesn't act on them, so that when it is elected it can reconcile straight away.
+     */
+    private void startLeaderElection() {
+        String identity = System.getenv("HOSTNAME") != null ? System.getenv("HOSTNAME") : UUID.randomUUID().toString();
+        leaderElector = new LeaderElector(vertx, client, config.getLeaderElectionLockNamespace(), config.getLeaderElectionLockName(), identity,
+                config.getLeaderElectionLeaseDurationMs(), leading -> {
+                    if (leading) {
+                        log.info("Elected leader, reconciling all clusters");
+                        // the previous leader may not have finished updating them, whatever their config hash says
+                        reconcile(-1, true);
+                    } else {
+                        log.info("No longer the leader, standing by");
+                    }
+                });
+        leaderElector.start();
+    }
 
-        stop.complete();
+    /**
+     * @return Whether this replica should act on the clusters: it is the leader, or leader election is disabled.
+     */
+    private boolean isLeader() {
+        return leaderElector == null ? !config.isLeaderElectionEnabled() : leaderElector.isLeader();
+    }
+
+    /**
+     * Register the gauges which expose the controller's own state on the {@code /metrics} endpoint.
+     */
+    private void registerGauges() {
+        Metrics metrics = Metrics.get(vertx);
+        metrics.gauge("strimzi_leader", "Whether this replica is the leader (1) or on standby (0)",
+            () -> isLeader() ? 1 : 0);
+        metrics.gauge("strimzi_reconciliation_last_duration_seconds", "Duration of the last periodic reconciliation",
+            () -> lastReconcileDurationMs / 1000.0);
+        for (WorkerPool pool : workerPools) {
+            metrics.gauge("strimzi_worker_pool_size", "Number of threads in the worker pool",
+                    pool::getSize, "pool", pool.getName());
+            metrics.gauge("strimzi_worker_pool_active", "Number of tasks running in the worker pool",
+                    pool::getActive, "pool", pool.getName());
+            metrics.gauge("strimzi_worker_pool_queue_depth", "Number of tasks waiting for a thread in the worker pool",
+                    pool::getQueueDepth, "pool", pool.getName());
+            metrics.gauge("strimzi_worker_pool_completed", "Number of tasks completed by the worker pool",
+                    pool::getCompleted, "pool", pool.getName());
+            metrics.gauge("strimzi_worker_pool_wait_seconds_total", "Total time tasks have waited for a thread in the worker pool",
+                () -> pool.getTotalWaitMs() / 1000.0, "pool", pool.getName());
+            metrics.gauge("strimzi_worker_pool_wait_seconds_max", "Longest time a task has waited for a thread in the worker pool",
+                () -> pool.getMaxWaitMs() / 1000.0, "pool", pool.getName());
+        }
+    }
+
+    /**
+     * Start the watch-backed caches of the resources we operate on, so that reading them
+     * (in particular during periodic reconciliation) doesn't need API calls.
+     * When watching all namespaces there's a single cache, and so a single watch, per kind of resource.
+     */
+    private Future<Void> startCaches() {
+        List<Future> started = new ArrayList<>(cachedOperations.size() * namespaces.size());
+        for (String namespace : namespaces) {
+            for (AbstractOperations<?, ?, ?, ?, ?> operations : cachedOperations) {
+                started.add(operations.startCache(namespace, labels));
+            }
+        }
+        Future<Void> result = Future.future();
+        CompositeFuture.all(started).setHandler(ar -> result.handle(ar.map((Void) null)));
+        return result;
+    }
+
+    private Future<Void> createConfigMapWatches() {
+        List<Future> created = new ArrayList<>(namespaces.size());
+        for (String namespace : namespaces) {
+            Future<Watch> watch = Future.future();
+            createConfigMapWatch(namespace, watch.completer());
+            created.add(watch.map(w -> {
+                configMapWatches.put(namespace, w);
+                return w;
+            }));
+        }
+        Future<Void> result = Future.future();
+        CompositeFuture.all(created).setHandler(ar -> result.handle(ar.map((Void) null)));
+        return result;
     }
 
-    private void createConfigMapWatch(Handler<AsyncResult<Watch>> handler) {
+    private void createConfigMapWatch(String watchedNamespace, Handler<AsyncResult<Watch>> handler) {
         getVertx().executeBlocking(
                 future -> {
-                    Watch watch = client.configMaps().inNamespace(namespace).withLabels(labels).watch(new Watcher<ConfigMap>() {
+                    Watcher<ConfigMap> watcher = new Watcher<ConfigMap>() {
                         @Override
                         public void eventReceived(Action action, ConfigMap cm) {
+                            if (!isLeader()) {
+                                log.debug("Not the leader, ignoring {} event for ConfigMap {}", action, cm.getMetadata().getName());
+                                return;
+                            }
                             Map<String, String> labels = cm.getMetadata().getLabels();
                             String type;
 
@@ -179,10 +342,18 @@ public class ClusterController extends AbstractVerticle {
                                 case MODIFIED:
                                     log.info("Modified ConfigMap {}", cm.getMetadata().getName());
                                     if (type.equals(KafkaCluster.TYPE)) {
-                                        updateKafkaCluster(cm);
+                                        if (isApplied(configHash(cm), statefulSetOperations.get(cm.getMetadata().getNamespace(), KafkaCluster.kafkaClusterName(cm.getMetadata().getName())))) {
+                                            skipUpdate(cm, KafkaCluster.TYPE, "watch");
+                                        } else {
+                                            updateKafkaCluster(cm);
+                                        }
                                     }
                                     else if (type.equals(KafkaConnectCluster.TYPE)) {
-                                        updateKafkaConnectCluster(cm);
+                                        if (isApplied(configHash(cm), deploymentOperations.get(cm.getMetadata().getNamespace(), KafkaConnectCluster.kafkaConnectClusterName(cm.getMetadata().getName())))) {
+                                            skipUpdate(cm, KafkaConnectCluster.TYPE, "watch");
+                                        } else {
+                                            updateKafkaConnectCluster(cm);
+                                        }
                                     }
                                     break;
                                 case ERROR:
@@ -204,13 +375,18 @@ public class ClusterController extends AbstractVerticle {
                                 log.error("Watcher closed");
                             }
 
-                            recreateConfigMapWatch();
+                            Metrics.get(vertx).increment("strimzi_watch_reconnects_total", "Number of times a watch was closed and had to be reopened",
+                                    "kind", "ConfigMap", "watch", "clusters", "namespace", watchedNamespace);
+                            recreateConfigMapWatch(watchedNamespace);
                         }
-                    });
+                    };
+                    Watch watch = AbstractOperations.ANY_NAMESPACE.equals(watchedNamespace) ?
+                            client.configMaps().inAnyNamespace().withLabels(labels).watch(watcher) :
+                            client.configMaps().inNamespace(watchedNamespace).withLabels(labels).watch(watcher);
                     future.complete(watch);
                 }, res -> {
                     if (res.succeeded())    {
-                        log.info("ConfigMap watcher up and running for labels {}", labels);
+                        log.info("ConfigMap watcher up and running for labels {} in namespace {}", labels, watchedNamespace);
                         handler.handle(Future.succeededFuture((Watch)res.result()));
                     }
                     else {
@@ -221,16 +397,19 @@ public class ClusterController extends AbstractVerticle {
         );
     }
 
-    private void recreateConfigMapWatch() {
-        configMapWatch.close();
+    private void recreateConfigMapWatch(String watchedNamespace) {
+        Watch old = configMapWatches.remove(watchedNamespace);
+        if (old != null) {
+            old.close();
+        }
 
-        createConfigMapWatch(res -> {
+        createConfigMapWatch(watchedNamespace, res -> {
             if (res.succeeded())    {
-                log.info("ConfigMap watch recreated");
-                configMapWatch = res.result();
+                log.info("ConfigMap watch recreated for namespace {}", watchedNamespace);
+                configMapWatches.put(watchedNamespace, res.result());
             }
             else {
-                log.error("Failed to recreate ConfigMap watch");
+                log.error("Failed to recreate ConfigMap watch for namespace {}", watchedNamespace);
             }
         });
     }
@@ -239,123 +418,365 @@ public class ClusterController extends AbstractVerticle {
       Periodical reconciliation (in case we lost some event)
      */
     private void reconcile() {
-        reconcileKafka();
-        reconcileKafkaConnect();
+        reconcile(-1, false);
     }
 
-    private void reconcileKafka() {
-        log.info("Reconciling Kafka clusters ...");
+    /**
+     * Reconcile the clusters in the given slice of the {@link ReconciliationSchedule},
+     * spreading the operations over the tick, or reconcile all the clusters at once if {@code slice} is -1.
+     * Unless {@code fullUpdate} is true, clusters whose ConfigMap has already been applied are skipped.
+     */
+    private void reconcile(int slice, boolean fullUpdate) {
+        if (!isLeader()) {
+            log.debug("Not the leader, skipping reconciliation");
+            return;
+        }
+        // reconcile() can also be triggered from the watch thread, so guard against overlapping passes,
+        // but rather than dropping the request, run it once the pass in progress has finished
+        synchronized (pendingReconciliations) {
+            if (reconcileInProgress) {
+                log.info("Previous reconciliation still in progress, running this one when it finishes");
+                defer(pendingReconciliations, slice, fullUpdate);
+                return;
+            }
+            reconcileInProgress = true;
+        }
+        doReconcile(slice, fullUpdate).setHandler(done -> reconcileNext());
+    }
 
-        Map<String, String> kafkaLabels = new HashMap(labels);
-        kafkaLabels.put(ClusterController.STRIMZI_TYPE_LABEL, KafkaCluster.TYPE);
+    /**
+     * Run the next of the reconciliations requested while the last one was in progress, if there are any.
+     */
+    private void reconcileNext() {
+        Map.Entry<Integer, Boolean> next = null;
+        synchronized (pendingReconciliations) {
+            Iterator<Map.Entry<Integer, Boolean>> it = pendingReconciliations.entrySet().iterator();
+            if (it.hasNext()) {
+                next = it.next();
+                it.remove();
+            } else {
+                reconcileInProgress = false;
+            }
+        }
+        if (next != null) {
+            log.info("Running deferred reconciliation of slice {}", next.getKey());
+            doReconcile(next.getKey(), next.getValue()).setHandler(done -> reconcileNext());
+        }
+    }
 
-        List<ConfigMap> cms = configMapOperations.list(namespace, kafkaLabels);
-        List<StatefulSet> sss = statefulSetOperations.list(namespace, kafkaLabels);
+    /**
+     * Add a reconciliation to those waiting for the one in progress to finish. A reconciliation of all the clusters
+     * supersedes any of a single slice, and requests for the same slice are merged, doing a full update if either does.
+     */
+    static void defer(Map<Integer, Boolean> pending, int slice, boolean fullUpdate) {
+        if (slice < 0) {
+            for (boolean full : pending.values()) {
+                fullUpdate |= full;
+            }
+            pending.clear();
+            pending.put(-1, fullUpdate);
+        } else {
+            pending.merge(pending.containsKey(-1) ? -1 : slice, fullUpdate, Boolean::logicalOr);
+        }
+    }
 
-        List<String> cmsNames = cms.stream().map(cm -> cm.getMetadata().getName()).collect(Collectors.toList());
-        List<String> sssNames = sss.stream().map(cm -> cm.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL)).collect(Collectors.toList());
+    private Future<Void> doReconcile(int slice, boolean fullUpdate) {
+        if (!isLeader()) {
+            log.debug("Not the leader, skipping reconciliation");
+            return Future.succeededFuture();
+        }
+        long start = System.nanoTime();
+        Future<Void> result = Future.future();
 
-        List<ConfigMap> addList = cms.stream().filter(cm -> !sssNames.contains(cm.getMetadata().getName())).collect(Collectors.toList());
-        List<ConfigMap> updateList = cms.stream().filter(cm -> sssNames.contains(cm.getMetadata().getName())).collect(Collectors.toList());
-        List<StatefulSet> deletionList = sss.stream().filter(ss -> !cmsNames.contains(ss.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL))).collect(Collectors.toList());
+        Map<String, String> kafkaLabels = new HashMap<>(labels);
+        kafkaLabels.put(ClusterController.STRIMZI_TYPE_LABEL, KafkaCluster.TYPE);
+        Map<String, String> connectLabels = new HashMap<>(labels);
+        connectLabels.put(ClusterController.STRIMZI_TYPE_LABEL, KafkaConnectCluster.TYPE);
+
+        // Tasks are grouped by namespace, so that each namespace gets its own concurrency limit
+        // and a namespace with many clusters doesn't hold up the others
+        Map<String, List<Supplier<Future<Void>>>> tasksByNamespace = new ConcurrentHashMap<>();
+        List<Future> listed = new ArrayList<>(namespaces.size());
+        for (String namespace : namespaces) {
+            Future<List<ConfigMap>> kafkaCms = configMapOperations.listAsync(namespace, kafkaLabels);
+            Future<List<StatefulSet>> kafkaSss = statefulSetOperations.listAsync(namespace, kafkaLabels);
+            Future<List<ConfigMap>> connectCms = configMapOperations.listAsync(namespace, connectLabels);
+            Future<List<Deployment>> connectDeps = deploymentOperations.listAsync(namespace, connectLabels);
+
+            Future<Void> namespaceListed = Future.future();
+            listed.add(namespaceListed);
+            CompositeFuture.join(kafkaCms, kafkaSss, connectCms, connectDeps).setHandler(ar -> {
+                if (kafkaCms.succeeded() && kafkaSss.succeeded()) {
+                    reconcileKafka(kafkaCms.result(), kafkaSss.result(), slice, fullUpdate, tasksByNamespace);
+                } else {
+                    log.error("Failed to list Kafka cluster resources in namespace {}, skipping Kafka reconciliation", namespace, ar.cause());
+                }
+                if (connectCms.succeeded() && connectDeps.succeeded()) {
+                    reconcileKafkaConnect(connectCms.result(), connectDeps.result(), slice, fullUpdate, tasksByNamespace);
+                } else {
+                    log.error("Failed to list Kafka Connect cluster resources in namespace {}, skipping Kafka Connect reconciliation", namespace, ar.cause());
+                }
+                namespaceListed.complete();
+            });
+        }
 
-        addKafkaClusters(addList);
-        deleteKafkaClusters(deletionList);
-        updateKafkaClusters(updateList);
+        CompositeFuture.join(listed).setHandler(ignored -> {
+            List<Future> fanOuts = new ArrayList<>(tasksByNamespace.size());
+            int taskCount = 0;
+            for (List<Supplier<Future<Void>>> tasks : tasksByNamespace.values()) {
+                taskCount += tasks.size();
+                fanOuts.add(BoundedFanOut.run(slice < 0 ? tasks : spread(tasks), reconciliationParallelism));
+            }
+            int total = taskCount;
+            CompositeFuture.join(fanOuts).setHandler(done -> {
+                int failures = 0;
+                for (Future fanOut : fanOuts) {
+                    failures += (Integer) fanOut.result();
+                }
+                lastReconcileDurationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Metrics.get(vertx).time("strimzi_reconciliation_duration_seconds", "Duration of periodic reconciliations",
+                        System.nanoTime() - start);
+                log.info("Reconciliation of {} clusters in {} namespaces finished in {}ms with {} failures",
+                        total, tasksByNamespace.size(), lastReconcileDurationMs, failures);
+                for (WorkerPool pool : workerPools) {
+                    log.info("{}", pool);
+                }
+                result.complete();
+            });
+        });
+        return result;
     }
 
-    private void addKafkaClusters(List<ConfigMap> add)   {
-        for (ConfigMap cm : add) {
-            log.info("Reconciliation: Kafka cluster {} should be added", cm.getMetadata().getName());
-            addKafkaCluster(cm);
+    /**
+     * Delay the start of each of the given tasks to its offset in the current tick,
+     * so that they don't all hit the API server at once.
+     */
+    private List<Supplier<Future<Void>>> spread(List<Supplier<Future<Void>>> tasks) {
+        long tickStart = System.currentTimeMillis();
+        long[] offsets = reconciliationSchedule.offsets(tasks.size());
+        List<Supplier<Future<Void>>> spread = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Supplier<Future<Void>> task = tasks.get(i);
+            long startAt = tickStart + offsets[i];
+            spread.add(() -> {
+                long delay = startAt - System.currentTimeMillis();
+                if (delay <= 0) {
+                    return task.get();
+                }
+                Future<Void> started = Future.future();
+                vertx.setTimer(delay, timer -> started.complete());
+                return started.compose(v -> task.get());
+            });
         }
+        return spread;
     }
 
-    private void updateKafkaClusters(List<ConfigMap> update)   {
-        for (ConfigMap cm : update) {
-            log.info("Reconciliation: Kafka cluster {} should be checked for updates", cm.getMetadata().getName());
-            updateKafkaCluster(cm);
-        }
+    /**
+     * Get the duration of the last completed periodic reconciliation pass.
+     * @return The duration in milliseconds, or -1 if no pass has completed yet.
+     */
+    public long getLastReconcileDurationMs() {
+        return lastReconcileDurationMs;
     }
 
-    private void deleteKafkaClusters(List<StatefulSet> delete)   {
-        for (StatefulSet ss : delete) {
-            log.info("Reconciliation: Kafka cluster {} should be deleted", ss.getMetadata().getName());
-            deleteKafkaCluster(ss);
-        }
+    /**
+     * @return The worker pools for blocking Kubernetes operations.
+     */
+    public List<WorkerPool> getWorkerPools() {
+        return workerPools;
     }
 
-    private void reconcileKafkaConnect() {
-        log.info("Reconciling Kafka Connect clusters ...");
+    /**
+     * Compute which clusters need to be added, updated or deleted, indexing the resources by namespace and
+     * cluster name so that the cost is linear in the number of resources.
+     * Only the clusters in the given {@code slice} are considered.
+     */
+    private void reconcileKafka(List<ConfigMap> cms, List<StatefulSet> sss, int slice, boolean fullUpdate, Map<String, List<Supplier<Future<Void>>>> tasksByNamespace) {
+        log.info("Reconciling Kafka clusters ...");
 
-        Map<String, String> kafkaLabels = new HashMap(labels);
-        kafkaLabels.put(ClusterController.STRIMZI_TYPE_LABEL, KafkaConnectCluster.TYPE);
+        Map<String, ConfigMap> cmsByName = new HashMap<>(cms.size());
+        for (ConfigMap cm : cms) {
+            cmsByName.put(clusterKey(cm.getMetadata().getNamespace(), cm.getMetadata().getName()), cm);
+        }
+        Map<String, StatefulSet> sssByName = new HashMap<>(sss.size());
+        for (StatefulSet ss : sss) {
+            String key = clusterKey(ss.getMetadata().getNamespace(), ss.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL));
+            sssByName.put(key, ss);
+            if (!cmsByName.containsKey(key) && reconciliationSchedule.inSlice(key, slice)) {
+                log.info("Reconciliation: Kafka cluster {} should be deleted", key);
+                tasksFor(tasksByNamespace, ss).add(() -> deleteKafkaCluster(ss));
+            }
+        }
+        for (ConfigMap cm : cms) {
+            String key = clusterKey(cm.getMetadata().getNamespace(), cm.getMetadata().getName());
+            if (!reconciliationSchedule.inSlice(key, slice)) {
+                continue;
+            }
+            List<Supplier<Future<Void>>> tasks = tasksFor(tasksByNamespace, cm);
+            StatefulSet ss = sssByName.get(key);
+            if (ss != null && !fullUpdate && isApplied(configHash(cm), ss)) {
+                skipUpdate(cm, KafkaCluster.TYPE, "reconciliation");
+            } else if (ss != null) {
+                log.info("Reconciliation: Kafka cluster {} should be checked for updates", cm.getMetadata().getName());
+                tasks.add(() -> updateKafkaCluster(cm));
+            } else {
+                log.info("Reconciliation: Kafka cluster {} should be added", cm.getMetadata().getName());
+                tasks.add(() -> addKafkaCluster(cm));
+            }
+        }
+    }
 
-        List<ConfigMap> cms = configMapOperations.list(namespace, kafkaLabels);
-        List<Deployment> deps = deploymentOperations.list(namespace, kafkaLabels);
+    private void reconcileKafkaConnect(List<ConfigMap> cms, List<Deployment> deps, int slice, boolean fullUpdate, Map<String, List<Supplier<Future<Void>>>> tasksByNamespace) {
+        log.info("Reconciling Kafka Connect clusters ...");
 
-        List<String> cmsNames = cms.stream().map(cm -> cm.getMetadata().getName()).collect(Collectors.toList());
-        List<String> depsNames = deps.stream().map(cm -> cm.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL)).collect(Collectors.toList());
+        Map<String, ConfigMap> cmsByName = new HashMap<>(cms.size());
+        for (ConfigMap cm : cms) {
+            cmsByName.put(clusterKey(cm.getMetadata().getNamespace(), cm.getMetadata().getName()), cm);
+        }
+        Map<String, Deployment> depsByName = new HashMap<>(deps.size());
+        for (Deployment dep : deps) {
+            String key = clusterKey(dep.getMetadata().getNamespace(), dep.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL));
+            depsByName.put(key, dep);
+            if (!cmsByName.containsKey(key) && reconciliationSchedule.inSlice(key, slice)) {
+                log.info("Reconciliation: Kafka Connect cluster {} should be deleted", key);
+                tasksFor(tasksByNamespace, dep).add(() -> deleteKafkaConnectCluster(dep));
+            }
+        }
+        for (ConfigMap cm : cms) {
+            String key = clusterKey(cm.getMetadata().getNamespace(), cm.getMetadata().getName());
+            if (!reconciliationSchedule.inSlice(key, slice)) {
+                continue;
+            }
+            List<Supplier<Future<Void>>> tasks = tasksFor(tasksByNamespace, cm);
+            Deployment dep = depsByName.get(key);
+            if (dep != null && !fullUpdate && isApplied(configHash(cm), dep)) {
+                skipUpdate(cm, KafkaConnectCluster.TYPE, "reconciliation");
+            } else if (dep != null) {
+                log.info("Reconciliation: Kafka Connect cluster {} should be checked for updates", cm.getMetadata().getName());
+                tasks.add(() -> updateKafkaConnectCluster(cm));
+            } else {
+                log.info("Reconciliation: Kafka Connect cluster {} should be added", cm.getMetadata().getName());
+                tasks.add(() -> addKafkaConnectCluster(cm));
+            }
+        }
+    }
 
-        List<ConfigMap> addList = cms.stream().filter(cm -> !depsNames.contains(cm.getMetadata().getName())).collect(Collectors.toList());
-        List<ConfigMap> updateList = cms.stream().filter(cm -> depsNames.contains(cm.getMetadata().getName())).collect(Collectors.toList());
-        List<Deployment> deletionList = deps.stream().filter(dep -> !cmsNames.contains(dep.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL))).collect(Collectors.toList());
+    private static String clusterKey(String namespace, String name) {
+        return namespace + "/" + name;
+    }
 
-        addKafkaConnectClusters(addList);
-        deleteConnectConnectClusters(deletionList);
-        updateKafkaConnectClusters(updateList);
+    private static List<Supplier<Future<Void>>> tasksFor(Map<String, List<Supplier<Future<Void>>>> tasksByNamespace, HasMetadata resource) {
+        return tasksByNamespace.computeIfAbsent(resource.getMetadata().getNamespace(), ns -> new ArrayList<>());
     }
 
-    private void addKafkaConnectClusters(List<ConfigMap> add)   {
-        for (ConfigMap cm : add) {
-            log.info("Reconciliation: Kafka Connect cluster {} should be added", cm.getMetadata().getName());
-            addKafkaConnectCluster(cm);
+    /**
+     * Whether the cluster ConfigMap with the given config hash has already been applied to the cluster,
+     * according to the {@link #STRIMZI_CONFIG_HASH_ANNOTATION} of its StatefulSet or Deployment.
+     */
+    static boolean isApplied(String configHash, HasMetadata resource) {
+        if (configHash == null || resource == null || resource.getMetadata().getAnnotations() == null) {
+            return false;
         }
+        return configHash.equals(resource.getMetadata().getAnnotations().get(STRIMZI_CONFIG_HASH_ANNOTATION));
     }
 
-    private void updateKafkaConnectClusters(List<ConfigMap> update)   {
-        for (ConfigMap cm : update) {
-            log.info("Reconciliation: Kafka Connect cluster {} should be checked for updates", cm.getMetadata().getName());
-            updateKafkaConnectCluster(cm);
+    /**
+     * Compute the config hash of the given cluster ConfigMap, see {@link AbstractCluster#configHash(ConfigMap, List)}.
+     * @return The hash, or null if the ConfigMap isn't valid, so that it's never taken to be applied.
+     */
+    private String configHash(ConfigMap cm) {
+        List<HasMetadata> generated = new ArrayList<>();
+        try {
+            if (KafkaConnectCluster.TYPE.equals(cm.getMetadata().getLabels().get(STRIMZI_TYPE_LABEL))) {
+                KafkaConnectCluster connect = KafkaConnectCluster.fromConfigMap(isOpenShift, cm);
+                generated.add(connect.generateService());
+                generated.add(connect.generateDeployment());
+            } else {
+                ZookeeperCluster zk = ZookeeperCluster.fromConfigMap(cm);
+                KafkaCluster kafka = KafkaCluster.fromConfigMap(cm);
+                if (zk.isMetricsEnabled()) {
+                    generated.add(zk.generateMetricsConfigMap());
+                }
+                generated.add(zk.generateService());
+                generated.add(zk.generateHeadlessService());
+                generated.add(zk.generateStatefulSet(isOpenShift));
+                if (kafka.isMetricsEnabled()) {
+                    generated.add(kafka.generateMetricsConfigMap());
+                }
+                generated.add(kafka.generateService());
+                generated.add(kafka.generateHeadlessService());
+                generated.add(kafka.generateStatefulSet(isOpenShift));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Unable to generate the resources of cluster {}", cm.getMetadata().getName(), e);
+            return null;
         }
+        return AbstractCluster.configHash(cm, generated);
     }
 
-    private void deleteConnectConnectClusters(List<Deployment> delete)   {
-        for (Deployment dep : delete) {
-            log.info("Reconciliation: Kafka Connect cluster {} should be deleted", dep.getMetadata().getName());
-            deleteKafkaConnectCluster(dep);
+    private void skipUpdate(ConfigMap cm, String type, String trigger) {
+        log.info("{} cluster {} is up to date with its ConfigMap, not checking for updates", type, cm.getMetadata().getName());
+        Metrics.get(vertx).increment("strimzi_cluster_updates_skipped_total", "Number of cluster updates skipped because the ConfigMap data was already applied",
+                "type", type, "trigger", trigger);
+    }
+
+    /**
+     * Record on the given StatefulSet or Deployment which ConfigMap data the cluster now reflects.
+     * Failing to record it only costs a redundant update later on, so it doesn't fail the operation.
+     */
+    private Future<Void> recordAppliedConfig(AbstractOperations<?, ?, ?, ?, ?> operations, String name, ConfigMap cm) {
+        Future<Void> result = Future.future();
+        String hash = configHash(cm);
+        if (hash == null) {
+            result.complete();
+            return result;
         }
+        operations.annotate(cm.getMetadata().getNamespace(), name, STRIMZI_CONFIG_HASH_ANNOTATION, hash).setHandler(ar -> {
+            if (ar.failed()) {
+                log.warn("Failed to record the applied config of cluster {}", cm.getMetadata().getName(), ar.cause());
+            }
+            result.complete();
+        });
+        return result;
     }
 
     /*
       Kafka / Zookeeper cluster control
      */
-    private void addKafkaCluster(ConfigMap add)   {
+    private Future<Void> addKafkaCluster(ConfigMap add)   {
+        String namespace = add.getMetadata().getNamespace();
         String name = add.getMetadata().getName();
-        log.info("Adding cluster {}", name);
+        log.info("Adding cluster {} in namespace {}", name, namespace);
 
+        Future<Void> result = Future.future();
         getZookeeperClusterOperations().create(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Zookeeper cluster added {}", name);
                 getKafkaClusterOperations().create(namespace, name, res2 -> {
                     if (res2.succeeded()) {
                         log.info("Kafka cluster added {}", name);
+                        recordAppliedConfig(statefulSetOperations, KafkaCluster.kafkaClusterName(name), add).setHandler(result);
                     }
                     else {
                         log.error("Failed to add Kafka cluster {}.", name);
+                        result.handle(res2);
                     }
                 });
             }
             else {
                 log.error("Failed to add Zookeeper cluster {}. SKipping Kafka cluster creation.", name);
+                result.handle(res);
             }
         });
+        return result;
     }
 
-    private void updateKafkaCluster(ConfigMap cm)   {
+    private Future<Void> updateKafkaCluster(ConfigMap cm)   {
+        String namespace = cm.getMetadata().getNamespace();
         String name = cm.getMetadata().getName();
-        log.info("Checking for updates in cluster {}", cm.getMetadata().getName());
+        log.info("Checking for updates in cluster {} in namespace {}", name, namespace);
 
+        Future<Void> result = Future.future();
         getZookeeperClusterOperations().update(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Zookeeper cluster updated {}", name);
@@ -371,23 +792,30 @@ public class ClusterController extends AbstractVerticle {
                 else {
                     log.error("Failed to update Kafka cluster {}.", name);
                 }
+                if (res.succeeded() && res2.succeeded()) {
+                    recordAppliedConfig(statefulSetOperations, KafkaCluster.kafkaClusterName(name), cm).setHandler(result);
+                } else {
+                    result.handle(res.failed() ? res : res2);
+                }
             });
         });
+        return result;
     }
 
-    private void deleteKafkaCluster(StatefulSet ss)   {
+    private Future<Void> deleteKafkaCluster(StatefulSet ss)   {
         String name = ss.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL);
-        log.info("Deleting cluster {}", name);
-        deleteKafkaCluster(namespace, name);
+        log.info("Deleting cluster {} in namespace {}", name, ss.getMetadata().getNamespace());
+        return deleteKafkaCluster(ss.getMetadata().getNamespace(), name);
     }
 
-    private void deleteKafkaCluster(ConfigMap cm)   {
+    private Future<Void> deleteKafkaCluster(ConfigMap cm)   {
         String name = cm.getMetadata().getName();
-        log.info("Deleting cluster {}", name);
-        deleteKafkaCluster(namespace, name);
+        log.info("Deleting cluster {} in namespace {}", name, cm.getMetadata().getNamespace());
+        return deleteKafkaCluster(cm.getMetadata().getNamespace(), name);
     }
 
-    private void deleteKafkaCluster(String namespace, String name)   {
+    private Future<Void> deleteKafkaCluster(String namespace, String name)   {
+        Future<Void> result = Future.future();
         getKafkaClusterOperations().delete(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Kafka cluster deleted {}", name);
@@ -398,58 +826,72 @@ public class ClusterController extends AbstractVerticle {
                     else {
                         log.error("Failed to delete Zookeeper cluster {}.", name);
                     }
+                    result.handle(res2);
                 });
             }
             else {
                 log.error("Failed to delete Kafka cluster {}. Skipping Zookeeper cluster deletion.", name);
+                result.handle(res);
             }
         });
+        return result;
     }
 
     /*
       Kafka Connect cluster control
      */
-    private void addKafkaConnectCluster(ConfigMap add)   {
+    private Future<Void> addKafkaConnectCluster(ConfigMap add)   {
+        String namespace = add.getMetadata().getNamespace();
         String name = add.getMetadata().getName();
-        log.info("Adding Kafka Connect cluster {}", name);
+        log.info("Adding Kafka Connect cluster {} in namespace {}", name, namespace);
 
+        Future<Void> result = Future.future();
         getKafkaConnectClusterOperations().create(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Kafka Connect cluster added {}", name);
+                recordAppliedConfig(deploymentOperations, KafkaConnectCluster.kafkaConnectClusterName(name), add).setHandler(result);
             }
             else {
                 log.error("Failed to add Kafka Connect cluster {}.", name);
+                result.handle(res);
             }
         });
+        return result;
     }
 
-    private void updateKafkaConnectCluster(ConfigMap cm)   {
+    private Future<Void> updateKafkaConnectCluster(ConfigMap cm)   {
+        String namespace = cm.getMetadata().getNamespace();
         String name = cm.getMetadata().getName();
-        log.info("Checking for updates in Kafka Connect cluster {}", cm.getMetadata().getName());
+        log.info("Checking for updates in Kafka Connect cluster {} in namespace {}", name, namespace);
 
+        Future<Void> result = Future.future();
         getKafkaConnectClusterOperations().update(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Kafka Connect cluster updated {}", name);
+                recordAppliedConfig(deploymentOperations, KafkaConnectCluster.kafkaConnectClusterName(name), cm).setHandler(result);
             }
             else {
                 log.error("Failed to update Kafka Connect cluster {}.", name);
+                result.handle(res);
             }
         });
+        return result;
     }
 
-    private void deleteKafkaConnectCluster(Deployment dep)   {
+    private Future<Void> deleteKafkaConnectCluster(Deployment dep)   {
         String name = dep.getMetadata().getLabels().get(ClusterController.STRIMZI_CLUSTER_LABEL);
-        log.info("Deleting cluster {}", name);
-        deleteKafkaConnectCluster(namespace, name);
+        log.info("Deleting cluster {} in namespace {}", name, dep.getMetadata().getNamespace());
+        return deleteKafkaConnectCluster(dep.getMetadata().getNamespace(), name);
     }
 
-    private void deleteKafkaConnectCluster(ConfigMap cm)   {
+    private Future<Void> deleteKafkaConnectCluster(ConfigMap cm)   {
         String name = cm.getMetadata().getName();
-        log.info("Deleting cluster {}", name);
-        deleteKafkaConnectCluster(namespace, name);
+        log.info("Deleting cluster {} in namespace {}", name, cm.getMetadata().getNamespace());
+        return deleteKafkaConnectCluster(cm.getMetadata().getNamespace(), name);
     }
 
-    private void deleteKafkaConnectCluster(String namespace, String name)   {
+    private Future<Void> deleteKafkaConnectCluster(String namespace, String name)   {
+        Future<Void> result = Future.future();
         getKafkaConnectClusterOperations().delete(namespace, name, res -> {
             if (res.succeeded()) {
                 log.info("Kafka Connect cluster deleted {}", name);
@@ -457,7 +899,9 @@ public class ClusterController extends AbstractVerticle {
             else {
                 log.error("Failed to delete Kafka Connect cluster {}.", name);
             }
+            result.handle(res);
         });
+        return result;
     }
 
     /**
@@ -472,6 +916,13 @@ public class ClusterController extends AbstractVerticle {
                         request.response().setStatusCode(HttpResponseStatus.OK.code()).end();
                     } else if (request.path().equals("/ready")) {
                         request.response().setStatusCode(HttpResponseStatus.OK.code()).end();
+                    } else if (request.path().equals("/metrics")) {
+                        request.response()
+                                .setStatusCode(HttpResponseStatus.OK.code())
+                                .putHeader("Content-Type", "text/plain; version=0.0.4")
+                                .end(Metrics.get(vertx).scrape());
+                    } else {
+                        request.response().setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
                     }
                 })
                 .listen(HEALTH_SERVER_PORT);
@@ -1,24 +1,83 @@
 package io.strimzi.controller.cluster;
 
+import io.strimzi.controller.cluster.operations.resource.AbstractOperations;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class ClusterControllerConfig {
 
     public static final String STRIMZI_NAMESPACE = "STRIMZI_NAMESPACE";
     public static final String STRIMZI_CONFIGMAP_LABELS = "STRIMZI_CONFIGMAP_LABELS";
+    public static final String STRIMZI_RECONCILIATION_PARALLELISM = "STRIMZI_RECONCILIATION_PARALLELISM";
+    public static final String STRIMZI_OPERATIONS_POOL_SIZE = "STRIMZI_OPERATIONS_POOL_SIZE";
+    public static final String STRIMZI_LONG_OPERATIONS_POOL_SIZE = "STRIMZI_LONG_OPERATIONS_POOL_SIZE";
+    public static final String STRIMZI_FULL_RECONCILIATION_INTERVAL_MS = "STRIMZI_FULL_RECONCILIATION_INTERVAL_MS";
+    public static final String STRIMZI_RECONCILIATION_SLICES = "STRIMZI_RECONCILIATION_SLICES";
+    public static final String STRIMZI_FULL_UPDATE_INTERVALS = "STRIMZI_FULL_UPDATE_INTERVALS";
+    public static final String STRIMZI_LEADER_ELECTION_ENABLED = "STRIMZI_LEADER_ELECTION_ENABLED";
+    public static final String STRIMZI_LEADER_ELECTION_LOCK_NAME = "STRIMZI_LEADER_ELECTION_LOCK_NAME";
+    public static final String STRIMZI_LEADER_ELECTION_LOCK_NAMESPACE = "STRIMZI_LEADER_ELECTION_LOCK_NAMESPACE";
+    public static final String STRIMZI_LEADER_ELECTION_LEASE_DURATION_MS = "STRIMZI_LEADER_ELECTION_LEASE_DURATION_MS";
+
+    public static final int DEFAULT_RECONCILIATION_PARALLELISM = 4;
+    public static final long DEFAULT_FULL_RECONCILIATION_INTERVAL_MS = 120_000;
+    public static final int DEFAULT_RECONCILIATION_SLICES = 1;
+    public static final int DEFAULT_FULL_UPDATE_INTERVALS = 5;
+    public static final String DEFAULT_LEADER_ELECTION_LOCK_NAME = "strimzi-cluster-controller-leader";
+    public static final long DEFAULT_LEADER_ELECTION_LEASE_DURATION_MS = 15_000;
 
     private Map<String, String> labels;
-    private String namespace;
+    private Set<String> namespaces;
+    private int reconciliationParallelism = DEFAULT_RECONCILIATION_PARALLELISM;
+    private int operationsPoolSize = WorkerPool.DEFAULT_SHORT_OPERATIONS_SIZE;
+    private int longOperationsPoolSize = WorkerPool.DEFAULT_LONG_OPERATIONS_SIZE;
+    private long fullReconciliationIntervalMs = DEFAULT_FULL_RECONCILIATION_INTERVAL_MS;
+    private int reconciliationSlices = DEFAULT_RECONCILIATION_SLICES;
+    private int fullUpdateIntervals = DEFAULT_FULL_UPDATE_INTERVALS;
+    private boolean leaderElectionEnabled = false;
+    private String leaderElectionLockName = DEFAULT_LEADER_ELECTION_LOCK_NAME;
+    private String leaderElectionLockNamespace;
+    private long leaderElectionLeaseDurationMs = DEFAULT_LEADER_ELECTION_LEASE_DURATION_MS;
 
-    public ClusterControllerConfig(String namespace, Map<String, String> labels) {
-        this.namespace = namespace;
+    public ClusterControllerConfig(Set<String> namespaces, Map<String, String> labels) {
+        setNamespaces(namespaces);
         this.labels = labels;
     }
 
+    public ClusterControllerConfig(Set<String> namespaces, Map<String, String> labels, int reconciliationParallelism) {
+        this(namespaces, labels);
+        setReconciliationParallelism(reconciliationParallelism);
+    }
+
+    public ClusterControllerConfig(String namespace, Map<String, String> labels) {
+        this(Collections.singleton(namespace), labels);
+    }
+
     public static ClusterControllerConfig fromEnv() {
-        String namespace = System.getenv(ClusterControllerConfig.STRIMZI_NAMESPACE);
+        String stringNamespaces = System.getenv(ClusterControllerConfig.STRIMZI_NAMESPACE);
         String stringLabels = System.getenv(ClusterControllerConfig.STRIMZI_CONFIGMAP_LABELS);
+        String stringParallelism = System.getenv(ClusterControllerConfig.STRIMZI_RECONCILIATION_PARALLELISM);
+        String stringPoolSize = System.getenv(ClusterControllerConfig.STRIMZI_OPERATIONS_POOL_SIZE);
+        String stringLongPoolSize = System.getenv(ClusterControllerConfig.STRIMZI_LONG_OPERATIONS_POOL_SIZE);
+        String stringInterval = System.getenv(ClusterControllerConfig.STRIMZI_FULL_RECONCILIATION_INTERVAL_MS);
+        String stringSlices = System.getenv(ClusterControllerConfig.STRIMZI_RECONCILIATION_SLICES);
+        String stringFullUpdateIntervals = System.getenv(ClusterControllerConfig.STRIMZI_FULL_UPDATE_INTERVALS);
+        String stringLeaderElection = System.getenv(ClusterControllerConfig.STRIMZI_LEADER_ELECTION_ENABLED);
+        String lockName = System.getenv(ClusterControllerConfig.STRIMZI_LEADER_ELECTION_LOCK_NAME);
+        String lockNamespace = System.getenv(ClusterControllerConfig.STRIMZI_LEADER_ELECTION_LOCK_NAMESPACE);
+        String stringLeaseDuration = System.getenv(ClusterControllerConfig.STRIMZI_LEADER_ELECTION_LEASE_DURATION_MS);
+
+        Set<String> namespaces = new LinkedHashSet<>();
+        for (String namespace : stringNamespaces.split(",")) {
+            if (!namespace.trim().isEmpty()) {
+                namespaces.add(namespace.trim());
+            }
+        }
 
         Map<String, String> labelsMap = new HashMap<>();
 
@@ -28,7 +87,40 @@ public class ClusterControllerConfig {
             labelsMap.put(fields[0].trim(), fields[1].trim());
         }
 
-        return new ClusterControllerConfig(namespace, labelsMap);
+        int parallelism = DEFAULT_RECONCILIATION_PARALLELISM;
+        if (stringParallelism != null) {
+            parallelism = Integer.parseInt(stringParallelism.trim());
+        }
+
+        ClusterControllerConfig config = new ClusterControllerConfig(namespaces, labelsMap, parallelism);
+        if (stringPoolSize != null) {
+            config.setOperationsPoolSize(Integer.parseInt(stringPoolSize.trim()));
+        }
+        if (stringLongPoolSize != null) {
+            config.setLongOperationsPoolSize(Integer.parseInt(stringLongPoolSize.trim()));
+        }
+        if (stringInterval != null) {
+            config.setFullReconciliationIntervalMs(Long.parseLong(stringInterval.trim()));
+        }
+        if (stringSlices != null) {
+            config.setReconciliationSlices(Integer.parseInt(stringSlices.trim()));
+        }
+        if (stringFullUpdateIntervals != null) {
+            config.setFullUpdateIntervals(Integer.parseInt(stringFullUpdateIntervals.trim()));
+        }
+        if (stringLeaderElection != null) {
+            config.setLeaderElectionEnabled(Boolean.parseBoolean(stringLeaderElection.trim()));
+        }
+        if (lockName != null) {
+            config.setLeaderElectionLockName(lockName.trim());
+        }
+        if (lockNamespace != null) {
+            config.setLeaderElectionLockNamespace(lockNamespace.trim());
+        }
+        if (stringLeaseDuration != null) {
+            config.setLeaderElectionLeaseDurationMs(Long.parseLong(stringLeaseDuration.trim()));
+        }
+        return config;
     }
 
     public Map<String, String> getLabels() {
@@ -39,11 +131,172 @@ public class ClusterControllerConfig {
         this.labels = labels;
     }
 
-    public String getNamespace() {
-        return namespace;
+    /**
+     * @return The namespaces to watch for clusters, or just {@link AbstractOperations#ANY_NAMESPACE} to watch all of them.
+     */
+    public Set<String> getNamespaces() {
+        return namespaces;
+    }
+
+    public void setNamespaces(Set<String> namespaces) {
+        if (namespaces == null || namespaces.isEmpty()) {
+            throw new IllegalArgumentException(STRIMZI_NAMESPACE + " must list at least one namespace, or " + AbstractOperations.ANY_NAMESPACE);
+        }
+        if (namespaces.size() > 1 && namespaces.contains(AbstractOperations.ANY_NAMESPACE)) {
+            throw new IllegalArgumentException(STRIMZI_NAMESPACE + " can't list " + AbstractOperations.ANY_NAMESPACE + " along with other namespaces");
+        }
+        this.namespaces = Collections.unmodifiableSet(new LinkedHashSet<>(namespaces));
+    }
+
+    /**
+     * @return Whether the controller watches all namespaces.
+     */
+    public boolean isAllNamespaces() {
+        return namespaces.contains(AbstractOperations.ANY_NAMESPACE);
+    }
+
+    /**
+     * @return The maximum number of cluster operations a periodic reconciliation will have in flight at once
+     * in each namespace.
+     */
+    public int getReconciliationParallelism() {
+        return reconciliationParallelism;
+    }
+
+    public void setReconciliationParallelism(int reconciliationParallelism) {
+        if (reconciliationParallelism < 1) {
+            throw new IllegalArgumentException(STRIMZI_RECONCILIATION_PARALLELISM + " must be at least 1, but was " + reconciliationParallelism);
+        }
+        this.reconciliationParallelism = reconciliationParallelism;
+    }
+
+    /**
+     * @return The number of threads for individual Kubernetes API calls.
+     */
+    public int getOperationsPoolSize() {
+        return operationsPoolSize;
+    }
+
+    public void setOperationsPoolSize(int operationsPoolSize) {
+        if (operationsPoolSize < 1) {
+            throw new IllegalArgumentException(STRIMZI_OPERATIONS_POOL_SIZE + " must be at least 1, but was " + operationsPoolSize);
+        }
+        this.operationsPoolSize = operationsPoolSize;
+    }
+
+    /**
+     * @return The number of threads for long-running operations, such as rolling updates and scaling,
+     * which wait for the cluster to converge.
+     */
+    public int getLongOperationsPoolSize() {
+        return longOperationsPoolSize;
+    }
+
+    public void setLongOperationsPoolSize(int longOperationsPoolSize) {
+        if (longOperationsPoolSize < 1) {
+            throw new IllegalArgumentException(STRIMZI_LONG_OPERATIONS_POOL_SIZE + " must be at least 1, but was " + longOperationsPoolSize);
+        }
+        this.longOperationsPoolSize = longOperationsPoolSize;
+    }
+
+    /**
+     * @return The interval within which every cluster is reconciled once by the periodic reconciliation, in milliseconds.
+     */
+    public long getFullReconciliationIntervalMs() {
+        return fullReconciliationIntervalMs;
+    }
+
+    public void setFullReconciliationIntervalMs(long fullReconciliationIntervalMs) {
+        if (fullReconciliationIntervalMs < 1000) {
+            throw new IllegalArgumentException(STRIMZI_FULL_RECONCILIATION_INTERVAL_MS + " must be at least 1000, but was " + fullReconciliationIntervalMs);
+        }
+        this.fullReconciliationIntervalMs = fullReconciliationIntervalMs;
     }
 
-    public void setNamespace(String namespace) {
-        this.namespace = namespace;
+    /**
+     * @return The number of slices the clusters are divided into for periodic reconciliation.
+     * One slice is reconciled every {@link #getFullReconciliationIntervalMs()} / slices milliseconds.
+     */
+    public int getReconciliationSlices() {
+        return reconciliationSlices;
+    }
+
+    public void setReconciliationSlices(int reconciliationSlices) {
+        if (reconciliationSlices < 1) {
+            throw new IllegalArgumentException(STRIMZI_RECONCILIATION_SLICES + " must be at least 1, but was " + reconciliationSlices);
+        }
+        this.reconciliationSlices = reconciliationSlices;
+    }
+
+    /**
+     * @return Every how many full reconciliation intervals each cluster is updated even though its ConfigMap
+     * has already been applied, to repair changes made to its resources behind the controller's back.
+     */
+    public int getFullUpdateIntervals() {
+        return fullUpdateIntervals;
+    }
+
+    public void setFullUpdateIntervals(int fullUpdateIntervals) {
+        if (fullUpdateIntervals < 1) {
+            throw new IllegalArgumentException(STRIMZI_FULL_UPDATE_INTERVALS + " must be at least 1, but was " + fullUpdateIntervals);
+        }
+        this.fullUpdateIntervals = fullUpdateIntervals;
+    }
+
+    /**
+     * @return Whether the controller replicas elect a leader, with the others on hot standby.
+     * Without leader election only one replica should be run.
+     */
+    public boolean isLeaderElectionEnabled() {
+        return leaderElectionEnabled;
+    }
+
+    public void setLeaderElectionEnabled(boolean leaderElectionEnabled) {
+        this.leaderElectionEnabled = leaderElectionEnabled;
+    }
+
+    /**
+     * @return The name of the ConfigMap used as the leader election lock.
+     */
+    public String getLeaderElectionLockName() {
+        return leaderElectionLockName;
+    }
+
+    public void setLeaderElectionLockName(String leaderElectionLockName) {
+        if (leaderElectionLockName == null || leaderElectionLockName.isEmpty()) {
+            throw new IllegalArgumentException(STRIMZI_LEADER_ELECTION_LOCK_NAME + " must not be empty");
+        }
+        this.leaderElectionLockName = leaderElectionLockName;
+    }
+
+    /**
+     * @return The namespace of the ConfigMap used as the leader election lock. Unless set explicitly this is
+     * the first of the watched namespaces, or null when watching all namespaces.
+     */
+    public String getLeaderElectionLockNamespace() {
+        if (leaderElectionLockNamespace != null) {
+            return leaderElectionLockNamespace;
+        }
+        return isAllNamespaces() ? null : namespaces.iterator().next();
+    }
+
+    public void setLeaderElectionLockNamespace(String leaderElectionLockNamespace) {
+        this.leaderElectionLockNamespace = leaderElectionLockNamespace == null || leaderElectionLockNamespace.isEmpty() ?
+                null : leaderElectionLockNamespace;
+    }
+
+    /**
+     * @return How long the leader holds the lock without renewing it, in milliseconds.
+     * A standby takes over this long after the leader stops renewing.
+     */
+    public long getLeaderElectionLeaseDurationMs() {
+        return leaderElectionLeaseDurationMs;
+    }
+
+    public void setLeaderElectionLeaseDurationMs(long leaderElectionLeaseDurationMs) {
+        if (leaderElectionLeaseDurationMs < 1000) {
+            throw new IllegalArgumentException(STRIMZI_LEADER_ELECTION_LEASE_DURATION_MS + " must be at least 1000, but was " + leaderElectionLeaseDurationMs);
+        }
+        this.leaderElectionLeaseDurationMs = leaderElectionLeaseDurationMs;
     }
 }
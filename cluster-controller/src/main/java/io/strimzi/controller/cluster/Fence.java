@@ -0,0 +1,70 @@
+package io.strimzi.controller.cluster;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Stops a replica which is no longer the leader from changing the clusters.
+ * Operations in flight when the replica steps down (rolling updates, reassignments, StatefulSet replacements)
+ * aren't interrupted mid-call, but each of their writes to Kubernetes or Kafka {@linkplain #check(String) checks}
+ * the fence first, so they fail at their next step instead of racing the new leader.
+ * The fence is shared per Vertx instance, like {@link Metrics}. The {@link LeaderElector} keeps it raised
+ * except while this replica is the leader, so without leader election it is always down.
+ */
+public class Fence implements Shareable {
+
+    private static final String FENCE_MAP = "strimzi.cluster-controller.fence";
+
+    private volatile boolean raised = false;
+
+    /**
+     * Get the fence for the given {@code vertx}, creating it if necessary.
+     * @param vertx The Vertx instance.
+     * @return The fence.
+     */
+    public static Fence get(Vertx vertx) {
+        LocalMap<String, Fence> fences = vertx.sharedData().getLocalMap(FENCE_MAP);
+        Fence fence = fences.get(FENCE_MAP);
+        if (fence == null) {
+            Fence created = new Fence();
+            fence = fences.putIfAbsent(FENCE_MAP, created);
+            if (fence == null) {
+                fence = created;
+            }
+        }
+        return fence;
+    }
+
+    /**
+     * Stop any further writes, because this replica is no longer the leader.
+     */
+    void raise() {
+        raised = true;
+    }
+
+    /**
+     * Allow writes again, because this replica has been elected.
+     */
+    void lower() {
+        raised = false;
+    }
+
+    /**
+     * @return Whether writes are currently stopped.
+     */
+    public boolean isRaised() {
+        return raised;
+    }
+
+    /**
+     * Check that the given write may go ahead.
+     * @param action What is about to be written, for the exception message.
+     * @throws IllegalStateException If the fence is raised.
+     */
+    public void check(String action) {
+        if (raised) {
+            throw new IllegalStateException("No longer the leader, not going ahead with: " + action);
+        }
+    }
+}
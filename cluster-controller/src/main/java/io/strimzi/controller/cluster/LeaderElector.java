@@ -0,0 +1,335 @@
+package io.strimzi.controller.cluster;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Elects a leader among the replicas of the cluster controller, using an annotation on a ConfigMap as the lock.
+ * The leader renews its lease periodically. The other replicas only take over once the lease has gone
+ * unrenewed for its whole duration, as measured by their own clock, so clock skew between nodes doesn't matter.
+ * Updates to the lock use the ConfigMap's resourceVersion, so only one replica can win a given round.
+ * A leader which can't renew its lease within two thirds of the lease duration steps down,
+ * before any other replica could take over. The deadline runs from when the last successful renewal started,
+ * and is enforced by a timer of its own, so a renewal which hangs can't hold it off. Stepping down raises the
+ * {@link Fence}, so that operations still in flight stop changing the clusters.
+ */
+class LeaderElector {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderElector.class.getName());
+    private static final int HTTP_CONFLICT = 409;
+
+    static final String LEADER_ANNOTATION = ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN + "/leader";
+
+    private final Vertx vertx;
+    private final KubernetesClient client;
+    private final String namespace;
+    private final String lockName;
+    private final String identity;
+    private final long leaseDurationMs;
+    private final Handler<Boolean> leadershipHandler;
+
+    private final Fence fence;
+
+    private volatile boolean leader = false;
+    // Only used on the Vertx context
+    private long timer = -1;
+    private long stepDownTimer = -1;
+    private boolean attempting = false;
+    private boolean stopped = false;
+
+    // Only used by tryAcquireOrRenew(), which runs ordered on the worker pool
+    private String observedRecord;
+    private long observedTimeMs;
+
+    /**
+     * The state of the lock, as stored in the {@link #LEADER_ANNOTATION}.
+     */
+    static class Record {
+        private final String holderIdentity;
+        private final long leaseDurationMs;
+        private final long acquireTimeMs;
+        private final long renewTimeMs;
+        private final int leaderTransitions;
+
+        Record(String holderIdentity, long leaseDurationMs, long acquireTimeMs, long renewTimeMs, int leaderTransitions) {
+            this.holderIdentity = holderIdentity;
+            this.leaseDurationMs = leaseDurationMs;
+            this.acquireTimeMs = acquireTimeMs;
+            this.renewTimeMs = renewTimeMs;
+            this.leaderTransitions = leaderTransitions;
+        }
+
+        static Record fromJson(String json) {
+            if (json == null || json.isEmpty()) {
+                return new Record("", 0, 0, 0, 0);
+            }
+            JsonObject object = new JsonObject(json);
+            return new Record(object.getString("holderIdentity", ""),
+                    object.getLong("leaseDurationMs", 0L),
+                    object.getLong("acquireTimeMs", 0L),
+                    object.getLong("renewTimeMs", 0L),
+                    object.getInteger("leaderTransitions", 0));
+        }
+
+        String toJson() {
+            return new JsonObject()
+                    .put("holderIdentity", holderIdentity)
+                    .put("leaseDurationMs", leaseDurationMs)
+                    .put("acquireTimeMs", acquireTimeMs)
+                    .put("renewTimeMs", renewTimeMs)
+                    .put("leaderTransitions", leaderTransitions)
+                    .encode();
+        }
+
+        String getHolderIdentity() {
+            return holderIdentity;
+        }
+
+        long getAcquireTimeMs() {
+            return acquireTimeMs;
+        }
+
+        int getLeaderTransitions() {
+            return leaderTransitions;
+        }
+    }
+
+    /**
+     * @param vertx The Vertx instance.
+     * @param client The Kubernetes client.
+     * @param namespace The namespace of the lock ConfigMap.
+     * @param lockName The name of the lock ConfigMap.
+     * @param identity The identity of this replica, which must be unique among the replicas.
+     * @param leaseDurationMs How long the leader holds the lock without renewing it.
+     * @param leadershipHandler Called, on the Vertx context, with true when this replica becomes the leader
+     *                          and false when it stops being the leader.
+     */
+    LeaderElector(Vertx vertx, KubernetesClient client, String namespace, String lockName, String identity,
+                  long leaseDurationMs, Handler<Boolean> leadershipHandler) {
+        this.vertx = vertx;
+        this.client = client;
+        this.namespace = namespace;
+        this.lockName = lockName;
+        this.identity = identity;
+        this.leaseDurationMs = leaseDurationMs;
+        this.leadershipHandler = leadershipHandler;
+        this.fence = Fence.get(vertx);
+    }
+
+    /**
+     * Start trying to acquire, and then renew, the lock.
+     */
+    void start() {
+        log.info("Starting leader election as {} using ConfigMap {} in namespace {}", identity, lockName, namespace);
+        fence.raise();
+        tick();
+        timer = vertx.setPeriodic(getRetryPeriodMs(), t -> tick());
+    }
+
+    /**
+     * Stop taking part in the election, releasing the lock if this replica holds it,
+     * so that a standby can take over without waiting for the lease to expire.
+     * @return A future which completes once the lock has been released.
+     */
+    Future<Void> stop() {
+        stopped = true;
+        vertx.cancelTimer(timer);
+        vertx.cancelTimer(stepDownTimer);
+        Future<Void> result = Future.future();
+        if (!leader) {
+            result.complete();
+            return result;
+        }
+        leader = false;
+        fence.raise();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<Void>executeBlocking(future -> {
+            release();
+            future.complete();
+        }, true, ar -> result.complete());
+        return result;
+    }
+
+    /**
+     * @return Whether this replica is currently the leader.
+     */
+    boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * @return The interval between attempts to acquire or renew the lock.
+     */
+    long getRetryPeriodMs() {
+        return leaseDurationMs / 5;
+    }
+
+    /**
+     * @return How long the leader keeps leading without managing to renew its lease.
+     */
+    long getRenewDeadlineMs() {
+        return leaseDurationMs * 2 / 3;
+    }
+
+    private void tick() {
+        if (attempting) {
+            log.debug("{} is still waiting for its last attempt to acquire or renew the lock", identity);
+            return;
+        }
+        attempting = true;
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<Long>executeBlocking(
+            future -> {
+                long attemptMs = System.currentTimeMillis();
+                future.complete(tryAcquireOrRenew(attemptMs) ? attemptMs : null);
+            },
+            true,
+            ar -> {
+                attempting = false;
+                if (!stopped && ar.succeeded() && ar.result() != null) {
+                    renewed(ar.result());
+                }
+            });
+    }
+
+    /**
+     * The lock was acquired or renewed by an attempt which started at the given time.
+     * The other replicas can only start counting down the lease once they've seen the renewal,
+     * which was after that, so this replica can lead until the renew deadline after it.
+     */
+    private void renewed(long attemptMs) {
+        long remainingMs = attemptMs + getRenewDeadlineMs() - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            log.warn("{} renewed its lease, but too late to rely on it", identity);
+            return;
+        }
+        vertx.cancelTimer(stepDownTimer);
+        stepDownTimer = vertx.setTimer(remainingMs, id -> stepDown());
+        if (!leader) {
+            log.info("{} became the leader", identity);
+            leader = true;
+            fence.lower();
+            leadershipHandler.handle(true);
+        }
+    }
+
+    private void stepDown() {
+        if (leader) {
+            log.warn("{} failed to renew its lease within {}ms, no longer the leader", identity, getRenewDeadlineMs());
+            leader = false;
+            fence.raise();
+            leadershipHandler.handle(false);
+        }
+    }
+
+    /**
+     * Whether the lock in the given state can be taken by the given {@code identity}: it's free,
+     * it's already held by {@code identity}, or it has gone unchanged for the whole lease.
+     * @param record The state of the lock.
+     * @param identity The would-be holder.
+     * @param observedTimeMs When the current state of the lock was first observed, by the local clock.
+     * @param nowMs The current time, by the local clock.
+     */
+    static boolean canAcquire(Record record, String identity, long observedTimeMs, long nowMs) {
+        return record.holderIdentity.isEmpty()
+                || record.holderIdentity.equals(identity)
+                || nowMs >= observedTimeMs + record.leaseDurationMs;
+    }
+
+    /**
+     * Synchronously try to acquire the lock, or renew it if already held.
+     * @return Whether this replica holds the lock.
+     */
+    private boolean tryAcquireOrRenew(long now) {
+        try {
+            ConfigMap cm = client.configMaps().inNamespace(namespace).withName(lockName).get();
+            if (cm == null) {
+                Record record = new Record(identity, leaseDurationMs, now, now, 0);
+                client.configMaps().inNamespace(namespace).create(new ConfigMapBuilder()
+                        .withNewMetadata()
+                            .withName(lockName)
+                            .withNamespace(namespace)
+                            .withAnnotations(singletonAnnotation(record.toJson()))
+                        .endMetadata()
+                        .build());
+                observe(record.toJson(), now);
+                return true;
+            }
+
+            Map<String, String> annotations = cm.getMetadata().getAnnotations() != null ?
+                    new HashMap<>(cm.getMetadata().getAnnotations()) : new HashMap<>();
+            String current = annotations.get(LEADER_ANNOTATION);
+            if (!Objects.equals(current, observedRecord)) {
+                observe(current, now);
+            }
+            Record record = Record.fromJson(current);
+            if (!canAcquire(record, identity, observedTimeMs, now)) {
+                return false;
+            }
+
+            boolean renewal = record.holderIdentity.equals(identity);
+            Record next = new Record(identity, leaseDurationMs,
+                    renewal ? record.acquireTimeMs : now, now,
+                    renewal ? record.leaderTransitions : record.leaderTransitions + 1);
+            annotations.put(LEADER_ANNOTATION, next.toJson());
+            cm.getMetadata().setAnnotations(annotations);
+            client.configMaps().inNamespace(namespace).withName(lockName)
+                    .lockResourceVersion(cm.getMetadata().getResourceVersion()).replace(cm);
+            observe(next.toJson(), now);
+            return true;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == HTTP_CONFLICT) {
+                log.debug("{} lost the race for the lock", identity);
+            } else {
+                log.warn("{} failed to acquire or renew the lock", identity, e);
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("{} failed to acquire or renew the lock", identity, e);
+            return false;
+        }
+    }
+
+    private void release() {
+        try {
+            ConfigMap cm = client.configMaps().inNamespace(namespace).withName(lockName).get();
+            if (cm == null || cm.getMetadata().getAnnotations() == null) {
+                return;
+            }
+            Record record = Record.fromJson(cm.getMetadata().getAnnotations().get(LEADER_ANNOTATION));
+            if (!record.holderIdentity.equals(identity)) {
+                return;
+            }
+            Map<String, String> annotations = new HashMap<>(cm.getMetadata().getAnnotations());
+            annotations.put(LEADER_ANNOTATION, new Record("", leaseDurationMs, 0, 0, record.leaderTransitions).toJson());
+            cm.getMetadata().setAnnotations(annotations);
+            client.configMaps().inNamespace(namespace).withName(lockName)
+                    .lockResourceVersion(cm.getMetadata().getResourceVersion()).replace(cm);
+            log.info("{} released the lock", identity);
+        } catch (Exception e) {
+            log.warn("{} failed to release the lock, the other replicas will wait for the lease to expire", identity, e);
+        }
+    }
+
+    private void observe(String record, long now) {
+        observedRecord = record;
+        observedTimeMs = now;
+    }
+
+    private static Map<String, String> singletonAnnotation(String record) {
+        Map<String, String> annotations = new HashMap<>(1);
+        annotations.put(LEADER_ANNOTATION, record);
+        return annotations;
+    }
+}
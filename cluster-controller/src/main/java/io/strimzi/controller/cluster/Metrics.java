@@ -0,0 +1,199 @@
+package io.strimzi.controller.cluster;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A minimal registry of counters, timers and gauges for the cluster controller,
+ * which {@link #scrape()} renders in the Prometheus text exposition format for the {@code /metrics} endpoint.
+ * Metrics are identified by a name and label name/value pairs.
+ * The registry is shared per Vertx instance, so any code with access to the Vertx instance can record metrics.
+ */
+public class Metrics implements Shareable {
+
+    private static final String REGISTRY_MAP = "strimzi.cluster-controller.metrics";
+
+    private enum Type {
+        COUNTER("counter"),
+        SUMMARY("summary"),
+        GAUGE("gauge");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNs = new LongAdder();
+        private final AtomicLong maxNs = new AtomicLong();
+    }
+
+    private static class Family {
+        private final Type type;
+        private final String help;
+        private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * Get the registry for the given {@code vertx}, creating it if necessary.
+     * @param vertx The Vertx instance.
+     * @return The registry.
+     */
+    public static Metrics get(Vertx vertx) {
+        LocalMap<String, Metrics> registries = vertx.sharedData().getLocalMap(REGISTRY_MAP);
+        Metrics metrics = registries.get(REGISTRY_MAP);
+        if (metrics == null) {
+            Metrics created = new Metrics();
+            metrics = registries.putIfAbsent(REGISTRY_MAP, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    private Object series(String name, Type type, String help, String[] labels, Supplier<Object> creator) {
+        Family family = families.computeIfAbsent(name, k -> new Family(type, help));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type.name + ", not a " + type.name);
+        }
+        return family.series.computeIfAbsent(labels(labels), k -> creator.get());
+    }
+
+    /**
+     * Increment the counter with the given {@code name} and {@code labels}.
+     * @param name The metric name.
+     * @param help The description of the metric.
+     * @param labels Alternating label names and values.
+     */
+    public void increment(String name, String help, String... labels) {
+        ((LongAdder) series(name, Type.COUNTER, help, labels, LongAdder::new)).increment();
+    }
+
+    /**
+     * Record a duration in the timer with the given {@code name} and {@code labels}.
+     * It's exposed as a summary of seconds (with {@code _count} and {@code _sum}) plus a {@code _max} gauge.
+     * @param name The metric name.
+     * @param help The description of the metric.
+     * @param durationNs The duration, in nanoseconds.
+     * @param labels Alternating label names and values.
+     */
+    public void time(String name, String help, long durationNs, String... labels) {
+        Timer timer = (Timer) series(name, Type.SUMMARY, help, labels, Timer::new);
+        timer.count.increment();
+        timer.sumNs.add(durationNs);
+        timer.maxNs.accumulateAndGet(durationNs, Math::max);
+    }
+
+    /**
+     * Register a gauge with the given {@code name} and {@code labels}, whose value is obtained when scraped.
+     * Registering the same gauge again replaces its value supplier.
+     * @param name The metric name.
+     * @param help The description of the metric.
+     * @param value Supplies the current value.
+     * @param labels Alternating label names and values.
+     */
+    public void gauge(String name, String help, Supplier<? extends Number> value, String... labels) {
+        Family family = families.computeIfAbsent(name, k -> new Family(Type.GAUGE, help));
+        if (family.type != Type.GAUGE) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type.name + ", not a gauge");
+        }
+        family.series.put(labels(labels), value);
+    }
+
+    /**
+     * @return The current value of the counter with the given {@code name} and {@code labels}, or 0 if it doesn't exist.
+     */
+    public long count(String name, String... labels) {
+        Family family = families.get(name);
+        Object series = family != null ? family.series.get(labels(labels)) : null;
+        if (series instanceof LongAdder) {
+            return ((LongAdder) series).sum();
+        } else if (series instanceof Timer) {
+            return ((Timer) series).count.sum();
+        }
+        return 0;
+    }
+
+    /**
+     * @return All the metrics, in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type.name).append('\n');
+            Map<String, Object> series = new TreeMap<>(family.series);
+            for (Map.Entry<String, Object> s : series.entrySet()) {
+                Object value = s.getValue();
+                if (value instanceof LongAdder) {
+                    sample(sb, name, s.getKey(), ((LongAdder) value).sum());
+                } else if (value instanceof Timer) {
+                    Timer timer = (Timer) value;
+                    sample(sb, name + "_count", s.getKey(), timer.count.sum());
+                    sample(sb, name + "_sum", s.getKey(), seconds(timer.sumNs.sum()));
+                } else {
+                    sample(sb, name, s.getKey(), ((Supplier<? extends Number>) value).get());
+                }
+            }
+            if (family.type == Type.SUMMARY) {
+                sb.append("# HELP ").append(name).append("_max The maximum of ").append(name).append('\n');
+                sb.append("# TYPE ").append(name).append("_max gauge\n");
+                for (Map.Entry<String, Object> s : series.entrySet()) {
+                    sample(sb, name + "_max", s.getKey(), seconds(((Timer) s.getValue()).maxNs.get()));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static double seconds(long ns) {
+        return ns / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, Number value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static String labels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"")
+                    .append(String.valueOf(labels[i + 1]).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+}
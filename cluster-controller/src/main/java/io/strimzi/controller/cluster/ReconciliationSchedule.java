@@ -0,0 +1,93 @@
+package io.strimzi.controller.cluster;
+
+import java.util.Random;
+
+/**
+ * Decides when each cluster gets reconciled, so that periodic reconciliation puts a steady load on the API server
+ * rather than a burst once per interval.
+ * The reconciliation interval is divided into {@code slices} ticks, and each cluster belongs to one slice,
+ * according to a hash of its name, so every cluster is reconciled once per interval.
+ * Within a tick the clusters needing work are started at evenly spaced, jittered, offsets.
+ */
+class ReconciliationSchedule {
+
+    /**
+     * The fraction of a tick over which its reconciliations are spread.
+     * The rest is headroom for the last of them to finish before the next tick.
+     */
+    static final double SPREAD_FRACTION = 0.75;
+
+    private final long intervalMs;
+    private final int slices;
+    private final Random random;
+
+    ReconciliationSchedule(long intervalMs, int slices, Random random) {
+        if (intervalMs < 1) {
+            throw new IllegalArgumentException("The reconciliation interval must be at least 1ms, but was " + intervalMs);
+        }
+        if (slices < 1 || slices > intervalMs) {
+            throw new IllegalArgumentException("The number of reconciliation slices must be between 1 and " + intervalMs + ", but was " + slices);
+        }
+        this.intervalMs = intervalMs;
+        this.slices = slices;
+        this.random = random;
+    }
+
+    /**
+     * @return The time between ticks, in milliseconds.
+     */
+    long getTickMs() {
+        return intervalMs / slices;
+    }
+
+    /**
+     * @return The number of slices.
+     */
+    int getSlices() {
+        return slices;
+    }
+
+    /**
+     * @param tick The number of the tick, counting from 0.
+     * @return The slice to reconcile on the given tick.
+     */
+    int sliceOf(long tick) {
+        return (int) (tick % slices);
+    }
+
+    /**
+     * @param tick The number of the tick, counting from 0.
+     * @return The number of the full reconciliation interval the given tick is in, counting from 0.
+     */
+    long intervalOf(long tick) {
+        return tick / slices;
+    }
+
+    /**
+     * @param cluster The name of the cluster.
+     * @param slice The slice, or -1 for all of them.
+     * @return Whether the given cluster belongs to the given slice.
+     */
+    boolean inSlice(String cluster, int slice) {
+        return slice < 0 || Math.floorMod(cluster.hashCode(), slices) == slice;
+    }
+
+    /**
+     * Compute the offsets, from the start of a tick, at which to start the given number of reconciliations.
+     * They're evenly spaced over the first {@link #SPREAD_FRACTION} of the tick, each jittered by up to half
+     * the spacing, so they're in ascending order.
+     * @param count The number of reconciliations.
+     * @return The offsets, in milliseconds.
+     */
+    long[] offsets(int count) {
+        long[] offsets = new long[count];
+        if (count == 0) {
+            return offsets;
+        }
+        double spacing = getTickMs() * SPREAD_FRACTION / count;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (long) (i * spacing + random.nextDouble() * spacing / 2);
+        }
+        return offsets;
+    }
+}
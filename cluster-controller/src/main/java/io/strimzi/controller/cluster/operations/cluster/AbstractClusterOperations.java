@@ -18,13 +18,13 @@
 package io.strimzi.controller.cluster.operations.cluster;
 
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.strimzi.controller.cluster.Metrics;
 import io.strimzi.controller.cluster.resources.AbstractCluster;
 import io.strimzi.controller.cluster.resources.ClusterDiffResult;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
-import io.vertx.core.shareddata.Lock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,29 +34,46 @@ import org.slf4j.LoggerFactory;
  * ({@link CompositeOperation#getCluster(String, String)}),
  * then creating resources to match ({@link CompositeOperation#composite(String, ClusterOperation)}.
  *
- * This class manages a per-cluster-type and per-cluster locking strategy so only one operation per cluster
- * can proceed at once.
+ * This class queues operations per cluster type and per cluster, so only one operation per cluster
+ * can proceed at once, coalescing operations which arrive while the cluster is busy
+ * (see {@link ClusterOperationQueue}).
  * @param <C> The type of Kubernetes client
  */
 public abstract class AbstractClusterOperations<C extends AbstractCluster> {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractClusterOperations.class.getName());
-    protected final int LOCK_TIMEOUT = 60000;
 
     protected final Vertx vertx;
     private final String clusterType;
     private final String operationType;
     protected final boolean isOpenShift;
+    private final ClusterOperationQueue queue;
 
     protected AbstractClusterOperations(Vertx vertx, boolean isOpenShift, String clusterType, String operationType) {
         this.vertx = vertx;
         this.isOpenShift = isOpenShift;
         this.clusterType = clusterType;
         this.operationType = operationType;
+        Metrics metrics = Metrics.get(vertx);
+        this.queue = new ClusterOperationQueue(vertx, new ClusterOperationQueue.Listener() {
+            @Override
+            public void started(String key, String operation, long queuedNs) {
+                metrics.time("strimzi_cluster_queue_wait_duration_seconds", "Time an operation waited for earlier operations on the same cluster",
+                        queuedNs, "type", clusterType, "operation", operation);
+            }
+
+            @Override
+            public void merged(String key, String operation, String into) {
+                metrics.increment("strimzi_cluster_operations_merged_total", "Number of operations coalesced with, or superseded by, a pending operation on the same cluster",
+                        "type", clusterType, "operation", operation, "into", into);
+            }
+        });
+        metrics.gauge("strimzi_cluster_queue_depth", "Number of operations waiting for earlier operations on the same cluster",
+                queue::depth, "type", clusterType);
     }
 
-    protected final String getLockName(String namespace, String name) {
-        return "lock::"+ clusterType +"::" + namespace + "::" + name;
+    protected final String getQueueKey(String namespace, String name) {
+        return clusterType + "::" + namespace + "::" + name;
     }
 
     protected static class ClusterOperation<C extends AbstractCluster> {
@@ -89,58 +106,57 @@ public abstract class AbstractClusterOperations<C extends AbstractCluster> {
         ClusterOperation<C> getCluster(String namespace, String name);
     }
 
-    private final void execute(String namespace, String name, CompositeOperation<C> compositeOperation, Handler<AsyncResult<Void>> handler) {
-        final String lockName = getLockName(namespace, name);
-        vertx.sharedData().getLockWithTimeout(lockName, LOCK_TIMEOUT, res -> {
-            if (res.succeeded()) {
-                Lock lock = res.result();
-
-                ClusterOperation<C> clusterOp;
-                try {
-                    clusterOp = compositeOperation.getCluster(namespace, name);
-                    log.info("{} {} cluster {} in namespace {}", operationType, clusterType, clusterOp.cluster().getName(), namespace);
-                } catch (Exception ex) {
-                    log.error("Error while getting required {} cluster state for {} operation", clusterType, operationType, ex);
-                    handler.handle(Future.failedFuture("getCluster error"));
-                    lock.release();
-                    return;
-                }
-                Future<?> composite = compositeOperation.composite(namespace, clusterOp);
-
-                composite.setHandler(ar -> {
-                    if (ar.succeeded()) {
-                        log.info("{} cluster {} in namespace {}: successful {}", clusterType, clusterOp.cluster().getName(), namespace, operationType);
-                        handler.handle(Future.succeededFuture());
-                        lock.release();
-                    } else {
-                        log.error("{} cluster {} in namespace {}: failed to {}", clusterType, clusterOp.cluster().getName(), namespace, operationType);
-                        handler.handle(Future.failedFuture("Failed to create Kafka cluster"));
-                        lock.release();
-                    }
-                });
-            } else {
-                log.error("Failed to acquire lock to {} {} cluster {}", operationType, clusterType, lockName);
-                handler.handle(Future.failedFuture("Failed to acquire lock to " + operationType + " "+ clusterType + " cluster"));
+    private final void execute(String operation, String namespace, String name, CompositeOperation<C> compositeOperation, Handler<AsyncResult<Void>> handler) {
+        queue.submit(getQueueKey(namespace, name), operation, () -> {
+            final long start = System.nanoTime();
+            Future<Void> result = Future.future();
+            ClusterOperation<C> clusterOp;
+            try {
+                clusterOp = compositeOperation.getCluster(namespace, name);
+                log.info("{} {} cluster {} in namespace {}", operation, clusterType, clusterOp.cluster().getName(), namespace);
+            } catch (Exception ex) {
+                log.error("Error while getting required {} cluster state for {} operation", clusterType, operation, ex);
+                recordOperation(operation, namespace, name, start, false);
+                return Future.failedFuture("getCluster error");
             }
-        });
+            Future<?> composite = compositeOperation.composite(namespace, clusterOp);
+
+            composite.setHandler(ar -> {
+                recordOperation(operation, namespace, name, start, ar.succeeded());
+                if (ar.succeeded()) {
+                    log.info("{} cluster {} in namespace {}: successful {}", clusterType, clusterOp.cluster().getName(), namespace, operation);
+                    result.complete();
+                } else {
+                    log.error("{} cluster {} in namespace {}: failed to {}", clusterType, clusterOp.cluster().getName(), namespace, operation);
+                    result.fail("Failed to " + operation + " " + clusterType + " cluster");
+                }
+            });
+            return result;
+        }, handler);
+    }
+
+    private void recordOperation(String operation, String namespace, String name, long startNs, boolean succeeded) {
+        Metrics.get(vertx).time("strimzi_cluster_operation_duration_seconds", "Time taken to create, update or delete a cluster",
+                System.nanoTime() - startNs, "type", clusterType, "operation", operation,
+                "namespace", namespace, "cluster", name, "outcome", succeeded ? "success" : "failure");
     }
 
     protected abstract CompositeOperation<C> createOp();
 
     public final void create(String namespace, String name, Handler<AsyncResult<Void>> handler) {
-        execute(namespace, name, createOp(), handler);
+        execute("create", namespace, name, createOp(), handler);
     }
 
     protected abstract CompositeOperation<C> deleteOp();
 
     public final void delete(String namespace, String name, Handler<AsyncResult<Void>> handler) {
-        execute(namespace, name, deleteOp(), handler);
+        execute("delete", namespace, name, deleteOp(), handler);
     }
 
     protected abstract CompositeOperation<C> updateOp();
 
     public final void update(String namespace, String name, Handler<AsyncResult<Void>> handler) {
-        execute(namespace, name, updateOp(), handler);
+        execute("update", namespace, name, updateOp(), handler);
     }
 
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A queue of operations per cluster, which runs at most one operation for each cluster at a time
+ * and never times out waiting. Operations waiting for a busy cluster are merged:
+ * <ul>
+ *     <li>An update coalesces with a pending create or update,
+ *     since operations read the cluster's desired state when they start, not when they're submitted.</li>
+ *     <li>Repeated creates or deletes coalesce likewise.</li>
+ *     <li>A delete supersedes any pending creates and updates, whose handlers are completed successfully,
+ *     since the cluster is going away.</li>
+ *     <li>A create or update after a pending delete waits for the delete.</li>
+ * </ul>
+ * All the state is confined to the Vert.x context on which the queue was created.
+ */
+class ClusterOperationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterOperationQueue.class.getName());
+
+    static final String CREATE = "create";
+    static final String UPDATE = "update";
+    static final String DELETE = "delete";
+
+    /** Notified of what the queue does, for metrics. */
+    interface Listener {
+        void started(String key, String operation, long queuedNs);
+
+        void merged(String key, String operation, String into);
+    }
+
+    private static class Pending {
+        private final String operation;
+        private final Supplier<Future<Void>> work;
+        private final List<Handler<AsyncResult<Void>>> handlers = new ArrayList<>(1);
+        private final long enqueuedNs = System.nanoTime();
+
+        Pending(String operation, Supplier<Future<Void>> work, Handler<AsyncResult<Void>> handler) {
+            this.operation = operation;
+            this.work = work;
+            this.handlers.add(handler);
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    /** The operations waiting for each busy cluster. A key is present iff that cluster has an operation running. */
+    private final Map<String, Deque<Pending>> queues = new HashMap<>();
+    private int depth = 0;
+
+    ClusterOperationQueue(Vertx vertx, Listener listener) {
+        this.context = vertx.getOrCreateContext();
+        this.listener = listener;
+    }
+
+    /**
+     * Submit an operation on the cluster identified by {@code key}.
+     * @param key Identifies the cluster.
+     * @param operation One of {@link #CREATE}, {@link #UPDATE} or {@link #DELETE}.
+     * @param work Starts the operation, returning a future for its completion.
+     * @param handler Called with the result of the operation (or of the operation it was merged into).
+     */
+    void submit(String key, String operation, Supplier<Future<Void>> work, Handler<AsyncResult<Void>> handler) {
+        context.runOnContext(v -> doSubmit(key, new Pending(operation, work, handler)));
+    }
+
+    private void doSubmit(String key, Pending op) {
+        Deque<Pending> queue = queues.get(key);
+        if (queue == null) {
+            queues.put(key, new ArrayDeque<>(2));
+            run(key, op);
+            return;
+        }
+        if (DELETE.equals(op.operation)) {
+            for (Iterator<Pending> it = queue.iterator(); it.hasNext(); ) {
+                Pending superseded = it.next();
+                if (!DELETE.equals(superseded.operation)) {
+                    it.remove();
+                    depth--;
+                    log.info("Pending {} of cluster {} superseded by delete", superseded.operation, key);
+                    listener.merged(key, superseded.operation, DELETE);
+                    for (Handler<AsyncResult<Void>> handler : superseded.handlers) {
+                        handler.handle(Future.succeededFuture());
+                    }
+                }
+            }
+        }
+        Pending last = queue.peekLast();
+        if (last != null && (last.operation.equals(op.operation)
+                || (UPDATE.equals(op.operation) && CREATE.equals(last.operation)))) {
+            log.debug("Coalescing {} of cluster {} into pending {}", op.operation, key, last.operation);
+            listener.merged(key, op.operation, last.operation);
+            last.handlers.addAll(op.handlers);
+        } else {
+            queue.addLast(op);
+            depth++;
+        }
+    }
+
+    private void run(String key, Pending op) {
+        listener.started(key, op.operation, System.nanoTime() - op.enqueuedNs);
+        Future<Void> result;
+        try {
+            result = op.work.get();
+        } catch (Throwable t) {
+            result = Future.failedFuture(t);
+        }
+        result.setHandler(ar -> context.runOnContext(v -> {
+            for (Handler<AsyncResult<Void>> handler : op.handlers) {
+                handler.handle(ar);
+            }
+            Deque<Pending> queue = queues.get(key);
+            Pending next = queue.pollFirst();
+            if (next != null) {
+                depth--;
+                run(key, next);
+            } else {
+                queues.remove(key);
+            }
+        }));
+    }
+
+    /**
+     * @return The number of operations waiting for their cluster.
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * @return The number of clusters with an operation running.
+     */
+    int busy() {
+        return queues.size();
+    }
+}
@@ -1,6 +1,7 @@
 package io.strimzi.controller.cluster.operations.cluster;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.strimzi.controller.cluster.operations.resource.ConfigMapOperations;
 import io.strimzi.controller.cluster.operations.resource.PvcOperations;
@@ -8,7 +9,6 @@ import io.strimzi.controller.cluster.operations.resource.ServiceOperations;
 import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
 import io.strimzi.controller.cluster.resources.ClusterDiffResult;
 import io.strimzi.controller.cluster.resources.KafkaCluster;
-import io.strimzi.controller.cluster.resources.Storage;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -27,6 +27,10 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
     private final StatefulSetOperations statefulSetOperations;
     private final ServiceOperations serviceOperations;
     private final PvcOperations pvcOperations;
+    private final KafkaRollingUpdate kafkaRollingUpdate;
+    private final KafkaPartitionReassignment partitionReassignment;
+    private final KafkaDynamicConfig dynamicConfig;
+    private final StorageExpansion storageExpansion;
 
     /**
      * Constructor
@@ -42,11 +46,25 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
                                   ServiceOperations serviceOperations,
                                   StatefulSetOperations statefulSetOperations,
                                   PvcOperations pvcOperations) {
+        this(vertx, isOpenShift, configMapOperations, serviceOperations, statefulSetOperations, pvcOperations,
+                new KafkaPartitionReassignment(vertx));
+    }
+
+    KafkaClusterOperations(Vertx vertx, boolean isOpenShift,
+                           ConfigMapOperations configMapOperations,
+                           ServiceOperations serviceOperations,
+                           StatefulSetOperations statefulSetOperations,
+                           PvcOperations pvcOperations,
+                           KafkaPartitionReassignment partitionReassignment) {
         super(vertx, isOpenShift, "kafka", "create");
         this.configMapOperations = configMapOperations;
         this.statefulSetOperations = statefulSetOperations;
         this.serviceOperations = serviceOperations;
         this.pvcOperations = pvcOperations;
+        this.kafkaRollingUpdate = new KafkaRollingUpdate(vertx, statefulSetOperations);
+        this.partitionReassignment = partitionReassignment;
+        this.dynamicConfig = new KafkaDynamicConfig(vertx);
+        this.storageExpansion = new StorageExpansion(vertx, statefulSetOperations, pvcOperations);
     }
 
     private final CompositeOperation<KafkaCluster> create = new CompositeOperation<KafkaCluster>() {
@@ -80,9 +98,10 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
         @Override
         public Future<?> composite(String namespace, ClusterOperation<KafkaCluster> clusterOp) {
             KafkaCluster kafka = clusterOp.cluster();
-            boolean deleteClaims = kafka.getStorage().type() == Storage.StorageType.PERSISTENT_CLAIM
+            boolean deleteClaims = kafka.getStorage().isPersistent()
                     && kafka.getStorage().isDeleteClaim();
-            List<Future> result = new ArrayList<>(4 + (deleteClaims ? kafka.getReplicas() : 0));
+            List<String> claims = kafka.getPersistentVolumeClaimNames();
+            List<Future> result = new ArrayList<>(4 + (deleteClaims ? claims.size() : 0));
 
             if (kafka.isMetricsEnabled()) {
                 result.add(configMapOperations.delete(namespace, kafka.getMetricsConfigName()));
@@ -95,8 +114,8 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
             result.add(statefulSetOperations.delete(namespace, kafka.getName()));
 
             if (deleteClaims) {
-                for (int i = 0; i < kafka.getReplicas(); i++) {
-                    result.add(pvcOperations.delete(namespace, kafka.getVolumeName() + "-" + kafka.getName() + "-" + i));
+                for (String claim : claims) {
+                    result.add(pvcOperations.delete(namespace, claim));
                 }
             }
 
@@ -136,8 +155,10 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
                     .compose(i -> patchService(kafka, namespace, diff))
                     .compose(i -> patchHeadlessService(kafka, namespace, diff))
                     .compose(i -> patchStatefulSet(kafka, namespace, diff))
+                    .compose(i -> expandStorage(kafka, namespace, diff))
                     .compose(i -> patchMetricsConfigMap(kafka, namespace, diff))
                     .compose(i -> rollingUpdate(kafka, namespace, diff))
+                    .compose(i -> updateDynamicConfig(kafka, namespace, diff))
                     .compose(i -> scaleUp(kafka, namespace, diff))
                     .compose(chainFuture::complete, chainFuture);
 
@@ -164,22 +185,47 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
     };
 
     private Future<Void> scaleDown(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
-        Future<Void> scaleDown = Future.future();
-
         if (diff.getScaleDown())    {
-            log.info("Scaling down stateful set {} in namespace {}", kafka.getName(), namespace);
-            statefulSetOperations.scaleDown(namespace, kafka.getName(), kafka.getReplicas(), scaleDown.completer());
+            return drainDepartingBrokers(kafka, namespace).compose(i -> {
+                Future<Void> scaleDown = Future.future();
+                log.info("Scaling down stateful set {} in namespace {}", kafka.getName(), namespace);
+                statefulSetOperations.scaleDown(namespace, kafka.getName(), kafka.getReplicas(), scaleDown.completer());
+                return scaleDown;
+            });
         }
         else {
-            scaleDown.complete();
+            return Future.succeededFuture();
         }
+    }
 
-        return scaleDown;
+    /**
+     * Move all partition replicas off the brokers which a scale down is going to remove,
+     * so that no partition is left under-replicated.
+     */
+    private Future<Void> drainDepartingBrokers(KafkaCluster kafka, String namespace) {
+        return statefulSetOperations.fetch(namespace, kafka.getName()).compose(ss -> {
+            if (ss == null) {
+                return Future.failedFuture("Stateful set " + kafka.getName() + " in namespace " + namespace + " does not exist");
+            }
+            List<Integer> remaining = new ArrayList<>();
+            for (int i = 0; i < kafka.getReplicas(); i++) {
+                remaining.add(i);
+            }
+            List<Integer> departing = new ArrayList<>();
+            for (int i = kafka.getReplicas(); i < ss.getSpec().getReplicas(); i++) {
+                departing.add(i);
+            }
+            log.info("Moving partitions off brokers {} of {} in namespace {}", departing, kafka.getName(), namespace);
+            return partitionReassignment.currentAssignment(kafka.getBootstrapServers())
+                    .compose(current -> partitionReassignment.reassign(kafka.getZookeeperConnect(),
+                            KafkaPartitionReassignment.drain(current, departing, remaining),
+                            kafka.getReassignmentThrottle()));
+        });
     }
 
     private Future<Void> patchService(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return serviceOperations.patch(namespace, kafka.getName(), kafka.patchService(serviceOperations.get(namespace, kafka.getName())));
+            return serviceOperations.patchIfChanged(namespace, kafka.getName(), kafka.generateService(), kafka::patchService);
         }
         else
         {
@@ -189,8 +235,8 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
 
     private Future<Void> patchHeadlessService(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return serviceOperations.patch(namespace, kafka.getHeadlessName(),
-                    kafka.patchHeadlessService(serviceOperations.get(namespace, kafka.getHeadlessName())));
+            return serviceOperations.patchIfChanged(namespace, kafka.getHeadlessName(),
+                    kafka.generateHeadlessService(), kafka::patchHeadlessService);
         }
         else
         {
@@ -201,7 +247,7 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
     private Future<Void> patchStatefulSet(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
             return statefulSetOperations.patch(namespace, kafka.getName(), false,
-                    kafka.patchStatefulSet(statefulSetOperations.get(namespace, kafka.getName())));
+                    kafka.generateStatefulSet(isOpenShift), kafka::patchStatefulSet);
         }
         else
         {
@@ -209,27 +255,62 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
         }
     }
 
+    /**
+     * Expand the persistent volumes of the brokers, restarting only the brokers whose filesystems can't be resized online,
+     * unless all of them are about to be restarted by a rolling update anyway.
+     */
+    private Future<Void> expandStorage(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
+        if (diff.isStorageExpanded()) {
+            List<PersistentVolumeClaim> claimTemplates = kafka.generateStatefulSet(isOpenShift).getSpec().getVolumeClaimTemplates();
+            return storageExpansion.expandAndReplace(namespace, kafka.getName(), claimTemplates, diff.getRollingUpdate(),
+                pending -> kafkaRollingUpdate.rollingUpdate(namespace, kafka.getName(), kafka.getBootstrapServers(), pending));
+        }
+        else {
+            return Future.succeededFuture();
+        }
+    }
+
     private Future<Void> patchMetricsConfigMap(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
-        if (diff.isMetricsChanged()) {
-            return configMapOperations.patch(namespace, kafka.getMetricsConfigName(),
-                    kafka.patchMetricsConfigMap(configMapOperations.get(namespace, kafka.getMetricsConfigName())));
+        if (diff.isMetricsChanged() && kafka.isMetricsEnabled()) {
+            return configMapOperations.patch(namespace, kafka.getMetricsConfigName(), true,
+                    kafka.generateMetricsConfigMap(), kafka::patchMetricsConfigMap);
+        } else if (diff.isMetricsChanged()) {
+            return configMapOperations.patch(namespace, kafka.getMetricsConfigName(), true, kafka::patchMetricsConfigMap);
         } else {
             return Future.succeededFuture();
         }
     }
 
     private Future<Void> rollingUpdate(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
-        Future<Void> rollingUpdate = Future.future();
-
         if (diff.getRollingUpdate()) {
-            statefulSetOperations.rollingUpdate(namespace, kafka.getName(),
-                    rollingUpdate.completer());
+            return kafkaRollingUpdate.rollingUpdate(namespace, kafka.getName(), kafka.getBootstrapServers());
         }
         else {
-            rollingUpdate.complete();
+            return Future.succeededFuture();
         }
+    }
 
-        return rollingUpdate;
+    /**
+     * Apply broker configuration which changed only in dynamically updatable keys without restarting the brokers,
+     * falling back to a rolling update if the brokers don't support it.
+     */
+    private Future<Void> updateDynamicConfig(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
+        if (diff.isDynamicConfigChanged() && !diff.getRollingUpdate()) {
+            Future<Void> result = Future.future();
+            dynamicConfig.alter(kafka.getBootstrapServers(), kafka.getConfiguration().getDynamic()).setHandler(res -> {
+                if (res.succeeded()) {
+                    result.complete();
+                } else {
+                    log.warn("Unable to update the broker configuration of {} in namespace {} without a restart, doing a rolling update instead: {}",
+                            kafka.getName(), namespace, res.cause().toString());
+                    kafkaRollingUpdate.rollingUpdate(namespace, kafka.getName(), kafka.getBootstrapServers()).setHandler(result.completer());
+                }
+            });
+            return result;
+        }
+        else {
+            return Future.succeededFuture();
+        }
     }
 
     private Future<Void> scaleUp(KafkaCluster kafka, String namespace, ClusterDiffResult diff) {
@@ -237,6 +318,9 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
 
         if (diff.getScaleUp()) {
             statefulSetOperations.scaleUp(namespace, kafka.getName(), kafka.getReplicas(), scaleUp.completer());
+            if (kafka.isRebalanceOnScaleUp()) {
+                return scaleUp.compose(i -> rebalance(kafka, namespace));
+            }
         }
         else {
             scaleUp.complete();
@@ -244,4 +328,20 @@ public class KafkaClusterOperations extends AbstractClusterOperations<KafkaClust
 
         return scaleUp;
     }
+
+    /**
+     * Spread the partition replicas and preferred leaders evenly over all the brokers,
+     * so that brokers added by a scale up take their share of the load.
+     */
+    private Future<Void> rebalance(KafkaCluster kafka, String namespace) {
+        List<Integer> brokers = new ArrayList<>();
+        for (int i = 0; i < kafka.getReplicas(); i++) {
+            brokers.add(i);
+        }
+        log.info("Rebalancing partitions over brokers {} of {} in namespace {}", brokers, kafka.getName(), namespace);
+        return partitionReassignment.currentAssignment(kafka.getBootstrapServers())
+                .compose(current -> partitionReassignment.reassign(kafka.getZookeeperConnect(),
+                        KafkaPartitionReassignment.rebalance(current, brokers),
+                        kafka.getReassignmentThrottle()));
+    }
 }
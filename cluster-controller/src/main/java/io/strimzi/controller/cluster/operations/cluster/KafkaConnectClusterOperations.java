@@ -182,8 +182,7 @@ public class KafkaConnectClusterOperations extends AbstractClusterOperations<Kaf
 
     private Future<Void> patchService(KafkaConnectCluster connect, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return serviceOperations.patch(namespace, connect.getName(),
-                    connect.patchService(serviceOperations.get(namespace, connect.getName())));
+            return serviceOperations.patchIfChanged(namespace, connect.getName(), connect.generateService(), connect::patchService);
         }
         else
         {
@@ -193,8 +192,8 @@ public class KafkaConnectClusterOperations extends AbstractClusterOperations<Kaf
 
     private Future<Void> patchDeployment(KafkaConnectCluster connect, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return deploymentOperations.patch(namespace, connect.getName(),
-                    connect.patchDeployment(deploymentOperations.get(namespace, connect.getName())));
+            return deploymentOperations.patch(namespace, connect.getName(), true,
+                    connect.generateDeployment(), connect::patchDeployment);
         }
         else
         {
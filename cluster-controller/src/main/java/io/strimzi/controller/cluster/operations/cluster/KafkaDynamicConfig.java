@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.strimzi.controller.cluster.Fence;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.common.config.ConfigResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies broker configuration to a running Kafka cluster without restarting the brokers,
+ * by setting it as the cluster-wide default dynamic broker configuration.
+ * This needs brokers which support dynamic broker configuration (Kafka 1.1 onwards);
+ * older brokers reject the request and the returned future fails, so the caller can fall back to a rolling update.
+ */
+public class KafkaDynamicConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaDynamicConfig.class.getName());
+
+    private static final long ADMIN_TIMEOUT_MS = 30_000;
+
+    /**
+     * The name of the broker config resource for the cluster-wide default.
+     */
+    static final String CLUSTER_DEFAULT = "";
+
+    private final Vertx vertx;
+
+    /**
+     * Constructor
+     * @param vertx The Vertx instance
+     */
+    public KafkaDynamicConfig(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    protected AdminClient adminClient(String bootstrapServers) {
+        Properties props = new Properties();
+        props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.setProperty(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, String.valueOf(ADMIN_TIMEOUT_MS));
+        return AdminClient.create(props);
+    }
+
+    /**
+     * Set the dynamic broker configuration of the given cluster.
+     * This replaces the whole of the cluster-wide dynamic configuration, so keys not given revert to
+     * the static configuration of each broker.
+     * @param bootstrapServers The bootstrap servers of the Kafka cluster.
+     * @param config The dynamically updatable keys, and their values.
+     * @return A future which completes when the brokers have accepted the configuration.
+     */
+    public Future<Void> alter(String bootstrapServers, Map<String, String> config) {
+        Future<Void> result = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<Void>executeBlocking(
+            future -> {
+                List<ConfigEntry> entries = new ArrayList<>(config.size());
+                for (Map.Entry<String, String> entry : config.entrySet()) {
+                    entries.add(new ConfigEntry(entry.getKey(), entry.getValue()));
+                }
+                try (AdminClient ac = adminClient(bootstrapServers)) {
+                    Fence.get(vertx).check("update the dynamic broker configuration of " + bootstrapServers);
+                    ac.alterConfigs(Collections.singletonMap(
+                            new ConfigResource(ConfigResource.Type.BROKER, CLUSTER_DEFAULT), new Config(entries)))
+                            .all().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    log.info("Updated the dynamic broker configuration of {} to {}", bootstrapServers, config);
+                    future.complete();
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            },
+            false,
+            result.completer());
+        return result;
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.strimzi.controller.cluster.Fence;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Computes and runs throttled partition reassignments for a Kafka cluster.
+ * Kafka 1.0 has no Admin API for reassignments, so they're done the way {@code kafka-reassign-partitions.sh} does them,
+ * through ZooKeeper (see {@link KafkaZookeeper}): the replication throttle is set in the configs of the topics and brokers
+ * involved, the reassignment is written for the Kafka controller to carry out, and once the controller has finished
+ * the throttle is removed again.
+ */
+public class KafkaPartitionReassignment {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaPartitionReassignment.class.getName());
+
+    static final long DEFAULT_VERIFY_INTERVAL_MS = 10_000;
+    static final long DEFAULT_TIMEOUT_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long ADMIN_TIMEOUT_MS = 30_000;
+    private static final long ZOOKEEPER_TIMEOUT_MS = 30_000;
+
+    static final String LEADER_THROTTLED_RATE = "leader.replication.throttled.rate";
+    static final String FOLLOWER_THROTTLED_RATE = "follower.replication.throttled.rate";
+    static final String LEADER_THROTTLED_REPLICAS = "leader.replication.throttled.replicas";
+    static final String FOLLOWER_THROTTLED_REPLICAS = "follower.replication.throttled.replicas";
+
+    private static final Comparator<TopicPartition> TOPIC_PARTITION_ORDER =
+            Comparator.comparing(TopicPartition::topic).thenComparingInt(TopicPartition::partition);
+
+    private final Vertx vertx;
+    private final long verifyIntervalMs;
+    private final long timeoutMs;
+
+    /**
+     * Constructor
+     * @param vertx The Vertx instance
+     */
+    public KafkaPartitionReassignment(Vertx vertx) {
+        this(vertx, DEFAULT_VERIFY_INTERVAL_MS, DEFAULT_TIMEOUT_MS);
+    }
+
+    KafkaPartitionReassignment(Vertx vertx, long verifyIntervalMs, long timeoutMs) {
+        this.vertx = vertx;
+        this.verifyIntervalMs = verifyIntervalMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    protected AdminClient adminClient(String bootstrapServers) {
+        Properties props = new Properties();
+        props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.setProperty(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, String.valueOf(ADMIN_TIMEOUT_MS));
+        return AdminClient.create(props);
+    }
+
+    /**
+     * Get the current replica assignment of every partition in the cluster.
+     * @param bootstrapServers The bootstrap servers of the Kafka cluster.
+     * @return A future for the replicas of each partition.
+     */
+    public Future<Map<TopicPartition, List<Integer>>> currentAssignment(String bootstrapServers) {
+        Future<Map<TopicPartition, List<Integer>>> result = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<Map<TopicPartition, List<Integer>>>executeBlocking(
+            future -> {
+                try (AdminClient ac = adminClient(bootstrapServers)) {
+                    Set<String> topics = ac.listTopics(new ListTopicsOptions().listInternal(true)).names()
+                            .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    Map<String, TopicDescription> descriptions = ac.describeTopics(topics).all()
+                            .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    Map<TopicPartition, List<Integer>> assignment = new HashMap<>();
+                    for (TopicDescription description : descriptions.values()) {
+                        for (TopicPartitionInfo info : description.partitions()) {
+                            List<Integer> replicas = new ArrayList<>(info.replicas().size());
+                            for (Node node : info.replicas()) {
+                                replicas.add(node.id());
+                            }
+                            assignment.put(new TopicPartition(description.name(), info.partition()), replicas);
+                        }
+                    }
+                    future.complete(assignment);
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            },
+            false,
+            result.completer());
+        return result;
+    }
+
+    /**
+     * Compute a reassignment which moves every replica off the {@code departing} brokers.
+     * Each replica which has to move goes to whichever of the {@code remaining} brokers
+     * has the fewest replicas and doesn't already have a replica of that partition.
+     * A replica keeps its position in the replica list, so preferred leadership moves with it.
+     * @param current The current replicas of each partition.
+     * @param departing The brokers to be removed.
+     * @param remaining The brokers which will remain.
+     * @return The new replicas of the partitions which need to move.
+     * @throws IllegalStateException If some partition has more replicas than there are remaining brokers.
+     */
+    static Map<TopicPartition, List<Integer>> drain(Map<TopicPartition, List<Integer>> current,
+                                                    Collection<Integer> departing, List<Integer> remaining) {
+        Map<Integer, Integer> load = replicaCounts(current, remaining);
+        Map<TopicPartition, List<Integer>> reassignment = new LinkedHashMap<>();
+        for (TopicPartition tp : sorted(current.keySet())) {
+            List<Integer> replicas = new ArrayList<>(current.get(tp));
+            boolean moved = false;
+            for (int i = 0; i < replicas.size(); i++) {
+                if (departing.contains(replicas.get(i))) {
+                    Integer target = leastLoaded(load, replicas);
+                    if (target == null) {
+                        throw new IllegalStateException("Cannot move partition " + tp + " with replicas " + current.get(tp)
+                                + " off brokers " + departing + ": not enough remaining brokers " + remaining);
+                    }
+                    replicas.set(i, target);
+                    load.merge(target, 1, Integer::sum);
+                    moved = true;
+                }
+            }
+            if (moved) {
+                reassignment.put(tp, replicas);
+            }
+        }
+        return reassignment;
+    }
+
+    /**
+     * Compute a reassignment which spreads replicas and preferred leadership evenly over the given
+     * {@code brokers}, for example onto new brokers after a scale up.
+     * <ol>
+     *     <li>A replica moves from a broker to the least loaded broker without a replica of that partition
+     *     if that leaves the two brokers' replica counts closer together.</li>
+     *     <li>Then, within each partition's replica list, a replica is moved to the front (making it the preferred leader)
+     *     if that leaves the two brokers' preferred leader counts closer together. That doesn't move any data:
+     *     the controller moves leadership there on its next preferred leader election.</li>
+     * </ol>
+     * @param current The current replicas of each partition.
+     * @param brokers The brokers to balance over.
+     * @return The new replicas of the partitions which change.
+     */
+    static Map<TopicPartition, List<Integer>> rebalance(Map<TopicPartition, List<Integer>> current, List<Integer> brokers) {
+        List<TopicPartition> partitions = sorted(current.keySet());
+        Map<TopicPartition, List<Integer>> target = new LinkedHashMap<>();
+        for (TopicPartition tp : partitions) {
+            target.put(tp, new ArrayList<>(current.get(tp)));
+        }
+
+        Map<Integer, Integer> load = replicaCounts(target, brokers);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (List<Integer> replicas : target.values()) {
+                for (int i = 0; i < replicas.size(); i++) {
+                    Integer from = replicas.get(i);
+                    Integer to = leastLoaded(load, replicas);
+                    if (load.containsKey(from) && to != null && load.get(from) - load.get(to) > 1) {
+                        replicas.set(i, to);
+                        load.merge(from, -1, Integer::sum);
+                        load.merge(to, 1, Integer::sum);
+                        moved = true;
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Integer> leaders = new LinkedHashMap<>();
+        for (Integer broker : brokers) {
+            leaders.put(broker, 0);
+        }
+        for (List<Integer> replicas : target.values()) {
+            leaders.computeIfPresent(replicas.get(0), (broker, count) -> count + 1);
+        }
+        for (List<Integer> replicas : target.values()) {
+            Integer leader = replicas.get(0);
+            for (int i = 1; i < replicas.size(); i++) {
+                Integer candidate = replicas.get(i);
+                if (leaders.containsKey(leader) && leaders.containsKey(candidate)
+                        && leaders.get(leader) - leaders.get(candidate) > 1) {
+                    replicas.set(i, leader);
+                    replicas.set(0, candidate);
+                    leaders.merge(leader, -1, Integer::sum);
+                    leaders.merge(candidate, 1, Integer::sum);
+                    break;
+                }
+            }
+        }
+
+        Map<TopicPartition, List<Integer>> reassignment = new LinkedHashMap<>();
+        for (Map.Entry<TopicPartition, List<Integer>> entry : target.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                reassignment.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return reassignment;
+    }
+
+    /** Count the replicas on each of the given brokers (including those which have none). */
+    static Map<Integer, Integer> replicaCounts(Map<TopicPartition, List<Integer>> assignment, List<Integer> brokers) {
+        Map<Integer, Integer> load = new LinkedHashMap<>();
+        for (Integer broker : brokers) {
+            load.put(broker, 0);
+        }
+        for (List<Integer> replicas : assignment.values()) {
+            for (Integer replica : replicas) {
+                load.computeIfPresent(replica, (broker, count) -> count + 1);
+            }
+        }
+        return load;
+    }
+
+    /** The broker with the fewest replicas which isn't one of the {@code excluded}, or null. */
+    private static Integer leastLoaded(Map<Integer, Integer> load, List<Integer> excluded) {
+        Integer best = null;
+        for (Map.Entry<Integer, Integer> entry : load.entrySet()) {
+            if (!excluded.contains(entry.getKey())
+                    && (best == null || entry.getValue() < load.get(best))) {
+                best = entry.getKey();
+            }
+        }
+        return best;
+    }
+
+    static List<TopicPartition> sorted(Collection<TopicPartition> partitions) {
+        List<TopicPartition> sorted = new ArrayList<>(partitions);
+        sorted.sort(TOPIC_PARTITION_ORDER);
+        return sorted;
+    }
+
+    /**
+     * @return The given reassignment in the JSON format understood by {@code kafka-reassign-partitions.sh}.
+     */
+    static JsonObject toJson(Map<TopicPartition, List<Integer>> reassignment) {
+        JsonArray partitions = new JsonArray();
+        for (Map.Entry<TopicPartition, List<Integer>> entry : reassignment.entrySet()) {
+            partitions.add(new JsonObject()
+                    .put("topic", entry.getKey().topic())
+                    .put("partition", entry.getKey().partition())
+                    .put("replicas", new JsonArray(new ArrayList<>(entry.getValue()))));
+        }
+        return new JsonObject().put("version", 1).put("partitions", partitions);
+    }
+
+    /**
+     * Execute the given reassignment with the given replication throttle and wait for it to complete,
+     * logging its progress.
+     * @param zookeeperConnect The ZooKeeper connection string of the Kafka cluster.
+     * @param reassignment The new replicas of each partition to be moved.
+     * @param throttle The replication throttle, in bytes per second.
+     * @return A future which completes when every partition has been moved.
+     */
+    public Future<Void> reassign(String zookeeperConnect, Map<TopicPartition, List<Integer>> reassignment, long throttle) {
+        if (reassignment.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        log.info("Reassigning {} partitions with a throttle of {} bytes/s", reassignment.size(), throttle);
+        Future<Void> executed = Future.future();
+        WorkerPool.get(vertx, WorkerPool.LONG_OPERATIONS).<Void>executeBlocking(
+            future -> {
+                try (KafkaZookeeper zk = KafkaZookeeper.connect(zookeeperConnect, ZOOKEEPER_TIMEOUT_MS)) {
+                    // Only the start of the reassignment is fenced: verifying it is what removes the throttle,
+                    // which the new leader wouldn't otherwise do
+                    Fence.get(vertx).check("reassign " + reassignment.size() + " partitions");
+                    if (zk.isReassigning()) {
+                        throw new IllegalStateException("There is an existing reassignment running");
+                    }
+                    setThrottle(zk, reassignment, throttle);
+                    if (!zk.startReassignment(toJson(reassignment))) {
+                        throw new IllegalStateException("There is an existing reassignment running");
+                    }
+                    future.complete();
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            },
+            false,
+            executed.completer());
+
+        Future<Void> result = Future.future();
+        executed.setHandler(res -> {
+            if (res.failed()) {
+                result.fail(res.cause());
+            } else {
+                verify(zookeeperConnect, reassignment, System.nanoTime(), result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Throttle replication for the partitions being moved, like {@code kafka-reassign-partitions.sh --throttle}:
+     * on the topics, the current replicas are throttled as leaders and the new replicas as followers,
+     * and every broker involved gets the throttle rate.
+     */
+    private static void setThrottle(KafkaZookeeper zk, Map<TopicPartition, List<Integer>> reassignment, long throttle) throws KeeperException, InterruptedException {
+        Map<String, Set<String>> leaders = new TreeMap<>();
+        Map<String, Set<String>> followers = new TreeMap<>();
+        Set<Integer> brokers = new TreeSet<>();
+        Map<String, Map<Integer, List<Integer>>> current = new HashMap<>();
+        for (Map.Entry<TopicPartition, List<Integer>> entry : reassignment.entrySet()) {
+            TopicPartition tp = entry.getKey();
+            if (!current.containsKey(tp.topic())) {
+                current.put(tp.topic(), zk.replicas(tp.topic()));
+            }
+            List<Integer> replicas = current.get(tp.topic()).get(tp.partition());
+            if (replicas == null) {
+                throw new IllegalStateException("Partition " + tp + " doesn't exist");
+            }
+            Set<String> topicLeaders = leaders.computeIfAbsent(tp.topic(), topic -> new TreeSet<>());
+            Set<String> topicFollowers = followers.computeIfAbsent(tp.topic(), topic -> new TreeSet<>());
+            for (Integer broker : replicas) {
+                topicLeaders.add(tp.partition() + ":" + broker);
+            }
+            for (Integer broker : entry.getValue()) {
+                if (!replicas.contains(broker)) {
+                    topicFollowers.add(tp.partition() + ":" + broker);
+                }
+            }
+            brokers.addAll(replicas);
+            brokers.addAll(entry.getValue());
+        }
+
+        for (String topic : leaders.keySet()) {
+            Map<String, String> config = new HashMap<>();
+            config.put(LEADER_THROTTLED_REPLICAS, String.join(",", leaders.get(topic)));
+            config.put(FOLLOWER_THROTTLED_REPLICAS, followers.get(topic).isEmpty() ? null : String.join(",", followers.get(topic)));
+            zk.changeConfig(KafkaZookeeper.TOPICS, topic, config);
+        }
+        Map<String, String> rate = new HashMap<>();
+        rate.put(LEADER_THROTTLED_RATE, Long.toString(throttle));
+        rate.put(FOLLOWER_THROTTLED_RATE, Long.toString(throttle));
+        for (Integer broker : brokers) {
+            zk.changeConfig(KafkaZookeeper.BROKERS, broker.toString(), rate);
+        }
+    }
+
+    /**
+     * Remove the throttle from the given topics and from every broker, like {@code kafka-reassign-partitions.sh --verify}
+     * does once the reassignment is complete.
+     */
+    private static void removeThrottle(KafkaZookeeper zk, Set<String> topics) throws KeeperException, InterruptedException {
+        Map<String, String> replicas = new HashMap<>();
+        replicas.put(LEADER_THROTTLED_REPLICAS, null);
+        replicas.put(FOLLOWER_THROTTLED_REPLICAS, null);
+        for (String topic : topics) {
+            zk.changeConfig(KafkaZookeeper.TOPICS, topic, replicas);
+        }
+        Map<String, String> rate = new HashMap<>();
+        rate.put(LEADER_THROTTLED_RATE, null);
+        rate.put(FOLLOWER_THROTTLED_RATE, null);
+        for (String broker : zk.configured(KafkaZookeeper.BROKERS)) {
+            zk.changeConfig(KafkaZookeeper.BROKERS, broker, rate);
+        }
+    }
+
+    /**
+     * Poll the reassignment until the controller has finished it, then remove the throttle.
+     * Any partition which the controller finished without ending up with its new replicas has failed,
+     * which fails the reassignment once nothing is still in progress.
+     */
+    private void verify(String zookeeperConnect, Map<TopicPartition, List<Integer>> reassignment, long startNs, Future<Void> result) {
+        vertx.setTimer(verifyIntervalMs, id -> WorkerPool.get(vertx, WorkerPool.LONG_OPERATIONS).<Integer>executeBlocking(
+            future -> {
+                try (KafkaZookeeper zk = KafkaZookeeper.connect(zookeeperConnect, ZOOKEEPER_TIMEOUT_MS)) {
+                    Set<TopicPartition> inProgress = zk.reassigning();
+                    inProgress.retainAll(reassignment.keySet());
+                    if (inProgress.isEmpty()) {
+                        List<TopicPartition> failed = new ArrayList<>();
+                        Map<String, Map<Integer, List<Integer>>> current = new HashMap<>();
+                        for (TopicPartition tp : sorted(reassignment.keySet())) {
+                            if (!current.containsKey(tp.topic())) {
+                                current.put(tp.topic(), zk.replicas(tp.topic()));
+                            }
+                            if (!reassignment.get(tp).equals(current.get(tp.topic()).get(tp.partition()))) {
+                                failed.add(tp);
+                            }
+                        }
+                        Set<String> topics = new TreeSet<>();
+                        for (TopicPartition tp : reassignment.keySet()) {
+                            topics.add(tp.topic());
+                        }
+                        removeThrottle(zk, topics);
+                        if (!failed.isEmpty()) {
+                            throw new IllegalStateException("Reassignment of partitions " + failed + " failed");
+                        }
+                    }
+                    future.complete(inProgress.size());
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            },
+            false,
+            res -> {
+                int total = reassignment.size();
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+                if (res.failed()) {
+                    result.fail(res.cause());
+                } else if (res.result() == 0) {
+                    log.info("Reassignment of {} partitions complete after {}ms", total, elapsedMs);
+                    result.complete();
+                } else if (elapsedMs > timeoutMs) {
+                    result.fail(new TimeoutException("Reassignment of " + total + " partitions still had "
+                            + res.result() + " in progress after " + elapsedMs + "ms"));
+                } else {
+                    log.info("Reassignment progress: {}/{} partitions complete after {}ms", total - res.result(), total, elapsedMs);
+                    verify(zookeeperConnect, reassignment, startNs, result);
+                }
+            }));
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.strimzi.controller.cluster.Metrics;
+import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.strimzi.controller.cluster.operations.resource.WorkerPool;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A rolling update of the brokers of a Kafka cluster which takes the state of the partitions into account:
+ * <ul>
+ *     <li>A broker is restarted only when there are no under-replicated partitions,
+ *     or when restarting it would not take any partition below its {@code min.insync.replicas}.</li>
+ *     <li>Brokers which can be restarted safely go before those which can't,
+ *     so we only wait for the ISRs to catch up when we must.</li>
+ *     <li>The active controller is restarted last, so the controller role moves only once.</li>
+ * </ul>
+ * If the cluster can't be described using an {@link AdminClient} this falls back to
+ * {@link StatefulSetOperations#rollingUpdate(String, String, long)}, since a rolling update
+ * might be what's needed to fix a broken cluster. Likewise, if it can't be described partway through
+ * the roll, even after retrying, the remaining brokers are restarted in order.
+ */
+public class KafkaRollingUpdate {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaRollingUpdate.class.getName());
+
+    static final long DEFAULT_POLL_INTERVAL_MS = 5_000;
+    static final long DEFAULT_SAFE_RESTART_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long ADMIN_TIMEOUT_MS = 30_000;
+    static final int DESCRIBE_ATTEMPTS = 3;
+
+    private final Vertx vertx;
+    private final StatefulSetOperations statefulSetOperations;
+    private final long pollIntervalMs;
+    private final long safeRestartTimeoutMs;
+
+    /**
+     * Constructor
+     * @param vertx The Vertx instance
+     * @param statefulSetOperations For restarting the broker pods
+     */
+    public KafkaRollingUpdate(Vertx vertx, StatefulSetOperations statefulSetOperations) {
+        this(vertx, statefulSetOperations, DEFAULT_POLL_INTERVAL_MS, DEFAULT_SAFE_RESTART_TIMEOUT_MS);
+    }
+
+    KafkaRollingUpdate(Vertx vertx, StatefulSetOperations statefulSetOperations, long pollIntervalMs, long safeRestartTimeoutMs) {
+        this.vertx = vertx;
+        this.statefulSetOperations = statefulSetOperations;
+        this.pollIntervalMs = pollIntervalMs;
+        this.safeRestartTimeoutMs = safeRestartTimeoutMs;
+    }
+
+    protected AdminClient adminClient(String bootstrapServers) {
+        Properties props = new Properties();
+        props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.setProperty(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, String.valueOf(ADMIN_TIMEOUT_MS));
+        return AdminClient.create(props);
+    }
+
+    /**
+     * Asynchronously roll the brokers of the given StatefulSet.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param bootstrapServers The bootstrap servers of the Kafka cluster.
+     * @return A future which completes when all the brokers have been restarted.
+     */
+    public Future<Void> rollingUpdate(String namespace, String name, String bootstrapServers) {
+        StatefulSet ss = statefulSetOperations.get(namespace, name);
+        if (ss == null) {
+            return Future.failedFuture("Stateful set " + name + " in namespace " + namespace + " does not exist");
+        }
+        List<Integer> brokers = new ArrayList<>();
+        for (int i = 0; i < ss.getSpec().getReplicas(); i++) {
+            brokers.add(i);
+        }
+        return rollingUpdate(namespace, name, bootstrapServers, brokers);
+    }
+
+    /**
+     * Asynchronously roll only the given brokers of the given StatefulSet.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param bootstrapServers The bootstrap servers of the Kafka cluster.
+     * @param brokers The ids (pod ordinals) of the brokers to restart.
+     * @return A future which completes when the given brokers have been restarted.
+     */
+    public Future<Void> rollingUpdate(String namespace, String name, String bootstrapServers, Collection<Integer> brokers) {
+        StatefulSet ss = statefulSetOperations.get(namespace, name);
+        if (ss == null) {
+            return Future.failedFuture("Stateful set " + name + " in namespace " + namespace + " does not exist");
+        }
+        int replicas = ss.getSpec().getReplicas();
+        List<Integer> remaining = new ArrayList<>(brokers);
+
+        long start = System.nanoTime();
+        Future<AdminClient> admin = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+            future -> future.complete(adminClient(bootstrapServers)), false, admin.completer());
+
+        Future<Void> rolled = Future.future();
+        admin.compose(this::describe).setHandler(described -> {
+            if (described.succeeded()) {
+                log.info("Doing Kafka-aware rolling update of stateful set {} in namespace {}, active controller is broker {}",
+                        name, namespace, described.result().controller);
+                restartNext(admin.result(), namespace, name, remaining, replicas, System.nanoTime(), described.result())
+                        .setHandler(rolled.completer());
+            } else {
+                log.warn("Unable to describe the Kafka cluster {}, falling back to restarting brokers in order: {}",
+                        bootstrapServers, described.cause().toString());
+                restartInOrder(namespace, name, remaining, replicas).setHandler(rolled.completer());
+            }
+        });
+
+        Future<Void> result = Future.future();
+        rolled.setHandler(res -> {
+            Metrics.get(vertx).time(StatefulSetOperations.ROLLING_UPDATE_METRIC, StatefulSetOperations.ROLLING_UPDATE_HELP,
+                    System.nanoTime() - start, "strategy", "kafka", "namespace", namespace, "name", name,
+                    "outcome", res.succeeded() ? "success" : "failure");
+            if (admin.succeeded()) {
+                closeAdminClient(admin.result());
+            }
+            if (res.succeeded()) {
+                log.info("Stateful set {} in namespace {} has been rolled", name, namespace);
+            } else {
+                log.error("Failed to do rolling update of stateful set {} in namespace {}: {}", name, namespace, res.cause().toString());
+            }
+            result.handle(res);
+        });
+        return result;
+    }
+
+    private Future<Void> restartInOrder(String namespace, String name, List<Integer> brokers, int replicas) {
+        if (brokers.size() == replicas) {
+            return statefulSetOperations.rollingUpdate(namespace, name, StatefulSetOperations.DEFAULT_POD_RESTART_TIMEOUT_MS)
+                    .map((Void) null);
+        }
+        Future<Void> restarted = Future.succeededFuture();
+        for (Integer broker : brokers) {
+            restarted = restarted.compose(i -> statefulSetOperations.restartPod(namespace, name + "-" + broker,
+                    StatefulSetOperations.DEFAULT_POD_RESTART_TIMEOUT_MS).map((Void) null));
+        }
+        return restarted;
+    }
+
+    private Future<Void> rollNext(AdminClient ac, String namespace, String name, List<Integer> remaining, int replicas, long waitingSinceNs) {
+        if (remaining.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        Future<Void> rolled = Future.future();
+        describe(ac, DESCRIBE_ATTEMPTS).setHandler(described -> {
+            if (described.succeeded()) {
+                restartNext(ac, namespace, name, remaining, replicas, waitingSinceNs, described.result()).setHandler(rolled.completer());
+            } else {
+                log.warn("Unable to describe the Kafka cluster of {} after {} attempts, falling back to restarting brokers {} in order: {}",
+                        name, DESCRIBE_ATTEMPTS, remaining, described.cause().toString());
+                restartInOrder(namespace, name, remaining, replicas).setHandler(rolled.completer());
+            }
+        });
+        return rolled;
+    }
+
+    private Future<Void> restartNext(AdminClient ac, String namespace, String name, List<Integer> remaining, int replicas,
+                                     long waitingSinceNs, ClusterState state) {
+        if (remaining.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        Integer broker = nextBroker(remaining, state.controller, state.partitions);
+        if (broker != null) {
+            remaining.remove(broker);
+            return statefulSetOperations.restartPod(namespace, name + "-" + broker, StatefulSetOperations.DEFAULT_POD_RESTART_TIMEOUT_MS)
+                    .compose(duration -> rollNext(ac, namespace, name, remaining, replicas, System.nanoTime()));
+        } else if (System.nanoTime() - waitingSinceNs > TimeUnit.MILLISECONDS.toNanos(safeRestartTimeoutMs)) {
+            return Future.failedFuture(new TimeoutException("Timed out after " + safeRestartTimeoutMs
+                    + "ms waiting until one of brokers " + remaining + " of " + name + " could be restarted safely"));
+        } else {
+            log.info("None of brokers {} of {} can be restarted without taking partitions below min.insync.replicas, waiting",
+                    remaining, name);
+            Future<Void> waited = Future.future();
+            vertx.setTimer(pollIntervalMs, id ->
+                    rollNext(ac, namespace, name, remaining, replicas, waitingSinceNs).setHandler(waited.completer()));
+            return waited;
+        }
+    }
+
+    /**
+     * Describe the cluster, retrying every poll interval, since a broker which was just restarted
+     * may still be catching up, or an admin request may time out.
+     */
+    private Future<ClusterState> describe(AdminClient ac, int attempts) {
+        return describe(ac).recover(error -> {
+            if (attempts <= 1) {
+                return Future.failedFuture(error);
+            }
+            log.info("Unable to describe the Kafka cluster, retrying in {}ms: {}", pollIntervalMs, error.toString());
+            Future<ClusterState> retried = Future.future();
+            vertx.setTimer(pollIntervalMs, id -> describe(ac, attempts - 1).setHandler(retried.completer()));
+            return retried;
+        });
+    }
+
+    /**
+     * Choose the next broker to restart, if any can be restarted now.
+     * @param remaining The brokers still to be restarted, in preference order.
+     * @param controller The id of the active controller.
+     * @param partitions The current state of the partitions.
+     * @return The broker to restart next, or null if it's not yet safe to restart any of them.
+     */
+    static Integer nextBroker(List<Integer> remaining, int controller, Collection<PartitionState> partitions) {
+        boolean underReplicated = false;
+        for (PartitionState partition : partitions) {
+            if (partition.isUnderReplicated()) {
+                underReplicated = true;
+                break;
+            }
+        }
+        for (Integer broker : remaining) {
+            if (broker == controller && remaining.size() > 1) {
+                continue;
+            }
+            if (!underReplicated || canRestart(broker, partitions)) {
+                return broker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether restarting the given broker would leave every partition with at least
+     * {@code min.insync.replicas} in-sync replicas.
+     */
+    static boolean canRestart(int broker, Collection<PartitionState> partitions) {
+        for (PartitionState partition : partitions) {
+            if (partition.isr.contains(broker) && partition.isr.size() - 1 < partition.minIsr) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Future<ClusterState> describe(AdminClient ac) {
+        Future<ClusterState> result = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<ClusterState>executeBlocking(
+            future -> {
+                try {
+                    int controller = ac.describeCluster().controller().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS).id();
+                    Set<String> topics = ac.listTopics(new ListTopicsOptions().listInternal(true)).names()
+                            .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    Map<String, TopicDescription> descriptions = ac.describeTopics(topics).all()
+                            .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    List<ConfigResource> resources = new ArrayList<>(topics.size());
+                    for (String topic : topics) {
+                        resources.add(new ConfigResource(ConfigResource.Type.TOPIC, topic));
+                    }
+                    Map<ConfigResource, Config> configs = ac.describeConfigs(resources).all()
+                            .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                    List<PartitionState> partitions = new ArrayList<>();
+                    for (Map.Entry<ConfigResource, Config> entry : configs.entrySet()) {
+                        ConfigEntry minIsrEntry = entry.getValue().get(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG);
+                        int minIsr = minIsrEntry != null ? Integer.parseInt(minIsrEntry.value()) : 1;
+                        for (TopicPartitionInfo info : descriptions.get(entry.getKey().name()).partitions()) {
+                            partitions.add(new PartitionState(entry.getKey().name(), info.partition(),
+                                    ids(info.replicas()), ids(info.isr()), minIsr));
+                        }
+                    }
+                    future.complete(new ClusterState(controller, partitions));
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            },
+            false,
+            result.completer());
+        return result;
+    }
+
+    private static List<Integer> ids(List<Node> nodes) {
+        List<Integer> ids = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            ids.add(node.id());
+        }
+        return ids;
+    }
+
+    private void closeAdminClient(AdminClient ac) {
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(future -> {
+            ac.close(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            future.complete();
+        }, false, ignored -> { });
+    }
+
+    static class ClusterState {
+        private final int controller;
+        private final List<PartitionState> partitions;
+
+        ClusterState(int controller, List<PartitionState> partitions) {
+            this.controller = controller;
+            this.partitions = partitions;
+        }
+    }
+
+    /**
+     * The replicas and in-sync replicas of a partition, together with its {@code min.insync.replicas}.
+     */
+    static class PartitionState {
+        private final String topic;
+        private final int partition;
+        private final List<Integer> replicas;
+        private final List<Integer> isr;
+        private final int minIsr;
+
+        PartitionState(String topic, int partition, List<Integer> replicas, List<Integer> isr, int minIsr) {
+            this.topic = topic;
+            this.partition = partition;
+            this.replicas = replicas;
+            this.isr = isr;
+            this.minIsr = minIsr;
+        }
+
+        boolean isUnderReplicated() {
+            return isr.size() < replicas.size();
+        }
+
+        @Override
+        public String toString() {
+            return topic + "-" + partition + "(replicas=" + replicas + ", isr=" + isr + ", minIsr=" + minIsr + ")";
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A blocking client for the parts of a Kafka cluster's state in ZooKeeper which Kafka 1.0 has no Admin API for:
+ * partition reassignments, and the broker and topic configs which hold the replication throttle.
+ * The znodes are read and written in the same formats as Kafka 1.0's {@code kafka.utils.ZkUtils} and
+ * {@code kafka.admin.AdminUtils}, which is what {@code kafka-reassign-partitions.sh} and {@code kafka-configs.sh} use.
+ */
+class KafkaZookeeper implements AutoCloseable {
+
+    static final String REASSIGN_PARTITIONS_PATH = "/admin/reassign_partitions";
+    static final String BROKER_TOPICS_PATH = "/brokers/topics";
+    static final String CONFIG_PATH = "/config";
+    static final String CONFIG_CHANGES_PATH = "/config/changes";
+    private static final String CONFIG_CHANGE_PREFIX = "config_change_";
+
+    static final String TOPICS = "topics";
+    static final String BROKERS = "brokers";
+
+    private final ZooKeeper zk;
+
+    private KafkaZookeeper(ZooKeeper zk) {
+        this.zk = zk;
+    }
+
+    /**
+     * Connect to the given ZooKeeper, waiting until the session is established.
+     * @param zookeeperConnect The ZooKeeper connection string of the Kafka cluster.
+     * @param timeoutMs How long to wait for the connection, which is also the session timeout.
+     * @return The connected client.
+     */
+    static KafkaZookeeper connect(String zookeeperConnect, long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper zk = new ZooKeeper(zookeeperConnect, (int) timeoutMs, event -> {
+            if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        });
+        if (!connected.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            zk.close();
+            throw new TimeoutException("Unable to connect to ZooKeeper " + zookeeperConnect + " within " + timeoutMs + "ms");
+        }
+        return new KafkaZookeeper(zk);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        zk.close();
+    }
+
+    /**
+     * @return The JSON in the given znode, or null if it doesn't exist.
+     */
+    private JsonObject readJson(String path, Stat stat) throws KeeperException, InterruptedException {
+        try {
+            byte[] data = zk.getData(path, false, stat);
+            return data == null ? null : new JsonObject(new String(data, StandardCharsets.UTF_8));
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create the given znode, and any missing parents.
+     * @return The path of the created znode, which differs from {@code path} for a sequential znode.
+     */
+    private String create(String path, JsonObject json, CreateMode mode) throws KeeperException, InterruptedException {
+        byte[] data = json.encode().getBytes(StandardCharsets.UTF_8);
+        try {
+            return zk.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, mode);
+        } catch (KeeperException.NoNodeException e) {
+            String parent = path.substring(0, path.lastIndexOf('/'));
+            try {
+                zk.create(parent, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            } catch (KeeperException.NodeExistsException created) {
+                // created concurrently
+            } catch (KeeperException.NoNodeException missing) {
+                create(parent, new JsonObject(), CreateMode.PERSISTENT);
+            }
+            return zk.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, mode);
+        }
+    }
+
+    /**
+     * Start a reassignment, which the Kafka controller carries out, removing each partition from
+     * {@link #REASSIGN_PARTITIONS_PATH} as it completes and the znode itself once they all have.
+     * @param reassignment The reassignment, in the JSON format understood by {@code kafka-reassign-partitions.sh}.
+     * @return False if another reassignment is already in progress.
+     */
+    boolean startReassignment(JsonObject reassignment) throws KeeperException, InterruptedException {
+        try {
+            create(REASSIGN_PARTITIONS_PATH, reassignment, CreateMode.PERSISTENT);
+            return true;
+        } catch (KeeperException.NodeExistsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Whether a reassignment is in progress.
+     */
+    boolean isReassigning() throws KeeperException, InterruptedException {
+        return zk.exists(REASSIGN_PARTITIONS_PATH, false) != null;
+    }
+
+    /**
+     * @return The partitions which the reassignment in progress still has to move.
+     */
+    Set<TopicPartition> reassigning() throws KeeperException, InterruptedException {
+        JsonObject json = readJson(REASSIGN_PARTITIONS_PATH, null);
+        if (json == null) {
+            return Collections.emptySet();
+        }
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (Object partition : json.getJsonArray("partitions", new JsonArray())) {
+            JsonObject p = (JsonObject) partition;
+            partitions.add(new TopicPartition(p.getString("topic"), p.getInteger("partition")));
+        }
+        return partitions;
+    }
+
+    /**
+     * @return The replicas of each partition of the given topic, which is empty if the topic doesn't exist.
+     */
+    Map<Integer, List<Integer>> replicas(String topic) throws KeeperException, InterruptedException {
+        JsonObject json = readJson(BROKER_TOPICS_PATH + "/" + topic, null);
+        Map<Integer, List<Integer>> replicas = new HashMap<>();
+        if (json != null) {
+            for (Map.Entry<String, Object> entry : json.getJsonObject("partitions", new JsonObject())) {
+                List<Integer> brokers = new ArrayList<>();
+                for (Object broker : (JsonArray) entry.getValue()) {
+                    brokers.add((Integer) broker);
+                }
+                replicas.put(Integer.valueOf(entry.getKey()), brokers);
+            }
+        }
+        return replicas;
+    }
+
+    /**
+     * @return The entities of the given type which have a config, for example the ids of the brokers.
+     */
+    List<String> configured(String entityType) throws KeeperException, InterruptedException {
+        try {
+            return zk.getChildren(CONFIG_PATH + "/" + entityType, false);
+        } catch (KeeperException.NoNodeException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return The config of the given entity, which is empty if it has none.
+     */
+    Map<String, String> config(String entityType, String entityName) throws KeeperException, InterruptedException {
+        JsonObject json = readJson(CONFIG_PATH + "/" + entityType + "/" + entityName, null);
+        Map<String, String> config = new HashMap<>();
+        if (json != null) {
+            for (Map.Entry<String, Object> entry : json.getJsonObject("config", new JsonObject())) {
+                config.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Change the config of the given entity, keeping its other keys, and notify the brokers of the change,
+     * like {@code kafka-configs.sh --alter} does.
+     * @param entityType {@link #TOPICS} or {@link #BROKERS}.
+     * @param entityName The topic name or broker id.
+     * @param changes The values of the keys to change, with null for keys to remove.
+     */
+    void changeConfig(String entityType, String entityName, Map<String, String> changes) throws KeeperException, InterruptedException {
+        String path = CONFIG_PATH + "/" + entityType + "/" + entityName;
+        while (true) {
+            Stat stat = new Stat();
+            JsonObject json = readJson(path, stat);
+            JsonObject config = json == null ? new JsonObject() : json.getJsonObject("config", new JsonObject());
+            JsonObject changed = config.copy();
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    changed.remove(change.getKey());
+                } else {
+                    changed.put(change.getKey(), change.getValue());
+                }
+            }
+            if (changed.equals(config)) {
+                return;
+            }
+            JsonObject updated = new JsonObject().put("version", 1).put("config", changed);
+            try {
+                if (json == null) {
+                    create(path, updated, CreateMode.PERSISTENT);
+                } else {
+                    zk.setData(path, updated.encode().getBytes(StandardCharsets.UTF_8), stat.getVersion());
+                }
+                break;
+            } catch (KeeperException.NodeExistsException | KeeperException.BadVersionException e) {
+                // changed concurrently, so read it again
+            }
+        }
+        create(CONFIG_CHANGES_PATH + "/" + CONFIG_CHANGE_PREFIX,
+                new JsonObject().put("version", 2).put("entity_path", entityType + "/" + entityName),
+                CreateMode.PERSISTENT_SEQUENTIAL);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.strimzi.controller.cluster.operations.resource.PvcOperations;
+import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.strimzi.controller.cluster.resources.Resources;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Expands the persistent volumes of the pods of a StatefulSet to the sizes of new volume claim templates,
+ * without deleting any data:
+ * <ol>
+ *     <li>The claims of each pod are patched with the larger size. The storage class has to allow volume expansion,
+ *     otherwise the API server refuses the patch and the expansion fails.</li>
+ *     <li>We wait for the capacity of each claim to reach the new size. Volume plugins which can only resize
+ *     the filesystem when the volume is mounted mark the claim {@value #FILE_SYSTEM_RESIZE_PENDING} instead,
+ *     and the pod then needs restarting, which is left to the caller.</li>
+ *     <li>The StatefulSet is replaced by one with the new claim templates, orphaning its pods,
+ *     so that pods created by a later scale up get the new size. This restarts none of the pods.</li>
+ * </ol>
+ */
+public class StorageExpansion {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageExpansion.class.getName());
+
+    static final long DEFAULT_POLL_INTERVAL_MS = 5_000;
+    static final long DEFAULT_RESIZE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+    static final String FILE_SYSTEM_RESIZE_PENDING = "FileSystemResizePending";
+
+    private final Vertx vertx;
+    private final StatefulSetOperations statefulSetOperations;
+    private final PvcOperations pvcOperations;
+    private final long pollIntervalMs;
+    private final long resizeTimeoutMs;
+
+    /**
+     * Constructor
+     * @param vertx The Vertx instance
+     * @param statefulSetOperations For replacing the StatefulSet
+     * @param pvcOperations For expanding the PersistentVolumeClaims
+     */
+    public StorageExpansion(Vertx vertx, StatefulSetOperations statefulSetOperations, PvcOperations pvcOperations) {
+        this(vertx, statefulSetOperations, pvcOperations, DEFAULT_POLL_INTERVAL_MS, DEFAULT_RESIZE_TIMEOUT_MS);
+    }
+
+    StorageExpansion(Vertx vertx, StatefulSetOperations statefulSetOperations, PvcOperations pvcOperations,
+                     long pollIntervalMs, long resizeTimeoutMs) {
+        this.vertx = vertx;
+        this.statefulSetOperations = statefulSetOperations;
+        this.pvcOperations = pvcOperations;
+        this.pollIntervalMs = pollIntervalMs;
+        this.resizeTimeoutMs = resizeTimeoutMs;
+    }
+
+    /**
+     * Asynchronously expand the claims of the pods of the given StatefulSet and then replace its claim templates.
+     * In between, the pods which need restarting to resize their filesystems are passed to {@code restarter},
+     * unless a rolling update of all the pods is due anyway, since restarting them now would restart them twice.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param claimTemplates The new volume claim templates.
+     * @param rollingUpdateDue Whether all the pods are about to be restarted by a rolling update.
+     * @param restarter Restarts the pods with the given ordinals.
+     * @return A future which completes when the StatefulSet has been replaced.
+     */
+    public Future<Void> expandAndReplace(String namespace, String name, List<PersistentVolumeClaim> claimTemplates,
+                                         boolean rollingUpdateDue, Function<Set<Integer>, Future<Void>> restarter) {
+        return expand(namespace, name, claimTemplates)
+                .compose(pending -> pending.isEmpty() || rollingUpdateDue ? Future.succeededFuture() : restarter.apply(pending))
+                .compose(i -> replaceClaimTemplates(namespace, name, claimTemplates));
+    }
+
+    /**
+     * Asynchronously expand the claims of the pods of the given StatefulSet, one pod at a time.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param claimTemplates The new volume claim templates.
+     * @return A future for the ordinals of the pods which need restarting to finish resizing their filesystems.
+     */
+    public Future<Set<Integer>> expand(String namespace, String name, List<PersistentVolumeClaim> claimTemplates) {
+        StatefulSet ss = statefulSetOperations.get(namespace, name);
+        if (ss == null) {
+            return Future.failedFuture("Stateful set " + name + " in namespace " + namespace + " does not exist");
+        }
+
+        Set<Integer> pending = new TreeSet<>();
+        Future<Void> expanded = Future.succeededFuture();
+        for (int i = 0; i < ss.getSpec().getReplicas(); i++) {
+            int pod = i;
+            Map<String, Quantity> sizes = new HashMap<>();
+            for (PersistentVolumeClaim template : claimTemplates) {
+                sizes.put(template.getMetadata().getName() + "-" + name + "-" + pod, size(template));
+            }
+            expanded = expanded.compose(v -> expandPod(namespace, sizes)).map(isPending -> {
+                if (isPending) {
+                    pending.add(pod);
+                }
+                return (Void) null;
+            });
+        }
+        return expanded.map(v -> {
+            if (!pending.isEmpty()) {
+                log.info("Pods {} of stateful set {} in namespace {} need restarting to resize their filesystems", pending, name, namespace);
+            }
+            return pending;
+        });
+    }
+
+    /**
+     * Asynchronously replace the given StatefulSet with one having the new claim templates, orphaning its pods.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param claimTemplates The new volume claim templates.
+     * @return A future which completes when the StatefulSet has been replaced.
+     */
+    public Future<Void> replaceClaimTemplates(String namespace, String name, List<PersistentVolumeClaim> claimTemplates) {
+        // The replacement is built from the StatefulSet on the API server, since the cache might not have
+        // caught up with the patch which has only just been applied to it
+        return statefulSetOperations.fetch(namespace, name).compose(ss -> {
+            if (ss == null) {
+                return Future.failedFuture("Stateful set " + name + " in namespace " + namespace + " does not exist");
+            }
+            ss.getSpec().setVolumeClaimTemplates(claimTemplates);
+            return statefulSetOperations.replaceOrphaningPods(namespace, name, ss, resizeTimeoutMs);
+        });
+    }
+
+    /**
+     * Patch the claims of one pod and wait for them to be resized.
+     * @return A future for whether the pod needs restarting to resize its filesystems.
+     */
+    private Future<Boolean> expandPod(String namespace, Map<String, Quantity> sizes) {
+        List<Future> patched = new ArrayList<>(sizes.size());
+        sizes.forEach((claim, size) -> patched.add(patchClaim(namespace, claim, size)));
+        return CompositeFuture.join(patched)
+                .compose(v -> awaitResized(namespace, sizes, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resizeTimeoutMs)));
+    }
+
+    private Future<Void> patchClaim(String namespace, String claim, Quantity size) {
+        PersistentVolumeClaim pvc = pvcOperations.get(namespace, claim);
+        if (pvc == null) {
+            log.warn("PersistentVolumeClaim {} in namespace {} doesn't exist, so cannot be expanded", claim, namespace);
+            return Future.succeededFuture();
+        }
+        if (compare(size(pvc), size) >= 0) {
+            return Future.succeededFuture();
+        }
+        log.info("Expanding PersistentVolumeClaim {} in namespace {} to {}", claim, namespace, size.getAmount());
+        return pvcOperations.patch(namespace, claim, false, current -> {
+            current.getSpec().getResources().getRequests().put("storage", size);
+            return current;
+        });
+    }
+
+    private Future<Boolean> awaitResized(String namespace, Map<String, Quantity> sizes, long deadlineNs) {
+        boolean resized = true;
+        for (Map.Entry<String, Quantity> entry : sizes.entrySet()) {
+            PersistentVolumeClaim pvc = pvcOperations.get(namespace, entry.getKey());
+            if (pvc == null) {
+                continue;
+            }
+            if (isFileSystemResizePending(pvc)) {
+                return Future.succeededFuture(true);
+            }
+            Quantity capacity = pvc.getStatus() != null && pvc.getStatus().getCapacity() != null ?
+                    pvc.getStatus().getCapacity().get("storage") : null;
+            if (capacity == null || compare(capacity, entry.getValue()) < 0) {
+                resized = false;
+            }
+        }
+        if (resized) {
+            return Future.succeededFuture(false);
+        } else if (System.nanoTime() > deadlineNs) {
+            return Future.failedFuture(new TimeoutException("Timed out after " + resizeTimeoutMs
+                    + "ms waiting for PersistentVolumeClaims " + sizes.keySet() + " in namespace " + namespace + " to be expanded"));
+        }
+        Future<Boolean> waited = Future.future();
+        vertx.setTimer(pollIntervalMs, id -> awaitResized(namespace, sizes, deadlineNs).setHandler(waited.completer()));
+        return waited;
+    }
+
+    /**
+     * The model of our Kubernetes client predates claim conditions, so they're among its additional properties.
+     */
+    static boolean isFileSystemResizePending(PersistentVolumeClaim pvc) {
+        Object conditions = pvc.getStatus() != null ? pvc.getStatus().getAdditionalProperties().get("conditions") : null;
+        if (conditions instanceof List) {
+            for (Object condition : (List<?>) conditions) {
+                if (condition instanceof Map && FILE_SYSTEM_RESIZE_PENDING.equals(((Map<?, ?>) condition).get("type"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Quantity size(PersistentVolumeClaim pvc) {
+        return pvc.getSpec().getResources().getRequests().get("storage");
+    }
+
+    private static int compare(Quantity a, Quantity b) {
+        return Resources.parse(a.getAmount()).compareTo(Resources.parse(b.getAmount()));
+    }
+}
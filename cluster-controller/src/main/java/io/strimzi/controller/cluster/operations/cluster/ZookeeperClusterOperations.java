@@ -1,6 +1,7 @@
 package io.strimzi.controller.cluster.operations.cluster;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.strimzi.controller.cluster.operations.resource.ConfigMapOperations;
 import io.strimzi.controller.cluster.operations.resource.PvcOperations;
@@ -26,6 +27,7 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
     private final StatefulSetOperations statefulSetOperations;
     private final ConfigMapOperations configMapOperations;
     private final PvcOperations pvcOperations;
+    private final StorageExpansion storageExpansion;
 
     /**
      * Constructor
@@ -46,6 +48,7 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
         this.statefulSetOperations = statefulSetOperations;
         this.configMapOperations = configMapOperations;
         this.pvcOperations = pvcOperations;
+        this.storageExpansion = new StorageExpansion(vertx, statefulSetOperations, pvcOperations);
     }
 
     private final CompositeOperation<ZookeeperCluster> create = new CompositeOperation<ZookeeperCluster>() {
@@ -138,6 +141,7 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
                     .compose(i -> patchService(zk, namespace, diff))
                     .compose(i -> patchHeadlessService(zk, namespace, diff))
                     .compose(i -> patchStatefulSet(zk, namespace, diff))
+                    .compose(i -> expandStorage(zk, namespace, diff))
                     .compose(i -> patchMetricsConfigMap(zk, namespace, diff))
                     .compose(i -> rollingUpdate(zk, namespace, diff))
                     .compose(i -> scaleUp(zk, namespace, diff))
@@ -180,8 +184,7 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
 
     private Future<Void> patchService(ZookeeperCluster zk, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return serviceOperations.patch(namespace, zk.getName(),
-                    zk.patchService(serviceOperations.get(namespace, zk.getName())));
+            return serviceOperations.patchIfChanged(namespace, zk.getName(), zk.generateService(), zk::patchService);
         }
         else
         {
@@ -191,8 +194,8 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
 
     private Future<Void> patchHeadlessService(ZookeeperCluster zk, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
-            return serviceOperations.patch(namespace, zk.getHeadlessName(),
-                    zk.patchHeadlessService(serviceOperations.get(namespace, zk.getHeadlessName())));
+            return serviceOperations.patchIfChanged(namespace, zk.getHeadlessName(),
+                    zk.generateHeadlessService(), zk::patchHeadlessService);
         }
         else
         {
@@ -203,7 +206,7 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
     private Future<Void> patchStatefulSet(ZookeeperCluster zk, String namespace, ClusterDiffResult diff) {
         if (diff.getDifferent()) {
             return statefulSetOperations.patch(namespace, zk.getName(), false,
-                    zk.patchStatefulSet(statefulSetOperations.get(namespace, zk.getName())));
+                    zk.generateStatefulSet(isOpenShift), zk::patchStatefulSet);
         }
         else
         {
@@ -211,10 +214,33 @@ public class ZookeeperClusterOperations extends AbstractClusterOperations<Zookee
         }
     }
 
+    /**
+     * Expand the persistent volumes of the ZooKeeper nodes, restarting one at a time only the nodes whose filesystems
+     * can't be resized online, unless all of them are about to be restarted by a rolling update anyway.
+     */
+    private Future<Void> expandStorage(ZookeeperCluster zk, String namespace, ClusterDiffResult diff) {
+        if (diff.isStorageExpanded()) {
+            List<PersistentVolumeClaim> claimTemplates = zk.generateStatefulSet(isOpenShift).getSpec().getVolumeClaimTemplates();
+            return storageExpansion.expandAndReplace(namespace, zk.getName(), claimTemplates, diff.getRollingUpdate(), pending -> {
+                Future<Void> restarted = Future.succeededFuture();
+                for (Integer pod : pending) {
+                    restarted = restarted.compose(i -> statefulSetOperations.restartPod(namespace, zk.getName() + "-" + pod,
+                            StatefulSetOperations.DEFAULT_POD_RESTART_TIMEOUT_MS).map((Void) null));
+                }
+                return restarted;
+            });
+        }
+        else {
+            return Future.succeededFuture();
+        }
+    }
+
     private Future<Void> patchMetricsConfigMap(ZookeeperCluster zk, String namespace, ClusterDiffResult diff) {
-        if (diff.isMetricsChanged()) {
-            return configMapOperations.patch(namespace, zk.getMetricsConfigName(),
-                    zk.patchMetricsConfigMap(configMapOperations.get(namespace, zk.getMetricsConfigName())));
+        if (diff.isMetricsChanged() && zk.isMetricsEnabled()) {
+            return configMapOperations.patch(namespace, zk.getMetricsConfigName(), true,
+                    zk.generateMetricsConfigMap(), zk::patchMetricsConfigMap);
+        } else if (diff.isMetricsChanged()) {
+            return configMapOperations.patch(namespace, zk.getMetricsConfigName(), true, zk::patchMetricsConfigMap);
         } else {
             return Future.succeededFuture();
         }
@@ -19,8 +19,12 @@ package io.strimzi.controller.cluster.operations.resource;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import io.strimzi.controller.cluster.ClusterController;
+import io.strimzi.controller.cluster.Fence;
+import io.strimzi.controller.cluster.Metrics;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -28,8 +32,12 @@ import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Abstract resource creation, for a generic resource type {@code R}.
@@ -44,9 +52,19 @@ import java.util.Map;
 public abstract class AbstractOperations<C, T extends HasMetadata, L extends KubernetesResourceList/*<T>*/, D, R extends Resource<T, D>> {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractOperations.class);
+    private static final int HTTP_CONFLICT = 409;
+    private static final String API_REQUEST_METRIC = "strimzi_kubernetes_api_request_duration_seconds";
+
+    /**
+     * The namespace which stands for all namespaces, for {@link #startCache(String, Map)},
+     * {@link #list(String, Map)} and {@link #listAsync(String, Map)}.
+     */
+    public static final String ANY_NAMESPACE = "*";
+
     protected final Vertx vertx;
     protected final C client;
-    private final String resourceKind;
+    protected final String resourceKind;
+    private final Map<String, ResourceCache<T>> caches = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
@@ -66,28 +84,33 @@ public abstract class AbstractOperations<C, T extends HasMetadata, L extends Kub
      * Asynchronously create the given {@code resource} if it doesn't already exists,
      * returning a future for the outcome.
      * If the resource with that name already exists the future completes successfully.
+     * Rather than checking first, this just tries to create the resource and treats a 409 Conflict
+     * as meaning it already existed, which saves an API call and can't race with another creator.
      * @param resource The resource to create.
      */
     public Future<Void> create(T resource) {
         Future<Void> fut = Future.future();
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
                 future -> {
                     String namespace = resource.getMetadata().getNamespace();
                     String name = resource.getMetadata().getName();
-                    if (operation().inNamespace(namespace).withName(name).get() == null) {
-                        try {
-                            log.info("Creating {} {} in namespace {}", resourceKind, name, namespace);
-                            operation().createOrReplace(resource);
-                            log.info("{} {} in namespace {} has been created", resourceKind, name, namespace);
+                    try {
+                        Fence.get(vertx).check("create " + resourceKind + " " + name + " in namespace " + namespace);
+                        log.info("Creating {} {} in namespace {}", resourceKind, name, namespace);
+                        timed("create", () -> operation().inNamespace(namespace).create(resource));
+                        log.info("{} {} in namespace {} has been created", resourceKind, name, namespace);
+                        future.complete();
+                    } catch (KubernetesClientException e) {
+                        if (e.getCode() == HTTP_CONFLICT) {
+                            log.warn("{} {} in namespace {} already exists", resourceKind, name, namespace);
                             future.complete();
-                        } catch (Exception e) {
+                        } else {
                             log.error("Caught exception while creating {} {} in namespace {}", resourceKind, name, namespace, e);
                             future.fail(e);
                         }
-                    }
-                    else {
-                        log.warn("{} {} in namespace {} already exists", resourceKind, name, namespace);
-                        future.complete();
+                    } catch (Exception e) {
+                        log.error("Caught exception while creating {} {} in namespace {}", resourceKind, name, namespace, e);
+                        future.fail(e);
                     }
                 },
                 false,
@@ -105,13 +128,14 @@ public abstract class AbstractOperations<C, T extends HasMetadata, L extends Kub
      */
     public Future<Void> delete(String namespace, String name) {
         Future fut = Future.future();
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
                 future -> {
 
-                    if (operation().inNamespace(namespace).withName(name).get() != null) {
+                    if (timed("get", () -> operation().inNamespace(namespace).withName(name).get()) != null) {
                         try {
+                            Fence.get(vertx).check("delete " + resourceKind + " " + name + " in namespace " + namespace);
                             log.info("Deleting {} {} in namespace {}", resourceKind, name, namespace);
-                            operation().inNamespace(namespace).withName(name).delete();
+                            timed("delete", () -> operation().inNamespace(namespace).withName(name).delete());
                             log.info("{} {} in namespace {} has been deleted", resourceKind, name, namespace);
                             future.complete();
                         } catch (Exception e) {
@@ -139,14 +163,144 @@ public abstract class AbstractOperations<C, T extends HasMetadata, L extends Kub
         return patch(namespace, name, true, patch);
     }
 
+    public Future<Void> patchIfChanged(String namespace, String name, T desired, Function<T, T> patcher) {
+        return patchIfChanged(namespace, name, true, desired, patcher);
+    }
+
+    /**
+     * Asynchronously patch the resource with the given {@code name} in the given {@code namespace}
+     * so that it reflects the {@code desired} resource, unless it already does, returning a future for the outcome.
+     * Whether it already does is determined by comparing the spec hash annotation
+     * ({@link ClusterController#STRIMZI_SPEC_HASH_ANNOTATION}) of the {@code desired} resource with the current one,
+     * which may come from the cache.
+     * Otherwise the patch is built as by {@link #patch(String, String, boolean, HasMetadata, Function)}.
+     * @param namespace The namespace of the resource to patch.
+     * @param name The name of the resource to patch.
+     * @param cascading Whether the patch should cascade.
+     * @param desired The desired resource, as generated, with its spec hash annotation.
+     * @param patcher Applies the desired state to the current resource.
+     */
+    public Future<Void> patchIfChanged(String namespace, String name, boolean cascading, T desired, Function<T, T> patcher) {
+        String desiredHash = specHash(desired);
+        T current;
+        try {
+            current = get(namespace, name);
+        } catch (Exception e) {
+            log.error("Caught exception while getting {} {} in namespace {}", resourceKind, name, namespace, e);
+            return Future.failedFuture(e);
+        }
+        if (current == null) {
+            return Future.failedFuture(new IllegalStateException(resourceKind + " " + name + " in namespace " + namespace + " doesn't exist"));
+        }
+        if (desiredHash != null && desiredHash.equals(specHash(current))) {
+            log.debug("{} {} in namespace {} is already up to date, not patching", resourceKind, name, namespace);
+            return Future.succeededFuture();
+        }
+        return patch(namespace, name, cascading, desired, patcher);
+    }
+
+    /**
+     * Asynchronously patch the resource with the given {@code name} in the given {@code namespace}
+     * so that it reflects the {@code desired} resource, returning a future for the outcome.
+     * Unlike {@link #patchIfChanged(String, String, boolean, HasMetadata, Function)} this always patches;
+     * it's for when the caller already knows the resource differs.
+     * The patch is built as by {@link #patch(String, String, boolean, Function)},
+     * and carries the spec hash annotation of the {@code desired} resource.
+     * @param namespace The namespace of the resource to patch.
+     * @param name The name of the resource to patch.
+     * @param cascading Whether the patch should cascade.
+     * @param desired The desired resource, as generated, with its spec hash annotation.
+     * @param patcher Applies the desired state to the current resource.
+     */
+    public Future<Void> patch(String namespace, String name, boolean cascading, T desired, Function<T, T> patcher) {
+        String desiredHash = specHash(desired);
+        return patch(namespace, name, cascading, current -> {
+            T patch = patcher.apply(current);
+            if (desiredHash != null) {
+                Map<String, String> annotations = patch.getMetadata().getAnnotations() != null ?
+                        new HashMap<>(patch.getMetadata().getAnnotations()) : new HashMap<>();
+                annotations.put(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION, desiredHash);
+                patch.getMetadata().setAnnotations(annotations);
+            }
+            return patch;
+        });
+    }
+
+    /**
+     * Asynchronously patch the resource with the given {@code name} in the given {@code namespace}
+     * with the result of applying {@code patcher} to it, returning a future for the outcome.
+     * The patcher is applied to the resource as it is on the API server, never to a cached copy:
+     * the client diffs the patch against the resource on the server, so a stale copy would fail with
+     * a conflict on its resourceVersion, and would revert whatever had changed since it was cached.
+     * @param namespace The namespace of the resource to patch.
+     * @param name The name of the resource to patch.
+     * @param cascading Whether the patch should cascade.
+     * @param patcher Applies the change to the current resource.
+     */
+    public Future<Void> patch(String namespace, String name, boolean cascading, Function<T, T> patcher) {
+        Future<Void> fut = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+                future -> {
+                    try {
+                        T current = timed("get", () -> operation().inNamespace(namespace).withName(name).get());
+                        if (current == null) {
+                            throw new IllegalStateException(resourceKind + " " + name + " in namespace " + namespace + " doesn't exist");
+                        }
+                        patchNow(namespace, name, cascading, patcher.apply(current));
+                        future.complete();
+                    }
+                    catch (Exception e) {
+                        log.error("Caught exception while patching {} {} in namespace {}", resourceKind, name, namespace, e);
+                        future.fail(e);
+                    }
+                },
+                true,
+                fut.completer()
+        );
+        return fut;
+    }
+
+    /**
+     * Asynchronously set the annotation {@code key} to {@code value} on the resource with the given {@code name}
+     * in the given {@code namespace}, leaving the rest of the resource as it is, returning a future for the outcome.
+     * @param namespace The namespace of the resource to annotate.
+     * @param name The name of the resource to annotate.
+     * @param key The annotation key.
+     * @param value The annotation value.
+     */
+    public Future<Void> annotate(String namespace, String name, String key, String value) {
+        return patch(namespace, name, false, current -> {
+            // The patch is diffed against the resource on the server, so it has to be the whole resource,
+            // but it's built on a copy so that what the client returned is never modified
+            T patch = ResourceCache.copy(current);
+            Map<String, String> annotations = patch.getMetadata().getAnnotations() != null ?
+                    new HashMap<>(patch.getMetadata().getAnnotations()) : new HashMap<>();
+            annotations.put(key, value);
+            patch.getMetadata().setAnnotations(annotations);
+            return patch;
+        });
+    }
+
+    private static String specHash(HasMetadata resource) {
+        Map<String, String> annotations = resource.getMetadata().getAnnotations();
+        return annotations != null ? annotations.get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION) : null;
+    }
+
+    /**
+     * Asynchronously patch the resource with the given {@code name} in the given {@code namespace}
+     * with the given {@code patch}, which must have been built from the resource as it is on the API server
+     * (see {@link #patch(String, String, boolean, Function)}), returning a future for the outcome.
+     * @param namespace The namespace of the resource to patch.
+     * @param name The name of the resource to patch.
+     * @param cascading Whether the patch should cascade.
+     * @param patch The desired state of the resource.
+     */
     public Future<Void> patch(String namespace, String name, boolean cascading, T patch) {
         Future<Void> fut = Future.future();
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
                 future -> {
                     try {
-                        log.info("Patching {} resource {} in namespace {} with {}", resourceKind, name, namespace, patch);
-                        operation().inNamespace(namespace).withName(name).cascading(cascading).patch(patch);
-                        log.info("{} {} in namespace {} has been patched", resourceKind, name, namespace);
+                        patchNow(namespace, name, cascading, patch);
                         future.complete();
                     }
                     catch (Exception e) {
@@ -160,24 +314,170 @@ public abstract class AbstractOperations<C, T extends HasMetadata, L extends Kub
         return fut;
     }
 
+    private void patchNow(String namespace, String name, boolean cascading, T patch) {
+        Fence.get(vertx).check("patch " + resourceKind + " " + name + " in namespace " + namespace);
+        log.info("Patching {} resource {} in namespace {} with {}", resourceKind, name, namespace, patch);
+        timed("patch", () -> operation().inNamespace(namespace).withName(name).cascading(cascading).patch(patch));
+        log.info("{} {} in namespace {} has been patched", resourceKind, name, namespace);
+    }
+
+    /**
+     * Asynchronously start caching the resources in the given {@code namespace} with the given {@code labels},
+     * returning a future for when the cache has been populated.
+     * Once the cache is populated {@link #get(String, String)} and {@link #list(String, Map)} are served
+     * from it, without making API calls.
+     * A cache for {@link #ANY_NAMESPACE} serves every namespace with a single watch.
+     * @param namespace The namespace, or {@link #ANY_NAMESPACE}.
+     * @param labels The labels.
+     */
+    public Future<Void> startCache(String namespace, Map<String, String> labels) {
+        Future<Void> fut = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+                future -> {
+                    ResourceCache<T> cache = new ResourceCache<>(vertx, resourceKind, namespace, labels,
+                            ANY_NAMESPACE.equals(namespace) ? operation().inAnyNamespace().withLabels(labels)
+                                    : operation().inNamespace(namespace).withLabels(labels));
+                    try {
+                        cache.start();
+                        ResourceCache<T> old = caches.put(namespace, cache);
+                        if (old != null) {
+                            old.close();
+                        }
+                        future.complete();
+                    } catch (Exception e) {
+                        log.error("Caught exception while starting {} cache in namespace {}", resourceKind, namespace, e);
+                        cache.close();
+                        future.fail(e);
+                    }
+                },
+                false,
+                fut.completer()
+        );
+        return fut;
+    }
+
+    /**
+     * Stop all the caches started by {@link #startCache(String, Map)}.
+     */
+    public void stopCaches() {
+        for (ResourceCache<T> cache : caches.values()) {
+            cache.close();
+        }
+        caches.clear();
+    }
+
     /**
      * Synchronously gets the resource with the given {@code name} in the given {@code namespace}.
+     * If the namespace is cached the resource comes from the cache. Resources without the labels of the cache
+     * are not in it, so a cache miss falls back to the API server.
      * @param namespace The namespace.
      * @param name The name.
      * @return The resource, or null if it doesn't exist.
      */
     public T get(String namespace, String name) {
-        return operation().inNamespace(namespace).withName(name).get();
+        ResourceCache<T> cache = cacheFor(namespace);
+        if (cache != null && cache.isSynced()) {
+            T resource = cache.get(namespace, name);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return timed("get", () -> operation().inNamespace(namespace).withName(name).get());
     }
 
     /**
-     * Synchronously list the resources in the given {@code namespace} with the given {@code labels}.
+     * Asynchronously get the resource with the given {@code name} in the given {@code namespace}
+     * from the API server, bypassing any cache, for callers which build a new resource from it.
      * @param namespace The namespace.
+     * @param name The name.
+     * @return A future for the resource, or null if it doesn't exist.
+     */
+    public Future<T> fetch(String namespace, String name) {
+        Future<T> fut = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<T>executeBlocking(
+                future -> {
+                    try {
+                        future.complete(timed("get", () -> operation().inNamespace(namespace).withName(name).get()));
+                    } catch (Exception e) {
+                        log.error("Caught exception while getting {} {} in namespace {}", resourceKind, name, namespace, e);
+                        future.fail(e);
+                    }
+                },
+                false,
+                fut.completer()
+        );
+        return fut;
+    }
+
+    /**
+     * Synchronously list the resources in the given {@code namespace} with the given {@code labels}.
+     * If the namespace is cached, and the given labels include the labels of the cache,
+     * the resources come from the cache.
+     * @param namespace The namespace, or {@link #ANY_NAMESPACE}.
      * @param labels The labels.
      * @return A list of matching resources.
      */
     public List<T> list(String namespace, Map<String, String> labels) {
-        return operation().inNamespace(namespace).withLabels(labels).list().getItems();
+        ResourceCache<T> cache = cacheFor(namespace);
+        if (cache != null && cache.isSynced() && cache.covers(labels)) {
+            return cache.list(namespace, labels);
+        }
+        if (ANY_NAMESPACE.equals(namespace)) {
+            return timed("list", () -> operation().inAnyNamespace().withLabels(labels).list().getItems());
+        }
+        return timed("list", () -> operation().inNamespace(namespace).withLabels(labels).list().getItems());
+    }
+
+    /**
+     * The cache for the given namespace: its own, or else the one for {@link #ANY_NAMESPACE}, if any.
+     */
+    private ResourceCache<T> cacheFor(String namespace) {
+        ResourceCache<T> cache = caches.get(namespace);
+        return cache != null ? cache : caches.get(ANY_NAMESPACE);
+    }
+
+    /**
+     * Make an API call, recording its latency by resource kind, verb and outcome.
+     * @param verb The kind of call.
+     * @param call The call.
+     * @return The result of the call.
+     */
+    protected <X> X timed(String verb, Supplier<X> call) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            X result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            Metrics.get(vertx).time(API_REQUEST_METRIC, "Latency of Kubernetes API requests",
+                    System.nanoTime() - start, "kind", resourceKind, "verb", verb, "outcome", outcome);
+        }
+    }
+
+    /**
+     * Asynchronously list the resources in the given {@code namespace} with the given {@code labels},
+     * returning a future for the outcome.
+     * The list call is made on a worker thread, so this is safe to call from the event loop.
+     * @param namespace The namespace.
+     * @param labels The labels.
+     * @return A future for the list of matching resources.
+     */
+    public Future<List<T>> listAsync(String namespace, Map<String, String> labels) {
+        Future<List<T>> fut = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).<List<T>>executeBlocking(
+                future -> {
+                    try {
+                        future.complete(list(namespace, labels));
+                    } catch (Exception e) {
+                        log.error("Caught exception while listing {} resources in namespace {}", resourceKind, namespace, e);
+                        future.fail(e);
+                    }
+                },
+                false,
+                fut.completer()
+        );
+        return fut;
     }
 
 }
@@ -5,6 +5,8 @@ import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.api.model.extensions.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.fabric8.kubernetes.client.dsl.ScalableResource;
+import io.strimzi.controller.cluster.Fence;
+import io.strimzi.controller.cluster.Metrics;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -48,9 +50,11 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
      * @param handler A handler for the result.
      */
     public void scaleUp(String namespace, String name, int scaleTo, Handler<AsyncResult<Void>> handler) {
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
+        long start = System.nanoTime();
+        WorkerPool.get(vertx, WorkerPool.LONG_OPERATIONS).executeBlocking(
                 future -> {
                     try {
+                        Fence.get(vertx).check("scale " + name + " in namespace " + namespace + " up to " + scaleTo);
                         log.info("Scaling up to {} replicas", scaleTo);
                         resource(namespace, name).scale(scaleTo, true);
                         future.complete();
@@ -62,6 +66,7 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
                 },
                 false,
                 res -> {
+                    recordScaling("up", namespace, name, start, res.succeeded());
                     if (res.succeeded()) {
                         log.info("Scaling up to {} replicas has been completed", scaleTo);
                         handler.handle(Future.succeededFuture());
@@ -83,7 +88,8 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
      * @param handler A handler for the result.
      */
     public void scaleDown(String namespace, String name, int scaleTo, Handler<AsyncResult<Void>> handler) {
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
+        long start = System.nanoTime();
+        WorkerPool.get(vertx, WorkerPool.LONG_OPERATIONS).executeBlocking(
                 future -> {
                     try {
                         Object gettable = resource(namespace, name).get();
@@ -100,6 +106,7 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
 
                         while (nextReplicas > scaleTo) {
                             nextReplicas--;
+                            Fence.get(vertx).check("scale " + name + " in namespace " + namespace + " down to " + nextReplicas);
                             log.info("Scaling down from {} to {}", nextReplicas+1, nextReplicas);
                             resource(namespace, name).scale(nextReplicas, true);
                         }
@@ -113,6 +120,7 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
                 },
                 false,
                 res -> {
+                    recordScaling("down", namespace, name, start, res.succeeded());
                     if (res.succeeded()) {
                         log.info("Scaling down to {} replicas has been completed", scaleTo);
                         handler.handle(Future.succeededFuture());
@@ -124,4 +132,10 @@ public abstract class AbstractScalableOperations<C, T extends HasMetadata, L ext
                 }
         );
     }
+
+    private void recordScaling(String direction, String namespace, String name, long startNs, boolean succeeded) {
+        Metrics.get(vertx).time("strimzi_scale_duration_seconds", "Time taken to scale a resource",
+                System.nanoTime() - startNs, "kind", resourceKind, "direction", direction,
+                "namespace", namespace, "name", name, "outcome", succeeded ? "success" : "failure");
+    }
 }
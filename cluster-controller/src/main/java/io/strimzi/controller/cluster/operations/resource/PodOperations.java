@@ -47,7 +47,8 @@ public class PodOperations extends AbstractOperations<KubernetesClient, Pod, Pod
     }
 
     /**
-     * Returns whether the pod given by {@code namespace} and {@code name} is ready
+     * Returns whether the pod given by {@code namespace} and {@code name} is ready.
+     * This always asks the API server, since a cached pod could be one which has just been deleted.
      * @param namespace The namespace.
      * @param name The name.
      * @return True iff the pod is ready.
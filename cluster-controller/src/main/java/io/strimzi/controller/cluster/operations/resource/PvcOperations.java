@@ -48,9 +48,4 @@ public class PvcOperations extends AbstractOperations<KubernetesClient, Persiste
     public Future<Void> create(PersistentVolumeClaim resource) {
         throw new UnsupportedOperationException();// should never happen
     }
-
-    @Override
-    public Future<Void> patch(String namespace, String name, PersistentVolumeClaim patch) {
-        throw new UnsupportedOperationException();// should never happen
-    }
 }
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import io.strimzi.controller.cluster.Metrics;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A watch-backed cache of the resources of a single kind, in a single namespace
+ * (or in all namespaces, see {@link AbstractOperations#ANY_NAMESPACE}), which have the given {@code labels}.
+ * The cache is populated by a list, and then kept up to date by a watch started from the
+ * resourceVersion of that list. If the watch is closed (for example because the resourceVersion
+ * has become too old) the cache re-lists and starts a new watch.
+ * Readers always get copies, so they're free to modify what they get back.
+ * @param <T> The Kubernetes resource type.
+ */
+class ResourceCache<T extends HasMetadata> {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceCache.class);
+    private static final long RESYNC_RETRY_MS = 5000;
+
+    private final Vertx vertx;
+    private final String resourceKind;
+    private final String namespace;
+    private final Map<String, String> labels;
+    private final FilterWatchListDeletable<T, ? extends KubernetesResourceList, ?, Watch, Watcher<T>> operation;
+    private final Map<String, T> resources = new ConcurrentHashMap<>();
+
+    private volatile boolean synced = false;
+    private volatile boolean closed = false;
+    private volatile Watch watch;
+
+    ResourceCache(Vertx vertx, String resourceKind, String namespace, Map<String, String> labels,
+                  FilterWatchListDeletable<T, ? extends KubernetesResourceList, ?, Watch, Watcher<T>> operation) {
+        this.vertx = vertx;
+        this.resourceKind = resourceKind;
+        this.namespace = namespace;
+        this.labels = labels;
+        this.operation = operation;
+    }
+
+    /**
+     * Synchronously populate the cache and start watching for changes.
+     * This makes API calls, so must not be called on the event loop.
+     */
+    void start() {
+        resync();
+    }
+
+    private synchronized void resync() {
+        if (closed) {
+            return;
+        }
+        synced = false;
+        KubernetesResourceList<T> list = operation.list();
+        Set<String> names = new HashSet<>();
+        for (T resource : list.getItems()) {
+            String key = key(resource.getMetadata().getNamespace(), resource.getMetadata().getName());
+            names.add(key);
+            resources.put(key, resource);
+        }
+        resources.keySet().retainAll(names);
+        String resourceVersion = list.getMetadata().getResourceVersion();
+        watch = operation.watch(resourceVersion, new CacheWatcher());
+        synced = true;
+        log.info("{} cache for namespace {} and labels {} synced at resourceVersion {} with {} resources",
+                resourceKind, namespace, labels, resourceVersion, resources.size());
+    }
+
+    private void scheduleResync() {
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+            future -> {
+                resync();
+                future.complete();
+            },
+            false,
+            res -> {
+                if (res.failed()) {
+                    log.error("Failed to resync {} cache for namespace {}, will retry in {}ms",
+                            resourceKind, namespace, RESYNC_RETRY_MS, res.cause());
+                    vertx.setTimer(RESYNC_RETRY_MS, ignored -> scheduleResync());
+                }
+            });
+    }
+
+    private class CacheWatcher implements Watcher<T> {
+        @Override
+        public void eventReceived(Action action, T resource) {
+            String name = resource.getMetadata().getName();
+            String key = key(resource.getMetadata().getNamespace(), name);
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    resources.put(key, resource);
+                    break;
+                case DELETED:
+                    resources.remove(key);
+                    break;
+                case ERROR:
+                default:
+                    log.error("Unexpected {} event for {} {} in namespace {}", action, resourceKind, name, resource.getMetadata().getNamespace());
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            if (closed) {
+                return;
+            }
+            synced = false;
+            Metrics.get(vertx).increment("strimzi_watch_reconnects_total", "Number of times a watch was closed and had to be reopened",
+                    "kind", resourceKind, "watch", "cache", "namespace", namespace);
+            if (e != null) {
+                log.warn("{} cache watch for namespace {} closed with exception, resyncing", resourceKind, namespace, e);
+            } else {
+                log.warn("{} cache watch for namespace {} closed, resyncing", resourceKind, namespace);
+            }
+            scheduleResync();
+        }
+    }
+
+    /**
+     * @return Whether the cache currently reflects the state of the API server
+     * (modulo the latency of the watch).
+     */
+    boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * @return Whether a query for resources with the given {@code labels} can be answered by this cache,
+     * i.e. whether they include all the labels of this cache.
+     */
+    boolean covers(Map<String, String> labels) {
+        return labels.entrySet().containsAll(this.labels.entrySet());
+    }
+
+    /**
+     * Get a copy of the cached resource with the given {@code name} in the given {@code namespace}.
+     * @param namespace The namespace.
+     * @param name The name.
+     * @return A copy of the resource, or null if it isn't in the cache.
+     */
+    T get(String namespace, String name) {
+        T resource = resources.get(key(namespace, name));
+        return resource != null ? copy(resource) : null;
+    }
+
+    /**
+     * List copies of the cached resources in the given {@code namespace} with the given {@code labels}.
+     * @param namespace The namespace, or {@link AbstractOperations#ANY_NAMESPACE}.
+     * @param labels The labels.
+     * @return A list of the matching resources.
+     */
+    List<T> list(String namespace, Map<String, String> labels) {
+        boolean anyNamespace = AbstractOperations.ANY_NAMESPACE.equals(namespace);
+        List<T> result = new ArrayList<>();
+        for (T resource : resources.values()) {
+            if (!anyNamespace && !namespace.equals(resource.getMetadata().getNamespace())) {
+                continue;
+            }
+            Map<String, String> resourceLabels = resource.getMetadata().getLabels();
+            if (resourceLabels != null && resourceLabels.entrySet().containsAll(labels.entrySet())) {
+                result.add(copy(resource));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of cached resources.
+     */
+    int size() {
+        return resources.size();
+    }
+
+    /**
+     * Stop watching and forget all the cached resources.
+     */
+    synchronized void close() {
+        closed = true;
+        synced = false;
+        if (watch != null) {
+            watch.close();
+        }
+        resources.clear();
+    }
+
+    private static String key(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+
+    /**
+     * Deep copy the resource by a round trip through JSON, so callers can modify it without changing the cache.
+     * ({@code ObjectMapper.convertValue()} won't do, since it returns the resource itself when it already has the target type.)
+     */
+    @SuppressWarnings("unchecked")
+    static <R extends HasMetadata> R copy(R resource) {
+        ObjectMapper mapper = Serialization.jsonMapper();
+        try {
+            return mapper.readValue(mapper.writeValueAsBytes(resource), (Class<R>) resource.getClass());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to copy " + resource.getKind() + " " + resource.getMetadata().getName(), e);
+        }
+    }
+}
@@ -95,19 +95,13 @@ public class S2IOperations {
             if (s2i.diff(imageStreamOperations, buildConfigOperations).getDifferent()) {
                 List<Future> result = new ArrayList<>(3);
                 result.add(imageStreamOperations.patch(
-                        s2i.getNamespace(), s2i.getSourceImageStreamName(),
-                        s2i.patchSourceImageStream(
-                                imageStreamOperations.get(s2i.getNamespace(), s2i.getSourceImageStreamName()))));
+                        s2i.getNamespace(), s2i.getSourceImageStreamName(), true, s2i::patchSourceImageStream));
 
                 result.add(imageStreamOperations
-                        .patch(s2i.getNamespace(), s2i.getName(),
-                                s2i.patchTargetImageStream(
-                                        imageStreamOperations.get(s2i.getNamespace(), s2i.getName()))));
+                        .patch(s2i.getNamespace(), s2i.getName(), true, s2i::patchTargetImageStream));
 
                 result.add(buildConfigOperations
-                        .patch(s2i.getNamespace(), s2i.getName(),
-                                s2i.patchBuildConfig(
-                                        buildConfigOperations.get(s2i.getNamespace(), s2i.getName()))));
+                        .patch(s2i.getNamespace(), s2i.getName(), true, s2i::patchBuildConfig));
 
                 return CompositeFuture.join(result);
             } else {
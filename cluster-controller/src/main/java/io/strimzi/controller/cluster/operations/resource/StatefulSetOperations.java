@@ -27,20 +27,36 @@ import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.RollableScalableResource;
+import io.fabric8.kubernetes.client.internal.readiness.Readiness;
+import io.strimzi.controller.cluster.Fence;
+import io.strimzi.controller.cluster.Metrics;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
- * Operations for {@code StatefulSets}s, which supports {@link #rollingUpdate(String, String, Handler)}
+ * Operations for {@code StatefulSets}s, which supports {@link #rollingUpdate(String, String, long)}
  * in addition to the usual operations.
  */
 public class StatefulSetOperations extends AbstractScalableOperations<KubernetesClient, StatefulSet, StatefulSetList, DoneableStatefulSet, RollableScalableResource<StatefulSet, DoneableStatefulSet>> {
 
     private static final Logger log = LoggerFactory.getLogger(StatefulSetOperations.class.getName());
+
+    /** How long a rolling update waits, by default, for each pod to be deleted and replaced by a ready pod. */
+    public static final long DEFAULT_POD_RESTART_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    public static final String ROLLING_UPDATE_METRIC = "strimzi_rolling_update_duration_seconds";
+    public static final String ROLLING_UPDATE_HELP = "Time taken to roll all the pods of a StatefulSet";
+
     private final PodOperations podOperations;
 
     /**
@@ -49,8 +65,18 @@ public class StatefulSetOperations extends AbstractScalableOperations<Kubernetes
      * @param client The Kubernetes client
      */
     public StatefulSetOperations(Vertx vertx, KubernetesClient client) {
+        this(vertx, client, new PodOperations(vertx, client));
+    }
+
+    /**
+     * Constructor
+     * @param vertx The Vertx instance
+     * @param client The Kubernetes client
+     * @param podOperations For operating on the Pods of the StatefulSets
+     */
+    public StatefulSetOperations(Vertx vertx, KubernetesClient client, PodOperations podOperations) {
         super(vertx, client, "StatefulSet");
-        this.podOperations = new PodOperations(vertx, client);
+        this.podOperations = podOperations;
     }
 
     @Override
@@ -58,95 +84,251 @@ public class StatefulSetOperations extends AbstractScalableOperations<Kubernetes
         return client.apps().statefulSets();
     }
 
-    public void rollingUpdate(String namespace, String name, Handler<AsyncResult<Void>> handler) {
-        final int replicas = get(namespace, name).getSpec().getReplicas();
-        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(
-                future -> {
-                    try {
-                        log.info("Doing rolling update of stateful set {} in namespace {}", name, namespace);
-
-                        for (int i = 0; i < replicas; i++) {
-                            String podName = name + "-" + i;
-                            log.info("Rolling pod {}", podName);
-                            Future deleted = Future.future();
-                            Watcher<Pod> watcher = new RollingUpdateWatcher(deleted);
-
-                            Watch watch = podOperations.watch(namespace, podName, watcher);
-                            Future fut = podOperations.delete(namespace, podName);
-
-                            // TODO do this async
-                            while (!fut.isComplete() && !deleted.isComplete()) {
-                                log.info("Waiting for pod {} to be deleted", podName);
-                                Thread.sleep(1000);
-                            }
-                            // TODO Check success of fut and deleted futures
-
-                            watch.close();
-
-                            while (!podOperations.isPodReady(namespace, podName)) {
-                                log.info("Waiting for pod {} to get ready", podName);
-                                Thread.sleep(1000);
-                            };
-
-                            log.info("Pod {} rolling update complete", podName);
-                        }
-
-                        future.complete();
-                    }
-                    catch (Exception e) {
-                        log.error("Caught exception while doing manual rolling update of stateful set {} in namespace {}", name, namespace);
-                        future.fail(e);
-                    }
-                },
-                false,
-                res -> {
-                    if (res.succeeded()) {
-                        log.info("Stateful set {} in namespace {} has been rolled", name, namespace);
-                        handler.handle(Future.succeededFuture());
-                    }
-                    else {
-                        log.error("Failed to do rolling update of stateful set {} in namespace {}: {}", name, namespace, res.cause().toString());
-                        handler.handle(Future.failedFuture(res.cause()));
-                    }
+    /**
+     * Asynchronously replace the given StatefulSet, for changes to fields which can't be patched,
+     * such as its volume claim templates.
+     * The StatefulSet is deleted orphaning its pods, which keep running, and the replacement adopts them,
+     * so none of them is restarted.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param replacement The replacement StatefulSet.
+     * @param timeoutMs How long to wait for the StatefulSet to be deleted.
+     * @return A future which completes when the replacement has been created.
+     */
+    public Future<Void> replaceOrphaningPods(String namespace, String name, StatefulSet replacement, long timeoutMs) {
+        Future<Void> deleted = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+            future -> {
+                try {
+                    Fence.get(vertx).check("delete " + resourceKind + " " + name + " in namespace " + namespace);
+                    log.info("Deleting {} {} in namespace {}, orphaning its pods", resourceKind, name, namespace);
+                    timed("delete", () -> operation().inNamespace(namespace).withName(name).cascading(false).delete());
+                    future.complete();
+                } catch (Exception e) {
+                    log.error("Caught exception while deleting {} {} in namespace {}", resourceKind, name, namespace, e);
+                    future.fail(e);
                 }
-        );
+            }, false, deleted.completer());
+
+        return deleted.compose(i -> awaitDeleted(namespace, name, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)))
+                .compose(i -> {
+                    // a new resource, without the identity and state of the deleted one
+                    replacement.getMetadata().setResourceVersion(null);
+                    replacement.getMetadata().setUid(null);
+                    replacement.getMetadata().setCreationTimestamp(null);
+                    replacement.getMetadata().setDeletionTimestamp(null);
+                    replacement.getMetadata().setFinalizers(null);
+                    replacement.setStatus(null);
+                    return create(replacement);
+                });
+    }
+
+    /**
+     * Wait for the deletion of a StatefulSet to complete, which only happens once its pods have been orphaned.
+     */
+    private Future<Void> awaitDeleted(String namespace, String name, long deadlineNs) {
+        Future<StatefulSet> got = Future.future();
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(
+            future -> future.complete(timed("get", () -> operation().inNamespace(namespace).withName(name).get())),
+            false, got.completer());
+        return got.compose(ss -> {
+            if (ss == null) {
+                return Future.succeededFuture();
+            } else if (System.nanoTime() > deadlineNs) {
+                return Future.failedFuture(new TimeoutException("Timed out waiting for " + resourceKind + " " + name
+                        + " in namespace " + namespace + " to be deleted"));
+            }
+            Future<Void> waited = Future.future();
+            vertx.setTimer(1_000, id -> awaitDeleted(namespace, name, deadlineNs).setHandler(waited.completer()));
+            return waited;
+        });
+    }
+
+    /**
+     * Asynchronously roll the pods of the given StatefulSet, one at a time,
+     * waiting at most {@link #DEFAULT_POD_RESTART_TIMEOUT_MS} for each of them.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param handler A handler for the result.
+     */
+    public void rollingUpdate(String namespace, String name, Handler<AsyncResult<Void>> handler) {
+        rollingUpdate(namespace, name, DEFAULT_POD_RESTART_TIMEOUT_MS).setHandler(res -> handler.handle(res.map((Void) null)));
+    }
+
+    /**
+     * Asynchronously roll the pods of the given StatefulSet, in ordinal order.
+     * Each pod is deleted and we wait for the replacement pod to become ready before moving on to the next one.
+     * Deletion and readiness are both observed via a watch on the pod, so no thread is held while waiting.
+     * @param namespace The namespace of the StatefulSet.
+     * @param name The name of the StatefulSet.
+     * @param podTimeoutMs How long to wait for each pod to be deleted and replaced by a ready pod.
+     * @return A future for the time, in milliseconds, it took to restart each pod, keyed by pod name.
+     */
+    public Future<Map<String, Long>> rollingUpdate(String namespace, String name, long podTimeoutMs) {
+        StatefulSet ss = get(namespace, name);
+        if (ss == null) {
+            return Future.failedFuture("Stateful set " + name + " in namespace " + namespace + " does not exist");
+        }
+        final int replicas = ss.getSpec().getReplicas();
+        final long start = System.nanoTime();
+        log.info("Doing rolling update of stateful set {} in namespace {}", name, namespace);
+
+        Map<String, Long> restartDurations = new LinkedHashMap<>(replicas);
+        Future<Void> rolled = Future.succeededFuture();
+        for (int i = 0; i < replicas; i++) {
+            String podName = name + "-" + i;
+            rolled = rolled.compose(ignored -> restartPod(namespace, podName, podTimeoutMs)).map(duration -> {
+                restartDurations.put(podName, duration);
+                return (Void) null;
+            });
+        }
+
+        Future<Map<String, Long>> result = Future.future();
+        rolled.setHandler(res -> {
+            Metrics.get(vertx).time(ROLLING_UPDATE_METRIC, ROLLING_UPDATE_HELP, System.nanoTime() - start,
+                    "strategy", "ordinal", "namespace", namespace, "name", name, "outcome", res.succeeded() ? "success" : "failure");
+            if (res.succeeded()) {
+                log.info("Stateful set {} in namespace {} has been rolled, pod restart times (ms): {}", name, namespace, restartDurations);
+                result.complete(restartDurations);
+            } else {
+                log.error("Failed to do rolling update of stateful set {} in namespace {} (pod restart times (ms) so far: {}): {}",
+                        name, namespace, restartDurations, res.cause().toString());
+                result.fail(res.cause());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Delete the given pod and wait for the StatefulSet to replace it with a ready pod.
+     * @param namespace The namespace of the pod.
+     * @param podName The name of the pod.
+     * @param timeoutMs How long to wait for the pod to be deleted and replaced by a ready pod.
+     * @return A future for the time, in milliseconds, it took for the replacement to become ready.
+     */
+    public Future<Long> restartPod(String namespace, String podName, long timeoutMs) {
+        log.info("Rolling pod {}", podName);
+        PodRestart restart = new PodRestart(vertx, namespace, podName, timeoutMs);
+        WorkerPool pool = WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS);
+        Future<Watch> watched = Future.future();
+        pool.executeBlocking(future -> future.complete(podOperations.watch(namespace, podName, restart)), false, watched.completer());
+        watched.compose(watch -> {
+            if (restart.result().isComplete()) {
+                // Timed out before the watch was open
+                closeWatch(watch);
+                return Future.succeededFuture();
+            }
+            log.debug("Watching pod {} in namespace {} for restart", podName, namespace);
+            return podOperations.delete(namespace, podName);
+        }).setHandler(deleted -> {
+            if (deleted.failed()) {
+                restart.fail(deleted.cause());
+            }
+        });
+        Future<Long> restarted = Future.future();
+        long start = System.nanoTime();
+        restart.result().setHandler(done -> {
+            Metrics.get(vertx).time("strimzi_pod_restart_duration_seconds", "Time taken for a pod to be deleted and replaced by a ready pod",
+                    System.nanoTime() - start, "namespace", namespace, "pod", podName, "outcome", done.succeeded() ? "success" : "failure");
+            if (watched.succeeded()) {
+                closeWatch(watched.result());
+            }
+            restarted.handle(done);
+        });
+        return restarted;
+    }
+
+    private void closeWatch(Watch watch) {
+        WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).executeBlocking(future -> {
+            watch.close();
+            future.complete();
+        }, false, ignored -> { });
     }
 
-    static class RollingUpdateWatcher implements Watcher<Pod> {
-        //private static final Logger log = LoggerFactory.getLogger(RollingUpdateWatcher.class.getName());
-        private final Future deleted;
+    /**
+     * Watches a pod through its restart: first its deletion, then the readiness of its replacement.
+     * Watch events are handled on the Vert.x context which created the restart,
+     * and the restart fails if it doesn't complete within the timeout.
+     */
+    static class PodRestart implements Watcher<Pod> {
 
-        public RollingUpdateWatcher(Future deleted) {
-            this.deleted = deleted;
+        enum State {
+            DELETING,
+            AWAITING_READY,
+            DONE
+        }
+
+        private final Vertx vertx;
+        private final Context context;
+        private final String namespace;
+        private final String podName;
+        private final Future<Long> result = Future.future();
+        private final long startNs;
+        private final long timer;
+        private State state = State.DELETING;
+
+        PodRestart(Vertx vertx, String namespace, String podName, long timeoutMs) {
+            this.vertx = vertx;
+            this.context = vertx.getOrCreateContext();
+            this.namespace = namespace;
+            this.podName = podName;
+            this.startNs = System.nanoTime();
+            this.timer = vertx.setTimer(timeoutMs, id -> fail(new TimeoutException("Timed out after " + timeoutMs
+                    + "ms waiting for pod " + podName + " in namespace " + namespace + " to restart (state " + state + ")")));
+        }
+
+        Future<Long> result() {
+            return result;
+        }
+
+        State state() {
+            return state;
         }
 
         @Override
         public void eventReceived(Action action, Pod pod) {
-            switch (action) {
-                case DELETED:
-                    log.info("Pod has been deleted");
-                    deleted.complete();
-                    break;
-                case ADDED:
-                case MODIFIED:
-                    log.info("Ignored action {} while waiting for Pod deletion", action);
+            context.runOnContext(v -> onEvent(action, pod));
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            if (e != null) {
+                context.runOnContext(v -> fail(e));
+            }
+        }
+
+        private void onEvent(Action action, Pod pod) {
+            switch (state) {
+                case DELETING:
+                    if (action == Action.DELETED) {
+                        log.info("Pod {} has been deleted, waiting for it to get ready", podName);
+                        state = State.AWAITING_READY;
+                    } else if (action == Action.ERROR) {
+                        log.error("Error while waiting for deletion of pod {}", podName);
+                    }
                     break;
-                case ERROR:
-                    log.error("Error while waiting for Pod deletion");
+                case AWAITING_READY:
+                    if ((action == Action.ADDED || action == Action.MODIFIED) && Readiness.isPodReady(pod)) {
+                        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+                        log.info("Pod {} rolling update complete in {}ms", podName, durationMs);
+                        state = State.DONE;
+                        vertx.cancelTimer(timer);
+                        result.complete(durationMs);
+                    } else if (action == Action.ERROR) {
+                        log.error("Error while waiting for pod {} to get ready", podName);
+                    }
                     break;
+                case DONE:
                 default:
-                    log.error("Unknown action {} while waiting for pod deletion", action);
+                    break;
             }
         }
 
-        @Override
-        public void onClose(KubernetesClientException e) {
-            if (e != null && !deleted.isComplete()) {
-                log.error("Kubernetes watcher has been closed with exception!", e);
-                deleted.fail(e);
-            }
-            else {
-                log.info("Kubernetes watcher has been closed!");
+        void fail(Throwable cause) {
+            if (state != State.DONE) {
+                state = State.DONE;
+                vertx.cancelTimer(timer);
+                result.fail(cause);
             }
         }
     }
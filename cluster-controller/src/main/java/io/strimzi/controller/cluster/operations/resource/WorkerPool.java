@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.resource;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named, fixed-size pool of worker threads for blocking Kubernetes API calls,
+ * which keeps track of how many tasks are waiting for a thread and how long they wait.
+ * There are two pools, so that long-running orchestration (rolling updates, scaling) cannot starve
+ * the short API calls which every reconciliation needs:
+ * <ul>
+ *     <li>{@link #SHORT_OPERATIONS} for individual API calls,</li>
+ *     <li>{@link #LONG_OPERATIONS} for operations which wait for the cluster to converge.</li>
+ * </ul>
+ * Pools are shared per Vertx instance, like Vert.x's own shared worker executors.
+ */
+public class WorkerPool implements Shareable {
+
+    public static final String SHORT_OPERATIONS = "kubernetes-ops-pool";
+    public static final String LONG_OPERATIONS = "kubernetes-long-ops-pool";
+
+    public static final int DEFAULT_SHORT_OPERATIONS_SIZE = 10;
+    public static final int DEFAULT_LONG_OPERATIONS_SIZE = 5;
+
+    private static final String POOLS_MAP = "strimzi.cluster-controller.worker-pools";
+    private static final long SHORT_MAX_EXECUTE_NS = TimeUnit.SECONDS.toNanos(120);
+    private static final long LONG_MAX_EXECUTE_NS = TimeUnit.MINUTES.toNanos(60);
+
+    private final String name;
+    private final int size;
+    private final WorkerExecutor executor;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalWaitNs = new AtomicLong();
+    private final AtomicLong maxWaitNs = new AtomicLong();
+
+    private WorkerPool(Vertx vertx, String name, int size) {
+        this.name = name;
+        this.size = size;
+        this.executor = vertx.createSharedWorkerExecutor(name, size,
+                LONG_OPERATIONS.equals(name) ? LONG_MAX_EXECUTE_NS : SHORT_MAX_EXECUTE_NS);
+    }
+
+    /**
+     * Create the pool with the given {@code name} and {@code size} for the given {@code vertx},
+     * unless it already exists.
+     * @param vertx The Vertx instance.
+     * @param name The pool name.
+     * @param size The number of threads in the pool.
+     * @return The pool.
+     */
+    public static WorkerPool create(Vertx vertx, String name, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size of worker pool " + name + " must be at least 1, but was " + size);
+        }
+        LocalMap<String, WorkerPool> pools = vertx.sharedData().getLocalMap(POOLS_MAP);
+        WorkerPool pool = pools.get(name);
+        if (pool == null) {
+            WorkerPool created = new WorkerPool(vertx, name, size);
+            pool = pools.putIfAbsent(name, created);
+            if (pool == null) {
+                pool = created;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Get the pool with the given {@code name} for the given {@code vertx},
+     * creating it with its default size if it doesn't exist yet.
+     * @param vertx The Vertx instance.
+     * @param name The pool name.
+     * @return The pool.
+     */
+    public static WorkerPool get(Vertx vertx, String name) {
+        return create(vertx, name, LONG_OPERATIONS.equals(name) ? DEFAULT_LONG_OPERATIONS_SIZE : DEFAULT_SHORT_OPERATIONS_SIZE);
+    }
+
+    /**
+     * Like {@link WorkerExecutor#executeBlocking(Handler, boolean, Handler)}, but recording the queue depth
+     * and the time the task waited for a thread.
+     */
+    public <T> void executeBlocking(Handler<Future<T>> blockingCodeHandler, boolean ordered, Handler<AsyncResult<T>> resultHandler) {
+        long enqueued = System.nanoTime();
+        queued.incrementAndGet();
+        executor.<T>executeBlocking(
+            future -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                long waited = System.nanoTime() - enqueued;
+                totalWaitNs.addAndGet(waited);
+                maxWaitNs.accumulateAndGet(waited, Math::max);
+                blockingCodeHandler.handle(future);
+            },
+            ordered,
+            res -> {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+                resultHandler.handle(res);
+            });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The number of tasks currently waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of tasks currently running.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return The number of tasks which have completed.
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return The total time, in milliseconds, that tasks have waited for a thread.
+     */
+    public long getTotalWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNs.get());
+    }
+
+    /**
+     * @return The longest time, in milliseconds, that any task has waited for a thread.
+     */
+    public long getMaxWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNs.get());
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPool(name=" + name
+                + ", size=" + size
+                + ", active=" + getActive()
+                + ", queued=" + getQueueDepth()
+                + ", completed=" + getCompleted()
+                + ", totalWaitMs=" + getTotalWaitMs()
+                + ", maxWaitMs=" + getMaxWaitMs()
+                + ")";
+    }
+}
@@ -1,5 +1,8 @@
 package io.strimzi.controller.cluster.resources;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.api.model.extensions.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.DeploymentBuilder;
@@ -8,16 +11,23 @@ import io.fabric8.kubernetes.api.model.extensions.RollingUpdateDeploymentBuilder
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSetBuilder;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSetUpdateStrategyBuilder;
+import io.fabric8.kubernetes.client.utils.Serialization;
 import io.strimzi.controller.cluster.ClusterController;
 import io.vertx.core.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 public abstract class AbstractCluster {
 
@@ -26,9 +36,18 @@ public abstract class AbstractCluster {
     private static final String VOLUME_MOUNT_HACK_IMAGE = "busybox";
     private static final String VOLUME_MOUNT_HACK_NAME = "volume-mount-hack";
     private static final Long VOLUME_MOUNT_HACK_GROUPID = 1001L;
+    private static final String VOLUME_MOUNT_HACK_MARKER = ".strimzi-owned";
 
     protected static final String METRICS_CONFIG_FILE = "config.yml";
 
+    // Read by kafka-run-class.sh, which all our images start through
+    protected static final String KEY_HEAP_OPTS = "KAFKA_HEAP_OPTS";
+    protected static final String KEY_JVM_PERFORMANCE_OPTS = "KAFKA_JVM_PERFORMANCE_OPTS";
+
+    // Map entries are sorted so that equal resources always serialize (and so hash) identically
+    private static final ObjectMapper SPEC_HASH_MAPPER = Serialization.jsonMapper().copy()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
     protected final String cluster;
     protected final String namespace;
     protected Map<String, String> labels = new HashMap<>();
@@ -60,6 +79,13 @@ public abstract class AbstractCluster {
     protected String metricsConfigVolumeName;
     protected String metricsConfigMountPath;
 
+    protected Resources resources = Resources.empty();
+    protected JvmOptions jvmOptions = JvmOptions.empty();
+    // The fraction of the container memory given to the heap when it's not sized explicitly
+    protected double heapFraction;
+
+    protected Scheduling scheduling = Scheduling.empty();
+
     /**
      * Constructor
      *
@@ -172,6 +198,173 @@ public abstract class AbstractCluster {
         return null;
     }
 
+    public Resources getResources() {
+        return resources;
+    }
+
+    protected void setResources(Resources resources) {
+        this.resources = resources;
+    }
+
+    protected void setJvmOptions(JvmOptions jvmOptions) {
+        this.jvmOptions = jvmOptions;
+    }
+
+    /**
+     * Validate the JVM options against the memory of the container, so that a heap which doesn't fit
+     * is rejected along with the rest of the ConfigMap rather than when generating resources.
+     */
+    protected void validateJvmOptions() {
+        jvmOptions.heapOptions(resources.getMemory(), heapFraction);
+    }
+
+    /**
+     * Add the environment variables for the JVM heap and performance options to the given list.
+     * They're only set when they differ from the defaults of the start scripts.
+     */
+    protected void addJvmEnvVars(List<EnvVar> varList) {
+        String heapOptions = jvmOptions.heapOptions(resources.getMemory(), heapFraction);
+        if (heapOptions != null) {
+            varList.add(new EnvVarBuilder().withName(KEY_HEAP_OPTS).withValue(heapOptions).build());
+        }
+        String performanceOptions = jvmOptions.performanceOptions();
+        if (performanceOptions != null) {
+            varList.add(new EnvVarBuilder().withName(KEY_JVM_PERFORMANCE_OPTS).withValue(performanceOptions).build());
+        }
+    }
+
+    /**
+     * Compare the resources and JVM options with those of the given deployed container.
+     * @param container The deployed container.
+     * @param vars The environment variables of the deployed container.
+     * @return true iff they differ, which needs the pods restarting.
+     */
+    protected boolean isResourcesOrJvmChanged(Container container, Map<String, String> vars) {
+        boolean changed = false;
+        Resources deployed = Resources.fromResourceRequirements(container.getResources());
+        if (!resources.equals(deployed)) {
+            log.info("Diff: Expected resources {}, actual resources {}", resources, deployed);
+            changed = true;
+        }
+        if (!Objects.equals(jvmOptions.heapOptions(resources.getMemory(), heapFraction), vars.get(KEY_HEAP_OPTS))
+                || !Objects.equals(jvmOptions.performanceOptions(), vars.get(KEY_JVM_PERFORMANCE_OPTS))) {
+            log.info("Diff: JVM options changed");
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * @return Init containers to run, after any which the cluster controller adds itself.
+     */
+    protected List<Container> getInitContainers() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return The service account to run the pods as, or null for the default.
+     */
+    protected String getServiceAccountName() {
+        return null;
+    }
+
+    protected void setScheduling(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    /**
+     * @return The affinity of the pods, or null if there's none.
+     */
+    protected Affinity getAffinity() {
+        return scheduling.toAffinity(nameSelector(name), null);
+    }
+
+    /**
+     * @return The labels selecting the pods with the given name, whatever other labels the cluster has.
+     */
+    protected static Map<String, String> nameSelector(String name) {
+        return Collections.singletonMap(ClusterController.STRIMZI_NAME_LABEL, name);
+    }
+
+    /**
+     * Compare the scheduling constraints with those of the given deployed pod template,
+     * recording in the diff whether they changed and whether the change needs a rolling update.
+     * @param deployed The spec of the deployed pod template.
+     * @param diff The diff to update.
+     */
+    protected void diffScheduling(PodSpec deployed, ClusterDiffResult diff) {
+        Affinity affinity = getAffinity();
+        Map<String, String> nodeSelector = scheduling.getNodeSelector();
+        List<Toleration> tolerations = scheduling.getTolerations();
+        if (!Objects.equals(affinity, deployed.getAffinity())
+                || !Objects.equals(emptyIfNull(nodeSelector), emptyIfNull(deployed.getNodeSelector()))
+                || !Objects.equals(emptyIfNull(tolerations), emptyIfNull(deployed.getTolerations()))) {
+            diff.setDifferent(true);
+            if (Scheduling.needsRollingUpdate(affinity, nodeSelector, tolerations,
+                    deployed.getAffinity(), deployed.getNodeSelector(), deployed.getTolerations())) {
+                log.info("Diff: Scheduling constraints changed so that running pods may violate them");
+                diff.setRollingUpdate(true);
+            } else {
+                log.info("Diff: Scheduling constraints changed, taking effect when pods are next restarted");
+            }
+        }
+    }
+
+    /**
+     * The command of the volume mount hack, which chowns each volume recursively only when it hasn't been done before,
+     * as recorded by a marker file, or the ownership of the volume has changed since.
+     * Walking all the data (possibly terabytes of Kafka logs) on every start would add minutes to each restart.
+     * A failure on any volume fails the init container, rather than being masked by the volumes after it.
+     * The pods don't set an {@code fsGroup}: the containers run as the owner set here, and with an {@code fsGroup}
+     * the kubelet changes the ownership of every file itself before starting the pod, which Kubernetes versions
+     * without {@code fsGroupChangePolicy} can't be told to skip.
+     * @param claimMounts The mounts of the volumes.
+     * @return The command.
+     */
+    private static List<String> volumeMountHackCommand(List<VolumeMount> claimMounts) {
+        String owner = String.format("%d:%d", AbstractCluster.VOLUME_MOUNT_HACK_GROUPID, AbstractCluster.VOLUME_MOUNT_HACK_GROUPID);
+        StringBuilder chown = new StringBuilder();
+        for (VolumeMount mount : claimMounts) {
+            chown.append(String.format("if [ ! -f %1$s/%2$s ] || [ \"$(stat -c %%u:%%g %1$s)\" != \"%3$s\" ]; "
+                    + "then chown -R %3$s %1$s && touch %1$s/%2$s || exit 1; fi; ",
+                    mount.getMountPath(), AbstractCluster.VOLUME_MOUNT_HACK_MARKER, owner));
+        }
+        return Arrays.asList("sh", "-c", chown.toString().trim());
+    }
+
+    /**
+     * Compare the volume mount hack of the given deployed pod template with the current one,
+     * including the {@code fsGroup} previously set alongside it,
+     * recording in the diff whether it changed. The change takes effect when pods are next restarted.
+     * @param deployed The spec of the deployed pod template.
+     * @param diff The diff to update.
+     */
+    protected void diffVolumeMountHack(PodSpec deployed, ClusterDiffResult diff) {
+        Container hack = getVolumeMountHack(deployed);
+        if (hack != null && (!volumeMountHackCommand(hack.getVolumeMounts()).equals(hack.getCommand())
+                || deployed.getSecurityContext() != null)) {
+            log.info("Diff: Volume mount hack changed, taking effect when pods are next restarted");
+            diff.setDifferent(true);
+        }
+    }
+
+    private static Container getVolumeMountHack(PodSpec pod) {
+        if (pod.getInitContainers() == null) {
+            return null;
+        }
+        return pod.getInitContainers().stream()
+                .filter(c -> AbstractCluster.VOLUME_MOUNT_HACK_NAME.equals(c.getName()))
+                .findFirst().orElse(null);
+    }
+
+    private static <K, V> Map<K, V> emptyIfNull(Map<K, V> map) {
+        return map != null ? map : Collections.emptyMap();
+    }
+
+    private static <T> List<T> emptyIfNull(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+
     public Storage getStorage() {
         return storage;
     }
@@ -219,6 +412,10 @@ public abstract class AbstractCluster {
     }
 
     protected PersistentVolumeClaim createPersistentVolumeClaim(String name) {
+        return createPersistentVolumeClaim(name, storage);
+    }
+
+    protected PersistentVolumeClaim createPersistentVolumeClaim(String name, Storage storage) {
 
         Map<String, Quantity> requests = new HashMap<>();
         requests.put("storage", storage.size());
@@ -274,7 +471,7 @@ public abstract class AbstractCluster {
                 .withData(data)
                 .build();
 
-        return cm;
+        return withSpecHash(cm);
     }
 
     protected Probe createExecProbe(String command, int initialDelay, int timeout) {
@@ -314,7 +511,7 @@ public abstract class AbstractCluster {
                 .endSpec()
                 .build();
         log.trace("Created service {}", service);
-        return service;
+        return withSpecHash(service);
     }
 
     protected Service createHeadlessService(String name, List<ServicePort> ports) {
@@ -332,7 +529,7 @@ public abstract class AbstractCluster {
                 .endSpec()
                 .build();
         log.trace("Created headless service {}", service);
-        return service;
+        return withSpecHash(service);
     }
 
     protected StatefulSet createStatefulSet(
@@ -352,6 +549,7 @@ public abstract class AbstractCluster {
                 .withName(name)
                 .withImage(getImage())
                 .withEnv(getEnvVars())
+                .withResources(resources.toResourceRequirements())
                 .withVolumeMounts(volumeMounts)
                 .withPorts(ports)
                 .withLivenessProbe(livenessProbe)
@@ -359,29 +557,25 @@ public abstract class AbstractCluster {
                 .build();
 
         List<Container> initContainers = new ArrayList<>();
-        PodSecurityContext securityContext = null;
         // if a persistent volume claim is requested and the running cluster is a Kubernetes one
         // there is an hack on volume mounting which needs an "init-container"
-        if ((this.storage.type() == Storage.StorageType.PERSISTENT_CLAIM) && !isOpenShift) {
+        if (this.storage.isPersistent() && !isOpenShift) {
 
-            String chown = String.format("chown -R %d:%d %s",
-                    AbstractCluster.VOLUME_MOUNT_HACK_GROUPID,
-                    AbstractCluster.VOLUME_MOUNT_HACK_GROUPID,
-                    volumeMounts.get(0).getMountPath());
+            // the mounts of all the claimed volumes (there are several with "jbod" storage)
+            List<VolumeMount> claimMounts = volumeMounts.stream()
+                    .filter(mount -> volumeClaims.stream().anyMatch(pvc -> pvc.getMetadata().getName().equals(mount.getName())))
+                    .collect(Collectors.toList());
 
             Container initContainer = new ContainerBuilder()
                     .withName(AbstractCluster.VOLUME_MOUNT_HACK_NAME)
                     .withImage(AbstractCluster.VOLUME_MOUNT_HACK_IMAGE)
-                    .withVolumeMounts(volumeMounts.get(0))
-                    .withCommand("sh", "-c", chown)
+                    .withVolumeMounts(claimMounts)
+                    .withCommand(volumeMountHackCommand(claimMounts))
                     .build();
 
             initContainers.add(initContainer);
-
-            securityContext = new PodSecurityContextBuilder()
-                    .withFsGroup(AbstractCluster.VOLUME_MOUNT_HACK_GROUPID)
-                    .build();
         }
+        initContainers.addAll(getInitContainers());
 
         StatefulSet statefulSet = new StatefulSetBuilder()
                 .withNewMetadata()
@@ -403,7 +597,10 @@ public abstract class AbstractCluster {
                             .withAnnotations(getPrometheusAnnotations())
                         .endMetadata()
                         .withNewSpec()
-                            .withSecurityContext(securityContext)
+                            .withServiceAccountName(getServiceAccountName())
+                            .withAffinity(getAffinity())
+                            .withNodeSelector(scheduling.getNodeSelector())
+                            .withTolerations(scheduling.getTolerations())
                             .withInitContainers(initContainers)
                             .withContainers(container)
                             .withVolumes(volumes)
@@ -413,7 +610,7 @@ public abstract class AbstractCluster {
                 .endSpec()
                 .build();
 
-        return statefulSet;
+        return withSpecHash(statefulSet);
     }
 
     protected Deployment createDeployment(
@@ -427,6 +624,7 @@ public abstract class AbstractCluster {
                 .withName(name)
                 .withImage(getImage())
                 .withEnv(getEnvVars())
+                .withResources(resources.toResourceRequirements())
                 .withPorts(ports)
                 .withLivenessProbe(livenessProbe)
                 .withReadinessProbe(readinessProbe)
@@ -454,7 +652,55 @@ public abstract class AbstractCluster {
                 .endSpec()
                 .build();
 
-        return dep;
+        return withSpecHash(dep);
+    }
+
+    /**
+     * Annotate the given generated resource with a hash of its desired state, so that the operations layer can
+     * tell whether a deployed resource already reflects it (see {@link ClusterController#STRIMZI_SPEC_HASH_ANNOTATION}).
+     * The hash only depends on what we generate, not on anything the API server adds, so it is stable.
+     */
+    protected <T extends HasMetadata> T withSpecHash(T resource) {
+        Map<String, String> annotations = resource.getMetadata().getAnnotations() != null ?
+                new HashMap<>(resource.getMetadata().getAnnotations()) : new HashMap<>();
+        annotations.remove(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION);
+        resource.getMetadata().setAnnotations(annotations);
+        try {
+            annotations.put(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION, hash(resource));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            // Without a hash the resource just won't be recognised as up to date
+            log.warn("Unable to compute spec hash of {} {}", resource.getKind(), resource.getMetadata().getName(), e);
+        }
+        return resource;
+    }
+
+    /**
+     * Compute a hash of the data of the given cluster ConfigMap, together with the resources which this version
+     * of the controller generates from it. Unlike the resourceVersion it doesn't change when only the ConfigMap's
+     * metadata does, but it does when a controller upgrade changes what's generated, so it tells whether
+     * the cluster needs updating (see {@link ClusterController#STRIMZI_CONFIG_HASH_ANNOTATION}).
+     * @param cm The cluster ConfigMap.
+     * @param generated The resources generated from the ConfigMap.
+     * @return The hash, or null if it couldn't be computed.
+     */
+    public static String configHash(ConfigMap cm, List<? extends HasMetadata> generated) {
+        try {
+            return hash(Arrays.asList(cm.getData() != null ? cm.getData() : Collections.emptyMap(), generated));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.warn("Unable to compute config hash of ConfigMap {}", cm.getMetadata().getName(), e);
+            return null;
+        }
+    }
+
+    private static String hash(Object value) throws JsonProcessingException, NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                SPEC_HASH_MAPPER.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+        StringBuilder hash = new StringBuilder(32);
+        // 128 bits is plenty to tell specs apart
+        for (int i = 0; i < 16; i++) {
+            hash.append(String.format("%02x", digest[i]));
+        }
+        return hash.toString();
     }
 
     public Service patchService(Service svc) {
@@ -484,6 +730,16 @@ public abstract class AbstractCluster {
         statefulSet.getSpec().getTemplate().getSpec().getContainers().get(0).setLivenessProbe(livenessProbe);
         statefulSet.getSpec().getTemplate().getSpec().getContainers().get(0).setReadinessProbe(readinessProbe);
         statefulSet.getSpec().getTemplate().getSpec().getContainers().get(0).setEnv(getEnvVars());
+        statefulSet.getSpec().getTemplate().getSpec().getContainers().get(0).setResources(resources.toResourceRequirements());
+        statefulSet.getSpec().getTemplate().getSpec().setAffinity(getAffinity());
+        statefulSet.getSpec().getTemplate().getSpec().setNodeSelector(scheduling.getNodeSelector());
+        statefulSet.getSpec().getTemplate().getSpec().setTolerations(scheduling.getTolerations());
+
+        Container hack = getVolumeMountHack(statefulSet.getSpec().getTemplate().getSpec());
+        if (hack != null) {
+            hack.setCommand(volumeMountHackCommand(hack.getVolumeMounts()));
+            statefulSet.getSpec().getTemplate().getSpec().setSecurityContext(null);
+        }
 
         return statefulSet;
     }
@@ -502,6 +758,7 @@ public abstract class AbstractCluster {
         dep.getSpec().getTemplate().getSpec().getContainers().get(0).setLivenessProbe(livenessProbe);
         dep.getSpec().getTemplate().getSpec().getContainers().get(0).setReadinessProbe(readinessProbe);
         dep.getSpec().getTemplate().getSpec().getContainers().get(0).setEnv(getEnvVars());
+        dep.getSpec().getTemplate().getSpec().getContainers().get(0).setResources(resources.toResourceRequirements());
 
         return dep;
     }
@@ -6,6 +6,8 @@ public class ClusterDiffResult {
     private boolean scaleUp = false;
     private boolean scaleDown = false;
     private boolean isMetricsChanged = false;
+    private boolean dynamicConfigChanged = false;
+    private boolean storageExpanded = false;
     private Source2Image.Source2ImageDiff s2i = Source2Image.Source2ImageDiff.NONE;
 
     public ClusterDiffResult() {
@@ -74,6 +76,29 @@ public class ClusterDiffResult {
         isMetricsChanged = metricsChanged;
     }
 
+    /**
+     * Determines whether the broker configuration changed, but only in keys which can be updated without a restart.
+     * @return true iff the changed broker configuration can be applied without a rolling update
+     */
+    public boolean isDynamicConfigChanged() {
+        return dynamicConfigChanged;
+    }
+
+    public void setDynamicConfigChanged(boolean dynamicConfigChanged) {
+        this.dynamicConfigChanged = dynamicConfigChanged;
+    }
+
+    /**
+     * @return true iff the persistent volumes need expanding to a larger size
+     */
+    public boolean isStorageExpanded() {
+        return storageExpanded;
+    }
+
+    public void setStorageExpanded(boolean storageExpanded) {
+        this.storageExpanded = storageExpanded;
+    }
+
     /**
      * Returns the Diff enum for S2I. This is not the full S2I diff. It just defines whether S2I should be added,
      * removed or updates (or nothing). It doesn't contain any detailed diff information.
@@ -0,0 +1,179 @@
+package io.strimzi.controller.cluster.resources;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The JVM options of a cluster's containers, given in the cluster ConfigMap as
+ * <pre><code>
+ * {"-Xms": "2g", "-Xmx": "2g", "-XX": {"MaxGCPauseMillis": 50, "ParallelGCThreads": 4}}
+ * </code></pre>
+ * The {@code -XX} options are merged into the G1 defaults of Kafka's start scripts.
+ * When {@code -Xmx} isn't given the heap is sized from the container's memory.
+ */
+public class JvmOptions {
+
+    public static final String XMS_FIELD = "-Xms";
+    public static final String XMX_FIELD = "-Xmx";
+    public static final String XX_FIELD = "-XX";
+
+    private static final Pattern HEAP_SIZE = Pattern.compile("^([0-9]+)([kKmMgG]?)$");
+    private static final Pattern XX_NAME = Pattern.compile("^[A-Za-z][A-Za-z0-9_]*$");
+    private static final Pattern XX_VALUE = Pattern.compile("^[A-Za-z0-9_.:/+-]+$");
+
+    /**
+     * The default KAFKA_JVM_PERFORMANCE_OPTS of kafka-run-class.sh.
+     */
+    private static final Map<String, String> DEFAULT_XX = new LinkedHashMap<>();
+    static {
+        DEFAULT_XX.put("UseG1GC", "true");
+        DEFAULT_XX.put("MaxGCPauseMillis", "20");
+        DEFAULT_XX.put("InitiatingHeapOccupancyPercent", "35");
+        DEFAULT_XX.put("ExplicitGCInvokesConcurrent", "true");
+    }
+
+    private final String xms;
+    private final String xmx;
+    private final Map<String, String> xx;
+
+    private JvmOptions(String xms, String xmx, Map<String, String> xx) {
+        this.xms = xms;
+        this.xmx = xmx;
+        this.xx = xx;
+    }
+
+    /**
+     * @return No JVM options, so the heap is sized from the container's memory, if it's known.
+     */
+    public static JvmOptions empty() {
+        return new JvmOptions(null, null, new TreeMap<>());
+    }
+
+    /**
+     * Parse and validate the JVM options from the cluster ConfigMap.
+     *
+     * @param json The JSON object with the options.
+     * @return The options.
+     * @throws IllegalArgumentException If an option isn't supported or valid.
+     */
+    public static JvmOptions fromJson(JsonObject json) {
+        for (String field : json.fieldNames()) {
+            if (!XMS_FIELD.equals(field) && !XMX_FIELD.equals(field) && !XX_FIELD.equals(field)) {
+                throw new IllegalArgumentException("Unsupported JVM option " + field + ", only "
+                        + XMS_FIELD + ", " + XMX_FIELD + " and " + XX_FIELD + " are supported");
+            }
+        }
+        String xms = heapSize(json, XMS_FIELD);
+        String xmx = heapSize(json, XMX_FIELD);
+        if (xms != null && xmx != null && bytes(xms) > bytes(xmx)) {
+            throw new IllegalArgumentException("The initial heap size " + xms + " is larger than the maximum " + xmx);
+        }
+        Map<String, String> xx = new TreeMap<>();
+        JsonObject xxJson = json.getJsonObject(XX_FIELD);
+        if (xxJson != null) {
+            for (Map.Entry<String, Object> entry : xxJson) {
+                String value = String.valueOf(entry.getValue());
+                if (!XX_NAME.matcher(entry.getKey()).matches() || !XX_VALUE.matcher(value).matches()) {
+                    throw new IllegalArgumentException("Invalid JVM option -XX:" + entry.getKey() + "=" + value);
+                }
+                xx.put(entry.getKey(), value);
+            }
+        }
+        return new JvmOptions(xms, xmx, xx);
+    }
+
+    private static String heapSize(JsonObject json, String field) {
+        Object value = json.getValue(field);
+        if (value == null) {
+            return null;
+        }
+        String size = String.valueOf(value);
+        if (!HEAP_SIZE.matcher(size).matches()) {
+            throw new IllegalArgumentException("Invalid heap size " + field + size);
+        }
+        return size;
+    }
+
+    /**
+     * @param size A JVM heap size, such as {@code 512m}.
+     * @return The size in bytes.
+     */
+    static long bytes(String size) {
+        Matcher matcher = HEAP_SIZE.matcher(size);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid heap size " + size);
+        }
+        long value = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2).toLowerCase(Locale.ENGLISH)) {
+            case "k":
+                return value << 10;
+            case "m":
+                return value << 20;
+            case "g":
+                return value << 30;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Compute the heap options. When {@code -Xmx} isn't given, but the container's memory is known,
+     * the heap is the given fraction of the memory, with {@code -Xms} the same so the heap is never resized.
+     *
+     * @param memory The memory of the container in bytes, or null if it's not known.
+     * @param heapFraction The fraction of the memory to use for the heap, when sizing it automatically.
+     * @return The heap options, or null to leave them to the defaults of the start scripts.
+     * @throws IllegalArgumentException If the heap is larger than the memory.
+     */
+    public String heapOptions(Long memory, double heapFraction) {
+        if (xmx != null) {
+            if (memory != null && bytes(xmx) > memory) {
+                throw new IllegalArgumentException("The maximum heap size " + xmx + " is larger than the container memory of " + memory + " bytes");
+            }
+            return (xms != null ? XMS_FIELD + xms + " " : "") + XMX_FIELD + xmx;
+        } else if (memory != null) {
+            long heapMb = Math.max(1, (long) (memory * heapFraction) >> 20);
+            String heap = heapMb + "m";
+            if (xms != null && bytes(xms) > bytes(heap)) {
+                throw new IllegalArgumentException("The initial heap size " + xms + " is larger than the maximum " + heap
+                        + " derived from the container memory");
+            }
+            return XMS_FIELD + (xms != null ? xms : heap) + " " + XMX_FIELD + heap;
+        } else if (xms != null) {
+            return XMS_FIELD + xms;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return The performance options, with the {@code -XX} options merged into the defaults of the start scripts,
+     * or null if there are no {@code -XX} options, to leave them to the defaults.
+     */
+    public String performanceOptions() {
+        if (xx.isEmpty()) {
+            return null;
+        }
+        Map<String, String> merged = new LinkedHashMap<>(DEFAULT_XX);
+        merged.putAll(xx);
+        StringBuilder sb = new StringBuilder("-server");
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            sb.append(" -XX:");
+            if ("true".equals(entry.getValue())) {
+                sb.append('+').append(entry.getKey());
+            } else if ("false".equals(entry.getValue())) {
+                sb.append('-').append(entry.getKey());
+            } else {
+                sb.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+        }
+        sb.append(" -Djava.awt.headless=true");
+        return sb.toString();
+    }
+}
@@ -12,6 +12,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 public class KafkaCluster extends AbstractCluster {
@@ -30,6 +33,12 @@ public class KafkaCluster extends AbstractCluster {
     private int defaultReplicationFactor = DEFAULT_KAFKA_DEFAULT_REPLICATION_FACTOR;
     private int offsetsTopicReplicationFactor = DEFAULT_KAFKA_OFFSETS_TOPIC_REPLICATION_FACTOR;
     private int transactionStateLogReplicationFactor = DEFAULT_KAFKA_TRANSACTION_STATE_LOG_REPLICATION_FACTOR;
+    private long reassignmentThrottle = DEFAULT_REASSIGNMENT_THROTTLE;
+    private boolean rebalanceOnScaleUp = DEFAULT_REBALANCE_ON_SCALE_UP;
+    private KafkaConfiguration configuration = KafkaConfiguration.empty();
+    // The label of the nodes giving the brokers' rack, or null if rack awareness is disabled
+    private String rackTopologyKey;
+    private String rackServiceAccount;
 
     // Configuration defaults
     private static String DEFAULT_IMAGE = "strimzi/kafka:latest";
@@ -37,6 +46,10 @@ public class KafkaCluster extends AbstractCluster {
     private static int DEFAULT_HEALTHCHECK_DELAY = 15;
     private static int DEFAULT_HEALTHCHECK_TIMEOUT = 5;
     private static boolean DEFAULT_KAFKA_METRICS_ENABLED = false;
+    private static long DEFAULT_REASSIGNMENT_THROTTLE = 10 * 1024 * 1024;
+    private static boolean DEFAULT_REBALANCE_ON_SCALE_UP = false;
+    // Brokers rely on the page cache, so leave it half the memory
+    private static double DEFAULT_HEAP_FRACTION = 0.5;
 
     // Kafka configuration defaults
     private static String DEFAULT_KAFKA_ZOOKEEPER_CONNECT = "zookeeper:2181";
@@ -51,6 +64,13 @@ public class KafkaCluster extends AbstractCluster {
     public static final String KEY_HEALTHCHECK_TIMEOUT = "kafka-healthcheck-timeout";
     public static final String KEY_METRICS_CONFIG = "kafka-metrics-config";
     public static final String KEY_STORAGE = "kafka-storage";
+    public static final String KEY_REASSIGNMENT_THROTTLE = "kafka-reassignment-throttle";
+    public static final String KEY_REBALANCE_ON_SCALE_UP = "kafka-rebalance-on-scale-up";
+    public static final String KEY_KAFKA_CONFIG = "kafka-config";
+    public static final String KEY_RESOURCES = "kafka-resources";
+    public static final String KEY_JVM_OPTIONS = "kafka-jvm-options";
+    public static final String KEY_SCHEDULING = "kafka-scheduling";
+    public static final String KEY_RACK = "kafka-rack";
 
     // Kafka configuration keys
     private static String KEY_KAFKA_ZOOKEEPER_CONNECT = "KAFKA_ZOOKEEPER_CONNECT";
@@ -58,6 +78,20 @@ public class KafkaCluster extends AbstractCluster {
     private static String KEY_KAFKA_OFFSETS_TOPIC_REPLICATION_FACTOR = "KAFKA_OFFSETS_TOPIC_REPLICATION_FACTOR";
     private static String KEY_KAFKA_TRANSACTION_STATE_LOG_REPLICATION_FACTOR = "KAFKA_TRANSACTION_STATE_LOG_REPLICATION_FACTOR";
     private static String KEY_KAFKA_METRICS_ENABLED = "KAFKA_METRICS_ENABLED";
+    private static String KEY_KAFKA_CONFIGURATION = "KAFKA_CONFIGURATION";
+    private static String KEY_KAFKA_RACK_FILE = "KAFKA_RACK_FILE";
+    private static String KEY_KAFKA_LOG_VOLUMES = "KAFKA_LOG_VOLUMES";
+    private static String KEY_KAFKA_RACK_TOPOLOGY_KEY = "KAFKA_RACK_TOPOLOGY_KEY";
+
+    // Rack awareness
+    public static final String RACK_TOPOLOGY_KEY_FIELD = "topologyKey";
+    public static final String RACK_SERVICE_ACCOUNT_FIELD = "serviceAccount";
+    public static final String DEFAULT_RACK_SERVICE_ACCOUNT = "strimzi-kafka";
+    private static final String RACK_INIT_NAME = "rack-init";
+    private static final String RACK_INIT_COMMAND = "/opt/kafka/kafka_rack.sh";
+    private static final String RACK_VOLUME_NAME = "rack-volume";
+    private static final String RACK_MOUNT_PATH = "/opt/kafka/rack";
+    private static final String RACK_FILE = RACK_MOUNT_PATH + "/rack.id";
 
     /**
      * Constructor
@@ -77,6 +111,7 @@ public class KafkaCluster extends AbstractCluster {
         this.healthCheckTimeout = DEFAULT_HEALTHCHECK_TIMEOUT;
         this.healthCheckInitialDelay = DEFAULT_HEALTHCHECK_DELAY;
         this.isMetricsEnabled = DEFAULT_KAFKA_METRICS_ENABLED;
+        this.heapFraction = DEFAULT_HEAP_FRACTION;
 
         this.mounthPath = "/var/lib/kafka";
         this.volumeName = "kafka-storage";
@@ -96,6 +131,13 @@ public class KafkaCluster extends AbstractCluster {
         return cluster + KafkaCluster.HEADLESS_NAME_SUFFIX;
     }
 
+    /**
+     * @return The bootstrap servers for clients of this cluster, via its Service.
+     */
+    public String getBootstrapServers() {
+        return name + "." + namespace + ".svc:" + CLIENT_PORT;
+    }
+
     /**
      * Create a Kafka cluster from the related ConfigMap resource
      *
@@ -126,6 +168,39 @@ public class KafkaCluster extends AbstractCluster {
         String storageConfig = cm.getData().get(KEY_STORAGE);
         kafka.setStorage(Storage.fromJson(new JsonObject(storageConfig)));
 
+        kafka.setReassignmentThrottle(Long.parseLong(cm.getData().getOrDefault(KEY_REASSIGNMENT_THROTTLE, String.valueOf(DEFAULT_REASSIGNMENT_THROTTLE))));
+        kafka.setRebalanceOnScaleUp(Boolean.parseBoolean(cm.getData().getOrDefault(KEY_REBALANCE_ON_SCALE_UP, String.valueOf(DEFAULT_REBALANCE_ON_SCALE_UP))));
+
+        String kafkaConfig = cm.getData().get(KEY_KAFKA_CONFIG);
+        if (kafkaConfig != null) {
+            kafka.setConfiguration(KafkaConfiguration.fromJson(new JsonObject(kafkaConfig)));
+        }
+
+        String resources = cm.getData().get(KEY_RESOURCES);
+        if (resources != null) {
+            kafka.setResources(Resources.fromJson(new JsonObject(resources)));
+        }
+        String jvmOptions = cm.getData().get(KEY_JVM_OPTIONS);
+        if (jvmOptions != null) {
+            kafka.setJvmOptions(JvmOptions.fromJson(new JsonObject(jvmOptions)));
+        }
+        kafka.validateJvmOptions();
+
+        String scheduling = cm.getData().get(KEY_SCHEDULING);
+        if (scheduling != null) {
+            kafka.setScheduling(Scheduling.fromJson(new JsonObject(scheduling), true));
+        }
+
+        String rack = cm.getData().get(KEY_RACK);
+        if (rack != null) {
+            JsonObject rackConfig = new JsonObject(rack);
+            String topologyKey = rackConfig.getString(RACK_TOPOLOGY_KEY_FIELD);
+            if (topologyKey == null || topologyKey.isEmpty()) {
+                throw new IllegalArgumentException("Rack awareness needs the " + RACK_TOPOLOGY_KEY_FIELD + " of the nodes");
+            }
+            kafka.setRack(topologyKey, rackConfig.getString(RACK_SERVICE_ACCOUNT_FIELD, DEFAULT_RACK_SERVICE_ACCOUNT));
+        }
+
         return kafka;
     }
 
@@ -146,6 +221,7 @@ public class KafkaCluster extends AbstractCluster {
         kafka.setImage(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getImage());
         kafka.setHealthCheckInitialDelay(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getInitialDelaySeconds());
         kafka.setHealthCheckTimeout(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getTimeoutSeconds());
+        kafka.setResources(Resources.fromResourceRequirements(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getResources()));
 
         Map<String, String> vars = ss.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream().collect(
                 Collectors.toMap(EnvVar::getName, EnvVar::getValue));
@@ -160,18 +236,10 @@ public class KafkaCluster extends AbstractCluster {
             kafka.setMetricsConfigName(metricConfigsName(cluster));
         }
 
-        if (!ss.getSpec().getVolumeClaimTemplates().isEmpty()) {
+        kafka.setConfiguration(KafkaConfiguration.fromProperties(vars.getOrDefault(KEY_KAFKA_CONFIGURATION, "")));
+        kafka.setRack(deployedRackTopologyKey(ss), ss.getSpec().getTemplate().getSpec().getServiceAccountName());
 
-            Storage storage = Storage.fromPersistentVolumeClaim(ss.getSpec().getVolumeClaimTemplates().get(0));
-            if (ss.getMetadata().getAnnotations() != null) {
-                String deleteClaimAnnotation = String.format("%s/%s", ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN, Storage.DELETE_CLAIM_FIELD);
-                storage.withDeleteClaim(Boolean.valueOf(ss.getMetadata().getAnnotations().computeIfAbsent(deleteClaimAnnotation, s -> "false")));
-            }
-            kafka.setStorage(storage);
-        } else {
-            Storage storage = new Storage(Storage.StorageType.EPHEMERAL);
-            kafka.setStorage(storage);
-        }
+        kafka.setStorage(kafka.deployedStorage(ss));
 
         return kafka;
     }
@@ -223,6 +291,24 @@ public class KafkaCluster extends AbstractCluster {
             diff.setRollingUpdate(true);
         }
 
+        Set<String> changedConfig = configuration.changedKeys(
+                KafkaConfiguration.fromProperties(vars.getOrDefault(KEY_KAFKA_CONFIGURATION, "")));
+        if (!changedConfig.isEmpty()) {
+            // A dynamic key which is removed would revert to the brokers' static configuration,
+            // which still has the old value until they're restarted
+            Set<String> needRestart = changedConfig.stream()
+                    .filter(key -> !KafkaConfiguration.isDynamic(key) || !configuration.asMap().containsKey(key))
+                    .collect(Collectors.toCollection(TreeSet::new));
+            diff.setDifferent(true);
+            if (needRestart.isEmpty()) {
+                log.info("Diff: Kafka configuration {} changed, which can be updated without a restart", changedConfig);
+                diff.setDynamicConfigChanged(true);
+            } else {
+                log.info("Diff: Kafka configuration {} changed, of which {} needs a restart", changedConfig, needRestart);
+                diff.setRollingUpdate(true);
+            }
+        }
+
         if (healthCheckInitialDelay != ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getInitialDelaySeconds()
                 || healthCheckTimeout != ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getTimeoutSeconds()) {
             log.info("Diff: Kafka healthcheck timing changed");
@@ -230,6 +316,22 @@ public class KafkaCluster extends AbstractCluster {
             diff.setRollingUpdate(true);
         }
 
+        if (isResourcesOrJvmChanged(ss.getSpec().getTemplate().getSpec().getContainers().get(0), vars)) {
+            diff.setDifferent(true);
+            diff.setRollingUpdate(true);
+        }
+
+        diffScheduling(ss.getSpec().getTemplate().getSpec(), diff);
+        diffVolumeMountHack(ss.getSpec().getTemplate().getSpec(), diff);
+
+        String deployedRackTopologyKey = deployedRackTopologyKey(ss);
+        if (!Objects.equals(rackTopologyKey, deployedRackTopologyKey)
+                || (rackTopologyKey != null && !Objects.equals(rackServiceAccount, ss.getSpec().getTemplate().getSpec().getServiceAccountName()))) {
+            log.info("Diff: Expected rack topology key {}, actual rack topology key {}", rackTopologyKey, deployedRackTopologyKey);
+            diff.setDifferent(true);
+            diff.setRollingUpdate(true);
+        }
+
         if (isMetricsEnabled != Boolean.parseBoolean(vars.getOrDefault(KEY_KAFKA_METRICS_ENABLED, String.valueOf(DEFAULT_KAFKA_METRICS_ENABLED)))) {
             log.info("Diff: Kafka metrics enabled/disabled");
             diff.setMetricsChanged(true);
@@ -245,32 +347,27 @@ public class KafkaCluster extends AbstractCluster {
         }
 
         // get the current (deployed) kind of storage
-        Storage ssStorage;
-        if (ss.getSpec().getVolumeClaimTemplates().isEmpty()) {
-            ssStorage = new Storage(Storage.StorageType.EPHEMERAL);
-        } else {
-            ssStorage = Storage.fromPersistentVolumeClaim(ss.getSpec().getVolumeClaimTemplates().get(0));
-            // the delete-claim flack is backed by the StatefulSets
-            if (ss.getMetadata().getAnnotations() != null) {
-                String deleteClaimAnnotation = String.format("%s/%s", ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN, Storage.DELETE_CLAIM_FIELD);
-                ssStorage.withDeleteClaim(Boolean.valueOf(ss.getMetadata().getAnnotations().computeIfAbsent(deleteClaimAnnotation, s -> "false")));
-            }
-        }
+        Storage ssStorage = deployedStorage(ss);
 
         // compute the differences with the requested storage (from the updated ConfigMap)
         Storage.StorageDiffResult storageDiffResult = storage.diff(ssStorage);
 
         // check for all the not allowed changes to the storage
-        boolean isStorageRejected = (storageDiffResult.isType() || storageDiffResult.isSize() ||
-                storageDiffResult.isStorageClass() || storageDiffResult.isSelector());
+        boolean isStorageRejected = (storageDiffResult.isType() || storageDiffResult.isShrunk() ||
+                storageDiffResult.isStorageClass() || storageDiffResult.isSelector() || storageDiffResult.isVolumes());
 
-        // only delete-claim flag can be changed
-        if (!isStorageRejected && (storage.type() == Storage.StorageType.PERSISTENT_CLAIM)) {
+        // only delete-claim flag can be changed, and the volumes expanded
+        if (!isStorageRejected && storage.isPersistent()) {
             if (storageDiffResult.isDeleteClaim()) {
                 diff.setDifferent(true);
             }
+            if (storageDiffResult.isSize()) {
+                log.info("Diff: Storage size increased");
+                diff.setDifferent(true);
+                diff.setStorageExpanded(true);
+            }
         } else if (isStorageRejected) {
-            log.warn("Changing storage configuration other than delete-claim is not supported !");
+            log.warn("Changing storage configuration other than delete-claim and increasing the size is not supported !");
         }
 
         return diff;
@@ -360,10 +457,129 @@ public class KafkaCluster extends AbstractCluster {
         annotations.put(String.format("%s/%s", ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN, Storage.DELETE_CLAIM_FIELD),
                 String.valueOf(storage.isDeleteClaim()));
 
-        return patchStatefulSet(statefulSet,
+        patchStatefulSet(statefulSet,
                 createExecProbe(healthCheckPath, healthCheckInitialDelay, healthCheckTimeout),
                 createExecProbe(healthCheckPath, healthCheckInitialDelay, healthCheckTimeout),
                 annotations);
+
+        // Replace the rack awareness parts, leaving alone the volumes and init containers of the storage
+        PodSpec pod = statefulSet.getSpec().getTemplate().getSpec();
+        Container container = pod.getContainers().get(0);
+        List<Container> initContainers = pod.getInitContainers() != null ? new ArrayList<>(pod.getInitContainers()) : new ArrayList<>();
+        List<Volume> volumes = pod.getVolumes() != null ? new ArrayList<>(pod.getVolumes()) : new ArrayList<>();
+        List<VolumeMount> volumeMounts = container.getVolumeMounts() != null ? new ArrayList<>(container.getVolumeMounts()) : new ArrayList<>();
+        initContainers.removeIf(c -> RACK_INIT_NAME.equals(c.getName()));
+        volumes.removeIf(v -> RACK_VOLUME_NAME.equals(v.getName()));
+        volumeMounts.removeIf(m -> RACK_VOLUME_NAME.equals(m.getName()));
+        if (isRackAware()) {
+            initContainers.addAll(getInitContainers());
+            volumes.add(createEmptyDirVolume(RACK_VOLUME_NAME));
+            volumeMounts.add(createVolumeMount(RACK_VOLUME_NAME, RACK_MOUNT_PATH));
+        }
+        pod.setInitContainers(initContainers);
+        pod.setVolumes(volumes);
+        container.setVolumeMounts(volumeMounts);
+        pod.setServiceAccountName(getServiceAccountName());
+
+        return statefulSet;
+    }
+
+    /**
+     * @return The init container finding the rack of each broker, if rack awareness is enabled.
+     */
+    @Override
+    protected List<Container> getInitContainers() {
+        if (!isRackAware()) {
+            return Collections.emptyList();
+        }
+        Container init = new ContainerBuilder()
+                .withName(RACK_INIT_NAME)
+                .withImage(getImage())
+                .withCommand(RACK_INIT_COMMAND)
+                .withEnv(new EnvVarBuilder().withName("NODE_NAME")
+                                .withNewValueFrom().withNewFieldRef().withFieldPath("spec.nodeName").endFieldRef().endValueFrom()
+                                .build(),
+                        new EnvVarBuilder().withName(KEY_KAFKA_RACK_TOPOLOGY_KEY).withValue(rackTopologyKey).build(),
+                        new EnvVarBuilder().withName(KEY_KAFKA_RACK_FILE).withValue(RACK_FILE).build())
+                .withVolumeMounts(createVolumeMount(RACK_VOLUME_NAME, RACK_MOUNT_PATH))
+                .build();
+        return Collections.singletonList(init);
+    }
+
+    /**
+     * @return The service account of the brokers, which needs to be allowed to get nodes for rack awareness.
+     */
+    @Override
+    protected String getServiceAccountName() {
+        return isRackAware() ? rackServiceAccount : null;
+    }
+
+    private static String deployedRackTopologyKey(StatefulSet ss) {
+        List<Container> initContainers = ss.getSpec().getTemplate().getSpec().getInitContainers();
+        if (initContainers == null) {
+            return null;
+        }
+        return initContainers.stream()
+                .filter(c -> RACK_INIT_NAME.equals(c.getName()))
+                .flatMap(c -> c.getEnv().stream())
+                .filter(e -> KEY_KAFKA_RACK_TOPOLOGY_KEY.equals(e.getName()))
+                .map(EnvVar::getValue)
+                .findFirst().orElse(null);
+    }
+
+    /**
+     * Recover the storage from the claim templates of a deployed StatefulSet: none for "ephemeral" storage,
+     * a single one named after the volume for "persistent-claim", and one for each volume for "jbod".
+     */
+    private Storage deployedStorage(StatefulSet ss) {
+
+        List<PersistentVolumeClaim> templates = ss.getSpec().getVolumeClaimTemplates();
+        Storage storage;
+        if (templates.isEmpty()) {
+            return new Storage(Storage.StorageType.EPHEMERAL);
+        } else if (templates.size() == 1 && volumeName.equals(templates.get(0).getMetadata().getName())) {
+            storage = Storage.fromPersistentVolumeClaim(templates.get(0));
+        } else {
+            storage = Storage.fromPersistentVolumeClaims(templates);
+        }
+
+        // the delete-claim flag is backed by the StatefulSets
+        if (ss.getMetadata().getAnnotations() != null) {
+            String deleteClaimAnnotation = String.format("%s/%s", ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN, Storage.DELETE_CLAIM_FIELD);
+            storage.withDeleteClaim(Boolean.valueOf(ss.getMetadata().getAnnotations().computeIfAbsent(deleteClaimAnnotation, s -> "false")));
+        }
+        return storage;
+    }
+
+    /**
+     * @return The names of the data volumes of each broker: one for "ephemeral" and "persistent-claim" storage,
+     * and one for each of the volumes of "jbod" storage.
+     */
+    private List<String> getDataVolumeNames() {
+        if (storage.type() != Storage.StorageType.JBOD) {
+            return Collections.singletonList(volumeName);
+        }
+        List<String> names = new ArrayList<>(storage.volumes().size());
+        for (int i = 0; i < storage.volumes().size(); i++) {
+            names.add(volumeName + "-" + i);
+        }
+        return names;
+    }
+
+    /**
+     * @return The names of the PersistentVolumeClaims of all the brokers, one for each volume of each broker,
+     * or none for "ephemeral" storage.
+     */
+    public List<String> getPersistentVolumeClaimNames() {
+        List<String> names = new ArrayList<>();
+        if (storage.isPersistent()) {
+            for (String dataVolumeName : getDataVolumeNames()) {
+                for (int i = 0; i < replicas; i++) {
+                    names.add(dataVolumeName + "-" + name + "-" + i);
+                }
+            }
+        }
+        return names;
     }
 
     private List<ContainerPort> getContainerPortList() {
@@ -384,6 +600,9 @@ public class KafkaCluster extends AbstractCluster {
         if (isMetricsEnabled) {
             volumeList.add(createConfigMapVolume(metricsConfigVolumeName, metricsConfigName));
         }
+        if (isRackAware()) {
+            volumeList.add(createEmptyDirVolume(RACK_VOLUME_NAME));
+        }
 
         return volumeList;
     }
@@ -392,20 +611,38 @@ public class KafkaCluster extends AbstractCluster {
         List<PersistentVolumeClaim> pvcList = new ArrayList<>();
         if (storage.type() == Storage.StorageType.PERSISTENT_CLAIM) {
             pvcList.add(createPersistentVolumeClaim(volumeName));
+        } else if (storage.type() == Storage.StorageType.JBOD) {
+            List<String> dataVolumeNames = getDataVolumeNames();
+            for (int i = 0; i < dataVolumeNames.size(); i++) {
+                pvcList.add(createPersistentVolumeClaim(dataVolumeNames.get(i), storage.volumes().get(i)));
+            }
         }
         return pvcList;
     }
 
     private List<VolumeMount> getVolumeMounts() {
         List<VolumeMount> volumeMountList = new ArrayList<>();
-        volumeMountList.add(createVolumeMount(volumeName, mounthPath));
+        if (storage.type() == Storage.StorageType.JBOD) {
+            for (String dataVolumeName : getDataVolumeNames()) {
+                volumeMountList.add(createVolumeMount(dataVolumeName, getJbodMountPath(dataVolumeName)));
+            }
+        } else {
+            volumeMountList.add(createVolumeMount(volumeName, mounthPath));
+        }
         if (isMetricsEnabled) {
             volumeMountList.add(createVolumeMount(metricsConfigVolumeName, metricsConfigMountPath));
         }
+        if (isRackAware()) {
+            volumeMountList.add(createVolumeMount(RACK_VOLUME_NAME, RACK_MOUNT_PATH));
+        }
 
         return volumeMountList;
     }
 
+    private String getJbodMountPath(String dataVolumeName) {
+        return mounthPath + "/" + dataVolumeName;
+    }
+
     protected List<EnvVar> getEnvVars() {
         List<EnvVar> varList = new ArrayList<>();
         varList.add(new EnvVarBuilder().withName(KEY_KAFKA_ZOOKEEPER_CONNECT).withValue(zookeeperConnect).build());
@@ -413,14 +650,37 @@ public class KafkaCluster extends AbstractCluster {
         varList.add(new EnvVarBuilder().withName(KEY_KAFKA_OFFSETS_TOPIC_REPLICATION_FACTOR).withValue(String.valueOf(offsetsTopicReplicationFactor)).build());
         varList.add(new EnvVarBuilder().withName(KEY_KAFKA_TRANSACTION_STATE_LOG_REPLICATION_FACTOR).withValue(String.valueOf(transactionStateLogReplicationFactor)).build());
         varList.add(new EnvVarBuilder().withName(KEY_KAFKA_METRICS_ENABLED).withValue(String.valueOf(isMetricsEnabled)).build());
+        if (!configuration.asMap().isEmpty()) {
+            varList.add(new EnvVarBuilder().withName(KEY_KAFKA_CONFIGURATION).withValue(configuration.toProperties()).build());
+        }
+        if (isRackAware()) {
+            varList.add(new EnvVarBuilder().withName(KEY_KAFKA_RACK_FILE).withValue(RACK_FILE).build());
+        }
+        if (storage.type() == Storage.StorageType.JBOD) {
+            String volumes = getDataVolumeNames().stream().map(this::getJbodMountPath).collect(Collectors.joining(","));
+            varList.add(new EnvVarBuilder().withName(KEY_KAFKA_LOG_VOLUMES).withValue(volumes).build());
+        }
+        addJvmEnvVars(varList);
 
         return varList;
     }
 
+    /**
+     * @return The affinity of the brokers, which may also keep them apart from the ZooKeeper nodes.
+     */
+    @Override
+    protected Affinity getAffinity() {
+        return scheduling.toAffinity(nameSelector(name), nameSelector(ZookeeperCluster.zookeeperClusterName(cluster)));
+    }
+
     protected void setZookeeperConnect(String zookeeperConnect) {
         this.zookeeperConnect = zookeeperConnect;
     }
 
+    public String getZookeeperConnect() {
+        return zookeeperConnect;
+    }
+
     protected void setDefaultReplicationFactor(int defaultReplicationFactor) {
         this.defaultReplicationFactor = defaultReplicationFactor;
     }
@@ -432,4 +692,49 @@ public class KafkaCluster extends AbstractCluster {
     protected void setTransactionStateLogReplicationFactor(int transactionStateLogReplicationFactor) {
         this.transactionStateLogReplicationFactor = transactionStateLogReplicationFactor;
     }
-}
\ No newline at end of file
+
+    protected void setConfiguration(KafkaConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @return The broker configuration from the {@code kafka-config} section of the cluster ConfigMap.
+     */
+    public KafkaConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    protected void setRack(String topologyKey, String serviceAccount) {
+        this.rackTopologyKey = topologyKey;
+        this.rackServiceAccount = serviceAccount;
+    }
+
+    /**
+     * @return Whether each broker's {@code broker.rack} is set from a label of the node it runs on.
+     */
+    public boolean isRackAware() {
+        return rackTopologyKey != null;
+    }
+
+    protected void setReassignmentThrottle(long reassignmentThrottle) {
+        this.reassignmentThrottle = reassignmentThrottle;
+    }
+
+    /**
+     * @return The replication throttle, in bytes per second, for moving partitions between brokers.
+     */
+    public long getReassignmentThrottle() {
+        return reassignmentThrottle;
+    }
+
+    protected void setRebalanceOnScaleUp(boolean rebalanceOnScaleUp) {
+        this.rebalanceOnScaleUp = rebalanceOnScaleUp;
+    }
+
+    /**
+     * @return Whether partitions should be rebalanced onto the new brokers after a scale up.
+     */
+    public boolean isRebalanceOnScaleUp() {
+        return rebalanceOnScaleUp;
+    }
+}
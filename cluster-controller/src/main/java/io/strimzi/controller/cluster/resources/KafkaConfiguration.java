@@ -0,0 +1,413 @@
+package io.strimzi.controller.cluster.resources;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigDef.Range;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.config.ConfigDef.ValidList;
+import org.apache.kafka.common.config.ConfigDef.ValidString;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The broker configuration given in the {@code kafka-config} section of the cluster ConfigMap,
+ * as a JSON object of {@code server.properties} keys and values.
+ */
+public class KafkaConfiguration {
+
+    /**
+     * Keys which are set by the cluster controller or the broker image, or which have their own ConfigMap key.
+     */
+    static final Set<String> FORBIDDEN = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "broker.id",
+            "broker.rack",
+            "broker.id.generation.enable",
+            "reserved.broker.max.id",
+            "zookeeper.connect",
+            "log.dir",
+            "log.dirs",
+            "host.name",
+            "port",
+            "advertised.host.name",
+            "advertised.port",
+            "listeners",
+            "advertised.listeners",
+            "listener.security.protocol.map",
+            "inter.broker.listener.name",
+            "security.inter.broker.protocol",
+            "default.replication.factor",
+            "offsets.topic.replication.factor",
+            "transaction.state.log.replication.factor")));
+
+    /**
+     * Keys which brokers supporting dynamic configuration (Kafka 1.1 onwards) can update cluster-wide
+     * without a restart: the thread pool sizes, the log cleaner settings and the broker defaults of
+     * topic configs which Kafka 1.1 accepts as dynamic broker configs.
+     * A change to any other key needs a rolling update.
+     */
+    static final Set<String> DYNAMIC = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            // thread pools
+            "num.network.threads",
+            "num.io.threads",
+            "num.replica.fetchers",
+            "num.recovery.threads.per.data.dir",
+            "background.threads",
+            // log cleaner
+            "log.cleaner.threads",
+            "log.cleaner.io.max.bytes.per.second",
+            "log.cleaner.dedupe.buffer.size",
+            "log.cleaner.io.buffer.size",
+            "log.cleaner.io.buffer.load.factor",
+            "log.cleaner.backoff.ms",
+            // defaults for the topic configs
+            "log.segment.bytes",
+            "log.roll.ms",
+            "log.roll.jitter.ms",
+            "log.index.size.max.bytes",
+            "log.index.interval.bytes",
+            "log.flush.interval.messages",
+            "log.flush.interval.ms",
+            "log.retention.bytes",
+            "log.retention.ms",
+            "log.cleaner.delete.retention.ms",
+            "log.cleaner.min.compaction.lag.ms",
+            "log.cleaner.min.cleanable.ratio",
+            "log.cleanup.policy",
+            "log.segment.delete.delay.ms",
+            "log.preallocate",
+            "log.message.timestamp.type",
+            "log.message.timestamp.difference.max.ms",
+            "unclean.leader.election.enable",
+            "min.insync.replicas",
+            "compression.type",
+            "message.max.bytes")));
+
+    /**
+     * The keys of the Kafka 1.0 broker configuration, with the types and validators of {@code kafka.server.KafkaConfig},
+     * so the values can be checked without depending on the broker itself.
+     * Class names are only checked as strings, since the classes are in the broker image rather than here,
+     * and {@code compression.type} has the values which the broker checks for when it starts.
+     */
+    private static final ConfigDef BROKER_CONFIG = new ConfigDef()
+            .define("advertised.host.name", Type.STRING, Importance.LOW, "")
+            .define("advertised.listeners", Type.STRING, Importance.LOW, "")
+            .define("advertised.port", Type.INT, Importance.LOW, "")
+            .define("alter.config.policy.class.name", Type.STRING, Importance.LOW, "")
+            .define("authorizer.class.name", Type.STRING, Importance.LOW, "")
+            .define("auto.create.topics.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("auto.leader.rebalance.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("background.threads", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("broker.id", Type.INT, Importance.LOW, "")
+            .define("broker.id.generation.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("broker.rack", Type.STRING, Importance.LOW, "")
+            .define("compression.type", Type.STRING, ConfigDef.NO_DEFAULT_VALUE, ValidString.in("uncompressed", "snappy", "lz4", "gzip", "producer"), Importance.LOW, "")
+            .define("connections.max.idle.ms", Type.LONG, Importance.LOW, "")
+            .define("controlled.shutdown.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("controlled.shutdown.max.retries", Type.INT, Importance.LOW, "")
+            .define("controlled.shutdown.retry.backoff.ms", Type.LONG, Importance.LOW, "")
+            .define("controller.socket.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("create.topic.policy.class.name", Type.STRING, Importance.LOW, "")
+            .define("default.replication.factor", Type.INT, Importance.LOW, "")
+            .define("delete.records.purgatory.purge.interval.requests", Type.INT, Importance.LOW, "")
+            .define("delete.topic.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("fetch.purgatory.purge.interval.requests", Type.INT, Importance.LOW, "")
+            .define("group.initial.rebalance.delay.ms", Type.INT, Importance.LOW, "")
+            .define("group.max.session.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("group.min.session.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("host.name", Type.STRING, Importance.LOW, "")
+            .define("inter.broker.listener.name", Type.STRING, Importance.LOW, "")
+            .define("inter.broker.protocol.version", Type.STRING, Importance.LOW, "")
+            .define("leader.imbalance.check.interval.seconds", Type.LONG, Importance.LOW, "")
+            .define("leader.imbalance.per.broker.percentage", Type.INT, Importance.LOW, "")
+            .define("listener.security.protocol.map", Type.STRING, Importance.LOW, "")
+            .define("listeners", Type.STRING, Importance.LOW, "")
+            .define("log.cleaner.backoff.ms", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.cleaner.dedupe.buffer.size", Type.LONG, Importance.LOW, "")
+            .define("log.cleaner.delete.retention.ms", Type.LONG, Importance.LOW, "")
+            .define("log.cleaner.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("log.cleaner.io.buffer.load.factor", Type.DOUBLE, Importance.LOW, "")
+            .define("log.cleaner.io.buffer.size", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.cleaner.io.max.bytes.per.second", Type.DOUBLE, Importance.LOW, "")
+            .define("log.cleaner.min.cleanable.ratio", Type.DOUBLE, Importance.LOW, "")
+            .define("log.cleaner.min.compaction.lag.ms", Type.LONG, Importance.LOW, "")
+            .define("log.cleaner.threads", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.cleanup.policy", Type.LIST, ConfigDef.NO_DEFAULT_VALUE, ValidList.in("compact", "delete"), Importance.LOW, "")
+            .define("log.dir", Type.STRING, Importance.LOW, "")
+            .define("log.dirs", Type.STRING, Importance.LOW, "")
+            .define("log.flush.interval.messages", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("log.flush.interval.ms", Type.LONG, Importance.LOW, "")
+            .define("log.flush.offset.checkpoint.interval.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.flush.scheduler.interval.ms", Type.LONG, Importance.LOW, "")
+            .define("log.flush.start.offset.checkpoint.interval.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.index.interval.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.index.size.max.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(4), Importance.LOW, "")
+            .define("log.message.format.version", Type.STRING, Importance.LOW, "")
+            .define("log.message.timestamp.difference.max.ms", Type.LONG, Importance.LOW, "")
+            .define("log.message.timestamp.type", Type.STRING, ConfigDef.NO_DEFAULT_VALUE, ValidString.in("CreateTime", "LogAppendTime"), Importance.LOW, "")
+            .define("log.preallocate", Type.BOOLEAN, Importance.LOW, "")
+            .define("log.retention.bytes", Type.LONG, Importance.LOW, "")
+            .define("log.retention.check.interval.ms", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("log.retention.hours", Type.INT, Importance.LOW, "")
+            .define("log.retention.minutes", Type.INT, Importance.LOW, "")
+            .define("log.retention.ms", Type.LONG, Importance.LOW, "")
+            .define("log.roll.hours", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("log.roll.jitter.hours", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("log.roll.jitter.ms", Type.LONG, Importance.LOW, "")
+            .define("log.roll.ms", Type.LONG, Importance.LOW, "")
+            .define("log.segment.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(14), Importance.LOW, "")
+            .define("log.segment.delete.delay.ms", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("max.connections.per.ip", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("max.connections.per.ip.overrides", Type.STRING, Importance.LOW, "")
+            .define("message.max.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("metric.reporters", Type.LIST, Importance.LOW, "")
+            .define("metrics.num.samples", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("metrics.recording.level", Type.STRING, Importance.LOW, "")
+            .define("metrics.sample.window.ms", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("min.insync.replicas", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("num.io.threads", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("num.network.threads", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("num.partitions", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("num.recovery.threads.per.data.dir", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("num.replica.fetchers", Type.INT, Importance.LOW, "")
+            .define("offset.metadata.max.bytes", Type.INT, Importance.LOW, "")
+            .define("offsets.commit.required.acks", Type.SHORT, Importance.LOW, "")
+            .define("offsets.commit.timeout.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.load.buffer.size", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.retention.check.interval.ms", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.retention.minutes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.topic.compression.codec", Type.INT, Importance.LOW, "")
+            .define("offsets.topic.num.partitions", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.topic.replication.factor", Type.SHORT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("offsets.topic.segment.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("port", Type.INT, Importance.LOW, "")
+            .define("principal.builder.class", Type.STRING, Importance.LOW, "")
+            .define("producer.purgatory.purge.interval.requests", Type.INT, Importance.LOW, "")
+            .define("queued.max.request.bytes", Type.LONG, Importance.LOW, "")
+            .define("queued.max.requests", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("quota.consumer.default", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("quota.producer.default", Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("quota.window.num", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("quota.window.size.seconds", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("replica.fetch.backoff.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("replica.fetch.max.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("replica.fetch.min.bytes", Type.INT, Importance.LOW, "")
+            .define("replica.fetch.response.max.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("replica.fetch.wait.max.ms", Type.INT, Importance.LOW, "")
+            .define("replica.high.watermark.checkpoint.interval.ms", Type.LONG, Importance.LOW, "")
+            .define("replica.lag.time.max.ms", Type.LONG, Importance.LOW, "")
+            .define("replica.socket.receive.buffer.bytes", Type.INT, Importance.LOW, "")
+            .define("replica.socket.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("replication.quota.window.num", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("replication.quota.window.size.seconds", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("request.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("reserved.broker.max.id", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(0), Importance.LOW, "")
+            .define("sasl.enabled.mechanisms", Type.LIST, Importance.LOW, "")
+            .define("sasl.kerberos.kinit.cmd", Type.STRING, Importance.LOW, "")
+            .define("sasl.kerberos.min.time.before.relogin", Type.LONG, Importance.LOW, "")
+            .define("sasl.kerberos.principal.to.local.rules", Type.LIST, Importance.LOW, "")
+            .define("sasl.kerberos.service.name", Type.STRING, Importance.LOW, "")
+            .define("sasl.kerberos.ticket.renew.jitter", Type.DOUBLE, Importance.LOW, "")
+            .define("sasl.kerberos.ticket.renew.window.factor", Type.DOUBLE, Importance.LOW, "")
+            .define("sasl.mechanism.inter.broker.protocol", Type.STRING, Importance.LOW, "")
+            .define("security.inter.broker.protocol", Type.STRING, Importance.LOW, "")
+            .define("socket.receive.buffer.bytes", Type.INT, Importance.LOW, "")
+            .define("socket.request.max.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("socket.send.buffer.bytes", Type.INT, Importance.LOW, "")
+            .define("ssl.cipher.suites", Type.LIST, Importance.LOW, "")
+            .define("ssl.client.auth", Type.STRING, ConfigDef.NO_DEFAULT_VALUE, ValidString.in("required", "requested", "none"), Importance.LOW, "")
+            .define("ssl.enabled.protocols", Type.LIST, Importance.LOW, "")
+            .define("ssl.endpoint.identification.algorithm", Type.STRING, Importance.LOW, "")
+            .define("ssl.key.password", Type.PASSWORD, Importance.LOW, "")
+            .define("ssl.keymanager.algorithm", Type.STRING, Importance.LOW, "")
+            .define("ssl.keystore.location", Type.STRING, Importance.LOW, "")
+            .define("ssl.keystore.password", Type.PASSWORD, Importance.LOW, "")
+            .define("ssl.keystore.type", Type.STRING, Importance.LOW, "")
+            .define("ssl.protocol", Type.STRING, Importance.LOW, "")
+            .define("ssl.provider", Type.STRING, Importance.LOW, "")
+            .define("ssl.secure.random.implementation", Type.STRING, Importance.LOW, "")
+            .define("ssl.trustmanager.algorithm", Type.STRING, Importance.LOW, "")
+            .define("ssl.truststore.location", Type.STRING, Importance.LOW, "")
+            .define("ssl.truststore.password", Type.PASSWORD, Importance.LOW, "")
+            .define("ssl.truststore.type", Type.STRING, Importance.LOW, "")
+            .define("transaction.abort.timed.out.transaction.cleanup.interval.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.max.timeout.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.remove.expired.transaction.cleanup.interval.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.state.log.load.buffer.size", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.state.log.min.isr", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.state.log.num.partitions", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.state.log.replication.factor", Type.SHORT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transaction.state.log.segment.bytes", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("transactional.id.expiration.ms", Type.INT, ConfigDef.NO_DEFAULT_VALUE, Range.atLeast(1), Importance.LOW, "")
+            .define("unclean.leader.election.enable", Type.BOOLEAN, Importance.LOW, "")
+            .define("zookeeper.connect", Type.STRING, Importance.LOW, "")
+            .define("zookeeper.connection.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("zookeeper.session.timeout.ms", Type.INT, Importance.LOW, "")
+            .define("zookeeper.set.acl", Type.BOOLEAN, Importance.LOW, "")
+            .define("zookeeper.sync.time.ms", Type.INT, Importance.LOW, "");
+
+    private final Map<String, String> config;
+
+    private KafkaConfiguration(Map<String, String> config) {
+        this.config = Collections.unmodifiableMap(new TreeMap<>(config));
+    }
+
+    /**
+     * @return An empty configuration, leaving everything at the defaults of the broker image.
+     */
+    public static KafkaConfiguration empty() {
+        return new KafkaConfiguration(Collections.emptyMap());
+    }
+
+    /**
+     * Parse and validate the configuration from the {@code kafka-config} section of the cluster ConfigMap.
+     *
+     * @param json The JSON object of keys and values.
+     * @return The configuration.
+     * @throws IllegalArgumentException If a key is unknown or forbidden, or a value isn't valid for its key.
+     */
+    public static KafkaConfiguration fromJson(JsonObject json) {
+        Map<String, String> config = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : json) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (FORBIDDEN.contains(key)) {
+                throw new IllegalArgumentException("Kafka configuration key " + key + " is set by the cluster controller and can't be configured");
+            }
+            if (!BROKER_CONFIG.configKeys().containsKey(key)) {
+                throw new IllegalArgumentException("Unknown Kafka configuration key " + key);
+            }
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+                throw new IllegalArgumentException("The value of Kafka configuration key " + key + " must be a string, number or boolean");
+            }
+            String str = String.valueOf(value);
+            if (str.indexOf('\n') >= 0 || str.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("The value of Kafka configuration key " + key + " must be a single line");
+            }
+            config.put(key, str);
+        }
+        validate(config);
+        return new KafkaConfiguration(config);
+    }
+
+    /**
+     * Check the values against the types and validators of the broker's configuration.
+     */
+    private static void validate(Map<String, String> config) {
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            ConfigDef.ConfigKey key = BROKER_CONFIG.configKeys().get(entry.getKey());
+            try {
+                Object value = ConfigDef.parseType(key.name, entry.getValue(), key.type);
+                if (key.validator != null) {
+                    key.validator.ensureValid(key.name, value);
+                }
+            } catch (ConfigException e) {
+                throw new IllegalArgumentException("Invalid Kafka configuration: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Parse the configuration from the {@code server.properties} format produced by {@link #toProperties()}.
+     *
+     * @param properties The properties.
+     * @return The configuration.
+     */
+    public static KafkaConfiguration fromProperties(String properties) {
+        Properties props = new Properties();
+        try {
+            props.load(new StringReader(properties));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        Map<String, String> config = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            config.put(key, props.getProperty(key));
+        }
+        return new KafkaConfiguration(config);
+    }
+
+    /**
+     * @return The configuration in the {@code server.properties} format, one key per line in key order,
+     * so the same configuration always renders the same.
+     */
+    public String toProperties() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            sb.append(entry.getKey()).append('=').append(escape(entry.getValue())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        String escaped = value.replace("\\", "\\\\");
+        return escaped.startsWith(" ") ? "\\" + escaped : escaped;
+    }
+
+    /**
+     * @return The keys and values.
+     */
+    public Map<String, String> asMap() {
+        return config;
+    }
+
+    /**
+     * @return The subset of the configuration which can be updated without restarting the brokers.
+     */
+    public Map<String, String> getDynamic() {
+        Map<String, String> dynamic = new TreeMap<>(config);
+        dynamic.keySet().retainAll(DYNAMIC);
+        return dynamic;
+    }
+
+    /**
+     * @param key A broker configuration key.
+     * @return Whether a change to the key can be applied without restarting the brokers.
+     */
+    public static boolean isDynamic(String key) {
+        return DYNAMIC.contains(key);
+    }
+
+    /**
+     * @param other The configuration to compare with.
+     * @return The keys which are added, removed or have a different value in the other configuration.
+     */
+    public Set<String> changedKeys(KafkaConfiguration other) {
+        Set<String> keys = new TreeSet<>(config.keySet());
+        keys.addAll(other.config.keySet());
+        keys.removeIf(key -> Objects.equals(config.get(key), other.config.get(key)));
+        return keys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return config.equals(((KafkaConfiguration) o).config);
+    }
+
+    @Override
+    public int hashCode() {
+        return config.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return config.toString();
+    }
+}
@@ -44,6 +44,7 @@ public class KafkaConnectCluster extends AbstractCluster {
     private static int DEFAULT_REPLICAS = 3;
     private static int DEFAULT_HEALTHCHECK_DELAY = 60;
     private static int DEFAULT_HEALTHCHECK_TIMEOUT = 5;
+    private static double DEFAULT_HEAP_FRACTION = 0.75;
 
     // Kafka Connect configuration defaults
     private static String DEFAULT_BOOTSTRAP_SERVERS = "kafka:9092";
@@ -62,6 +63,8 @@ public class KafkaConnectCluster extends AbstractCluster {
     private static String KEY_HEALTHCHECK_DELAY = "healthcheck-delay";
     private static String KEY_HEALTHCHECK_TIMEOUT = "healthcheck-timeout";
     private static String KEY_S2I = "s2i";
+    private static String KEY_RESOURCES = "resources";
+    private static String KEY_JVM_OPTIONS = "jvm-options";
 
     // Kafka Connect configuration keys
     private static String KEY_BOOTSTRAP_SERVERS = "KAFKA_CONNECT_BOOTSTRAP_SERVERS";
@@ -93,6 +96,7 @@ public class KafkaConnectCluster extends AbstractCluster {
         this.healthCheckPath = "/";
         this.healthCheckTimeout = DEFAULT_HEALTHCHECK_TIMEOUT;
         this.healthCheckInitialDelay = DEFAULT_HEALTHCHECK_DELAY;
+        this.heapFraction = DEFAULT_HEAP_FRACTION;
     }
 
     /**
@@ -121,6 +125,16 @@ public class KafkaConnectCluster extends AbstractCluster {
         kafkaConnect.setOffsetStorageReplicationFactor(Integer.parseInt(cm.getData().getOrDefault(KEY_OFFSET_STORAGE_REPLICATION_FACTOR, String.valueOf(DEFAULT_OFFSET_STORAGE_REPLICATION_FACTOR))));
         kafkaConnect.setStatusStorageReplicationFactor(Integer.parseInt(cm.getData().getOrDefault(KEY_STATUS_STORAGE_REPLICATION_FACTOR, String.valueOf(DEFAULT_STATUS_STORAGE_REPLICATION_FACTOR))));
 
+        String resources = cm.getData().get(KEY_RESOURCES);
+        if (resources != null) {
+            kafkaConnect.setResources(Resources.fromJson(new JsonObject(resources)));
+        }
+        String jvmOptions = cm.getData().get(KEY_JVM_OPTIONS);
+        if (jvmOptions != null) {
+            kafkaConnect.setJvmOptions(JvmOptions.fromJson(new JsonObject(jvmOptions)));
+        }
+        kafkaConnect.validateJvmOptions();
+
         if (cm.getData().containsKey(KEY_S2I)) {
             if (isOpenShift) {
                 JsonObject config = new JsonObject(cm.getData().get(KEY_S2I));
@@ -157,6 +171,7 @@ public class KafkaConnectCluster extends AbstractCluster {
         kafkaConnect.setImage(dep.getSpec().getTemplate().getSpec().getContainers().get(0).getImage());
         kafkaConnect.setHealthCheckInitialDelay(dep.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getInitialDelaySeconds());
         kafkaConnect.setHealthCheckInitialDelay(dep.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getTimeoutSeconds());
+        kafkaConnect.setResources(Resources.fromResourceRequirements(dep.getSpec().getTemplate().getSpec().getContainers().get(0).getResources()));
 
         Map<String, String> vars = dep.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream().collect(
                 Collectors.toMap(EnvVar::getName, EnvVar::getValue));
@@ -245,6 +260,11 @@ public class KafkaConnectCluster extends AbstractCluster {
             diff.setRollingUpdate(true);
         }
 
+        if (isResourcesOrJvmChanged(dep.getSpec().getTemplate().getSpec().getContainers().get(0), vars)) {
+            diff.setDifferent(true);
+            diff.setRollingUpdate(true);
+        }
+
         if (imageStreamOperations != null) {
             Source2Image realS2I = null;
             String s2iAnnotation = String.format("%s/%s", ClusterController.STRIMZI_CLUSTER_CONTROLLER_DOMAIN, Source2Image.ANNOTATION_S2I);
@@ -311,6 +331,7 @@ public class KafkaConnectCluster extends AbstractCluster {
         varList.add(new EnvVarBuilder().withName(KEY_CONFIG_STORAGE_REPLICATION_FACTOR).withValue(String.valueOf(configStorageReplicationFactor)).build());
         varList.add(new EnvVarBuilder().withName(KEY_OFFSET_STORAGE_REPLICATION_FACTOR).withValue(String.valueOf(offsetStorageReplicationFactor)).build());
         varList.add(new EnvVarBuilder().withName(KEY_STATUS_STORAGE_REPLICATION_FACTOR).withValue(String.valueOf(statusStorageReplicationFactor)).build());
+        addJvmEnvVars(varList);
 
         return varList;
     }
@@ -0,0 +1,214 @@
+package io.strimzi.controller.cluster.resources;
+
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceRequirements;
+import io.fabric8.kubernetes.api.model.ResourceRequirementsBuilder;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The CPU and memory requests and limits of a cluster's containers, given in the cluster ConfigMap as
+ * <pre><code>
+ * {"requests": {"cpu": "500m", "memory": "2Gi"}, "limits": {"cpu": "2", "memory": "4Gi"}}
+ * </code></pre>
+ * using the Kubernetes quantity syntax.
+ */
+public class Resources {
+
+    public static final String REQUESTS_FIELD = "requests";
+    public static final String LIMITS_FIELD = "limits";
+    public static final String CPU = "cpu";
+    public static final String MEMORY = "memory";
+
+    private static final Pattern QUANTITY = Pattern.compile("^([0-9]+(?:\\.[0-9]+)?(?:[eE][+-]?[0-9]+)?)(m|k|M|G|T|P|E|Ki|Mi|Gi|Ti|Pi|Ei)?$");
+    private static final Map<String, BigDecimal> SUFFIXES = new HashMap<>();
+    static {
+        SUFFIXES.put("", BigDecimal.ONE);
+        SUFFIXES.put("m", new BigDecimal("0.001"));
+        SUFFIXES.put("k", BigDecimal.TEN.pow(3));
+        SUFFIXES.put("M", BigDecimal.TEN.pow(6));
+        SUFFIXES.put("G", BigDecimal.TEN.pow(9));
+        SUFFIXES.put("T", BigDecimal.TEN.pow(12));
+        SUFFIXES.put("P", BigDecimal.TEN.pow(15));
+        SUFFIXES.put("E", BigDecimal.TEN.pow(18));
+        SUFFIXES.put("Ki", BigDecimal.valueOf(2).pow(10));
+        SUFFIXES.put("Mi", BigDecimal.valueOf(2).pow(20));
+        SUFFIXES.put("Gi", BigDecimal.valueOf(2).pow(30));
+        SUFFIXES.put("Ti", BigDecimal.valueOf(2).pow(40));
+        SUFFIXES.put("Pi", BigDecimal.valueOf(2).pow(50));
+        SUFFIXES.put("Ei", BigDecimal.valueOf(2).pow(60));
+    }
+
+    private final Map<String, String> requests;
+    private final Map<String, String> limits;
+
+    private Resources(Map<String, String> requests, Map<String, String> limits) {
+        this.requests = Collections.unmodifiableMap(new TreeMap<>(requests));
+        this.limits = Collections.unmodifiableMap(new TreeMap<>(limits));
+    }
+
+    /**
+     * @return No requests or limits, leaving them to the defaults of the namespace.
+     */
+    public static Resources empty() {
+        return new Resources(Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Parse and validate the resources from the cluster ConfigMap.
+     *
+     * @param json The JSON object with the requests and limits.
+     * @return The resources.
+     * @throws IllegalArgumentException If a resource or quantity isn't valid, or a request exceeds its limit.
+     */
+    public static Resources fromJson(JsonObject json) {
+        Resources resources = new Resources(quantities(json, REQUESTS_FIELD), quantities(json, LIMITS_FIELD));
+        for (String resource : resources.requests.keySet()) {
+            if (resources.limits.containsKey(resource)
+                    && resources.getRequest(resource).compareTo(resources.getLimit(resource)) > 0) {
+                throw new IllegalArgumentException("The " + resource + " request " + resources.requests.get(resource)
+                        + " is larger than its limit " + resources.limits.get(resource));
+            }
+        }
+        return resources;
+    }
+
+    private static Map<String, String> quantities(JsonObject json, String field) {
+        Map<String, String> quantities = new TreeMap<>();
+        JsonObject object = json.getJsonObject(field);
+        if (object != null) {
+            for (Map.Entry<String, Object> entry : object) {
+                if (!CPU.equals(entry.getKey()) && !MEMORY.equals(entry.getKey())) {
+                    throw new IllegalArgumentException("Unknown resource " + entry.getKey() + " in " + field
+                            + ", only " + CPU + " and " + MEMORY + " are supported");
+                }
+                String quantity = String.valueOf(entry.getValue());
+                parse(quantity);
+                quantities.put(entry.getKey(), quantity);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Recover the resources from a deployed container.
+     *
+     * @param requirements The resource requirements of the container, which may be null.
+     * @return The resources.
+     */
+    public static Resources fromResourceRequirements(ResourceRequirements requirements) {
+        Map<String, String> requests = new TreeMap<>();
+        Map<String, String> limits = new TreeMap<>();
+        if (requirements != null) {
+            if (requirements.getRequests() != null) {
+                requirements.getRequests().forEach((resource, quantity) -> requests.put(resource, quantity.getAmount()));
+            }
+            if (requirements.getLimits() != null) {
+                requirements.getLimits().forEach((resource, quantity) -> limits.put(resource, quantity.getAmount()));
+            }
+        }
+        return new Resources(requests, limits);
+    }
+
+    /**
+     * @return The resource requirements for a container, or null if there are no requests or limits.
+     */
+    public ResourceRequirements toResourceRequirements() {
+        if (requests.isEmpty() && limits.isEmpty()) {
+            return null;
+        }
+        return new ResourceRequirementsBuilder()
+                .withRequests(toQuantities(requests))
+                .withLimits(toQuantities(limits))
+                .build();
+    }
+
+    private static Map<String, Quantity> toQuantities(Map<String, String> amounts) {
+        Map<String, Quantity> quantities = new TreeMap<>();
+        amounts.forEach((resource, amount) -> quantities.put(resource, new Quantity(amount)));
+        return quantities;
+    }
+
+    /**
+     * @param resource The resource, {@link #CPU} or {@link #MEMORY}.
+     * @return The request, in cores or bytes, or null if there's none.
+     */
+    public BigDecimal getRequest(String resource) {
+        return requests.containsKey(resource) ? parse(requests.get(resource)) : null;
+    }
+
+    /**
+     * @param resource The resource, {@link #CPU} or {@link #MEMORY}.
+     * @return The limit, in cores or bytes, or null if there's none.
+     */
+    public BigDecimal getLimit(String resource) {
+        return limits.containsKey(resource) ? parse(limits.get(resource)) : null;
+    }
+
+    /**
+     * @return The memory the container can count on, in bytes: the limit if there is one,
+     * otherwise the request, otherwise null.
+     */
+    public Long getMemory() {
+        BigDecimal memory = getLimit(MEMORY);
+        if (memory == null) {
+            memory = getRequest(MEMORY);
+        }
+        return memory != null ? memory.longValue() : null;
+    }
+
+    /**
+     * Parse a Kubernetes quantity.
+     *
+     * @param quantity The quantity, such as {@code 500m} or {@code 4Gi}.
+     * @return Its value.
+     * @throws IllegalArgumentException If it's not a supported quantity.
+     */
+    public static BigDecimal parse(String quantity) {
+        Matcher matcher = QUANTITY.matcher(quantity);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid resource quantity " + quantity);
+        }
+        String suffix = matcher.group(2) != null ? matcher.group(2) : "";
+        return new BigDecimal(matcher.group(1)).multiply(SUFFIXES.get(suffix));
+    }
+
+    /**
+     * Resources are equal when their quantities have the same values, whatever the units,
+     * since the API server may normalize quantities (e.g. {@code 1000m} becomes {@code 1}).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Resources other = (Resources) o;
+        return values(requests).equals(values(other.requests)) && values(limits).equals(values(other.limits));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * values(requests).hashCode() + values(limits).hashCode();
+    }
+
+    private static Map<String, BigDecimal> values(Map<String, String> quantities) {
+        Map<String, BigDecimal> values = new TreeMap<>();
+        quantities.forEach((resource, quantity) -> values.put(resource, parse(quantity).stripTrailingZeros()));
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "{" + REQUESTS_FIELD + "=" + requests + ", " + LIMITS_FIELD + "=" + limits + "}";
+    }
+}
@@ -0,0 +1,249 @@
+package io.strimzi.controller.cluster.resources;
+
+import io.fabric8.kubernetes.api.model.Affinity;
+import io.fabric8.kubernetes.api.model.AffinityBuilder;
+import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
+import io.fabric8.kubernetes.api.model.PodAffinityTerm;
+import io.fabric8.kubernetes.api.model.PodAffinityTermBuilder;
+import io.fabric8.kubernetes.api.model.PodAntiAffinity;
+import io.fabric8.kubernetes.api.model.Toleration;
+import io.fabric8.kubernetes.api.model.TolerationBuilder;
+import io.fabric8.kubernetes.api.model.WeightedPodAffinityTerm;
+import io.fabric8.kubernetes.api.model.WeightedPodAffinityTermBuilder;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Where the pods of a cluster may be scheduled, given in the cluster ConfigMap as
+ * <pre><code>
+ * {
+ *   "antiAffinity": "hard",
+ *   "zookeeperAntiAffinity": "soft",
+ *   "topologyKey": "kubernetes.io/hostname",
+ *   "nodeSelector": {"node-pool": "kafka"},
+ *   "tolerations": [{"key": "dedicated", "operator": "Equal", "value": "kafka", "effect": "NoSchedule"}]
+ * }
+ * </code></pre>
+ * {@code antiAffinity} keeps the pods of the cluster apart from each other, and {@code zookeeperAntiAffinity}
+ * (for Kafka only) keeps the brokers apart from the ZooKeeper nodes of the same cluster.
+ * A hard anti-affinity stops a pod being scheduled at all rather than share a topology domain;
+ * a soft one is only a preference. The {@code topologyKey} is the node label defining the domains,
+ * so anti-affinity on {@code failure-domain.beta.kubernetes.io/zone} spreads the pods over zones.
+ */
+public class Scheduling {
+
+    public static final String ANTI_AFFINITY_FIELD = "antiAffinity";
+    public static final String ZOOKEEPER_ANTI_AFFINITY_FIELD = "zookeeperAntiAffinity";
+    public static final String TOPOLOGY_KEY_FIELD = "topologyKey";
+    public static final String NODE_SELECTOR_FIELD = "nodeSelector";
+    public static final String TOLERATIONS_FIELD = "tolerations";
+
+    public static final String DEFAULT_TOPOLOGY_KEY = "kubernetes.io/hostname";
+    private static final int SOFT_ANTI_AFFINITY_WEIGHT = 100;
+
+    private static final Set<String> TOLERATION_OPERATORS = new HashSet<>(Arrays.asList("Equal", "Exists"));
+    private static final Set<String> TOLERATION_EFFECTS = new HashSet<>(Arrays.asList("NoSchedule", "PreferNoSchedule", "NoExecute"));
+
+    public enum AntiAffinity {
+        NONE,
+        SOFT,
+        HARD;
+
+        static AntiAffinity fromJson(JsonObject json, String field) {
+            String value = json.getString(field, "none");
+            try {
+                return valueOf(value.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid " + field + " " + value + ", expected hard, soft or none");
+            }
+        }
+    }
+
+    private final AntiAffinity antiAffinity;
+    private final AntiAffinity zookeeperAntiAffinity;
+    private final String topologyKey;
+    private final Map<String, String> nodeSelector;
+    private final List<Toleration> tolerations;
+
+    private Scheduling(AntiAffinity antiAffinity, AntiAffinity zookeeperAntiAffinity, String topologyKey,
+                       Map<String, String> nodeSelector, List<Toleration> tolerations) {
+        this.antiAffinity = antiAffinity;
+        this.zookeeperAntiAffinity = zookeeperAntiAffinity;
+        this.topologyKey = topologyKey;
+        this.nodeSelector = nodeSelector;
+        this.tolerations = tolerations;
+    }
+
+    /**
+     * @return No constraints, leaving scheduling entirely to the scheduler.
+     */
+    public static Scheduling empty() {
+        return new Scheduling(AntiAffinity.NONE, AntiAffinity.NONE, DEFAULT_TOPOLOGY_KEY,
+                Collections.emptyMap(), Collections.emptyList());
+    }
+
+    /**
+     * Parse and validate the scheduling constraints from the cluster ConfigMap.
+     *
+     * @param json The JSON object with the constraints.
+     * @param isKafka Whether {@code zookeeperAntiAffinity} is supported.
+     * @return The constraints.
+     * @throws IllegalArgumentException If a constraint isn't valid.
+     */
+    public static Scheduling fromJson(JsonObject json, boolean isKafka) {
+        if (!isKafka && json.containsKey(ZOOKEEPER_ANTI_AFFINITY_FIELD)) {
+            throw new IllegalArgumentException(ZOOKEEPER_ANTI_AFFINITY_FIELD + " is only supported for Kafka");
+        }
+        String topologyKey = json.getString(TOPOLOGY_KEY_FIELD, DEFAULT_TOPOLOGY_KEY);
+        if (topologyKey.isEmpty()) {
+            throw new IllegalArgumentException(TOPOLOGY_KEY_FIELD + " can't be empty");
+        }
+
+        Map<String, String> nodeSelector = new TreeMap<>();
+        JsonObject nodeSelectorJson = json.getJsonObject(NODE_SELECTOR_FIELD);
+        if (nodeSelectorJson != null) {
+            nodeSelectorJson.forEach(entry -> nodeSelector.put(entry.getKey(), String.valueOf(entry.getValue())));
+        }
+
+        List<Toleration> tolerations = new ArrayList<>();
+        JsonArray tolerationsJson = json.getJsonArray(TOLERATIONS_FIELD);
+        if (tolerationsJson != null) {
+            for (int i = 0; i < tolerationsJson.size(); i++) {
+                tolerations.add(toleration(tolerationsJson.getJsonObject(i)));
+            }
+        }
+
+        return new Scheduling(AntiAffinity.fromJson(json, ANTI_AFFINITY_FIELD),
+                AntiAffinity.fromJson(json, ZOOKEEPER_ANTI_AFFINITY_FIELD),
+                topologyKey,
+                Collections.unmodifiableMap(nodeSelector),
+                Collections.unmodifiableList(tolerations));
+    }
+
+    private static Toleration toleration(JsonObject json) {
+        String operator = json.getString("operator", "Equal");
+        if (!TOLERATION_OPERATORS.contains(operator)) {
+            throw new IllegalArgumentException("Invalid toleration operator " + operator + ", expected one of " + TOLERATION_OPERATORS);
+        }
+        String effect = json.getString("effect");
+        if (effect != null && !TOLERATION_EFFECTS.contains(effect)) {
+            throw new IllegalArgumentException("Invalid toleration effect " + effect + ", expected one of " + TOLERATION_EFFECTS);
+        }
+        if ("Exists".equals(operator) && json.getString("value") != null) {
+            throw new IllegalArgumentException("A toleration with operator Exists can't have a value");
+        }
+        return new TolerationBuilder()
+                .withKey(json.getString("key"))
+                .withOperator(operator)
+                .withValue(json.getString("value"))
+                .withEffect(effect)
+                .withTolerationSeconds(json.getLong("tolerationSeconds"))
+                .build();
+    }
+
+    /**
+     * Generate the affinity for the pods of a cluster.
+     *
+     * @param selector The labels selecting the pods of the cluster.
+     * @param zookeeperSelector The labels selecting the ZooKeeper pods of the same cluster, or null for ZooKeeper itself.
+     * @return The affinity, or null if there's no anti-affinity.
+     */
+    public Affinity toAffinity(Map<String, String> selector, Map<String, String> zookeeperSelector) {
+        List<PodAffinityTerm> required = new ArrayList<>();
+        List<WeightedPodAffinityTerm> preferred = new ArrayList<>();
+        addTerm(antiAffinity, selector, required, preferred);
+        if (zookeeperSelector != null) {
+            addTerm(zookeeperAntiAffinity, zookeeperSelector, required, preferred);
+        }
+        if (required.isEmpty() && preferred.isEmpty()) {
+            return null;
+        }
+        return new AffinityBuilder()
+                .withNewPodAntiAffinity()
+                    .withRequiredDuringSchedulingIgnoredDuringExecution(required.isEmpty() ? null : required)
+                    .withPreferredDuringSchedulingIgnoredDuringExecution(preferred.isEmpty() ? null : preferred)
+                .endPodAntiAffinity()
+                .build();
+    }
+
+    private void addTerm(AntiAffinity type, Map<String, String> selector,
+                         List<PodAffinityTerm> required, List<WeightedPodAffinityTerm> preferred) {
+        if (type == AntiAffinity.NONE) {
+            return;
+        }
+        PodAffinityTerm term = new PodAffinityTermBuilder()
+                .withLabelSelector(new LabelSelectorBuilder().withMatchLabels(selector).build())
+                .withTopologyKey(topologyKey)
+                .build();
+        if (type == AntiAffinity.HARD) {
+            required.add(term);
+        } else {
+            preferred.add(new WeightedPodAffinityTermBuilder()
+                    .withWeight(SOFT_ANTI_AFFINITY_WEIGHT)
+                    .withPodAffinityTerm(term)
+                    .build());
+        }
+    }
+
+    /**
+     * @return The node selector, or null if there's none.
+     */
+    public Map<String, String> getNodeSelector() {
+        return nodeSelector.isEmpty() ? null : nodeSelector;
+    }
+
+    /**
+     * @return The tolerations, or null if there are none.
+     */
+    public List<Toleration> getTolerations() {
+        return tolerations.isEmpty() ? null : tolerations;
+    }
+
+    /**
+     * Scheduling constraints only apply when a pod is scheduled, so a change needs the pods restarting
+     * when it could leave a running pod somewhere it's no longer allowed to be: a changed hard anti-affinity
+     * or node selector, or a removed toleration. Dropping a hard constraint altogether, a changed soft
+     * anti-affinity or an added toleration don't, and take effect whenever the pods are next restarted.
+     *
+     * @param desiredAffinity The desired affinity.
+     * @param desiredNodeSelector The desired node selector.
+     * @param desiredTolerations The desired tolerations.
+     * @param deployedAffinity The affinity of the deployed pod template.
+     * @param deployedNodeSelector The node selector of the deployed pod template.
+     * @param deployedTolerations The tolerations of the deployed pod template.
+     * @return Whether the change needs a rolling update.
+     */
+    static boolean needsRollingUpdate(Affinity desiredAffinity, Map<String, String> desiredNodeSelector, List<Toleration> desiredTolerations,
+                                      Affinity deployedAffinity, Map<String, String> deployedNodeSelector, List<Toleration> deployedTolerations) {
+        List<PodAffinityTerm> desiredRequired = required(desiredAffinity);
+        if (!desiredRequired.isEmpty() && !desiredRequired.equals(required(deployedAffinity))) {
+            return true;
+        }
+        Map<String, String> desiredSelector = desiredNodeSelector != null ? desiredNodeSelector : Collections.emptyMap();
+        if (!desiredSelector.isEmpty()
+                && !desiredSelector.equals(deployedNodeSelector != null ? deployedNodeSelector : Collections.emptyMap())) {
+            return true;
+        }
+        List<Toleration> removed = new ArrayList<>(deployedTolerations != null ? deployedTolerations : Collections.emptyList());
+        removed.removeAll(desiredTolerations != null ? desiredTolerations : Collections.emptyList());
+        return !removed.isEmpty();
+    }
+
+    private static List<PodAffinityTerm> required(Affinity affinity) {
+        PodAntiAffinity antiAffinity = affinity != null ? affinity.getPodAntiAffinity() : null;
+        if (antiAffinity == null || antiAffinity.getRequiredDuringSchedulingIgnoredDuringExecution() == null) {
+            return Collections.emptyList();
+        }
+        return antiAffinity.getRequiredDuringSchedulingIgnoredDuringExecution();
+    }
+}
@@ -3,8 +3,12 @@ package io.strimzi.controller.cluster.resources;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
 import io.fabric8.kubernetes.api.model.Quantity;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -19,12 +23,14 @@ public class Storage {
     public static final String SELECTOR_FIELD = "selector";
     public static final String SELECTOR_MATCH_LABELS_FIELD = "match-labels";
     public static final String DELETE_CLAIM_FIELD = "delete-claim";
+    public static final String VOLUMES_FIELD = "volumes";
 
     private final StorageType type;
     private Quantity size;
     private String storageClass;
     private LabelSelector selector;
     private boolean isDeleteClaim = false;
+    private List<Storage> volumes = Collections.emptyList();
 
     /**
      * Constructor
@@ -80,6 +86,17 @@ public class Storage {
         return this;
     }
 
+    /**
+     * Specify the volumes (for "jbod" type), each one a "persistent-claim" storage
+     *
+     * @param volumes   the volumes
+     * @return  current Storage instance
+     */
+    public Storage withVolumes(final List<Storage> volumes) {
+        this.volumes = Collections.unmodifiableList(new ArrayList<>(volumes));
+        return this;
+    }
+
     /**
      * Returns a Storage instance from a corresponding JSON representation
      *
@@ -95,6 +112,10 @@ public class Storage {
 
         Storage storage = new Storage(StorageType.from(type));
 
+        if (storage.type() == StorageType.JBOD) {
+            return jbodFromJson(json, storage);
+        }
+
         String size = json.getString(Storage.SIZE_FIELD);
         if (size != null) {
             storage.withSize(new Quantity(size));
@@ -124,6 +145,42 @@ public class Storage {
         return storage;
     }
 
+    /**
+     * Parse the volumes of a "jbod" storage, each one a "persistent-claim" storage
+     * with its own size, class and selector. The delete-claim flag applies to all of them.
+     */
+    private static Storage jbodFromJson(JsonObject json, Storage storage) {
+
+        if (json.containsKey(Storage.SIZE_FIELD) || json.containsKey(Storage.STORAGE_CLASS_FIELD) || json.containsKey(Storage.SELECTOR_FIELD)) {
+            throw new IllegalArgumentException("Storage '" + Storage.SIZE_FIELD + "', '" + Storage.STORAGE_CLASS_FIELD + "' and '"
+                    + Storage.SELECTOR_FIELD + "' are set for each of the '" + Storage.VOLUMES_FIELD + "' of jbod storage");
+        }
+
+        JsonArray volumesJson = json.getJsonArray(Storage.VOLUMES_FIELD);
+        if (volumesJson == null || volumesJson.isEmpty()) {
+            throw new IllegalArgumentException("Storage '" + Storage.VOLUMES_FIELD + "' is mandatory for jbod storage");
+        }
+
+        List<Storage> volumes = new ArrayList<>(volumesJson.size());
+        for (int i = 0; i < volumesJson.size(); i++) {
+            JsonObject volumeJson = volumesJson.getJsonObject(i).copy();
+            if (!StorageType.PERSISTENT_CLAIM.type.equals(volumeJson.getString(Storage.TYPE_FIELD, StorageType.PERSISTENT_CLAIM.type))) {
+                throw new IllegalArgumentException("The '" + Storage.VOLUMES_FIELD + "' of jbod storage must be persistent-claim");
+            }
+            if (volumeJson.containsKey(Storage.DELETE_CLAIM_FIELD)) {
+                throw new IllegalArgumentException("Storage '" + Storage.DELETE_CLAIM_FIELD + "' is set for the whole jbod storage");
+            }
+            volumes.add(fromJson(volumeJson.put(Storage.TYPE_FIELD, StorageType.PERSISTENT_CLAIM.type)));
+        }
+        storage.withVolumes(volumes);
+
+        if (json.getValue(Storage.DELETE_CLAIM_FIELD) instanceof Boolean) {
+            storage.withDeleteClaim(json.getBoolean(Storage.DELETE_CLAIM_FIELD));
+        }
+
+        return storage;
+    }
+
     /**
      * Returns a Storage instance from a corresponding PersistentVolumeClaim
      *
@@ -143,6 +200,22 @@ public class Storage {
         return storage;
     }
 
+    /**
+     * Returns a "jbod" Storage instance from the corresponding PersistentVolumeClaims, one for each volume
+     *
+     * @param pvcs  PersistentVolumeClaim representations
+     * @return  Storage instance
+     */
+    public static Storage fromPersistentVolumeClaims(List<PersistentVolumeClaim> pvcs) {
+
+        List<Storage> volumes = new ArrayList<>(pvcs.size());
+        for (PersistentVolumeClaim pvc : pvcs) {
+            volumes.add(fromPersistentVolumeClaim(pvc));
+        }
+
+        return new Storage(StorageType.JBOD).withVolumes(volumes);
+    }
+
     /**
      * Compute the difference between two Storage instances
      *
@@ -156,10 +229,26 @@ public class Storage {
         diffResult
                 .withDifferentType(this.type != other.type())
                 .withDifferentSize(!this.compareSize(other.size()))
+                .withShrunkSize(this.isSmaller(other.size()))
                 .withDifferentDeleteClaim(this.isDeleteClaim != other.isDeleteClaim())
                 .withDifferentStorageClass(!this.compareStorageClass(other.storageClass()))
                 .withDifferentSelector(!this.compareSelector(other.selector()));
 
+        // the volumes of a jbod storage are compared one by one
+        if (this.type == StorageType.JBOD && other.type() == StorageType.JBOD) {
+            if (this.volumes.size() != other.volumes().size()) {
+                diffResult.withDifferentVolumes(true);
+            } else {
+                for (int i = 0; i < this.volumes.size(); i++) {
+                    StorageDiffResult volumeDiffResult = this.volumes.get(i).diff(other.volumes().get(i));
+                    diffResult
+                            .withDifferentSize(diffResult.isSize() || volumeDiffResult.isSize())
+                            .withShrunkSize(diffResult.isShrunk() || volumeDiffResult.isShrunk())
+                            .withDifferentStorageClass(diffResult.isStorageClass() || volumeDiffResult.isStorageClass())
+                            .withDifferentSelector(diffResult.isSelector() || volumeDiffResult.isSelector());
+                }
+            }
+        }
 
         return diffResult;
     }
@@ -172,8 +261,23 @@ public class Storage {
      */
     private boolean compareSize(Quantity other) {
 
-        return this.size == null ?
-                other == null : this.size.getAmount().equals(other.getAmount());
+        if (this.size == null || other == null) {
+            return this.size == null && other == null;
+        }
+        // the same size can be given in different units
+        return Resources.parse(this.size.getAmount()).compareTo(Resources.parse(other.getAmount())) == 0;
+    }
+
+    /**
+     * Check if the Storage size is smaller than another one
+     *
+     * @param other the other Storage size
+     * @return  if both sizes are given and the current one is smaller
+     */
+    private boolean isSmaller(Quantity other) {
+
+        return this.size != null && other != null &&
+                Resources.parse(this.size.getAmount()).compareTo(Resources.parse(other.getAmount())) < 0;
     }
 
     /**
@@ -227,6 +331,8 @@ public class Storage {
         private boolean isStorageClass;
         private boolean isSelector;
         private boolean isDeleteClaim;
+        private boolean isVolumes;
+        private boolean isShrunk;
 
         /**
          * @return  if the Storage type is different
@@ -263,6 +369,20 @@ public class Storage {
             return this.isDeleteClaim;
         }
 
+        /**
+         * @return  if the number of volumes (for "jbod" type) is different
+         */
+        public boolean isVolumes() {
+            return this.isVolumes;
+        }
+
+        /**
+         * @return  if the Storage size is smaller, which volumes can't be
+         */
+        public boolean isShrunk() {
+            return this.isShrunk;
+        }
+
         /**
          * Set if the Storage type is different
          *
@@ -317,6 +437,28 @@ public class Storage {
             this.isDeleteClaim = isDeleteClaim;
             return this;
         }
+
+        /**
+         * Set if the number of volumes (for "jbod" type) is different
+         *
+         * @param isVolumes if the number of volumes is different
+         * @return  current StorageDiffResult instance
+         */
+        public StorageDiffResult withDifferentVolumes(boolean isVolumes) {
+            this.isVolumes = isVolumes;
+            return this;
+        }
+
+        /**
+         * Set if the Storage size is smaller
+         *
+         * @param isShrunk  if the size is smaller
+         * @return  current StorageDiffResult instance
+         */
+        public StorageDiffResult withShrunkSize(boolean isShrunk) {
+            this.isShrunk = isShrunk;
+            return this;
+        }
     }
 
 
@@ -327,7 +469,8 @@ public class Storage {
 
         EPHEMERAL("ephemeral"),
         PERSISTENT_CLAIM("persistent-claim"),
-        LOCAL("local");
+        LOCAL("local"),
+        JBOD("jbod");
 
         private final String type;
 
@@ -348,6 +491,8 @@ public class Storage {
                 return PERSISTENT_CLAIM;
             } else if (type.equals(LOCAL.type)) {
                 return LOCAL;
+            } else if (type.equals(JBOD.type)) {
+                return JBOD;
             } else {
                 throw new IllegalArgumentException("Unknown type: " + type);
             }
@@ -383,10 +528,24 @@ public class Storage {
     }
 
     /**
-     * @return  if the claims (for "persistent-claim" type) have to be deleted
+     * @return  if the claims (for "persistent-claim" and "jbod" types) have to be deleted
      *          when the entire cluster is deleted
      */
     public boolean isDeleteClaim() {
         return this.isDeleteClaim;
     }
+
+    /**
+     * @return  the volumes (for "jbod" type), otherwise an empty list
+     */
+    public List<Storage> volumes() {
+        return this.volumes;
+    }
+
+    /**
+     * @return  if the storage is backed by PersistentVolumeClaims
+     */
+    public boolean isPersistent() {
+        return this.type == StorageType.PERSISTENT_CLAIM || this.type == StorageType.JBOD;
+    }
 }
@@ -37,6 +37,7 @@ public class ZookeeperCluster extends AbstractCluster {
     private static int DEFAULT_REPLICAS = 3;
     private static int DEFAULT_HEALTHCHECK_DELAY = 15;
     private static int DEFAULT_HEALTHCHECK_TIMEOUT = 5;
+    private static double DEFAULT_HEAP_FRACTION = 0.75;
     private static boolean DEFAULT_ZOOKEEPER_METRICS_ENABLED = false;
 
     // Zookeeper configuration defaults
@@ -49,6 +50,9 @@ public class ZookeeperCluster extends AbstractCluster {
     private static String KEY_HEALTHCHECK_TIMEOUT = "zookeeper-healthcheck-timeout";
     private static String KEY_METRICS_CONFIG = "zookeeper-metrics-config";
     private static String KEY_STORAGE = "zookeeper-storage";
+    private static String KEY_RESOURCES = "zookeeper-resources";
+    private static String KEY_JVM_OPTIONS = "zookeeper-jvm-options";
+    private static String KEY_SCHEDULING = "zookeeper-scheduling";
 
     // Zookeeper configuration keys
     private static String KEY_ZOOKEEPER_NODE_COUNT = "ZOOKEEPER_NODE_COUNT";
@@ -83,6 +87,7 @@ public class ZookeeperCluster extends AbstractCluster {
         this.healthCheckPath = "/opt/kafka/zookeeper_healthcheck.sh";
         this.healthCheckTimeout = DEFAULT_HEALTHCHECK_TIMEOUT;
         this.healthCheckInitialDelay = DEFAULT_HEALTHCHECK_DELAY;
+        this.heapFraction = DEFAULT_HEAP_FRACTION;
         this.isMetricsEnabled = DEFAULT_ZOOKEEPER_METRICS_ENABLED;
 
         this.mounthPath = "/var/lib/zookeeper";
@@ -116,7 +121,26 @@ public class ZookeeperCluster extends AbstractCluster {
         }
 
         String storageConfig = cm.getData().get(KEY_STORAGE);
-        zk.setStorage(Storage.fromJson(new JsonObject(storageConfig)));
+        Storage storage = Storage.fromJson(new JsonObject(storageConfig));
+        if (storage.type() == Storage.StorageType.JBOD) {
+            throw new IllegalArgumentException("Storage type jbod is only supported for Kafka");
+        }
+        zk.setStorage(storage);
+
+        String resources = cm.getData().get(KEY_RESOURCES);
+        if (resources != null) {
+            zk.setResources(Resources.fromJson(new JsonObject(resources)));
+        }
+        String jvmOptions = cm.getData().get(KEY_JVM_OPTIONS);
+        if (jvmOptions != null) {
+            zk.setJvmOptions(JvmOptions.fromJson(new JsonObject(jvmOptions)));
+        }
+        zk.validateJvmOptions();
+
+        String scheduling = cm.getData().get(KEY_SCHEDULING);
+        if (scheduling != null) {
+            zk.setScheduling(Scheduling.fromJson(new JsonObject(scheduling), false));
+        }
 
         return zk;
     }
@@ -138,6 +162,7 @@ public class ZookeeperCluster extends AbstractCluster {
         zk.setImage(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getImage());
         zk.setHealthCheckInitialDelay(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getInitialDelaySeconds());
         zk.setHealthCheckInitialDelay(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getReadinessProbe().getTimeoutSeconds());
+        zk.setResources(Resources.fromResourceRequirements(ss.getSpec().getTemplate().getSpec().getContainers().get(0).getResources()));
 
         Map<String, String> vars = ss.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream().collect(
                 Collectors.toMap(EnvVar::getName, EnvVar::getValue));
@@ -210,6 +235,14 @@ public class ZookeeperCluster extends AbstractCluster {
         Map<String, String> vars = ss.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream().collect(
                 Collectors.toMap(EnvVar::getName, EnvVar::getValue));
 
+        if (isResourcesOrJvmChanged(ss.getSpec().getTemplate().getSpec().getContainers().get(0), vars)) {
+            diff.setDifferent(true);
+            diff.setRollingUpdate(true);
+        }
+
+        diffScheduling(ss.getSpec().getTemplate().getSpec(), diff);
+        diffVolumeMountHack(ss.getSpec().getTemplate().getSpec(), diff);
+
         if (isMetricsEnabled != Boolean.parseBoolean(vars.getOrDefault(KEY_ZOOKEEPER_METRICS_ENABLED, String.valueOf(DEFAULT_ZOOKEEPER_METRICS_ENABLED)))) {
             log.info("Diff: Zookeeper metrics enabled/disabled");
             diff.setMetricsChanged(true);
@@ -241,16 +274,21 @@ public class ZookeeperCluster extends AbstractCluster {
         Storage.StorageDiffResult storageDiffResult = storage.diff(ssStorage);
 
         // check for all the not allowed changes to the storage
-        boolean isStorageRejected = (storageDiffResult.isType() || storageDiffResult.isSize() ||
+        boolean isStorageRejected = (storageDiffResult.isType() || storageDiffResult.isShrunk() ||
                 storageDiffResult.isStorageClass() || storageDiffResult.isSelector());
 
-        // only delete-claim flag can be changed
+        // only delete-claim flag can be changed, and the volumes expanded
         if (!isStorageRejected && (storage.type() == Storage.StorageType.PERSISTENT_CLAIM)) {
             if (storageDiffResult.isDeleteClaim()) {
                 diff.setDifferent(true);
             }
+            if (storageDiffResult.isSize()) {
+                log.info("Diff: Storage size increased");
+                diff.setDifferent(true);
+                diff.setStorageExpanded(true);
+            }
         } else if (isStorageRejected) {
-            log.warn("Changing storage configuration other than delete-claim is not supported !");
+            log.warn("Changing storage configuration other than delete-claim and increasing the size is not supported !");
         }
 
         return diff;
@@ -317,6 +355,8 @@ public class ZookeeperCluster extends AbstractCluster {
         varList.add(new EnvVarBuilder().withName(KEY_ZOOKEEPER_NODE_COUNT).withValue(Integer.toString(replicas)).build());
         varList.add(new EnvVarBuilder().withName(KEY_ZOOKEEPER_METRICS_ENABLED).withValue(String.valueOf(isMetricsEnabled)).build());
 
+        addJvmEnvVars(varList);
+
         return varList;
     }
 
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@RunWith(VertxUnitRunner.class)
+public class BoundedFanOutTest {
+
+    private static Vertx vertx;
+
+    @BeforeClass
+    public static void beforeClass() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        vertx.close();
+    }
+
+    @Test
+    public void testEmpty(TestContext context) {
+        Async async = context.async();
+        BoundedFanOut.run(Collections.emptyList(), 3).setHandler(ar -> {
+            context.assertTrue(ar.succeeded());
+            context.assertEquals(0, ar.result());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testParallelismIsBounded(TestContext context) {
+        int parallelism = 3;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        List<Supplier<Future<Void>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            boolean fail = i % 5 == 0;
+            tasks.add(() -> {
+                started.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Future<Void> f = Future.future();
+                vertx.setTimer(5, t -> {
+                    inFlight.decrementAndGet();
+                    if (fail) {
+                        f.fail("failed");
+                    } else {
+                        f.complete();
+                    }
+                });
+                return f;
+            });
+        }
+        Async async = context.async();
+        BoundedFanOut.run(tasks, parallelism).setHandler(ar -> {
+            context.assertTrue(ar.succeeded());
+            context.assertEquals(4, ar.result());
+            context.assertEquals(20, started.get());
+            context.assertEquals(parallelism, maxInFlight.get());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testThrowingTaskCountsAsFailure(TestContext context) {
+        List<Supplier<Future<Void>>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new RuntimeException("boom");
+        });
+        tasks.add(Future::succeededFuture);
+        Async async = context.async();
+        BoundedFanOut.run(tasks, 1).setHandler(ar -> {
+            context.assertTrue(ar.succeeded());
+            context.assertEquals(1, ar.result());
+            async.complete();
+        });
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.strimzi.controller.cluster;
+
+import io.strimzi.controller.cluster.operations.resource.AbstractOperations;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterControllerConfigTest {
+
+    private final Map<String, String> labels = singletonMap("strimzi.io/kind", "cluster");
+
+    @Test
+    public void testSingleNamespace() {
+        ClusterControllerConfig config = new ClusterControllerConfig("ns", labels);
+        assertEquals(Collections.singleton("ns"), config.getNamespaces());
+        assertFalse(config.isAllNamespaces());
+        assertEquals("ns", config.getLeaderElectionLockNamespace());
+    }
+
+    @Test
+    public void testAllNamespaces() {
+        ClusterControllerConfig config = new ClusterControllerConfig(AbstractOperations.ANY_NAMESPACE, labels);
+        assertTrue(config.isAllNamespaces());
+        // The lock has to be put somewhere explicitly
+        assertNull(config.getLeaderElectionLockNamespace());
+        config.setLeaderElectionLockNamespace("strimzi");
+        assertEquals("strimzi", config.getLeaderElectionLockNamespace());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllNamespacesAlongWithOthers() {
+        new ClusterControllerConfig(new HashSet<>(Arrays.asList("ns", AbstractOperations.ANY_NAMESPACE)), labels);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoNamespaces() {
+        new ClusterControllerConfig(Collections.emptySet(), labels);
+    }
+}
@@ -17,6 +17,10 @@
 
 package io.strimzi.controller.cluster;
 
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.strimzi.controller.cluster.resources.AbstractCluster;
+import io.strimzi.controller.cluster.resources.KafkaCluster;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.junit.AfterClass;
@@ -25,9 +29,16 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(VertxUnitRunner.class)
 public class ClusterControllerTest {
@@ -55,4 +66,38 @@ public class ClusterControllerTest {
 
         //cc.
     }
+
+    @Test
+    public void testIsApplied() {
+        ConfigMap cm = ResourceUtils.createConfigMap("ns", "foo", 3, "image", 120, 30, "{}");
+        StatefulSet ss = KafkaCluster.fromConfigMap(cm).generateStatefulSet(false);
+        String hash = AbstractCluster.configHash(cm, singletonList(ss));
+        assertFalse(ClusterController.isApplied(hash, null));
+        assertFalse(ClusterController.isApplied(hash, ss));
+
+        ss.getMetadata().getAnnotations().put(ClusterController.STRIMZI_CONFIG_HASH_ANNOTATION, hash);
+        assertTrue(ClusterController.isApplied(hash, ss));
+        // an invalid ConfigMap has no hash, and is never taken to be applied
+        assertFalse(ClusterController.isApplied(null, ss));
+
+        ConfigMap changed = ResourceUtils.createConfigMap("ns", "foo", 4, "image", 120, 30, "{}");
+        assertFalse(ClusterController.isApplied(AbstractCluster.configHash(changed, singletonList(ss)), ss));
+    }
+
+    @Test
+    public void testDeferReconciliation() {
+        Map<Integer, Boolean> pending = new LinkedHashMap<>();
+        ClusterController.defer(pending, 1, false);
+        ClusterController.defer(pending, 0, true);
+        ClusterController.defer(pending, 1, true);
+        assertEquals(asList(1, 0), new ArrayList<>(pending.keySet()));
+        assertTrue(pending.get(1));
+
+        // a reconciliation of all the clusters supersedes those of single slices ...
+        ClusterController.defer(pending, -1, false);
+        assertEquals(singletonMap(-1, true), pending);
+        // ... including any requested later
+        ClusterController.defer(pending, 2, false);
+        assertEquals(singletonMap(-1, true), pending);
+    }
 }
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.strimzi.controller.cluster;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Replaceable;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class LeaderElectorTest {
+
+    private static final String NAMESPACE = "test";
+    private static final String LOCK = "test-lock";
+    private static final long LEASE_MS = 1_500;
+
+    private Vertx vertx;
+    private KubernetesClient client;
+    /** The lock ConfigMap as stored on the "server" */
+    private final AtomicReference<ConfigMap> stored = new AtomicReference<>();
+    private final AtomicInteger replaces = new AtomicInteger();
+    private volatile String lockedVersion;
+    /** While set, getting the lock hangs until it's counted down */
+    private volatile CountDownLatch hang;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        vertx = Vertx.vertx();
+
+        Replaceable replaceable = mock(Replaceable.class);
+        when(replaceable.replace(any())).thenAnswer(invocation -> {
+            synchronized (stored) {
+                if (!stored.get().getMetadata().getResourceVersion().equals(lockedVersion)) {
+                    throw new KubernetesClientException("Conflict", 409, null);
+                }
+                store(invocation.getArgument(0));
+            }
+            replaces.incrementAndGet();
+            return invocation.getArgument(0);
+        });
+        Resource lock = mock(Resource.class);
+        when(lock.get()).thenAnswer(invocation -> {
+            CountDownLatch latch = hang;
+            if (latch != null) {
+                latch.await();
+            }
+            ConfigMap cm = stored.get();
+            return cm == null ? null : new ConfigMapBuilder(cm).build();
+        });
+        when(lock.lockResourceVersion(anyString())).thenAnswer(invocation -> {
+            lockedVersion = invocation.getArgument(0);
+            return replaceable;
+        });
+
+        MixedOperation configMaps = mock(MixedOperation.class);
+        when(configMaps.inNamespace(NAMESPACE)).thenReturn(configMaps);
+        when(configMaps.withName(LOCK)).thenReturn(lock);
+        when(configMaps.create(any())).thenAnswer(invocation -> {
+            store(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        client = mock(KubernetesClient.class);
+        when(client.configMaps()).thenReturn(configMaps);
+    }
+
+    @After
+    public void after() {
+        CountDownLatch latch = hang;
+        if (latch != null) {
+            latch.countDown();
+        }
+        vertx.close();
+    }
+
+    private void store(ConfigMap cm) {
+        ConfigMap copy = new ConfigMapBuilder(cm).build();
+        ConfigMap previous = stored.get();
+        copy.getMetadata().setResourceVersion(String.valueOf(
+                previous == null ? 1 : Integer.parseInt(previous.getMetadata().getResourceVersion()) + 1));
+        stored.set(copy);
+    }
+
+    private void storeRecord(LeaderElector.Record record) {
+        synchronized (stored) {
+            store(new ConfigMapBuilder()
+                    .withNewMetadata()
+                        .withName(LOCK)
+                        .withNamespace(NAMESPACE)
+                        .addToAnnotations(LeaderElector.LEADER_ANNOTATION, record.toJson())
+                    .endMetadata()
+                    .build());
+        }
+    }
+
+    private LeaderElector.Record storedRecord() {
+        return LeaderElector.Record.fromJson(stored.get().getMetadata().getAnnotations().get(LeaderElector.LEADER_ANNOTATION));
+    }
+
+    /**
+     * Start an elector for "pod-a" on a context of its own, as the controller would,
+     * passing each change of leadership to the given handler.
+     */
+    private LeaderElector startElector(List<Boolean> transitions, Consumer<Boolean> onTransition) {
+        LeaderElector elector = new LeaderElector(vertx, client, NAMESPACE, LOCK, "pod-a", LEASE_MS, leading -> {
+            transitions.add(leading);
+            onTransition.accept(leading);
+        });
+        vertx.runOnContext(v -> elector.start());
+        return elector;
+    }
+
+    /** The elector carries on after the test has what it needs, so it may make the same transition again */
+    private static void completeOnce(Async async) {
+        if (!async.isCompleted()) {
+            async.complete();
+        }
+    }
+
+    @Test
+    public void testRecordRoundTrip() {
+        LeaderElector.Record record = new LeaderElector.Record("pod-a", 15_000, 1000, 2000, 3);
+        LeaderElector.Record parsed = LeaderElector.Record.fromJson(record.toJson());
+        assertEquals("pod-a", parsed.getHolderIdentity());
+        assertEquals(1000, parsed.getAcquireTimeMs());
+        assertEquals(3, parsed.getLeaderTransitions());
+        assertEquals(record.toJson(), parsed.toJson());
+    }
+
+    @Test
+    public void testFreeLockCanBeAcquired() {
+        assertTrue(LeaderElector.canAcquire(LeaderElector.Record.fromJson(null), "pod-a", 0, 0));
+        assertTrue(LeaderElector.canAcquire(LeaderElector.Record.fromJson(""), "pod-a", 0, 0));
+        assertTrue(LeaderElector.canAcquire(new LeaderElector.Record("", 15_000, 0, 0, 1), "pod-a", 0, 0));
+    }
+
+    @Test
+    public void testHolderCanRenew() {
+        assertTrue(LeaderElector.canAcquire(new LeaderElector.Record("pod-a", 15_000, 0, 0, 0), "pod-a", 1000, 1001));
+    }
+
+    @Test
+    public void testOtherHolderUntilLeaseExpires() {
+        LeaderElector.Record held = new LeaderElector.Record("pod-b", 15_000, 0, 0, 0);
+        // Expiry is measured from when we first observed the record, not from its own timestamps
+        assertFalse(LeaderElector.canAcquire(held, "pod-a", 100_000, 100_000));
+        assertFalse(LeaderElector.canAcquire(held, "pod-a", 100_000, 114_999));
+        assertTrue(LeaderElector.canAcquire(held, "pod-a", 100_000, 115_000));
+    }
+
+    @Test
+    public void testCreatesLockAndBecomesLeader(TestContext context) {
+        List<Boolean> transitions = new CopyOnWriteArrayList<>();
+        Async async = context.async();
+        LeaderElector elector = startElector(transitions, leading -> {
+            context.assertTrue(leading);
+            context.assertEquals("pod-a", storedRecord().getHolderIdentity());
+            context.assertFalse(Fence.get(vertx).isRaised());
+            completeOnce(async);
+        });
+        async.await();
+        assertTrue(elector.isLeader());
+    }
+
+    @Test
+    public void testAcquiresFreeLockAndRenewsIt(TestContext context) {
+        storeRecord(new LeaderElector.Record("", LEASE_MS, 0, 0, 2));
+        List<Boolean> transitions = new CopyOnWriteArrayList<>();
+        Async elected = context.async();
+        LeaderElector elector = startElector(transitions, leading -> completeOnce(elected));
+        elected.await();
+        LeaderElector.Record acquired = storedRecord();
+        assertEquals("pod-a", acquired.getHolderIdentity());
+        assertEquals(3, acquired.getLeaderTransitions());
+
+        int renewals = replaces.get();
+        Async renewed = context.async();
+        vertx.setPeriodic(elector.getRetryPeriodMs(), id -> {
+            if (replaces.get() >= renewals + 3) {
+                vertx.cancelTimer(id);
+                renewed.complete();
+            }
+        });
+        renewed.await();
+        LeaderElector.Record record = storedRecord();
+        assertEquals("pod-a", record.getHolderIdentity());
+        assertEquals(acquired.getAcquireTimeMs(), record.getAcquireTimeMs());
+        assertEquals(acquired.getLeaderTransitions(), record.getLeaderTransitions());
+        assertEquals(1, transitions.size());
+        assertTrue(elector.isLeader());
+    }
+
+    @Test
+    public void testTakesOverOnlyOnceTheLeaseExpires(TestContext context) {
+        storeRecord(new LeaderElector.Record("pod-b", LEASE_MS, 0, 0, 1));
+        Fence fence = Fence.get(vertx);
+        long startMs = System.currentTimeMillis();
+        List<Boolean> transitions = new CopyOnWriteArrayList<>();
+        Async elected = context.async();
+        startElector(transitions, leading -> completeOnce(elected));
+        elected.await();
+        assertTrue(System.currentTimeMillis() - startMs >= LEASE_MS);
+        LeaderElector.Record record = storedRecord();
+        assertEquals("pod-a", record.getHolderIdentity());
+        assertEquals(2, record.getLeaderTransitions());
+        assertFalse(fence.isRaised());
+    }
+
+    @Test
+    public void testStepsDownWhenTheLeaseIsTaken(TestContext context) {
+        List<Boolean> transitions = new CopyOnWriteArrayList<>();
+        Async elected = context.async();
+        Async steppedDown = context.async();
+        AtomicReference<Long> lostMs = new AtomicReference<>();
+        LeaderElector elector = startElector(transitions, leading -> {
+            if (leading) {
+                completeOnce(elected);
+            } else {
+                completeOnce(steppedDown);
+            }
+        });
+        elected.await();
+        // another replica takes the lock, as if this one's renewals hadn't been getting through
+        synchronized (stored) {
+            storeRecord(new LeaderElector.Record("pod-b", LEASE_MS, 0, 0, 2));
+            lostMs.set(System.currentTimeMillis());
+        }
+        steppedDown.await();
+        assertTrue(System.currentTimeMillis() - lostMs.get() <= elector.getRenewDeadlineMs() + elector.getRetryPeriodMs());
+        assertEquals(2, transitions.size());
+        assertFalse(elector.isLeader());
+        assertTrue(Fence.get(vertx).isRaised());
+    }
+
+    @Test
+    public void testStepsDownWhenRenewalHangs(TestContext context) {
+        List<Boolean> transitions = new CopyOnWriteArrayList<>();
+        Async elected = context.async();
+        Async steppedDown = context.async();
+        LeaderElector elector = startElector(transitions, leading -> {
+            if (leading) {
+                hang = new CountDownLatch(1);
+                completeOnce(elected);
+            } else {
+                completeOnce(steppedDown);
+            }
+        });
+        elected.await();
+        long hungMs = System.currentTimeMillis();
+        steppedDown.await();
+        // the renewal in progress is still hung, but the deadline is enforced regardless
+        assertTrue(System.currentTimeMillis() - hungMs < LEASE_MS);
+        assertEquals(1, hang.getCount());
+        assertFalse(elector.isLeader());
+        Fence fence = Fence.get(vertx);
+        assertTrue(fence.isRaised());
+        try {
+            fence.check("patch");
+            context.fail("Expected the fence to stop the write");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster;
+
+import io.vertx.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    @Test
+    public void testRegistryIsShared() {
+        assertSame(Metrics.get(vertx), Metrics.get(vertx));
+    }
+
+    @Test
+    public void testScrape() {
+        Metrics metrics = Metrics.get(vertx);
+        metrics.increment("test_events_total", "Events", "kind", "Pod");
+        metrics.increment("test_events_total", "Events", "kind", "Pod");
+        metrics.increment("test_events_total", "Events", "kind", "Quoted \"kind\"");
+        metrics.time("test_duration_seconds", "Durations", TimeUnit.MILLISECONDS.toNanos(1500), "verb", "get");
+        metrics.time("test_duration_seconds", "Durations", TimeUnit.MILLISECONDS.toNanos(500), "verb", "get");
+        metrics.gauge("test_depth", "Depth", () -> 7);
+
+        assertEquals(2, metrics.count("test_events_total", "kind", "Pod"));
+        assertEquals(2, metrics.count("test_duration_seconds", "verb", "get"));
+        assertEquals(0, metrics.count("test_events_total", "kind", "Service"));
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape, scrape.contains("# TYPE test_events_total counter\n"));
+        assertTrue(scrape, scrape.contains("test_events_total{kind=\"Pod\"} 2\n"));
+        assertTrue(scrape, scrape.contains("test_events_total{kind=\"Quoted \\\"kind\\\"\"} 1\n"));
+        assertTrue(scrape, scrape.contains("# TYPE test_duration_seconds summary\n"));
+        assertTrue(scrape, scrape.contains("test_duration_seconds_count{verb=\"get\"} 2\n"));
+        assertTrue(scrape, scrape.contains("test_duration_seconds_sum{verb=\"get\"} 2.0\n"));
+        assertTrue(scrape, scrape.contains("test_duration_seconds_max{verb=\"get\"} 1.5\n"));
+        assertTrue(scrape, scrape.contains("# TYPE test_depth gauge\ntest_depth 7\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        Metrics metrics = Metrics.get(vertx);
+        metrics.increment("test_mismatch", "Mismatch");
+        metrics.time("test_mismatch", "Mismatch", 1);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.strimzi.controller.cluster;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReconciliationScheduleTest {
+
+    @Test
+    public void testEveryClusterInExactlyOneSlice() {
+        ReconciliationSchedule schedule = new ReconciliationSchedule(120_000, 4, new Random(0));
+        assertEquals(30_000, schedule.getTickMs());
+        int[] perSlice = new int[4];
+        for (int i = 0; i < 1000; i++) {
+            String cluster = "cluster-" + i;
+            int slices = 0;
+            for (long tick = 0; tick < 4; tick++) {
+                int slice = schedule.sliceOf(tick);
+                if (schedule.inSlice(cluster, slice)) {
+                    slices++;
+                    perSlice[slice]++;
+                }
+            }
+            assertEquals(1, slices);
+            assertTrue(schedule.inSlice(cluster, -1));
+        }
+        // Roughly even
+        for (int count : perSlice) {
+            assertTrue(count > 150);
+        }
+    }
+
+    @Test
+    public void testOffsetsSpreadOverTick() {
+        ReconciliationSchedule schedule = new ReconciliationSchedule(120_000, 2, new Random(0));
+        assertEquals(0, schedule.offsets(0).length);
+        long[] offsets = schedule.offsets(10);
+        long spacing = (long) (schedule.getTickMs() * ReconciliationSchedule.SPREAD_FRACTION / 10);
+        for (int i = 0; i < offsets.length; i++) {
+            assertTrue(offsets[i] >= i * spacing);
+            assertTrue(offsets[i] <= i * spacing + spacing / 2 + 1);
+            if (i > 0) {
+                assertTrue(offsets[i] > offsets[i - 1]);
+            }
+        }
+        assertTrue(offsets[offsets.length - 1] < schedule.getTickMs() * ReconciliationSchedule.SPREAD_FRACTION);
+    }
+
+    @Test
+    public void testIntervalOfTick() {
+        ReconciliationSchedule schedule = new ReconciliationSchedule(120_000, 4, new Random(0));
+        assertEquals(0, schedule.intervalOf(0));
+        assertEquals(0, schedule.intervalOf(3));
+        assertEquals(1, schedule.intervalOf(4));
+        assertEquals(2, schedule.intervalOf(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySlices() {
+        new ReconciliationSchedule(10, 11, new Random());
+    }
+}
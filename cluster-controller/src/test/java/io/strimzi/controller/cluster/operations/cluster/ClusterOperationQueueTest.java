@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static io.strimzi.controller.cluster.operations.cluster.ClusterOperationQueue.CREATE;
+import static io.strimzi.controller.cluster.operations.cluster.ClusterOperationQueue.DELETE;
+import static io.strimzi.controller.cluster.operations.cluster.ClusterOperationQueue.UPDATE;
+
+@RunWith(VertxUnitRunner.class)
+public class ClusterOperationQueueTest {
+
+    private static final ClusterOperationQueue.Listener NO_LISTENER = new ClusterOperationQueue.Listener() {
+        @Override
+        public void started(String key, String operation, long queuedNs) {
+        }
+
+        @Override
+        public void merged(String key, String operation, String into) {
+        }
+    };
+
+    private Vertx vertx;
+    private ClusterOperationQueue queue;
+    private List<String> started;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+        queue = new ClusterOperationQueue(vertx, NO_LISTENER);
+        started = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    /** Work which records that it started, and completes when {@code done} does. */
+    private Supplier<Future<Void>> work(String name, Future<Void> done) {
+        return () -> {
+            started.add(name);
+            return done;
+        };
+    }
+
+    @Test
+    public void testOperationsOnTheSameClusterAreSerialised(TestContext context) {
+        Async async = context.async(3);
+        Future<Void> first = Future.future();
+        queue.submit("a", CREATE, work("create-a", first), ar -> async.countDown());
+        queue.submit("a", DELETE, work("delete-a", Future.succeededFuture()), ar -> {
+            context.assertTrue(ar.succeeded());
+            context.assertEquals("[create-a, other-b, delete-a]", started.toString());
+            async.countDown();
+        });
+        queue.submit("b", UPDATE, work("other-b", Future.succeededFuture()), ar -> async.countDown());
+        vertx.setTimer(100, id -> {
+            context.assertEquals("[create-a, other-b]", started.toString());
+            context.assertEquals(1, queue.depth());
+            first.complete();
+        });
+        async.awaitSuccess(5000);
+        context.assertEquals(0, queue.depth());
+        context.assertEquals(0, queue.busy());
+    }
+
+    @Test
+    public void testUpdatesAreCoalesced(TestContext context) {
+        Async async = context.async(4);
+        Future<Void> first = Future.future();
+        queue.submit("a", UPDATE, work("update-1", first), ar -> async.countDown());
+        for (int i = 2; i <= 4; i++) {
+            queue.submit("a", UPDATE, work("update-" + i, Future.succeededFuture()), ar -> {
+                context.assertTrue(ar.succeeded());
+                async.countDown();
+            });
+        }
+        vertx.setTimer(100, id -> {
+            context.assertEquals(1, queue.depth());
+            first.complete();
+        });
+        async.awaitSuccess(5000);
+        context.assertEquals("[update-1, update-2]", started.toString());
+    }
+
+    @Test
+    public void testDeleteSupersedesPendingUpdates(TestContext context) {
+        Async async = context.async(3);
+        Future<Void> first = Future.future();
+        queue.submit("a", UPDATE, work("update-1", first), ar -> async.countDown());
+        queue.submit("a", UPDATE, work("update-2", Future.succeededFuture()), ar -> {
+            context.assertTrue(ar.succeeded());
+            async.countDown();
+        });
+        queue.submit("a", DELETE, work("delete", Future.succeededFuture()), ar -> async.countDown());
+        vertx.setTimer(100, id -> first.complete());
+        async.awaitSuccess(5000);
+        context.assertEquals("[update-1, delete]", started.toString());
+    }
+
+    @Test
+    public void testCreateAfterPendingDeleteRunsAfterIt(TestContext context) {
+        Async async = context.async(3);
+        Future<Void> first = Future.future();
+        queue.submit("a", UPDATE, work("update", first), ar -> async.countDown());
+        queue.submit("a", DELETE, work("delete", Future.succeededFuture()), ar -> async.countDown());
+        queue.submit("a", CREATE, work("create", Future.succeededFuture()), ar -> async.countDown());
+        vertx.setTimer(100, id -> first.complete());
+        async.awaitSuccess(5000);
+        context.assertEquals("[update, delete, create]", started.toString());
+    }
+
+    @Test
+    public void testFailurePropagatesAndQueueContinues(TestContext context) {
+        Async async = context.async(2);
+        queue.submit("a", UPDATE, () -> {
+            throw new RuntimeException("boom");
+        }, ar -> {
+            context.assertTrue(ar.failed());
+            async.countDown();
+        });
+        queue.submit("a", DELETE, work("delete", Future.succeededFuture()), ar -> {
+            context.assertTrue(ar.succeeded());
+            async.countDown();
+        });
+        async.awaitSuccess(5000);
+        context.assertEquals("[delete]", started.toString());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A ZooKeeper server for tests, with a client for reading and writing the JSON znodes of a Kafka cluster.
+ */
+public class EmbeddedZooKeeper implements AutoCloseable {
+
+    private final File dir;
+    private final ZooKeeperServer server;
+    private final NIOServerCnxnFactory factory;
+    private final ZooKeeper client;
+
+    public EmbeddedZooKeeper() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("strimzi").toFile();
+        server = new ZooKeeperServer(dir, dir, 1000);
+        factory = new NIOServerCnxnFactory();
+        factory.configure(new InetSocketAddress("127.0.0.1", 0), 10);
+        factory.startup(server);
+        CountDownLatch connected = new CountDownLatch(1);
+        client = new ZooKeeper(getZkConnectString(), 10_000, event -> {
+            if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        });
+        if (!connected.await(10, TimeUnit.SECONDS)) {
+            throw new IOException("Unable to connect to the embedded ZooKeeper");
+        }
+    }
+
+    public String getZkConnectString() {
+        InetSocketAddress addr = factory.getLocalAddress();
+        return addr.getAddress().getHostAddress() + ":" + addr.getPort();
+    }
+
+    /**
+     * Write the given JSON to the given znode, creating it and its parents if necessary.
+     */
+    public void write(String path, JsonObject json) throws KeeperException, InterruptedException {
+        byte[] data = json.encode().getBytes(StandardCharsets.UTF_8);
+        if (client.exists(path, false) != null) {
+            client.setData(path, data, -1);
+        } else {
+            String parent = path.substring(0, path.lastIndexOf('/'));
+            if (!parent.isEmpty() && client.exists(parent, false) == null) {
+                write(parent, new JsonObject());
+            }
+            client.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    /**
+     * @return The JSON in the given znode, or null if it doesn't exist.
+     */
+    public JsonObject read(String path) throws KeeperException, InterruptedException {
+        try {
+            return new JsonObject(new String(client.getData(path, false, null), StandardCharsets.UTF_8));
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        }
+    }
+
+    public boolean exists(String path) throws KeeperException, InterruptedException {
+        return client.exists(path, false) != null;
+    }
+
+    public void delete(String path) throws KeeperException, InterruptedException {
+        client.delete(path, -1);
+    }
+
+    public List<String> children(String path) throws KeeperException, InterruptedException {
+        try {
+            return client.getChildren(path, false);
+        } catch (KeeperException.NoNodeException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        client.close();
+        factory.shutdown();
+        server.shutdown(true);
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
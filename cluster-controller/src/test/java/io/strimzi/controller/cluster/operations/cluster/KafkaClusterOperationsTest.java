@@ -25,8 +25,13 @@ import io.strimzi.controller.cluster.operations.resource.ConfigMapOperations;
 import io.strimzi.controller.cluster.operations.resource.PvcOperations;
 import io.strimzi.controller.cluster.operations.resource.ServiceOperations;
 import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.strimzi.controller.cluster.resources.KafkaCluster;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -34,11 +39,19 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.apache.kafka.common.TopicPartition;
 import org.mockito.ArgumentCaptor;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -119,4 +132,98 @@ public class KafkaClusterOperationsTest {
         });
     }
 
+    @Test
+    public void testScaleUpRebalances(TestContext context) throws Exception {
+        ConfigMapOperations mockCmOps = mock(ConfigMapOperations.class);
+        ServiceOperations mockServiceOps = mock(ServiceOperations.class);
+        StatefulSetOperations mockSsOps = mock(StatefulSetOperations.class);
+        PvcOperations mockPvcOps = mock(PvcOperations.class);
+        EmbeddedZooKeeper zk = new EmbeddedZooKeeper();
+
+        String clusterCmName = "foo";
+        String clusterCmNamespace = "test";
+        ConfigMap clusterCm = ResourceUtils.createConfigMap(clusterCmNamespace, clusterCmName, 2, "bar", 120, 30, null);
+        clusterCm.getData().put(KafkaCluster.KEY_REBALANCE_ON_SCALE_UP, "true");
+        clusterCm.getData().put("KAFKA_ZOOKEEPER_CONNECT", zk.getZkConnectString());
+        ConfigMap oldClusterCm = ResourceUtils.createConfigMap(clusterCmNamespace, clusterCmName, 1, "bar", 120, 30, null);
+        oldClusterCm.getData().put("KAFKA_ZOOKEEPER_CONNECT", zk.getZkConnectString());
+        StatefulSet ss = KafkaCluster.fromConfigMap(oldClusterCm).generateStatefulSet(true);
+        when(mockCmOps.get(clusterCmNamespace, clusterCmName)).thenReturn(clusterCm);
+        when(mockSsOps.get(clusterCmNamespace, ss.getMetadata().getName())).thenReturn(ss);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgument(3);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(mockSsOps).scaleUp(eq(clusterCmNamespace), eq(ss.getMetadata().getName()), eq(2), any());
+
+        // Every partition is on broker 0, so the new broker 1 gets a share of them
+        Map<TopicPartition, List<Integer>> current = new HashMap<>();
+        JsonObject partitions = new JsonObject();
+        for (int p = 0; p < 4; p++) {
+            current.put(new TopicPartition("my-topic", p), singletonList(0));
+            partitions.put(String.valueOf(p), new JsonArray().add(0));
+        }
+        zk.write(KafkaZookeeper.BROKER_TOPICS_PATH + "/my-topic", new JsonObject().put("version", 1).put("partitions", partitions));
+        Map<String, JsonObject> seen = new ConcurrentHashMap<>();
+        KafkaPartitionReassignmentTest.kafkaController(zk, singletonList("/config/brokers/1"), seen, true);
+        KafkaPartitionReassignment reassignment = new KafkaPartitionReassignment(vertx, 10, 5_000) {
+            @Override
+            public Future<Map<TopicPartition, List<Integer>>> currentAssignment(String bootstrapServers) {
+                return Future.succeededFuture(current);
+            }
+        };
+
+        KafkaClusterOperations ops = new KafkaClusterOperations(vertx, true,
+                mockCmOps, mockServiceOps, mockSsOps, mockPvcOps, reassignment);
+
+        Async async = context.async();
+        ops.update(clusterCmNamespace, clusterCmName, res -> {
+            try {
+                context.assertTrue(res.succeeded());
+                verify(mockSsOps).scaleUp(eq(clusterCmNamespace), eq(ss.getMetadata().getName()), eq(2), any());
+                context.assertEquals(2, seen.get(KafkaZookeeper.REASSIGN_PARTITIONS_PATH).getJsonArray("partitions").size());
+                context.assertNotNull(seen.get("/config/brokers/1"));
+                JsonObject moved = zk.read(KafkaZookeeper.BROKER_TOPICS_PATH + "/my-topic").getJsonObject("partitions");
+                int onNewBroker = 0;
+                for (int p = 0; p < 4; p++) {
+                    onNewBroker += moved.getJsonArray(String.valueOf(p)).contains(1) ? 1 : 0;
+                }
+                context.assertEquals(2, onNewBroker);
+                context.assertTrue(zk.read("/config/brokers/1").getJsonObject("config").isEmpty());
+                zk.close();
+            } catch (Exception e) {
+                context.fail(e);
+            }
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testScaleDownFailsWhenStatefulSetIsGone(TestContext context) {
+        ConfigMapOperations mockCmOps = mock(ConfigMapOperations.class);
+        ServiceOperations mockServiceOps = mock(ServiceOperations.class);
+        StatefulSetOperations mockSsOps = mock(StatefulSetOperations.class);
+        PvcOperations mockPvcOps = mock(PvcOperations.class);
+        KafkaPartitionReassignment mockReassignment = mock(KafkaPartitionReassignment.class);
+
+        String clusterCmName = "foo";
+        String clusterCmNamespace = "test";
+        ConfigMap clusterCm = ResourceUtils.createConfigMap(clusterCmNamespace, clusterCmName, 1, "bar", 120, 30, null);
+        StatefulSet ss = KafkaCluster.fromConfigMap(
+                ResourceUtils.createConfigMap(clusterCmNamespace, clusterCmName, 2, "bar", 120, 30, null)).generateStatefulSet(true);
+        when(mockCmOps.get(clusterCmNamespace, clusterCmName)).thenReturn(clusterCm);
+        when(mockSsOps.get(clusterCmNamespace, ss.getMetadata().getName())).thenReturn(ss);
+        // deleted after the diff was computed
+        when(mockSsOps.fetch(clusterCmNamespace, ss.getMetadata().getName())).thenReturn(Future.succeededFuture(null));
+
+        KafkaClusterOperations ops = new KafkaClusterOperations(vertx, true,
+                mockCmOps, mockServiceOps, mockSsOps, mockPvcOps, mockReassignment);
+
+        Async async = context.async();
+        ops.update(clusterCmNamespace, clusterCmName, context.asyncAssertFailure(e -> {
+            verify(mockSsOps, never()).scaleDown(any(), any(), anyInt(), any());
+            verifyNoMoreInteractions(mockReassignment);
+            async.complete();
+        }));
+    }
 }
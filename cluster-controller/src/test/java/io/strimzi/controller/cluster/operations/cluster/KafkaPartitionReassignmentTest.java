@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(VertxUnitRunner.class)
+public class KafkaPartitionReassignmentTest {
+
+    private static final TopicPartition T0 = new TopicPartition("my-topic", 0);
+    private static final TopicPartition T1 = new TopicPartition("my-topic", 1);
+    private static final TopicPartition T2 = new TopicPartition("my-topic", 2);
+
+    private static final String TOPIC_PATH = KafkaZookeeper.BROKER_TOPICS_PATH + "/my-topic";
+    private static final String TOPIC_CONFIG_PATH = KafkaZookeeper.CONFIG_PATH + "/topics/my-topic";
+
+    private Vertx vertx;
+    private EmbeddedZooKeeper zk;
+
+    @Before
+    public void before() throws IOException, InterruptedException {
+        vertx = Vertx.vertx();
+        zk = new EmbeddedZooKeeper();
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        zk.close();
+        vertx.close();
+    }
+
+    /**
+     * Play the part of the Kafka controller: wait for a reassignment to be started, record the given znodes
+     * as they are at that point, then finish the reassignment, moving the replicas only if {@code succeed}.
+     */
+    static void kafkaController(EmbeddedZooKeeper zk, List<String> paths, Map<String, JsonObject> seen, boolean succeed) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (!zk.exists(KafkaZookeeper.REASSIGN_PARTITIONS_PATH)) {
+                    Thread.sleep(5);
+                }
+                JsonObject reassignment = zk.read(KafkaZookeeper.REASSIGN_PARTITIONS_PATH);
+                seen.put(KafkaZookeeper.REASSIGN_PARTITIONS_PATH, reassignment);
+                for (String path : paths) {
+                    JsonObject json = zk.read(path);
+                    if (json != null) {
+                        seen.put(path, json);
+                    }
+                }
+                if (succeed) {
+                    for (Object partition : reassignment.getJsonArray("partitions")) {
+                        JsonObject p = (JsonObject) partition;
+                        String path = KafkaZookeeper.BROKER_TOPICS_PATH + "/" + p.getString("topic");
+                        JsonObject topic = zk.read(path);
+                        topic.getJsonObject("partitions").put(String.valueOf(p.getInteger("partition")), p.getJsonArray("replicas"));
+                        zk.write(path, topic);
+                    }
+                }
+                zk.delete(KafkaZookeeper.REASSIGN_PARTITIONS_PATH);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }, "kafka-controller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static JsonObject config(String... keysAndValues) {
+        JsonObject config = new JsonObject();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            config.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return new JsonObject().put("version", 1).put("config", config);
+    }
+
+    private void createTopic() throws Exception {
+        zk.write(TOPIC_PATH, new JsonObject().put("version", 1).put("partitions", new JsonObject()
+                .put("0", new JsonArray().add(0).add(1))
+                .put("1", new JsonArray().add(1).add(0))));
+        zk.write(TOPIC_CONFIG_PATH, config("retention.ms", "1000"));
+    }
+
+    @Test
+    public void testDrainMovesReplicasToLeastLoadedBrokers() {
+        Map<TopicPartition, List<Integer>> current = new HashMap<>();
+        current.put(T0, asList(3, 0, 1));
+        current.put(T1, asList(0, 1, 2));
+        current.put(T2, asList(1, 3, 0));
+
+        Map<TopicPartition, List<Integer>> reassignment =
+                KafkaPartitionReassignment.drain(current, asList(3), asList(0, 1, 2));
+
+        // T1 doesn't involve broker 3, so it stays put
+        assertEquals(2, reassignment.size());
+        // broker 2 has the fewest replicas, and the replacement keeps the departing replica's position
+        assertEquals(asList(2, 0, 1), reassignment.get(T0));
+        // broker 2 is now as loaded as 0 and 1, but it's the only one without a replica of T2
+        assertEquals(asList(1, 2, 0), reassignment.get(T2));
+    }
+
+    @Test
+    public void testDrainWithNothingToMove() {
+        Map<TopicPartition, List<Integer>> current = Collections.singletonMap(T0, asList(0, 1));
+        assertTrue(KafkaPartitionReassignment.drain(current, asList(2, 3), asList(0, 1)).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDrainWithTooFewRemainingBrokers() {
+        Map<TopicPartition, List<Integer>> current = Collections.singletonMap(T0, asList(0, 1, 2));
+        KafkaPartitionReassignment.drain(current, asList(2), asList(0, 1));
+    }
+
+    @Test
+    public void testRebalanceOntoNewBrokers() {
+        Map<TopicPartition, List<Integer>> current = new HashMap<>();
+        for (int p = 0; p < 6; p++) {
+            current.put(new TopicPartition("my-topic", p), asList(p % 2, (p + 1) % 2));
+        }
+
+        Map<TopicPartition, List<Integer>> reassignment = KafkaPartitionReassignment.rebalance(current, asList(0, 1, 2, 3));
+
+        Map<TopicPartition, List<Integer>> target = new HashMap<>(current);
+        target.putAll(reassignment);
+        Map<Integer, Integer> replicas = KafkaPartitionReassignment.replicaCounts(target, asList(0, 1, 2, 3));
+        assertEquals(asList(3, 3, 3, 3), new ArrayList<>(replicas.values()));
+        Map<Integer, Integer> leaders = new HashMap<>();
+        for (List<Integer> r : target.values()) {
+            assertEquals(2, new HashSet<>(r).size());
+            leaders.merge(r.get(0), 1, Integer::sum);
+        }
+        for (int leaderCount : leaders.values()) {
+            assertTrue(leaderCount == 1 || leaderCount == 2);
+        }
+    }
+
+    @Test
+    public void testRebalanceOfBalancedClusterIsEmpty() {
+        Map<TopicPartition, List<Integer>> current = new HashMap<>();
+        current.put(T0, asList(0, 1));
+        current.put(T1, asList(1, 2));
+        current.put(T2, asList(2, 0));
+        assertTrue(KafkaPartitionReassignment.rebalance(current, asList(0, 1, 2)).isEmpty());
+    }
+
+    @Test
+    public void testToJson() {
+        Map<TopicPartition, List<Integer>> reassignment = Collections.singletonMap(T1, asList(2, 0));
+        assertEquals(new JsonObject("{\"version\":1,\"partitions\":[{\"topic\":\"my-topic\",\"partition\":1,\"replicas\":[2,0]}]}"),
+                KafkaPartitionReassignment.toJson(reassignment));
+    }
+
+    @Test
+    public void testReassignThrottlesUntilComplete(TestContext context) throws Exception {
+        createTopic();
+        Map<TopicPartition, List<Integer>> reassignment = Collections.singletonMap(T0, asList(2, 1));
+        List<String> paths = asList(TOPIC_CONFIG_PATH, "/config/brokers/0", "/config/brokers/1", "/config/brokers/2");
+        Map<String, JsonObject> seen = new ConcurrentHashMap<>();
+        kafkaController(zk, paths, seen, true);
+
+        Async async = context.async();
+        new KafkaPartitionReassignment(vertx, 10, 5_000).reassign(zk.getZkConnectString(), reassignment, 1_000)
+            .setHandler(context.asyncAssertSuccess(v -> {
+                try {
+                    context.assertEquals(KafkaPartitionReassignment.toJson(reassignment), seen.get(KafkaZookeeper.REASSIGN_PARTITIONS_PATH));
+                    // While the reassignment runs, the current replicas of partition 0 are throttled as leaders,
+                    // the new replica on broker 2 as a follower, and every broker involved has the throttle rate
+                    context.assertEquals(config("retention.ms", "1000",
+                            KafkaPartitionReassignment.LEADER_THROTTLED_REPLICAS, "0:0,0:1",
+                            KafkaPartitionReassignment.FOLLOWER_THROTTLED_REPLICAS, "0:2"), seen.get(TOPIC_CONFIG_PATH));
+                    for (String broker : asList("0", "1", "2")) {
+                        context.assertEquals(config(KafkaPartitionReassignment.LEADER_THROTTLED_RATE, "1000",
+                                KafkaPartitionReassignment.FOLLOWER_THROTTLED_RATE, "1000"), seen.get("/config/brokers/" + broker));
+                    }
+                    // The brokers are notified of each change, and afterwards the throttle is removed
+                    context.assertEquals(8, zk.children(KafkaZookeeper.CONFIG_CHANGES_PATH).size());
+                    context.assertEquals(config("retention.ms", "1000"), zk.read(TOPIC_CONFIG_PATH));
+                    for (String broker : asList("0", "1", "2")) {
+                        context.assertEquals(config(), zk.read("/config/brokers/" + broker));
+                    }
+                } catch (Exception e) {
+                    context.fail(e);
+                }
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void testReassignFailsWhileAnotherIsRunning(TestContext context) throws Exception {
+        createTopic();
+        JsonObject other = KafkaPartitionReassignment.toJson(Collections.singletonMap(T1, asList(0, 1)));
+        zk.write(KafkaZookeeper.REASSIGN_PARTITIONS_PATH, other);
+
+        Async async = context.async();
+        new KafkaPartitionReassignment(vertx, 10, 5_000).reassign(zk.getZkConnectString(), Collections.singletonMap(T0, asList(2, 1)), 1_000)
+            .setHandler(context.asyncAssertFailure(e -> {
+                try {
+                    context.assertEquals(other, zk.read(KafkaZookeeper.REASSIGN_PARTITIONS_PATH));
+                    context.assertEquals(config("retention.ms", "1000"), zk.read(TOPIC_CONFIG_PATH));
+                    context.assertTrue(zk.children("/config/brokers").isEmpty());
+                } catch (Exception ex) {
+                    context.fail(ex);
+                }
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void testFailedReassignmentRemovesThrottle(TestContext context) throws Exception {
+        createTopic();
+        kafkaController(zk, Collections.emptyList(), new ConcurrentHashMap<>(), false);
+
+        Async async = context.async();
+        new KafkaPartitionReassignment(vertx, 10, 5_000).reassign(zk.getZkConnectString(), Collections.singletonMap(T0, asList(2, 1)), 1_000)
+            .setHandler(context.asyncAssertFailure(e -> {
+                try {
+                    context.assertTrue(e.getMessage().contains("my-topic-0"), e.getMessage());
+                    context.assertEquals(config("retention.ms", "1000"), zk.read(TOPIC_CONFIG_PATH));
+                    for (String broker : asList("0", "1", "2")) {
+                        context.assertEquals(config(), zk.read("/config/brokers/" + broker));
+                    }
+                } catch (Exception ex) {
+                    context.fail(ex);
+                }
+                async.complete();
+            }));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSetBuilder;
+import io.strimzi.controller.cluster.operations.cluster.KafkaRollingUpdate.ClusterState;
+import io.strimzi.controller.cluster.operations.cluster.KafkaRollingUpdate.PartitionState;
+import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class KafkaRollingUpdateTest {
+
+    private static final String NAMESPACE = "test";
+    private static final String NAME = "my-cluster-kafka";
+
+    private Vertx vertx;
+    private StatefulSetOperations statefulSetOperations;
+    private List<String> restarted;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+        restarted = new CopyOnWriteArrayList<>();
+        statefulSetOperations = mock(StatefulSetOperations.class);
+        StatefulSet ss = new StatefulSetBuilder()
+                .withNewMetadata().withName(NAME).withNamespace(NAMESPACE).endMetadata()
+                .withNewSpec().withReplicas(3).endSpec()
+                .build();
+        when(statefulSetOperations.get(NAMESPACE, NAME)).thenReturn(ss);
+        when(statefulSetOperations.restartPod(eq(NAMESPACE), anyString(), anyLong())).thenAnswer(invocation -> {
+            restarted.add(invocation.getArgument(1));
+            return Future.succeededFuture(0L);
+        });
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    /**
+     * A rolling update whose describe() calls succeed or fail in turn as given,
+     * with broker 0 as the active controller.
+     */
+    private KafkaRollingUpdate rollingUpdate(AtomicInteger describes, boolean... outcomes) {
+        return new KafkaRollingUpdate(vertx, statefulSetOperations, 10, 1_000) {
+            @Override
+            protected AdminClient adminClient(String bootstrapServers) {
+                return mock(AdminClient.class);
+            }
+
+            @Override
+            Future<ClusterState> describe(AdminClient ac) {
+                int call = describes.getAndIncrement();
+                if (call < outcomes.length && !outcomes[call]) {
+                    return Future.failedFuture("describe failed");
+                }
+                return Future.succeededFuture(new ClusterState(0, Collections.emptyList()));
+            }
+        };
+    }
+
+    private static PartitionState partition(List<Integer> replicas, List<Integer> isr, int minIsr) {
+        return new PartitionState("my-topic", 0, replicas, isr, minIsr);
+    }
+
+    @Test
+    public void testControllerIsRestartedLast() {
+        List<PartitionState> partitions = Collections.singletonList(partition(asList(0, 1, 2), asList(0, 1, 2), 2));
+        assertEquals(Integer.valueOf(1), KafkaRollingUpdate.nextBroker(asList(0, 1, 2), 0, partitions));
+        assertEquals(Integer.valueOf(2), KafkaRollingUpdate.nextBroker(asList(0, 2), 0, partitions));
+        assertEquals(Integer.valueOf(0), KafkaRollingUpdate.nextBroker(asList(0), 0, partitions));
+    }
+
+    @Test
+    public void testAnyBrokerWhenNothingIsUnderReplicated() {
+        // With min.insync.replicas == replicas no restart is "safe", but waiting wouldn't make it any safer
+        List<PartitionState> partitions = Collections.singletonList(partition(asList(0, 1, 2), asList(0, 1, 2), 3));
+        assertEquals(Integer.valueOf(0), KafkaRollingUpdate.nextBroker(asList(0, 1, 2), 2, partitions));
+    }
+
+    @Test
+    public void testSkipsAheadToBrokerWhichCanBeRestartedSafely() {
+        List<PartitionState> partitions = Arrays.asList(
+                // broker 1 is out of the ISR, so restarting 0 or 2 would take this below min.insync.replicas
+                partition(asList(0, 1, 2), asList(0, 2), 2),
+                partition(asList(3, 4, 5), asList(3, 4, 5), 2));
+        assertFalse(KafkaRollingUpdate.canRestart(0, partitions));
+        assertTrue(KafkaRollingUpdate.canRestart(1, partitions));
+        assertTrue(KafkaRollingUpdate.canRestart(3, partitions));
+        assertEquals(Integer.valueOf(1), KafkaRollingUpdate.nextBroker(asList(0, 1, 2, 3), 5, partitions));
+        assertEquals(Integer.valueOf(3), KafkaRollingUpdate.nextBroker(asList(0, 2, 3), 5, partitions));
+    }
+
+    @Test
+    public void testWaitsWhenNoBrokerCanBeRestartedSafely() {
+        List<PartitionState> partitions = Collections.singletonList(partition(asList(0, 1, 2), asList(0, 2), 2));
+        assertNull(KafkaRollingUpdate.nextBroker(asList(0, 2), 1, partitions));
+    }
+
+    @Test
+    public void testRetriesDescribeDuringRoll(TestContext context) {
+        AtomicInteger describes = new AtomicInteger();
+        // the describe after restarting the first broker fails once
+        KafkaRollingUpdate ru = rollingUpdate(describes, true, false, true, true);
+        Async async = context.async();
+        ru.rollingUpdate(NAMESPACE, NAME, "bootstrap:9092").setHandler(context.asyncAssertSuccess(v -> {
+            // the controller still goes last, so the roll carried on rather than falling back
+            context.assertEquals(asList(NAME + "-1", NAME + "-2", NAME + "-0"), restarted);
+            context.assertEquals(4, describes.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testFallsBackToRestartingInOrderWhenDescribeKeepsFailing(TestContext context) {
+        AtomicInteger describes = new AtomicInteger();
+        boolean[] outcomes = new boolean[1 + KafkaRollingUpdate.DESCRIBE_ATTEMPTS];
+        outcomes[0] = true;
+        KafkaRollingUpdate ru = rollingUpdate(describes, outcomes);
+        Async async = context.async();
+        ru.rollingUpdate(NAMESPACE, NAME, "bootstrap:9092").setHandler(context.asyncAssertSuccess(v -> {
+            // broker 1 went first, then the roll gave up on describing the cluster and restarted the rest in order
+            context.assertEquals(asList(NAME + "-1", NAME + "-0", NAME + "-2"), restarted);
+            context.assertEquals(1 + KafkaRollingUpdate.DESCRIBE_ATTEMPTS, describes.get());
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.cluster;
+
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaimBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.fabric8.kubernetes.api.model.extensions.StatefulSetBuilder;
+import io.strimzi.controller.cluster.operations.resource.PvcOperations;
+import io.strimzi.controller.cluster.operations.resource.StatefulSetOperations;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class StorageExpansionTest {
+
+    private static final String NAMESPACE = "test";
+    private static final String NAME = "my-cluster-kafka";
+
+    private Vertx vertx;
+    private StatefulSetOperations statefulSetOperations;
+    private PvcOperations pvcOperations;
+    /** The claims as stored on the "server", by name */
+    private Map<String, PersistentVolumeClaim> claims;
+    /** The claims whose volume plugin can only resize the filesystem of a mounted volume */
+    private Set<String> offlineResize;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+        claims = new ConcurrentHashMap<>();
+        offlineResize = Collections.synchronizedSet(new TreeSet<>());
+
+        StatefulSet ss = new StatefulSetBuilder()
+                .withNewMetadata().withName(NAME).withNamespace(NAMESPACE).endMetadata()
+                .withNewSpec().withReplicas(3).withVolumeClaimTemplates(claim("data", "10Gi", "10Gi")).endSpec()
+                .build();
+        statefulSetOperations = mock(StatefulSetOperations.class);
+        when(statefulSetOperations.get(NAMESPACE, NAME)).thenReturn(ss);
+        when(statefulSetOperations.fetch(NAMESPACE, NAME)).thenAnswer(invocation -> Future.succeededFuture(new StatefulSetBuilder(ss).build()));
+        when(statefulSetOperations.replaceOrphaningPods(eq(NAMESPACE), eq(NAME), any(), anyLong())).thenReturn(Future.succeededFuture());
+
+        pvcOperations = mock(PvcOperations.class);
+        when(pvcOperations.get(eq(NAMESPACE), anyString())).thenAnswer(invocation -> claims.get(invocation.<String>getArgument(1)));
+        when(pvcOperations.patch(eq(NAMESPACE), anyString(), eq(false), any(Function.class))).thenAnswer(invocation -> {
+            // the volume plugin resizes the volume straight away
+            String claim = invocation.getArgument(1);
+            Function<PersistentVolumeClaim, PersistentVolumeClaim> patcher = invocation.getArgument(3);
+            PersistentVolumeClaim pvc = patcher.apply(new PersistentVolumeClaimBuilder(claims.get(claim)).build());
+            String size = pvc.getSpec().getResources().getRequests().get("storage").getAmount();
+            if (offlineResize.contains(claim)) {
+                PersistentVolumeClaim pending = claim(claim, size, claims.get(claim).getStatus().getCapacity().get("storage").getAmount());
+                pending.getStatus().setAdditionalProperty("conditions", Collections.singletonList(
+                        Collections.singletonMap("type", StorageExpansion.FILE_SYSTEM_RESIZE_PENDING)));
+                claims.put(claim, pending);
+            } else {
+                claims.put(claim, claim(claim, size, size));
+            }
+            return Future.succeededFuture();
+        });
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    private static PersistentVolumeClaim claim(String name, String requested, String capacity) {
+        return new PersistentVolumeClaimBuilder()
+                .withNewMetadata().withName(name).withNamespace(NAMESPACE).endMetadata()
+                .withNewSpec().withNewResources().addToRequests("storage", new Quantity(requested)).endResources().endSpec()
+                .withNewStatus().withPhase("Bound").addToCapacity("storage", new Quantity(capacity)).endStatus()
+                .build();
+    }
+
+    private void storeClaims(String... sizes) {
+        for (int pod = 0; pod < sizes.length; pod++) {
+            String name = "data-" + NAME + "-" + pod;
+            claims.put(name, claim(name, sizes[pod], sizes[pod]));
+        }
+    }
+
+    private StorageExpansion storageExpansion() {
+        return new StorageExpansion(vertx, statefulSetOperations, pvcOperations, 10, 5_000);
+    }
+
+    private static List<PersistentVolumeClaim> templates(String size) {
+        return Collections.singletonList(claim("data", size, size));
+    }
+
+    private static PersistentVolumeClaim pvc(String... conditionTypes) {
+        PersistentVolumeClaim pvc = new PersistentVolumeClaimBuilder().withNewStatus().withPhase("Bound").endStatus().build();
+        if (conditionTypes.length > 0) {
+            List<Map<String, Object>> conditions = new ArrayList<>();
+            for (String type : conditionTypes) {
+                Map<String, Object> condition = new HashMap<>();
+                condition.put("type", type);
+                condition.put("status", "True");
+                conditions.add(condition);
+            }
+            pvc.getStatus().setAdditionalProperty("conditions", conditions);
+        }
+        return pvc;
+    }
+
+    @Test
+    public void testFileSystemResizePending() {
+        assertTrue(StorageExpansion.isFileSystemResizePending(pvc("Resizing", StorageExpansion.FILE_SYSTEM_RESIZE_PENDING)));
+        assertFalse(StorageExpansion.isFileSystemResizePending(pvc("Resizing")));
+        assertFalse(StorageExpansion.isFileSystemResizePending(pvc()));
+        assertFalse(StorageExpansion.isFileSystemResizePending(new PersistentVolumeClaim()));
+    }
+
+    @Test
+    public void testSkipsClaimsAlreadyAtSize(TestContext context) {
+        storeClaims("20Gi", "10Gi", "20Gi");
+        Async async = context.async();
+        storageExpansion().expand(NAMESPACE, NAME, templates("20Gi")).setHandler(context.asyncAssertSuccess(pending -> {
+            context.assertTrue(pending.isEmpty());
+            verify(pvcOperations).patch(eq(NAMESPACE), eq("data-" + NAME + "-1"), eq(false), any(Function.class));
+            verify(pvcOperations, never()).patch(eq(NAMESPACE), eq("data-" + NAME + "-0"), eq(false), any(Function.class));
+            verify(pvcOperations, never()).patch(eq(NAMESPACE), eq("data-" + NAME + "-2"), eq(false), any(Function.class));
+            context.assertEquals("20Gi", claims.get("data-" + NAME + "-1").getStatus().getCapacity().get("storage").getAmount());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testRestartsResizePendingPods(TestContext context) {
+        storeClaims("10Gi", "10Gi", "10Gi");
+        offlineResize.add("data-" + NAME + "-2");
+        offlineResize.add("data-" + NAME + "-0");
+        List<Set<Integer>> restarts = new ArrayList<>();
+        Async async = context.async();
+        storageExpansion().expandAndReplace(NAMESPACE, NAME, templates("20Gi"), false, pending -> {
+            restarts.add(pending);
+            return Future.succeededFuture();
+        }).setHandler(context.asyncAssertSuccess(v -> {
+            context.assertEquals(Collections.singletonList(new TreeSet<>(asList(0, 2))), restarts);
+            ArgumentCaptor<StatefulSet> replacement = ArgumentCaptor.forClass(StatefulSet.class);
+            verify(statefulSetOperations).replaceOrphaningPods(eq(NAMESPACE), eq(NAME), replacement.capture(), anyLong());
+            context.assertEquals("20Gi", replacement.getValue().getSpec().getVolumeClaimTemplates().get(0)
+                    .getSpec().getResources().getRequests().get("storage").getAmount());
+            // the replacement was built on a copy of the StatefulSet
+            context.assertEquals("10Gi", statefulSetOperations.get(NAMESPACE, NAME).getSpec().getVolumeClaimTemplates().get(0)
+                    .getSpec().getResources().getRequests().get("storage").getAmount());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testNoPartialRollWhenRollingUpdateIsDue(TestContext context) {
+        storeClaims("10Gi", "10Gi", "10Gi");
+        offlineResize.add("data-" + NAME + "-1");
+        List<Set<Integer>> restarts = new ArrayList<>();
+        Async async = context.async();
+        storageExpansion().expandAndReplace(NAMESPACE, NAME, templates("20Gi"), true, pending -> {
+            restarts.add(pending);
+            return Future.succeededFuture();
+        }).setHandler(context.asyncAssertSuccess(v -> {
+            context.assertTrue(restarts.isEmpty());
+            verify(statefulSetOperations).replaceOrphaningPods(eq(NAMESPACE), eq(NAME), any(), anyLong());
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.resource;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeoutException;
+
+@RunWith(VertxUnitRunner.class)
+public class PodRestartTest {
+
+    private static final String NAMESPACE = "test";
+    private static final String POD_NAME = "my-cluster-kafka-0";
+
+    private Vertx vertx;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    private static Pod pod(boolean ready) {
+        return new PodBuilder()
+                .withNewMetadata()
+                    .withNamespace(NAMESPACE)
+                    .withName(POD_NAME)
+                .endMetadata()
+                .withNewStatus()
+                    .withPhase("Running")
+                    .addNewCondition()
+                        .withType("Ready")
+                        .withStatus(ready ? "True" : "False")
+                    .endCondition()
+                .endStatus()
+                .build();
+    }
+
+    @Test
+    public void testRestartCompletesWhenReplacementIsReady(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            StatefulSetOperations.PodRestart restart = new StatefulSetOperations.PodRestart(vertx, NAMESPACE, POD_NAME, 10_000);
+            restart.result().setHandler(ar -> {
+                context.assertTrue(ar.succeeded());
+                context.assertTrue(ar.result() >= 0);
+                context.assertEquals(StatefulSetOperations.PodRestart.State.DONE, restart.state());
+                async.complete();
+            });
+            // The old pod is still ready while it's terminating: that mustn't count
+            restart.eventReceived(Watcher.Action.MODIFIED, pod(true));
+            restart.eventReceived(Watcher.Action.DELETED, pod(true));
+            restart.eventReceived(Watcher.Action.ADDED, pod(false));
+            restart.eventReceived(Watcher.Action.MODIFIED, pod(true));
+        });
+    }
+
+    @Test
+    public void testReadyBeforeDeletionIsIgnored(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            StatefulSetOperations.PodRestart restart = new StatefulSetOperations.PodRestart(vertx, NAMESPACE, POD_NAME, 10_000);
+            restart.eventReceived(Watcher.Action.MODIFIED, pod(true));
+            vertx.setTimer(100, id -> {
+                context.assertFalse(restart.result().isComplete());
+                context.assertEquals(StatefulSetOperations.PodRestart.State.DELETING, restart.state());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testRestartTimesOut(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            StatefulSetOperations.PodRestart restart = new StatefulSetOperations.PodRestart(vertx, NAMESPACE, POD_NAME, 100);
+            restart.eventReceived(Watcher.Action.DELETED, pod(true));
+            restart.eventReceived(Watcher.Action.ADDED, pod(false));
+            restart.result().setHandler(ar -> {
+                context.assertTrue(ar.failed());
+                context.assertTrue(ar.cause() instanceof TimeoutException);
+                context.assertEquals(StatefulSetOperations.PodRestart.State.DONE, restart.state());
+                async.complete();
+            });
+        });
+    }
+}
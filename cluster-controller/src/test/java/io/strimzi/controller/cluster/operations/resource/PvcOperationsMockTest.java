@@ -74,10 +74,4 @@ public class PvcOperationsMockTest extends ResourceOperationsMockTest<Kubernetes
     public void creationThrows(TestContext context) {
         super.creationThrows(context);
     }
-
-    @Override
-    @Test(expected = UnsupportedOperationException.class)
-    public void existenceCheckThrows(TestContext context) {
-        super.existenceCheckThrows(context);
-    }
 }
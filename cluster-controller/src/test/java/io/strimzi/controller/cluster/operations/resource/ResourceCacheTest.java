@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.resource;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.vertx.core.Vertx;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceCacheTest {
+
+    private static Vertx vertx;
+
+    @BeforeClass
+    public static void before() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterClass
+    public static void after() {
+        vertx.close();
+    }
+
+    private static ConfigMap configMap(String name, Map<String, String> labels) {
+        return configMap("test", name, labels);
+    }
+
+    private static ConfigMap configMap(String namespace, String name, Map<String, String> labels) {
+        return new ConfigMapBuilder()
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace(namespace)
+                    .withLabels(labels)
+                .endMetadata()
+                .withData(singletonMap("key", name))
+                .build();
+    }
+
+    @Test
+    public void testCache() {
+        Map<String, String> labels = singletonMap("strimzi.io/kind", "cluster");
+        Map<String, String> kafkaLabels = new HashMap<>(labels);
+        kafkaLabels.put("strimzi.io/type", "kafka");
+
+        ConfigMapList list = new ConfigMapListBuilder()
+                .withNewMetadata().withResourceVersion("42").endMetadata()
+                .withItems(configMap("foo", kafkaLabels), configMap("bar", labels))
+                .build();
+        Watch watch = mock(Watch.class);
+        FilterWatchListDeletable<ConfigMap, ConfigMapList, Boolean, Watch, Watcher<ConfigMap>> op = mock(FilterWatchListDeletable.class);
+        when(op.list()).thenReturn(list);
+        ArgumentCaptor<Watcher> watcher = ArgumentCaptor.forClass(Watcher.class);
+        when(op.watch(eq("42"), watcher.capture())).thenReturn(watch);
+
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", "test", labels, op);
+        assertFalse(cache.isSynced());
+        cache.start();
+        assertTrue(cache.isSynced());
+        assertEquals(2, cache.size());
+
+        // Readers get copies
+        ConfigMap foo = cache.get("test", "foo");
+        assertEquals("foo", foo.getData().get("key"));
+        foo.getData().put("key", "changed");
+        assertNotSame(foo, cache.get("test", "foo"));
+        assertEquals("foo", cache.get("test", "foo").getData().get("key"));
+
+        // List filters on labels
+        assertTrue(cache.covers(kafkaLabels));
+        assertFalse(cache.covers(singletonMap("strimzi.io/type", "kafka")));
+        assertEquals(1, cache.list("test", kafkaLabels).size());
+        assertEquals(2, cache.list("test", labels).size());
+
+        // Watch events update the cache
+        watcher.getValue().eventReceived(Watcher.Action.ADDED, configMap("baz", kafkaLabels));
+        assertEquals(2, cache.list("test", kafkaLabels).size());
+        watcher.getValue().eventReceived(Watcher.Action.DELETED, configMap("foo", kafkaLabels));
+        assertNull(cache.get("test", "foo"));
+        assertEquals(1, cache.list("test", kafkaLabels).size());
+
+        cache.close();
+        assertFalse(cache.isSynced());
+        assertEquals(0, cache.size());
+        verify(watch).close();
+        // Closing the watch after closing the cache must not trigger a resync
+        watcher.getValue().onClose(null);
+        assertFalse(cache.isSynced());
+        verify(op).watch(eq("42"), any(Watcher.class));
+    }
+
+    @Test
+    public void testAnyNamespaceCache() {
+        Map<String, String> labels = singletonMap("strimzi.io/kind", "cluster");
+
+        ConfigMapList list = new ConfigMapListBuilder()
+                .withNewMetadata().withResourceVersion("42").endMetadata()
+                .withItems(configMap("ns1", "foo", labels), configMap("ns2", "foo", labels), configMap("ns2", "bar", labels))
+                .build();
+        FilterWatchListDeletable<ConfigMap, ConfigMapList, Boolean, Watch, Watcher<ConfigMap>> op = mock(FilterWatchListDeletable.class);
+        when(op.list()).thenReturn(list);
+        ArgumentCaptor<Watcher> watcher = ArgumentCaptor.forClass(Watcher.class);
+        when(op.watch(eq("42"), watcher.capture())).thenReturn(mock(Watch.class));
+
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", AbstractOperations.ANY_NAMESPACE, labels, op);
+        cache.start();
+        assertEquals(3, cache.size());
+
+        // Resources with the same name in different namespaces are distinct
+        assertEquals("ns1", cache.get("ns1", "foo").getMetadata().getNamespace());
+        assertEquals("ns2", cache.get("ns2", "foo").getMetadata().getNamespace());
+        assertNull(cache.get("ns3", "foo"));
+        assertEquals(1, cache.list("ns1", labels).size());
+        assertEquals(2, cache.list("ns2", labels).size());
+        assertEquals(3, cache.list(AbstractOperations.ANY_NAMESPACE, labels).size());
+
+        watcher.getValue().eventReceived(Watcher.Action.DELETED, configMap("ns2", "foo", labels));
+        assertEquals("ns1", cache.get("ns1", "foo").getMetadata().getNamespace());
+        assertNull(cache.get("ns2", "foo"));
+        cache.close();
+    }
+}
@@ -19,10 +19,17 @@ package io.strimzi.controller.cluster.operations.resource;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ListMetaBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.EditReplacePatchDeletable;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import io.strimzi.controller.cluster.ClusterController;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
@@ -32,10 +39,16 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
 import static org.mockito.Mockito.mock;
@@ -89,10 +102,10 @@ public abstract class ResourceOperationsMockTest<C extends KubernetesClient, T e
     public void createWhenExistsIsANop(TestContext context) {
         T resource = resource();
         Resource mockResource = mock(resourceType());
-        when(mockResource.get()).thenReturn(resource);
 
         NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
         when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+        when(mockNameable.create(any())).thenThrow(new KubernetesClientException("Conflict", 409, null));
 
         MixedOperation mockCms = mock(MixedOperation.class);
         when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
@@ -106,23 +119,18 @@ public abstract class ResourceOperationsMockTest<C extends KubernetesClient, T e
         Future<Void> fut = op.create(resource);
         fut.setHandler(ar -> {
             assertTrue(ar.succeeded());
-            verify(mockResource).get();
-            verify(mockResource, never()).create(any());
-            verify(mockResource, never()).createNew();
+            verify(mockNameable).create(eq(resource));
+            verify(mockResource, never()).get();
             verify(mockResource, never()).createOrReplace(any());
             verify(mockCms, never()).createOrReplace(any());
             async.complete();
         });
     }
 
-
     @Test
-    public void existenceCheckThrows(TestContext context) {
+    public void successfulCreation(TestContext context) {
         T resource = resource();
-        RuntimeException ex = new RuntimeException();
-
         Resource mockResource = mock(resourceType());
-        when(mockResource.get()).thenThrow(ex);
 
         NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
         when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
@@ -137,20 +145,23 @@ public abstract class ResourceOperationsMockTest<C extends KubernetesClient, T e
 
         Async async = context.async();
         op.create(resource).setHandler(ar -> {
-            assertTrue(ar.failed());
-            assertEquals(ex, ar.cause());
+            assertTrue(ar.succeeded());
+            verify(mockNameable).create(eq(resource));
+            verify(mockResource, never()).get();
             async.complete();
         });
     }
 
     @Test
-    public void successfulCreation(TestContext context) {
+    public void creationThrows(TestContext context) {
         T resource = resource();
+        RuntimeException ex = new KubernetesClientException("Forbidden", 403, null);
+
         Resource mockResource = mock(resourceType());
-        when(mockResource.get()).thenReturn(null);
 
         NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
         when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+        when(mockNameable.create(any())).thenThrow(ex);
 
         MixedOperation mockCms = mock(MixedOperation.class);
         when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
@@ -162,27 +173,139 @@ public abstract class ResourceOperationsMockTest<C extends KubernetesClient, T e
 
         Async async = context.async();
         op.create(resource).setHandler(ar -> {
+            assertTrue(ar.failed());
+            assertEquals(ex, ar.cause());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void annotateDoesNotModifyTheResource(TestContext context) {
+        T current = resource();
+
+        EditReplacePatchDeletable mockPatchable = mock(EditReplacePatchDeletable.class);
+        Resource mockResource = mock(resourceType());
+        when(mockResource.get()).thenReturn(current);
+        when(mockResource.cascading(false)).thenReturn(mockPatchable);
+
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(RESOURCE_NAME))).thenReturn(mockResource);
+
+        MixedOperation mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(matches(NAMESPACE))).thenReturn(mockNameable);
+
+        C mockClient = mock(clientType());
+        mocker(mockClient, mockCms);
+
+        AbstractOperations<C, T, L, D, R> op = createResourceOperations(vertx, mockClient);
+
+        Async async = context.async();
+        op.annotate(NAMESPACE, RESOURCE_NAME, "foo", "bar").setHandler(ar -> {
             assertTrue(ar.succeeded());
-            verify(mockResource).get();
-            verify(mockCms).createOrReplace(eq(resource));
+            ArgumentCaptor<HasMetadata> patch = ArgumentCaptor.forClass(HasMetadata.class);
+            verify(mockPatchable).patch(patch.capture());
+            assertNotSame(current, patch.getValue());
+            assertEquals("bar", patch.getValue().getMetadata().getAnnotations().get("foo"));
+            assertEquals(current.getMetadata().getName(), patch.getValue().getMetadata().getName());
+            assertNull(current.getMetadata().getAnnotations() != null ? current.getMetadata().getAnnotations().get("foo") : null);
             async.complete();
         });
     }
 
+    /**
+     * Mock a resource whose cached copy, at resourceVersion 1, is older than the one on the server, at resourceVersion 2,
+     * with patches going to the given {@code mockPatchable}.
+     */
+    private AbstractOperations<C, T, L, D, R> mockStaleCache(EditReplacePatchDeletable mockPatchable) {
+        T cached = resource();
+        cached.getMetadata().setResourceVersion("1");
+        T server = resource();
+        server.getMetadata().setResourceVersion("2");
+        server.getMetadata().setAnnotations(singletonMap("changed", "since"));
+
+        Resource mockResource = mock(resourceType());
+        when(mockResource.get()).thenReturn(server);
+        when(mockResource.cascading(anyBoolean())).thenReturn(mockPatchable);
+
+        KubernetesResourceList mockList = mock(KubernetesResourceList.class);
+        when(mockList.getItems()).thenReturn(singletonList(cached));
+        when(mockList.getMetadata()).thenReturn(new ListMetaBuilder().withResourceVersion("1").build());
+        FilterWatchListDeletable mockLabelled = mock(FilterWatchListDeletable.class);
+        when(mockLabelled.list()).thenReturn(mockList);
+        when(mockLabelled.watch(eq("1"), any(Watcher.class))).thenReturn(mock(Watch.class));
+
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(RESOURCE_NAME))).thenReturn(mockResource);
+        when(mockNameable.withLabels(any())).thenReturn(mockLabelled);
+
+        MixedOperation mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(matches(NAMESPACE))).thenReturn(mockNameable);
+
+        C mockClient = mock(clientType());
+        mocker(mockClient, mockCms);
+
+        return createResourceOperations(vertx, mockClient);
+    }
+
     @Test
-    public void creationThrows(TestContext context) {
-        T resource = resource();
-        RuntimeException ex = new RuntimeException();
+    public void patchIsBuiltFromTheServerNotTheCache(TestContext context) {
+        EditReplacePatchDeletable mockPatchable = mock(EditReplacePatchDeletable.class);
+        AbstractOperations<C, T, L, D, R> op = mockStaleCache(mockPatchable);
+        T desired = resource();
+        desired.getMetadata().setAnnotations(singletonMap(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION, "0123"));
+
+        Async async = context.async();
+        op.startCache(NAMESPACE, singletonMap("foo", "bar")).compose(v -> {
+            context.assertEquals("1", op.get(NAMESPACE, RESOURCE_NAME).getMetadata().getResourceVersion());
+            return op.patchIfChanged(NAMESPACE, RESOURCE_NAME, desired, current -> {
+                context.assertEquals("2", current.getMetadata().getResourceVersion());
+                return current;
+            });
+        }).setHandler(context.asyncAssertSuccess(v -> {
+            ArgumentCaptor<HasMetadata> patch = ArgumentCaptor.forClass(HasMetadata.class);
+            verify(mockPatchable).patch(patch.capture());
+            context.assertEquals("2", patch.getValue().getMetadata().getResourceVersion());
+            context.assertEquals("since", patch.getValue().getMetadata().getAnnotations().get("changed"));
+            context.assertEquals("0123", patch.getValue().getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION));
+            op.stopCaches();
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void annotateIsBuiltFromTheServerNotTheCache(TestContext context) {
+        EditReplacePatchDeletable mockPatchable = mock(EditReplacePatchDeletable.class);
+        AbstractOperations<C, T, L, D, R> op = mockStaleCache(mockPatchable);
+
+        Async async = context.async();
+        op.startCache(NAMESPACE, singletonMap("foo", "bar"))
+            .compose(v -> op.annotate(NAMESPACE, RESOURCE_NAME, "foo", "bar"))
+            .setHandler(context.asyncAssertSuccess(v -> {
+                ArgumentCaptor<HasMetadata> patch = ArgumentCaptor.forClass(HasMetadata.class);
+                verify(mockPatchable).patch(patch.capture());
+                context.assertEquals("2", patch.getValue().getMetadata().getResourceVersion());
+                context.assertEquals("since", patch.getValue().getMetadata().getAnnotations().get("changed"));
+                context.assertEquals("bar", patch.getValue().getMetadata().getAnnotations().get("foo"));
+                op.stopCaches();
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void patchIfChangedWithSameHashIsANop(TestContext context) {
+        T current = resource();
+        current.getMetadata().setAnnotations(singletonMap(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION, "0123"));
+        T desired = resource();
+        desired.getMetadata().setAnnotations(singletonMap(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION, "0123"));
 
         Resource mockResource = mock(resourceType());
-        when(mockResource.get()).thenReturn(null);
+        when(mockResource.get()).thenReturn(current);
 
         NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
-        when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+        when(mockNameable.withName(matches(RESOURCE_NAME))).thenReturn(mockResource);
 
         MixedOperation mockCms = mock(MixedOperation.class);
-        when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
-        when(mockCms.createOrReplace(any())).thenThrow(ex);
+        when(mockCms.inNamespace(matches(NAMESPACE))).thenReturn(mockNameable);
 
         C mockClient = mock(clientType());
         mocker(mockClient, mockCms);
@@ -190,9 +313,13 @@ public abstract class ResourceOperationsMockTest<C extends KubernetesClient, T e
         AbstractOperations<C, T, L, D, R> op = createResourceOperations(vertx, mockClient);
 
         Async async = context.async();
-        op.create(resource).setHandler(ar -> {
-            assertTrue(ar.failed());
-            assertEquals(ex, ar.cause());
+        op.patchIfChanged(NAMESPACE, RESOURCE_NAME, desired, r -> {
+            context.fail("Should not compute a patch");
+            return r;
+        }).setHandler(ar -> {
+            assertTrue(ar.succeeded());
+            verify(mockResource, never()).cascading(anyBoolean());
+            verify(mockResource, never()).patch(any());
             async.complete();
         });
     }
@@ -23,11 +23,25 @@ import io.fabric8.kubernetes.api.model.extensions.StatefulSetBuilder;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSetList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.AppsAPIGroupDSL;
+import io.fabric8.kubernetes.client.dsl.EditReplacePatchDeletable;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.RollableScalableResource;
 import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class StatefulSetOperationsMockTest extends ResourceOperationsMockTest<KubernetesClient, StatefulSet, StatefulSetList, DoneableStatefulSet, RollableScalableResource<StatefulSet, DoneableStatefulSet>> {
@@ -58,4 +72,66 @@ public class StatefulSetOperationsMockTest extends ResourceOperationsMockTest<Ku
     protected StatefulSetOperations createResourceOperations(Vertx vertx, KubernetesClient mockClient) {
         return new StatefulSetOperations(vertx, mockClient);
     }
+
+    @Test
+    public void replaceOrphaningPodsDeletesThenCreates(TestContext context) {
+        StatefulSet current = new StatefulSetBuilder(resource())
+                .editMetadata().withResourceVersion("42").withUid("uid").endMetadata()
+                .build();
+        StatefulSet replacement = new StatefulSetBuilder(current).build();
+
+        EditReplacePatchDeletable mockDeletable = mock(EditReplacePatchDeletable.class);
+        when(mockDeletable.delete()).thenReturn(true);
+        RollableScalableResource mockResource = mock(RollableScalableResource.class);
+        when(mockResource.cascading(false)).thenReturn(mockDeletable);
+        // still there when first checked after the delete, gone the next time
+        when(mockResource.get()).thenReturn(current, (StatefulSet) null);
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(RESOURCE_NAME))).thenReturn(mockResource);
+        MixedOperation mockSs = mock(MixedOperation.class);
+        when(mockSs.inNamespace(matches(NAMESPACE))).thenReturn(mockNameable);
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        mocker(mockClient, mockSs);
+
+        Async async = context.async();
+        createResourceOperations(vertx, mockClient).replaceOrphaningPods(NAMESPACE, RESOURCE_NAME, replacement, 10_000).setHandler(ar -> {
+            context.assertTrue(ar.succeeded());
+            InOrder order = inOrder(mockDeletable, mockResource, mockNameable);
+            order.verify(mockDeletable).delete();
+            order.verify(mockResource).get();
+            order.verify(mockResource).get();
+            ArgumentCaptor<StatefulSet> created = ArgumentCaptor.forClass(StatefulSet.class);
+            order.verify(mockNameable).create(created.capture());
+            // created as a new resource
+            context.assertNull(created.getValue().getMetadata().getResourceVersion());
+            context.assertNull(created.getValue().getMetadata().getUid());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void replaceOrphaningPodsTimesOutWaitingForTheDelete(TestContext context) {
+        StatefulSet current = resource();
+
+        EditReplacePatchDeletable mockDeletable = mock(EditReplacePatchDeletable.class);
+        when(mockDeletable.delete()).thenReturn(true);
+        RollableScalableResource mockResource = mock(RollableScalableResource.class);
+        when(mockResource.cascading(false)).thenReturn(mockDeletable);
+        when(mockResource.get()).thenReturn(current);
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(RESOURCE_NAME))).thenReturn(mockResource);
+        MixedOperation mockSs = mock(MixedOperation.class);
+        when(mockSs.inNamespace(matches(NAMESPACE))).thenReturn(mockNameable);
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        mocker(mockClient, mockSs);
+
+        Async async = context.async();
+        createResourceOperations(vertx, mockClient).replaceOrphaningPods(NAMESPACE, RESOURCE_NAME, resource(), 0).setHandler(ar -> {
+            context.assertTrue(ar.failed());
+            context.assertTrue(ar.cause() instanceof TimeoutException);
+            verify(mockDeletable).delete();
+            verify(mockNameable, never()).create(any());
+            async.complete();
+        });
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.cluster.operations.resource;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(VertxUnitRunner.class)
+public class WorkerPoolTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void before() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void after() {
+        vertx.close();
+    }
+
+    @Test
+    public void testPoolsAreShared() {
+        WorkerPool pool = WorkerPool.create(vertx, WorkerPool.LONG_OPERATIONS, 2);
+        assertSame(pool, WorkerPool.get(vertx, WorkerPool.LONG_OPERATIONS));
+        assertEquals(2, pool.getSize());
+        assertEquals(WorkerPool.DEFAULT_SHORT_OPERATIONS_SIZE, WorkerPool.get(vertx, WorkerPool.SHORT_OPERATIONS).getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        WorkerPool.create(vertx, WorkerPool.SHORT_OPERATIONS, 0);
+    }
+
+    @Test
+    public void testQueueDepthAndWaitTime(TestContext context) throws InterruptedException {
+        WorkerPool pool = WorkerPool.create(vertx, WorkerPool.SHORT_OPERATIONS, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Async async = context.async(2);
+        pool.executeBlocking(future -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            future.complete();
+        }, false, ar -> async.countDown());
+        running.await();
+        pool.executeBlocking(future -> future.complete(), false, ar -> async.countDown());
+
+        context.assertEquals(1, pool.getActive());
+        context.assertEquals(1, pool.getQueueDepth());
+        Thread.sleep(50);
+        release.countDown();
+        async.awaitSuccess(5000);
+
+        context.assertEquals(0, pool.getActive());
+        context.assertEquals(0, pool.getQueueDepth());
+        context.assertEquals(2L, pool.getCompleted());
+        context.assertTrue(pool.getMaxWaitMs() >= 50, "max wait was " + pool.getMaxWaitMs());
+    }
+}
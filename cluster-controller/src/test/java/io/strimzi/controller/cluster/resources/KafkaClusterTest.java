@@ -18,15 +18,34 @@
 package io.strimzi.controller.cluster.resources;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
+import io.fabric8.kubernetes.api.model.PodAffinityTerm;
+import io.fabric8.kubernetes.api.model.PodSecurityContextBuilder;
+import io.fabric8.kubernetes.api.model.PodSpec;
+import io.fabric8.kubernetes.api.model.ResourceRequirements;
 import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.WeightedPodAffinityTerm;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.strimzi.controller.cluster.ClusterController;
 import io.strimzi.controller.cluster.ResourceUtils;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import static io.strimzi.controller.cluster.ResourceUtils.labels;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class KafkaClusterTest {
 
@@ -122,6 +141,39 @@ public class KafkaClusterTest {
 
     // TODO test volume claim templates
 
+    @Test
+    public void testSpecHash() {
+        String hash = kc.generateStatefulSet(true).getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION);
+        assertNotNull(hash);
+        // Stable for the same desired state ...
+        assertEquals(hash, KafkaCluster.fromConfigMap(cm).generateStatefulSet(true).getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION));
+        assertEquals(kc.generateService().getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION),
+                kc.generateService().getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION));
+        // ... but not for a different one
+        KafkaCluster other = KafkaCluster.fromConfigMap(ResourceUtils.createConfigMap(namespace, cluster,
+                replicas, image + "x", healthDelay, healthTimeout, metricsCmJson));
+        assertNotEquals(hash, other.generateStatefulSet(true).getMetadata().getAnnotations().get(ClusterController.STRIMZI_SPEC_HASH_ANNOTATION));
+    }
+
+    @Test
+    public void testConfigHash() {
+        List<HasMetadata> generated = Arrays.asList(kc.generateService(), kc.generateStatefulSet(true));
+        String hash = AbstractCluster.configHash(cm, generated);
+        assertNotNull(hash);
+        // Only the data matters, not the metadata ...
+        ConfigMap relabelled = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        relabelled.getMetadata().setResourceVersion("42");
+        relabelled.getMetadata().getLabels().put("foo", "bar");
+        assertEquals(hash, AbstractCluster.configHash(relabelled, generated));
+        // ... so a change to the data changes it
+        assertNotEquals(hash, AbstractCluster.configHash(ResourceUtils.createConfigMap(namespace, cluster,
+                replicas + 1, image, healthDelay, healthTimeout, metricsCmJson), generated));
+        // ... and so does a change to what's generated from the same data, as after a controller upgrade
+        StatefulSet upgraded = kc.generateStatefulSet(true);
+        upgraded.getSpec().getTemplate().getMetadata().getLabels().put("foo", "bar");
+        assertNotEquals(hash, AbstractCluster.configHash(cm, Arrays.asList(kc.generateService(), upgraded)));
+    }
+
     @Test
     public void testDiffNoDiffs() {
         ClusterDiffResult diff = kc.diff(kc.generateMetricsConfigMap(), kc.generateStatefulSet(true));
@@ -130,6 +182,7 @@ public class KafkaClusterTest {
         assertFalse(diff.getScaleUp());
         assertFalse(diff.getRollingUpdate());
         assertFalse(diff.isMetricsChanged());
+        assertFalse(diff.isDynamicConfigChanged());
         assertEquals(Source2Image.Source2ImageDiff.NONE, diff.getS2i());
     }
 
@@ -211,4 +264,460 @@ public class KafkaClusterTest {
         assertEquals(Source2Image.Source2ImageDiff.NONE, diff.getS2i());
     }
 
+    private ConfigMap configMapWithKafkaConfig(String kafkaConfig) {
+        ConfigMap cm = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        cm.getData().put(KafkaCluster.KEY_KAFKA_CONFIG, kafkaConfig);
+        return cm;
+    }
+
+    @Test
+    public void testKafkaConfig() {
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithKafkaConfig(
+                "{\"num.io.threads\": 16, \"compression.type\": \"lz4\", \"auto.create.topics.enable\": false}"));
+        assertEquals("auto.create.topics.enable=false\ncompression.type=lz4\nnum.io.threads=16\n",
+                kc.getConfiguration().toProperties());
+        assertEquals(ResourceUtils.labels("compression.type", "lz4", "num.io.threads", "16"),
+                kc.getConfiguration().getDynamic());
+
+        // The configuration is recovered from the StatefulSet
+        KafkaCluster kc2 = KafkaCluster.fromStatefulSet(kc.generateStatefulSet(true), namespace, cluster);
+        assertEquals(kc.getConfiguration(), kc2.getConfiguration());
+        assertEquals(KafkaConfiguration.empty(), KafkaCluster.fromStatefulSet(this.kc.generateStatefulSet(true), namespace, cluster).getConfiguration());
+    }
+
+    @Test
+    public void testKafkaConfigValidation() {
+        for (String invalid : new String[] {
+            "{\"broker.id\": 3}",
+            "{\"zookeeper.connect\": \"elsewhere:2181\"}",
+            "{\"no.such.config\": 1}",
+            "{\"num.io.threads\": \"lots\"}",
+            "{\"compression.type\": \"zip\"}",
+            "{\"num.io.threads\": 0}",
+            "{\"log.cleanup.policy\": \"shrink\"}",
+            "{\"num.io.threads\": [1, 2]}",
+            "{\"log.cleanup.policy\": \"delete\\nbroker.id=1\"}"}) {
+            try {
+                KafkaCluster.fromConfigMap(configMapWithKafkaConfig(invalid));
+                fail("Expected " + invalid + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDiffDynamicKafkaConfig() {
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.segment.bytes\": 536870912}"));
+        KafkaCluster other = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.segment.bytes\": 1073741824}"));
+        ClusterDiffResult diff = kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertTrue(diff.isDynamicConfigChanged());
+        assertFalse(diff.getRollingUpdate());
+
+        // Adding a dynamic key is dynamic too
+        diff = kc.diff(this.kc.generateMetricsConfigMap(), this.kc.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertTrue(diff.isDynamicConfigChanged());
+        assertFalse(diff.getRollingUpdate());
+    }
+
+    @Test
+    public void testDiffRemovedDynamicKafkaConfig() {
+        // Without the key the brokers would fall back to their static configuration, which still has the old value
+        KafkaCluster other = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.segment.bytes\": 1073741824}"));
+        ClusterDiffResult diff = this.kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertFalse(diff.isDynamicConfigChanged());
+        assertTrue(diff.getRollingUpdate());
+    }
+
+    @Test
+    public void testKeysKafkaDoesNotUpdateDynamicallyNeedRestart() {
+        for (String key : new String[] {"log.roll.hours", "log.roll.jitter.hours", "log.retention.minutes",
+                "log.retention.hours", "max.connections.per.ip"}) {
+            assertFalse(key, KafkaConfiguration.isDynamic(key));
+        }
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.retention.hours\": 24}"));
+        KafkaCluster other = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.retention.hours\": 48}"));
+        ClusterDiffResult diff = kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertFalse(diff.isDynamicConfigChanged());
+        assertTrue(diff.getRollingUpdate());
+    }
+
+    @Test
+    public void testDiffStaticKafkaConfig() {
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithKafkaConfig(
+                "{\"log.segment.bytes\": 536870912, \"socket.send.buffer.bytes\": 1048576}"));
+        KafkaCluster other = KafkaCluster.fromConfigMap(configMapWithKafkaConfig("{\"log.segment.bytes\": 1073741824}"));
+        ClusterDiffResult diff = kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertFalse(diff.isDynamicConfigChanged());
+        assertTrue(diff.getRollingUpdate());
+    }
+
+    private ConfigMap configMapWithResources(String resources, String jvmOptions) {
+        ConfigMap cm = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        if (resources != null) {
+            cm.getData().put(KafkaCluster.KEY_RESOURCES, resources);
+        }
+        if (jvmOptions != null) {
+            cm.getData().put(KafkaCluster.KEY_JVM_OPTIONS, jvmOptions);
+        }
+        return cm;
+    }
+
+    private static Map<String, String> env(StatefulSet ss) {
+        return ss.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream()
+                .collect(Collectors.toMap(EnvVar::getName, EnvVar::getValue));
+    }
+
+    @Test
+    public void testResourcesAndDerivedHeap() {
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithResources(
+                "{\"requests\": {\"cpu\": \"500m\", \"memory\": \"2Gi\"}, \"limits\": {\"cpu\": 2, \"memory\": \"4Gi\"}}", null));
+        StatefulSet ss = kc.generateStatefulSet(true);
+        ResourceRequirements requirements = ss.getSpec().getTemplate().getSpec().getContainers().get(0).getResources();
+        assertEquals("500m", requirements.getRequests().get("cpu").getAmount());
+        assertEquals("4Gi", requirements.getLimits().get("memory").getAmount());
+        // Half the memory limit for the heap, the rest for the page cache
+        assertEquals("-Xms2048m -Xmx2048m", env(ss).get("KAFKA_HEAP_OPTS"));
+        assertNull(env(ss).get("KAFKA_JVM_PERFORMANCE_OPTS"));
+
+        // Without resources the start scripts' defaults apply
+        assertNull(this.kc.generateStatefulSet(true).getSpec().getTemplate().getSpec().getContainers().get(0).getResources());
+        assertNull(env(this.kc.generateStatefulSet(true)).get("KAFKA_HEAP_OPTS"));
+    }
+
+    @Test
+    public void testJvmOptions() {
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithResources("{\"limits\": {\"memory\": \"4Gi\"}}",
+                "{\"-Xmx\": \"3g\", \"-Xms\": \"1g\", \"-XX\": {\"MaxGCPauseMillis\": 50, \"ParallelRefProcEnabled\": true}}"));
+        Map<String, String> env = env(kc.generateStatefulSet(true));
+        assertEquals("-Xms1g -Xmx3g", env.get("KAFKA_HEAP_OPTS"));
+        assertEquals("-server -XX:+UseG1GC -XX:MaxGCPauseMillis=50 -XX:InitiatingHeapOccupancyPercent=35 "
+                + "-XX:+ExplicitGCInvokesConcurrent -XX:+ParallelRefProcEnabled -Djava.awt.headless=true",
+                env.get("KAFKA_JVM_PERFORMANCE_OPTS"));
+    }
+
+    @Test
+    public void testResourcesAndJvmOptionsValidation() {
+        String[][] invalid = {
+            {"{\"limits\": {\"memory\": \"lots\"}}", null},
+            {"{\"limits\": {\"gpu\": 1}}", null},
+            {"{\"requests\": {\"cpu\": 2}, \"limits\": {\"cpu\": \"1500m\"}}", null},
+            {"{\"limits\": {\"memory\": \"1Gi\"}}", "{\"-Xmx\": \"2g\"}"},
+            {null, "{\"-Xmx\": \"1g\", \"-Xms\": \"2g\"}"},
+            {null, "{\"-Xss\": \"1m\"}"},
+            {null, "{\"-XX\": {\"OnOutOfMemoryError\": \"kill -9 %p\"}}"}};
+        for (String[] config : invalid) {
+            try {
+                KafkaCluster.fromConfigMap(configMapWithResources(config[0], config[1]));
+                fail("Expected " + config[0] + " " + config[1] + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDiffResources() {
+        String resources = "{\"requests\": {\"cpu\": \"1\", \"memory\": \"2Gi\"}, \"limits\": {\"memory\": \"2Gi\"}}";
+        KafkaCluster kc = KafkaCluster.fromConfigMap(configMapWithResources(resources, null));
+
+        // The same quantities in different units are no change
+        KafkaCluster same = KafkaCluster.fromConfigMap(configMapWithResources(
+                "{\"requests\": {\"cpu\": \"1000m\", \"memory\": \"2048Mi\"}, \"limits\": {\"memory\": \"2Gi\"}}", null));
+        assertFalse(kc.diff(same.generateMetricsConfigMap(), same.generateStatefulSet(true)).getDifferent());
+
+        KafkaCluster other = KafkaCluster.fromConfigMap(configMapWithResources(
+                "{\"requests\": {\"cpu\": \"1\", \"memory\": \"4Gi\"}, \"limits\": {\"memory\": \"4Gi\"}}", null));
+        ClusterDiffResult diff = kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertTrue(diff.getRollingUpdate());
+
+        other = KafkaCluster.fromConfigMap(configMapWithResources(resources, "{\"-XX\": {\"MaxGCPauseMillis\": 50}}"));
+        diff = kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+        assertTrue(diff.getDifferent());
+        assertTrue(diff.getRollingUpdate());
+    }
+
+    private KafkaCluster withScheduling(String scheduling) {
+        ConfigMap cm = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        cm.getData().put(KafkaCluster.KEY_SCHEDULING, scheduling);
+        return KafkaCluster.fromConfigMap(cm);
+    }
+
+    @Test
+    public void testScheduling() {
+        KafkaCluster kc = withScheduling("{\"antiAffinity\": \"hard\", \"zookeeperAntiAffinity\": \"soft\", "
+                + "\"nodeSelector\": {\"node-pool\": \"kafka\"}, "
+                + "\"tolerations\": [{\"key\": \"dedicated\", \"value\": \"kafka\", \"effect\": \"NoSchedule\"}]}");
+        PodSpec pod = kc.generateStatefulSet(true).getSpec().getTemplate().getSpec();
+
+        PodAffinityTerm required = pod.getAffinity().getPodAntiAffinity().getRequiredDuringSchedulingIgnoredDuringExecution().get(0);
+        assertEquals(labels("strimzi.io/name", KafkaCluster.kafkaClusterName(cluster)), required.getLabelSelector().getMatchLabels());
+        assertEquals(Scheduling.DEFAULT_TOPOLOGY_KEY, required.getTopologyKey());
+        WeightedPodAffinityTerm preferred = pod.getAffinity().getPodAntiAffinity().getPreferredDuringSchedulingIgnoredDuringExecution().get(0);
+        assertEquals(labels("strimzi.io/name", ZookeeperCluster.zookeeperClusterName(cluster)),
+                preferred.getPodAffinityTerm().getLabelSelector().getMatchLabels());
+
+        assertEquals(labels("node-pool", "kafka"), pod.getNodeSelector());
+        assertEquals("Equal", pod.getTolerations().get(0).getOperator());
+        assertEquals("kafka", pod.getTolerations().get(0).getValue());
+
+        assertNull(this.kc.generateStatefulSet(true).getSpec().getTemplate().getSpec().getAffinity());
+    }
+
+    @Test
+    public void testSchedulingValidation() {
+        for (String invalid : new String[] {
+            "{\"antiAffinity\": \"very\"}",
+            "{\"topologyKey\": \"\"}",
+            "{\"tolerations\": [{\"key\": \"a\", \"operator\": \"Maybe\"}]}",
+            "{\"tolerations\": [{\"key\": \"a\", \"effect\": \"Never\"}]}"}) {
+            try {
+                withScheduling(invalid);
+                fail("Expected " + invalid + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private ClusterDiffResult diffScheduling(String desired, String deployed) {
+        KafkaCluster other = deployed != null ? withScheduling(deployed) : this.kc;
+        KafkaCluster kc = desired != null ? withScheduling(desired) : this.kc;
+        return kc.diff(other.generateMetricsConfigMap(), other.generateStatefulSet(true));
+    }
+
+    @Test
+    public void testDiffScheduling() {
+        String hard = "{\"antiAffinity\": \"hard\"}";
+        String soft = "{\"antiAffinity\": \"soft\"}";
+        String pool = "{\"nodeSelector\": {\"node-pool\": \"kafka\"}}";
+        String tolerate = "{\"tolerations\": [{\"key\": \"dedicated\", \"operator\": \"Exists\"}]}";
+
+        assertFalse(diffScheduling(hard, hard).getDifferent());
+
+        // Hard constraints which running pods might violate need a roll ...
+        assertTrue(diffScheduling(hard, null).getRollingUpdate());
+        assertTrue(diffScheduling(hard, soft).getRollingUpdate());
+        assertTrue(diffScheduling(pool, null).getRollingUpdate());
+        assertTrue(diffScheduling(null, tolerate).getRollingUpdate());
+
+        // ... but relaxing them, or soft constraints, don't
+        for (String[] change : new String[][] {{null, hard}, {soft, hard}, {soft, null}, {null, pool}, {tolerate, null}}) {
+            ClusterDiffResult diff = diffScheduling(change[0], change[1]);
+            assertTrue(diff.getDifferent());
+            assertFalse(diff.getRollingUpdate());
+        }
+    }
+
+    private KafkaCluster withRack(String rack) {
+        ConfigMap cm = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        cm.getData().put(KafkaCluster.KEY_RACK, rack);
+        return KafkaCluster.fromConfigMap(cm);
+    }
+
+    private static String envVar(Container container, String name) {
+        return container.getEnv().stream().filter(e -> name.equals(e.getName())).map(EnvVar::getValue).findFirst().orElse(null);
+    }
+
+    @Test
+    public void testRack() {
+        KafkaCluster kc = withRack("{\"topologyKey\": \"failure-domain.beta.kubernetes.io/zone\"}");
+        assertTrue(kc.isRackAware());
+        StatefulSet ss = kc.generateStatefulSet(true);
+        PodSpec pod = ss.getSpec().getTemplate().getSpec();
+
+        assertEquals(KafkaCluster.DEFAULT_RACK_SERVICE_ACCOUNT, pod.getServiceAccountName());
+        assertEquals(1, pod.getInitContainers().size());
+        Container init = pod.getInitContainers().get(0);
+        assertEquals(image, init.getImage());
+        assertEquals("failure-domain.beta.kubernetes.io/zone", envVar(init, "KAFKA_RACK_TOPOLOGY_KEY"));
+        assertEquals("spec.nodeName", init.getEnv().get(0).getValueFrom().getFieldRef().getFieldPath());
+        assertEquals(envVar(init, "KAFKA_RACK_FILE"), envVar(pod.getContainers().get(0), "KAFKA_RACK_FILE"));
+        assertTrue(pod.getContainers().get(0).getVolumeMounts().containsAll(init.getVolumeMounts()));
+
+        KafkaCluster kc2 = KafkaCluster.fromStatefulSet(ss, namespace, cluster);
+        assertTrue(kc2.isRackAware());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+
+        // Patching a deployed StatefulSet adds and removes the rack init container
+        StatefulSet patched = kc.patchStatefulSet(this.kc.generateStatefulSet(true));
+        assertEquals(pod.getInitContainers(), patched.getSpec().getTemplate().getSpec().getInitContainers());
+        assertEquals(pod.getVolumes(), patched.getSpec().getTemplate().getSpec().getVolumes());
+        assertEquals(pod.getServiceAccountName(), patched.getSpec().getTemplate().getSpec().getServiceAccountName());
+        PodSpec unpatched = this.kc.patchStatefulSet(ss).getSpec().getTemplate().getSpec();
+        assertTrue(unpatched.getInitContainers().isEmpty());
+        assertNull(unpatched.getServiceAccountName());
+        assertEquals(this.kc.generateStatefulSet(true).getSpec().getTemplate().getSpec().getContainers().get(0).getVolumeMounts(),
+                unpatched.getContainers().get(0).getVolumeMounts());
+
+        assertFalse(this.kc.isRackAware());
+        assertNull(this.kc.generateStatefulSet(true).getSpec().getTemplate().getSpec().getServiceAccountName());
+    }
+
+    @Test
+    public void testRackValidation() {
+        for (String invalid : new String[] {"{}", "{\"topologyKey\": \"\"}"}) {
+            try {
+                withRack(invalid);
+                fail("Expected " + invalid + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDiffRack() {
+        KafkaCluster zone = withRack("{\"topologyKey\": \"failure-domain.beta.kubernetes.io/zone\"}");
+        KafkaCluster host = withRack("{\"topologyKey\": \"kubernetes.io/hostname\"}");
+
+        assertTrue(zone.diff(kc.generateMetricsConfigMap(), kc.generateStatefulSet(true)).getRollingUpdate());
+        assertTrue(kc.diff(kc.generateMetricsConfigMap(), zone.generateStatefulSet(true)).getRollingUpdate());
+        assertTrue(zone.diff(kc.generateMetricsConfigMap(), host.generateStatefulSet(true)).getRollingUpdate());
+    }
+
+    private KafkaCluster withStorage(String storage) {
+        ConfigMap cm = ResourceUtils.createConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson);
+        cm.getData().put(KafkaCluster.KEY_STORAGE, storage);
+        return KafkaCluster.fromConfigMap(cm);
+    }
+
+    private static final String JBOD = "{\"type\": \"jbod\", \"delete-claim\": true, \"volumes\": ["
+            + "{\"size\": \"100Gi\", \"class\": \"fast\"}, {\"type\": \"persistent-claim\", \"size\": \"200Gi\"}]}";
+
+    @Test
+    public void testJbodStorage() {
+        KafkaCluster kc = withStorage(JBOD);
+        StatefulSet ss = kc.generateStatefulSet(false);
+
+        List<PersistentVolumeClaim> claims = ss.getSpec().getVolumeClaimTemplates();
+        assertEquals(2, claims.size());
+        assertEquals("kafka-storage-0", claims.get(0).getMetadata().getName());
+        assertEquals("100Gi", claims.get(0).getSpec().getResources().getRequests().get("storage").getAmount());
+        assertEquals("fast", claims.get(0).getSpec().getStorageClassName());
+        assertEquals("kafka-storage-1", claims.get(1).getMetadata().getName());
+        assertEquals("200Gi", claims.get(1).getSpec().getResources().getRequests().get("storage").getAmount());
+
+        Container container = ss.getSpec().getTemplate().getSpec().getContainers().get(0);
+        assertEquals("/var/lib/kafka/kafka-storage-0", container.getVolumeMounts().get(0).getMountPath());
+        assertEquals("/var/lib/kafka/kafka-storage-1", container.getVolumeMounts().get(1).getMountPath());
+        assertEquals("/var/lib/kafka/kafka-storage-0,/var/lib/kafka/kafka-storage-1", envVar(container, "KAFKA_LOG_VOLUMES"));
+        assertNull(envVar(this.kc.generateStatefulSet(false).getSpec().getTemplate().getSpec().getContainers().get(0), "KAFKA_LOG_VOLUMES"));
+
+        // On Kubernetes the volume mount hack has to chown all the volumes
+        Container init = ss.getSpec().getTemplate().getSpec().getInitContainers().get(0);
+        assertEquals(container.getVolumeMounts().subList(0, 2), init.getVolumeMounts());
+        // and a failure on the first mustn't be masked by the second
+        assertTrue(init.getCommand().get(2).contains("chown -R 1001:1001 /var/lib/kafka/kafka-storage-0 "
+                + "&& touch /var/lib/kafka/kafka-storage-0/.strimzi-owned || exit 1; fi;"));
+        assertTrue(init.getCommand().get(2).contains("chown -R 1001:1001 /var/lib/kafka/kafka-storage-1 "
+                + "&& touch /var/lib/kafka/kafka-storage-1/.strimzi-owned || exit 1; fi;"));
+
+        // delete-claim covers the claims of all the volumes of all the brokers
+        List<String> names = kc.getPersistentVolumeClaimNames();
+        assertEquals(2 * replicas, names.size());
+        assertTrue(names.contains("kafka-storage-1-" + KafkaCluster.kafkaClusterName(cluster) + "-" + (replicas - 1)));
+        assertTrue(this.kc.getPersistentVolumeClaimNames().isEmpty());
+
+        KafkaCluster kc2 = KafkaCluster.fromStatefulSet(ss, namespace, cluster);
+        assertEquals(Storage.StorageType.JBOD, kc2.getStorage().type());
+        assertEquals(2, kc2.getStorage().volumes().size());
+        assertTrue(kc2.getStorage().isDeleteClaim());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+    }
+
+    @Test
+    public void testJbodStorageValidation() {
+        for (String invalid : new String[] {
+            "{\"type\": \"jbod\"}",
+            "{\"type\": \"jbod\", \"volumes\": []}",
+            "{\"type\": \"jbod\", \"size\": \"1Gi\", \"volumes\": [{\"size\": \"1Gi\"}]}",
+            "{\"type\": \"jbod\", \"volumes\": [{\"type\": \"ephemeral\"}]}",
+            "{\"type\": \"jbod\", \"volumes\": [{\"size\": \"1Gi\", \"delete-claim\": true}]}"}) {
+            try {
+                withStorage(invalid);
+                fail("Expected " + invalid + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDiffJbodStorage() {
+        KafkaCluster kc = withStorage(JBOD);
+        StatefulSet ss = kc.generateStatefulSet(true);
+
+        Storage.StorageDiffResult added = withStorage("{\"type\": \"jbod\", \"volumes\": [{\"size\": \"100Gi\"}, {\"size\": \"200Gi\"}, {\"size\": \"300Gi\"}]}")
+                .getStorage().diff(kc.getStorage());
+        assertTrue(added.isVolumes());
+        Storage.StorageDiffResult resized = withStorage("{\"type\": \"jbod\", \"volumes\": [{\"size\": \"100Gi\", \"class\": \"fast\"}, {\"size\": \"300Gi\"}]}")
+                .getStorage().diff(kc.getStorage());
+        assertFalse(resized.isVolumes());
+        assertTrue(resized.isSize());
+        assertFalse(resized.isStorageClass());
+
+        // only delete-claim can be changed
+        assertTrue(withStorage(JBOD.replace("true", "false")).diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+    }
+
+    @Test
+    public void testDiffStorageExpansion() {
+        KafkaCluster deployed = withStorage("{\"type\": \"persistent-claim\", \"size\": \"1Gi\"}");
+        StatefulSet ss = deployed.generateStatefulSet(true);
+
+        ClusterDiffResult expanded = withStorage("{\"type\": \"persistent-claim\", \"size\": \"2Gi\"}").diff(kc.generateMetricsConfigMap(), ss);
+        assertTrue(expanded.getDifferent());
+        assertTrue(expanded.isStorageExpanded());
+        assertFalse(expanded.getRollingUpdate());
+
+        // the same size in other units isn't a change, and volumes can't shrink
+        assertFalse(withStorage("{\"type\": \"persistent-claim\", \"size\": \"1024Mi\"}").diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+        ClusterDiffResult shrunk = withStorage("{\"type\": \"persistent-claim\", \"size\": \"512Mi\"}").diff(kc.generateMetricsConfigMap(), ss);
+        assertFalse(shrunk.getDifferent());
+        assertFalse(shrunk.isStorageExpanded());
+
+        // with jbod storage each volume can be expanded, but none shrunk
+        StatefulSet jbod = withStorage(JBOD).generateStatefulSet(true);
+        assertTrue(withStorage(JBOD.replace("200Gi", "300Gi")).diff(kc.generateMetricsConfigMap(), jbod).isStorageExpanded());
+        assertFalse(withStorage(JBOD.replace("200Gi", "300Gi").replace("100Gi", "50Gi")).diff(kc.generateMetricsConfigMap(), jbod).isStorageExpanded());
+    }
+
+    @Test
+    public void testVolumeMountHack() {
+        KafkaCluster kc = withStorage("{\"type\": \"persistent-claim\", \"size\": \"1Gi\"}");
+        StatefulSet ss = kc.generateStatefulSet(false);
+        PodSpec pod = ss.getSpec().getTemplate().getSpec();
+
+        // the recursive chown only happens on first use, or when the ownership of the volume changed
+        Container hack = pod.getInitContainers().get(0);
+        assertEquals("if [ ! -f /var/lib/kafka/.strimzi-owned ] || [ \"$(stat -c %u:%g /var/lib/kafka)\" != \"1001:1001\" ]; "
+                + "then chown -R 1001:1001 /var/lib/kafka && touch /var/lib/kafka/.strimzi-owned || exit 1; fi;", hack.getCommand().get(2));
+        // and the kubelet isn't asked to chown the volumes again before every start
+        assertNull(pod.getSecurityContext());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+
+        // a StatefulSet deployed with the chown on every start is patched
+        hack.setCommand(Arrays.asList("sh", "-c", "chown -R 1001:1001 /var/lib/kafka"));
+        assertTrue(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getRollingUpdate());
+        kc.patchStatefulSet(ss);
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+
+        // as is one deployed with an fsGroup
+        pod.setSecurityContext(new PodSecurityContextBuilder().withFsGroup(1001L).build());
+        assertTrue(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getRollingUpdate());
+        kc.patchStatefulSet(ss);
+        assertNull(ss.getSpec().getTemplate().getSpec().getSecurityContext());
+        assertFalse(kc.diff(kc.generateMetricsConfigMap(), ss).getDifferent());
+
+        assertTrue(kc.generateStatefulSet(true).getSpec().getTemplate().getSpec().getInitContainers().isEmpty());
+    }
+
 }
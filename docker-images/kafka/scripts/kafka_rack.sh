@@ -0,0 +1,28 @@
+#!/bin/bash
+
+# Run as an init container: looks up the label $KAFKA_RACK_TOPOLOGY_KEY of the node
+# this pod is scheduled on ($NODE_NAME) and writes its value to $KAFKA_RACK_FILE,
+# from where kafka_run.sh sets it as broker.rack.
+# The node's labels aren't available through the downward API, so this asks the API server,
+# which needs the pod's service account to be allowed to get nodes.
+# The node is parsed with python, which the kafka-base image installs.
+
+SA_DIR=/var/run/secrets/kubernetes.io/serviceaccount
+
+if ! command -v python > /dev/null; then
+  echo "python is needed to read the labels of node $NODE_NAME, but it isn't installed"
+  exit 1
+fi
+
+RACK=$(curl -sSf --cacert $SA_DIR/ca.crt \
+  -H "Authorization: Bearer $(cat $SA_DIR/token)" \
+  "https://${KUBERNETES_SERVICE_HOST}:${KUBERNETES_SERVICE_PORT}/api/v1/nodes/${NODE_NAME}" \
+  | python -c 'import json, sys; print(json.load(sys.stdin)["metadata"].get("labels", {}).get(sys.argv[1], ""))' "$KAFKA_RACK_TOPOLOGY_KEY")
+
+if [ -z "$RACK" ]; then
+  echo "Node $NODE_NAME has no label $KAFKA_RACK_TOPOLOGY_KEY, or it couldn't be read"
+  exit 1
+fi
+
+echo "KAFKA_RACK=$RACK"
+echo -n "$RACK" > $KAFKA_RACK_FILE
@@ -9,8 +9,16 @@ export KAFKA_APP_LOGS_BASE_NAME="logs"
 export KAFKA_BROKER_ID=$(hostname | awk -F'-' '{print $NF}')
 echo "KAFKA_BROKER_ID=$KAFKA_BROKER_ID"
 
-# create data dir
-export KAFKA_LOG_DIRS=$KAFKA_VOLUME$KAFKA_LOG_BASE_NAME$KAFKA_BROKER_ID
+# create data dir, or one on each of the volumes given for JBOD storage
+if [ -n "$KAFKA_LOG_VOLUMES" ]; then
+  KAFKA_LOG_DIRS=""
+  for VOLUME in ${KAFKA_LOG_VOLUMES//,/ }; do
+    KAFKA_LOG_DIRS="${KAFKA_LOG_DIRS:+$KAFKA_LOG_DIRS,}$VOLUME/$KAFKA_LOG_BASE_NAME$KAFKA_BROKER_ID"
+  done
+  export KAFKA_LOG_DIRS
+else
+  export KAFKA_LOG_DIRS=$KAFKA_VOLUME$KAFKA_LOG_BASE_NAME$KAFKA_BROKER_ID
+fi
 echo "KAFKA_LOG_DIRS=$KAFKA_LOG_DIRS"
 
 # Disable Kafka's GC logging (which logs to a file)...
@@ -34,8 +42,21 @@ fi
 # directory avoids trying to create it (and logging a permission denied error)
 export LOG_DIR="$KAFKA_HOME"
 
+# add the broker configuration from the cluster ConfigMap, which takes precedence over the defaults
+KAFKA_PROPERTIES=/tmp/strimzi-server.properties
+cp $KAFKA_HOME/config/server.properties $KAFKA_PROPERTIES
+if [ -n "$KAFKA_CONFIGURATION" ]; then
+  printf '\n%s\n' "$KAFKA_CONFIGURATION" >> $KAFKA_PROPERTIES
+fi
+
+# the rack of the broker, as found by the rack init container
+if [ -n "$KAFKA_RACK_FILE" ] && [ -f "$KAFKA_RACK_FILE" ]; then
+  echo "KAFKA_RACK=$(cat $KAFKA_RACK_FILE)"
+  printf '\nbroker.rack=%s\n' "$(cat $KAFKA_RACK_FILE)" >> $KAFKA_PROPERTIES
+fi
+
 # starting Kafka server with final configuration
-exec $KAFKA_HOME/bin/kafka-server-start.sh $KAFKA_HOME/config/server.properties \
+exec $KAFKA_HOME/bin/kafka-server-start.sh $KAFKA_PROPERTIES \
 --override broker.id=$KAFKA_BROKER_ID \
 --override advertised.host.name=$(hostname -I) \
 --override zookeeper.connect=${KAFKA_ZOOKEEPER_CONNECT:-zookeeper:2181}  \
@@ -117,6 +117,12 @@ public class Config {
     public static final String TC_PERIODIC_INTERVAL = "STRIMZI_FULL_RECONCILIATION_INTERVAL";
     public static final String TC_REASSIGN_THROTTLE = "STRIMZI_REASSIGN_THROTTLE";
     public static final String TC_REASSIGN_VERIFY_INTERVAL = "STRIMZI_REASSIGN_VERIFY_INTERVAL";
+    public static final String TC_HEALTH_PORT = "STRIMZI_HEALTH_PORT";
+    public static final String TC_LIVENESS_DEADLINE = "STRIMZI_LIVENESS_DEADLINE";
+    public static final String TC_READINESS_MAX_BACKLOG = "STRIMZI_READINESS_MAX_BACKLOG";
+    public static final String TC_READINESS_MAX_BACKLOG_AGE = "STRIMZI_READINESS_MAX_BACKLOG_AGE";
+    public static final String TC_RETRY_BUDGET = "STRIMZI_RETRY_BUDGET";
+    public static final String TC_RETRY_BUDGET_RATE = "STRIMZI_RETRY_BUDGET_RATE";
 
     private static final Map<String, Value> CONFIG_VALUES = new HashMap<>();
     private static final Set<Type> TYPES = new HashSet<>();
@@ -148,6 +154,24 @@ public class Config {
      */
     public static final Value<Long> REASSIGN_VERIFY_INTERVAL_MS = new Value(TC_REASSIGN_VERIFY_INTERVAL, DURATION, "2 minutes");
 
+    /** The port on which the HTTP health server listens. */
+    public static final Value<Long> HEALTH_PORT = new Value(TC_HEALTH_PORT, LONG, "8080");
+
+    /** How long the event loop may go without responding before the controller is reported as not alive. */
+    public static final Value<Long> LIVENESS_DEADLINE_MS = new Value(TC_LIVENESS_DEADLINE, DURATION, "30 seconds");
+
+    /** The number of queued or in progress reconciliations above which the controller is reported as not ready. */
+    public static final Value<Long> READINESS_MAX_BACKLOG = new Value(TC_READINESS_MAX_BACKLOG, LONG, "1000");
+
+    /** The age of the oldest queued or in progress reconciliation above which the controller is reported as not ready. */
+    public static final Value<Long> READINESS_MAX_BACKLOG_AGE_MS = new Value(TC_READINESS_MAX_BACKLOG_AGE, DURATION, "5 minutes");
+
+    /** The maximum number of retries of Kafka operations which can happen in a burst. */
+    public static final Value<Long> RETRY_BUDGET = new Value(TC_RETRY_BUDGET, LONG, "100");
+
+    /** The sustained rate, per second, of retries of Kafka operations. */
+    public static final Value<Long> RETRY_BUDGET_RATE = new Value(TC_RETRY_BUDGET_RATE, LONG, "10");
+
 
     static {
         Map<String, Value> configValues = CONFIG_VALUES;
@@ -159,6 +183,12 @@ public class Config {
         addConfigValue(configValues, FULL_RECONCILIATION_INTERVAL_MS);
         addConfigValue(configValues, REASSIGN_THROTTLE);
         addConfigValue(configValues, REASSIGN_VERIFY_INTERVAL_MS);
+        addConfigValue(configValues, HEALTH_PORT);
+        addConfigValue(configValues, LIVENESS_DEADLINE_MS);
+        addConfigValue(configValues, READINESS_MAX_BACKLOG);
+        addConfigValue(configValues, READINESS_MAX_BACKLOG_AGE_MS);
+        addConfigValue(configValues, RETRY_BUDGET);
+        addConfigValue(configValues, RETRY_BUDGET_RATE);
     }
 
     static void addConfigValue(Map<String, Value> configValues, Value cv) {
@@ -34,6 +34,7 @@ class ConfigMapWatcher implements Watcher<ConfigMap> {
 
     private Controller controller;
     private final LabelPredicate cmPredicate;
+    private volatile boolean closed = false;
 
     public ConfigMapWatcher(Controller controller, LabelPredicate cmPredicate) {
         this.controller = controller;
@@ -80,5 +81,13 @@ class ConfigMapWatcher implements Watcher<ConfigMap> {
 
     public void onClose(KubernetesClientException e) {
         logger.debug("Closing {}", this);
+        closed = true;
+    }
+
+    /**
+     * Whether the watch this watcher is registered with has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
     }
 }
@@ -46,6 +46,7 @@ public class Controller {
     private final String namespace;
     private TopicStore topicStore;
     private final InFlight inFlight;
+    private final RetryScheduler retryScheduler;
 
     enum EventType {
         INFO("Info"),
@@ -336,6 +337,15 @@ public class Controller {
                       TopicStore topicStore,
                       LabelPredicate cmPredicate,
                       String namespace) {
+        this(vertx, kafka, k8s, topicStore, cmPredicate, namespace, new RetryScheduler(vertx));
+    }
+
+    public Controller(Vertx vertx, Kafka kafka,
+                      K8s k8s,
+                      TopicStore topicStore,
+                      LabelPredicate cmPredicate,
+                      String namespace,
+                      RetryScheduler retryScheduler) {
         this.kafka = kafka;
         this.k8s = k8s;
         this.vertx = vertx;
@@ -343,6 +353,7 @@ public class Controller {
         this.topicStore = topicStore;
         this.inFlight = new InFlight(vertx);
         this.namespace = namespace;
+        this.retryScheduler = retryScheduler;
     }
 
     void reconcile(ConfigMap cm, TopicName topicName) {
@@ -620,7 +631,7 @@ public class Controller {
                 // getting topic information from the private store
                 topicStore.read(topicName, topicResult -> {
 
-                    TopicMetadataHandler handler = new TopicMetadataHandler(vertx, kafka, topicName) {
+                    TopicMetadataHandler handler = new TopicMetadataHandler(retryScheduler, "onTopicPartitionsChanged", kafka, topicName) {
                         @Override
                         public void handle(AsyncResult<TopicMetadata> metadataResult) {
 
@@ -716,7 +727,7 @@ public class Controller {
             @Override
             public void handle(Future<Void> fut) {
 
-                TopicMetadataHandler handler = new TopicMetadataHandler(vertx, kafka, topicName) {
+                TopicMetadataHandler handler = new TopicMetadataHandler(retryScheduler, "onTopicCreated", kafka, topicName) {
 
                     @Override
                     public void handle(AsyncResult<TopicMetadata> metadataResult) {
@@ -938,5 +949,19 @@ public class Controller {
     public boolean isWorkInflight() {
         return inFlight.size() > 0;
     }
+
+    /**
+     * The number of reconciliation actions which are queued or in progress.
+     */
+    public int inflightBacklog() {
+        return inFlight.backlog();
+    }
+
+    /**
+     * The time, in milliseconds, since the oldest queued or in progress reconciliation action was enqueued.
+     */
+    public long oldestInflightAgeMs() {
+        return inFlight.oldestAgeMs();
+    }
 }
 
@@ -24,6 +24,7 @@ import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -57,6 +58,9 @@ class InFlight<T> {
 
     private final ConcurrentHashMap<T, InflightHandler> map = new ConcurrentHashMap<>();
 
+    /** All the actions which have been enqueued but not yet completed, whatever their key. */
+    private final Set<InflightHandler> pending = ConcurrentHashMap.newKeySet();
+
     class InflightHandler implements Handler<AsyncResult<Void>> {
 
         private final Handler<AsyncResult<Void>> h1;
@@ -64,6 +68,7 @@ class InFlight<T> {
         private final String fur;
         private Handler<AsyncResult<Void>> h3;
         private final Future<Void> fut;
+        private final long enqueuedAt = System.currentTimeMillis();
 
         public InflightHandler(T key, String fur, Handler<AsyncResult<Void>> h1) {
             this.fur = fur;
@@ -86,6 +91,7 @@ class InFlight<T> {
 
         @Override
         public void handle(AsyncResult<Void> event) {
+            pending.remove(this);
             h1.handle(event);
             h2.handle(event);
             if (h3 != null) {
@@ -117,6 +123,7 @@ class InFlight<T> {
     public void enqueue(T key, Handler<AsyncResult<Void>> resultHandler, Handler<Future<Void>> action) {
         InflightHandler fut = new InflightHandler(key, action.toString(), resultHandler);
         logger.debug("resultHandler:{}, action:{}, fut:{}", resultHandler, action, fut);
+        pending.add(fut);
         map.compute(key, (k, current) -> {
             if (current == null) {
                 logger.debug("Queueing {} for immediate execution", action);
@@ -140,4 +147,25 @@ class InFlight<T> {
     public int size() {
         return map.size();
     }
+
+    /**
+     * The number of actions which have been enqueued but not yet completed.
+     * This is at least {@link #size()}, since several actions can be queued for the same key.
+     */
+    public int backlog() {
+        return pending.size();
+    }
+
+    /**
+     * The time, in milliseconds, since the oldest action which has not yet completed was enqueued,
+     * or zero if there are no such actions.
+     */
+    public long oldestAgeMs() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (InflightHandler handler : pending) {
+            oldest = Math.min(oldest, handler.enqueuedAt);
+        }
+        return now - oldest;
+    }
 }
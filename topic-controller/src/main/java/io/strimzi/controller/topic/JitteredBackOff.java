@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import java.util.Random;
+
+/**
+ * A {@link BackOff} with "decorrelated jitter": each delay is chosen uniformly at random between
+ * {@code baseMs} and three times the previous delay, capped at {@code capMs}.
+ * Unlike a deterministic exponential back-off, this stops retries which started at the same time
+ * (e.g. when many topics are created together) from continuing to fire at the same time.
+ *
+ * @see <a href="https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/">Exponential Backoff And Jitter</a>
+ */
+public class JitteredBackOff extends BackOff {
+    private final long baseMs;
+    private final long capMs;
+    private final int maxAttempts;
+    private final Random random;
+    private int attempt = 0;
+    private long previousMs;
+    private long totalMs = 0;
+
+    public JitteredBackOff() {
+        this(200L, 2_000L, 4);
+    }
+
+    public JitteredBackOff(long baseMs, long capMs, int maxAttempts) {
+        this(baseMs, capMs, maxAttempts, new Random());
+    }
+
+    JitteredBackOff(long baseMs, long capMs, int maxAttempts, Random random) {
+        super(baseMs, 3, maxAttempts);
+        assert(capMs >= baseMs);
+        this.baseMs = baseMs;
+        this.capMs = capMs;
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+        this.previousMs = baseMs;
+    }
+
+    /**
+     * Return the next delay to use, in milliseconds.
+     * The first delay is always zero, subsequent delays are between {@code baseMs} and {@code capMs}.
+     * @throws MaxAttemptsExceededException if the next attempt would exceed the configured number of attempts.
+     */
+    @Override
+    public long delayMs() {
+        int n = attempt++;
+        if (n == 0) {
+            return 0L;
+        }
+        if (n >= maxAttempts) {
+            throw new MaxAttemptsExceededException();
+        }
+        long upper = Math.max(baseMs, Math.min(capMs, previousMs * 3));
+        previousMs = baseMs + (long) (random.nextDouble() * (upper - baseMs + 1));
+        previousMs = Math.min(previousMs, capMs);
+        totalMs += previousMs;
+        return previousMs;
+    }
+
+    /**
+     * The total of the delays returned so far.
+     * Because the delays are random this is not known in advance, but once the
+     * maximum number of attempts has been made it is the total delay.
+     */
+    @Override
+    public long totalDelayMs() {
+        return totalMs;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules the retries of all the operations of a {@link Controller}.
+ *
+ * Rather than each retry arming its own Vert.x timer, retries are held in a hashed timing wheel
+ * which is advanced by a single periodic timer (only while there are retries pending).
+ * Delays are thus rounded up to a multiple of the tick duration.
+ *
+ * A global retry budget (a token bucket) limits the rate of retries across all operations,
+ * so that a burst of failures cannot turn into a burst of retries against the brokers.
+ * When the budget is exhausted {@link #schedule} returns false and the caller should give up.
+ *
+ * The number of retries, retries refused for lack of budget, and operations which gave up
+ * are counted per operation, see {@link #metrics()}.
+ */
+class RetryScheduler {
+
+    private final static Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+
+    /** The counters kept for each operation. */
+    static class RetryMetrics {
+        /** The number of retries scheduled. */
+        final AtomicLong retries = new AtomicLong();
+        /** The number of retries refused because the retry budget was exhausted. */
+        final AtomicLong budgetExhausted = new AtomicLong();
+        /** The number of times the operation gave up after reaching its maximum number of attempts. */
+        final AtomicLong maxAttemptsExceeded = new AtomicLong();
+    }
+
+    private static class Task {
+        private final long deadlineTick;
+        private final Handler<Void> handler;
+
+        private Task(long deadlineTick, Handler<Void> handler) {
+            this.deadlineTick = deadlineTick;
+            this.handler = handler;
+        }
+    }
+
+    private final Vertx vertx;
+    private final Context context;
+    private final long tickMs;
+    private final List<Task>[] wheel;
+    private final Map<String, RetryMetrics> metrics = new ConcurrentHashMap<>();
+
+    // Only accessed on the context
+    private long currentTick = 0;
+    private long timerId = -1;
+
+    // Updated on the context, read from anywhere
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // Guarded by this
+    private final double budgetCapacity;
+    private final double budgetRefillPerMs;
+    private double budgetTokens;
+    private long budgetUpdatedAt;
+
+    /**
+     * Constructor
+     *
+     * @param vertx Vert.x instance to use for the timer
+     * @param tickMs the duration of a tick of the wheel
+     * @param wheelSize the number of slots in the wheel
+     * @param budget the maximum number of retries which can happen in a burst
+     * @param budgetPerSecond the sustained rate of retries permitted
+     */
+    RetryScheduler(Vertx vertx, long tickMs, int wheelSize, long budget, long budgetPerSecond) {
+        assert(tickMs > 0);
+        assert(wheelSize > 0);
+        assert(budget > 0);
+        assert(budgetPerSecond > 0);
+        this.vertx = vertx;
+        this.context = vertx.getOrCreateContext();
+        this.tickMs = tickMs;
+        this.wheel = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.wheel[i] = new ArrayList<>(0);
+        }
+        this.budgetCapacity = budget;
+        this.budgetRefillPerMs = budgetPerSecond / 1000.0;
+        this.budgetTokens = budget;
+        this.budgetUpdatedAt = System.currentTimeMillis();
+    }
+
+    RetryScheduler(Vertx vertx, long budget, long budgetPerSecond) {
+        this(vertx, 50L, 512, budget, budgetPerSecond);
+    }
+
+    RetryScheduler(Vertx vertx) {
+        this(vertx, 100, 10);
+    }
+
+    /**
+     * Return a new back-off, suitable for the retries of a single operation.
+     */
+    BackOff newBackOff() {
+        return new JitteredBackOff();
+    }
+
+    /**
+     * Schedule the given {@code handler} to be run on the context after the given delay,
+     * if the retry budget permits.
+     * @param operation The name of the operation being retried, for the metrics.
+     * @param delayMs The delay.
+     * @param handler The retry.
+     * @return true if the retry was scheduled, false if the retry budget was exhausted.
+     */
+    boolean schedule(String operation, long delayMs, Handler<Void> handler) {
+        RetryMetrics m = metrics(operation);
+        if (!tryAcquireBudget()) {
+            m.budgetExhausted.incrementAndGet();
+            return false;
+        }
+        m.retries.incrementAndGet();
+        context.runOnContext(ignored -> {
+            if (delayMs < 1) {
+                handler.handle(null);
+            } else {
+                add(delayMs, handler);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Record that the given operation gave up after reaching its maximum number of attempts.
+     */
+    void maxAttemptsExceeded(String operation) {
+        metrics(operation).maxAttemptsExceeded.incrementAndGet();
+    }
+
+    private RetryMetrics metrics(String operation) {
+        return metrics.computeIfAbsent(operation, k -> new RetryMetrics());
+    }
+
+    /**
+     * The counters for each operation, by operation name.
+     */
+    Map<String, RetryMetrics> metrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    /**
+     * The number of retries scheduled but not yet run.
+     */
+    int pending() {
+        return pending.get();
+    }
+
+    private synchronized boolean tryAcquireBudget() {
+        long now = System.currentTimeMillis();
+        budgetTokens = Math.min(budgetCapacity, budgetTokens + (now - budgetUpdatedAt) * budgetRefillPerMs);
+        budgetUpdatedAt = now;
+        if (budgetTokens >= 1) {
+            budgetTokens -= 1;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void add(long delayMs, Handler<Void> handler) {
+        // Round up, so we never run a retry early
+        long ticks = (delayMs + tickMs - 1) / tickMs;
+        Task task = new Task(currentTick + ticks, handler);
+        wheel[(int) (task.deadlineTick % wheel.length)].add(task);
+        pending.incrementAndGet();
+        if (timerId == -1) {
+            timerId = vertx.setPeriodic(tickMs, this::tick);
+        }
+    }
+
+    private void tick(long timerId) {
+        currentTick++;
+        List<Task> slot = wheel[(int) (currentTick % wheel.length)];
+        List<Task> due = null;
+        for (Iterator<Task> it = slot.iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            // Tasks more than one revolution away stay in the slot
+            if (task.deadlineTick <= currentTick) {
+                it.remove();
+                if (due == null) {
+                    due = new ArrayList<>(slot.size() + 1);
+                }
+                due.add(task);
+            }
+        }
+        if (due != null) {
+            pending.addAndGet(-due.size());
+            for (Task task : due) {
+                try {
+                    task.handler.handle(null);
+                } catch (RuntimeException e) {
+                    logger.error("Error running retry", e);
+                }
+            }
+        }
+        if (pending.get() == 0 && this.timerId != -1) {
+            vertx.cancelTimer(this.timerId);
+            this.timerId = -1;
+        }
+    }
+}
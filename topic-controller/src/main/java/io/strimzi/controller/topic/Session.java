@@ -20,14 +20,17 @@ package io.strimzi.controller.topic;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.strimzi.controller.topic.zk.Zk;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
+import io.vertx.core.http.HttpServer;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -46,12 +49,17 @@ public class Session extends AbstractVerticle {
     AdminClient adminClient;
     K8sImpl k8s;
     Controller controller;
-    Watch topicCmWatch;
+    RetryScheduler retryScheduler;
+    volatile Watch topicCmWatch;
+    ConfigMapWatcher configMapWatcher;
     TopicsWatcher topicsWatcher;
     TopicConfigsWatcher topicConfigsWatcher;
     TopicWatcher topicWatcher;
     private volatile boolean stopped = false;
     private Zk zk;
+    private HttpServer healthServer;
+    /** The last time the heartbeat timer ran on the event loop. */
+    private volatile long lastHeartbeat;
 
     public Session(KubernetesClient kubeClient, Config config) {
         this.kubeClient = kubeClient;
@@ -72,6 +80,8 @@ public class Session extends AbstractVerticle {
             long t0 = System.currentTimeMillis();
             long timeout = 120_000L;
             logger.info("Stopping");
+            logger.debug("Stopping health server");
+            healthServer.close();
             logger.debug("Stopping kube watch");
             topicCmWatch.close();
             logger.debug("Stopping zk watches");
@@ -126,7 +136,10 @@ public class Session extends AbstractVerticle {
         ZkTopicStore topicStore = new ZkTopicStore(zk);
         logger.debug("Using TopicStore {}", topicStore);
 
-        this.controller = new Controller(vertx, kafka, k8s, topicStore, cmPredicate, namespace);
+        this.retryScheduler = new RetryScheduler(vertx, config.get(Config.RETRY_BUDGET), config.get(Config.RETRY_BUDGET_RATE));
+        logger.debug("Using RetryScheduler {}", retryScheduler);
+
+        this.controller = new Controller(vertx, kafka, k8s, topicStore, cmPredicate, namespace, retryScheduler);
         logger.debug("Using Controller {}", controller);
 
         this.topicConfigsWatcher = new TopicConfigsWatcher(controller);
@@ -137,9 +150,10 @@ public class Session extends AbstractVerticle {
         logger.debug("Using TopicsWatcher {}", topicsWatcher);
         topicsWatcher.start(zk);
 
+        this.configMapWatcher = new ConfigMapWatcher(controller, cmPredicate);
         Thread configMapThread = new Thread(() -> {
             logger.debug("Watching configmaps matching {}", cmPredicate);
-            Session.this.topicCmWatch = kubeClient.configMaps().inNamespace(kubeClient.getNamespace()).watch(new ConfigMapWatcher(controller, cmPredicate));
+            Session.this.topicCmWatch = kubeClient.configMaps().inNamespace(kubeClient.getNamespace()).watch(configMapWatcher);
             logger.debug("Watching setup");
         }, "configmap-watcher");
         logger.debug("Starting {}", configMapThread);
@@ -156,9 +170,115 @@ public class Session extends AbstractVerticle {
                     }
                     reconcileTopics("periodic");
                 });
+        startHealthServer();
         logger.info("Started");
     }
 
+    /**
+     * Start an HTTP server for the liveness ({@code /healthy}) and readiness ({@code /ready}) probes,
+     * and for the retry metrics ({@code /metrics}, in the Prometheus text format).
+     * <ul>
+     *     <li>The controller is alive if the event loop has run the heartbeat timer recently.</li>
+     *     <li>The controller is ready if the ConfigMap and ZooKeeper watches are established, it is connected to
+     *     ZooKeeper, and its backlog of reconciliations is neither too big nor too old.</li>
+     * </ul>
+     */
+    private void startHealthServer() {
+        long livenessDeadline = config.get(Config.LIVENESS_DEADLINE_MS);
+        long maxBacklog = config.get(Config.READINESS_MAX_BACKLOG);
+        long maxBacklogAge = config.get(Config.READINESS_MAX_BACKLOG_AGE_MS);
+
+        lastHeartbeat = System.currentTimeMillis();
+        vertx.setPeriodic(Math.max(1L, livenessDeadline / 4), timerId -> {
+            if (stopped) {
+                vertx.cancelTimer(timerId);
+                return;
+            }
+            lastHeartbeat = System.currentTimeMillis();
+        });
+
+        this.healthServer = vertx.createHttpServer()
+                .requestHandler(request -> {
+                    if (request.path().equals("/healthy")) {
+                        // The request is handled on the event loop too, so a wedged loop
+                        // will time out the probe even before the deadline passes
+                        long sinceHeartbeat = System.currentTimeMillis() - lastHeartbeat;
+                        if (sinceHeartbeat <= livenessDeadline) {
+                            request.response().setStatusCode(HttpResponseStatus.OK.code()).end();
+                        } else {
+                            logger.warn("Liveness check failed: event loop last responded {}ms ago", sinceHeartbeat);
+                            request.response().setStatusCode(HttpResponseStatus.INTERNAL_SERVER_ERROR.code())
+                                    .end("Event loop last responded " + sinceHeartbeat + "ms ago");
+                        }
+                    } else if (request.path().equals("/ready")) {
+                        List<String> problems = readinessProblems(maxBacklog, maxBacklogAge);
+                        if (problems.isEmpty()) {
+                            request.response().setStatusCode(HttpResponseStatus.OK.code()).end();
+                        } else {
+                            logger.info("Readiness check failed: {}", problems);
+                            request.response().setStatusCode(HttpResponseStatus.SERVICE_UNAVAILABLE.code())
+                                    .end(String.join(System.lineSeparator(), problems));
+                        }
+                    } else if (request.path().equals("/metrics")) {
+                        request.response().setStatusCode(HttpResponseStatus.OK.code())
+                                .putHeader("Content-Type", "text/plain; version=0.0.4")
+                                .end(retryMetrics());
+                    } else {
+                        request.response().setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
+                    }
+                })
+                .listen(config.get(Config.HEALTH_PORT).intValue());
+    }
+
+    private String retryMetrics() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, RetryScheduler.RetryMetrics> metrics = retryScheduler.metrics();
+        sb.append("# HELP strimzi_topic_controller_retries_total The number of retries scheduled.\n");
+        sb.append("# TYPE strimzi_topic_controller_retries_total counter\n");
+        for (Map.Entry<String, RetryScheduler.RetryMetrics> entry : metrics.entrySet()) {
+            sb.append("strimzi_topic_controller_retries_total{operation=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().retries.get()).append('\n');
+        }
+        sb.append("# HELP strimzi_topic_controller_retries_budget_exhausted_total The number of retries refused because the retry budget was exhausted.\n");
+        sb.append("# TYPE strimzi_topic_controller_retries_budget_exhausted_total counter\n");
+        for (Map.Entry<String, RetryScheduler.RetryMetrics> entry : metrics.entrySet()) {
+            sb.append("strimzi_topic_controller_retries_budget_exhausted_total{operation=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().budgetExhausted.get()).append('\n');
+        }
+        sb.append("# HELP strimzi_topic_controller_retries_max_attempts_exceeded_total The number of operations which gave up after their maximum number of attempts.\n");
+        sb.append("# TYPE strimzi_topic_controller_retries_max_attempts_exceeded_total counter\n");
+        for (Map.Entry<String, RetryScheduler.RetryMetrics> entry : metrics.entrySet()) {
+            sb.append("strimzi_topic_controller_retries_max_attempts_exceeded_total{operation=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().maxAttemptsExceeded.get()).append('\n');
+        }
+        sb.append("# HELP strimzi_topic_controller_retries_pending The number of retries scheduled but not yet run.\n");
+        sb.append("# TYPE strimzi_topic_controller_retries_pending gauge\n");
+        sb.append("strimzi_topic_controller_retries_pending ").append(retryScheduler.pending()).append('\n');
+        return sb.toString();
+    }
+
+    private List<String> readinessProblems(long maxBacklog, long maxBacklogAge) {
+        List<String> problems = new ArrayList<>();
+        if (topicCmWatch == null || configMapWatcher.isClosed()) {
+            problems.add("ConfigMap watch is not established");
+        }
+        if (!topicsWatcher.started()) {
+            problems.add("Topics watch is not established");
+        }
+        if (!zk.isConnected()) {
+            problems.add("Not connected to ZooKeeper");
+        }
+        int backlog = controller.inflightBacklog();
+        if (backlog > maxBacklog) {
+            problems.add("Reconciliation backlog " + backlog + " exceeds " + maxBacklog);
+        }
+        long backlogAge = controller.oldestInflightAgeMs();
+        if (backlogAge > maxBacklogAge) {
+            problems.add("Oldest queued reconciliation is " + backlogAge + "ms old, exceeding " + maxBacklogAge + "ms");
+        }
+        return problems;
+    }
+
     private void reconcileTopics(String reconciliationType) {
         logger.info("Starting {} reconciliation", reconciliationType);
         kafka.listTopics(arx -> {
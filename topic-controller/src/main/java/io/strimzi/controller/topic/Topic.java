@@ -17,7 +17,6 @@
 
 package io.strimzi.controller.topic;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -133,7 +132,7 @@ public class Topic {
 
     private final int numPartitions;
 
-    private final Map<String, String> config;
+    private final TopicConfig config;
 
     private final short numReplicas;
 
@@ -165,12 +164,19 @@ public class Topic {
         return config;
     }
 
+    /**
+     * The config, in the compact representation used by {@link TopicDiff}.
+     */
+    TopicConfig getTopicConfig() {
+        return config;
+    }
+
     private Topic(TopicName topicName, MapName mapName, int numPartitions, short numReplicas, Map<String, String> config) {
         this.topicName = topicName;
         this.mapName = mapName;
         this.numPartitions = numPartitions;
         this.numReplicas = numReplicas;
-        this.config = Collections.unmodifiableMap(config);
+        this.config = TopicConfig.of(config);
     }
 
     @Override
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import kafka.log.LogConfig;
+import scala.collection.Iterator;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable, compact representation of the config of a {@link Topic}.
+ * The controller keeps several {@code Topic}s per topic (the one in Kafka, the one in Kubernetes,
+ * the one in the private topic store, and the results of merging them),
+ * so with large numbers of topics the config maps are a significant part of the heap.
+ * To reduce that:
+ * <ul>
+ *     <li>the entries are held in a pair of arrays sorted by key, rather than in a hash table,</li>
+ *     <li>keys which are known topic configs are replaced with a single canonical instance,</li>
+ *     <li>values are {@linkplain String#intern() interned},
+ *     because the same values (e.g. for {@code retention.ms}) tend to be used by many topics.</li>
+ * </ul>
+ * Lookups are by binary search, which for the handful of entries a topic typically
+ * has is no slower than hashing.
+ * The sorted order also allows {@link TopicDiff} to compute differences in a single pass.
+ */
+final class TopicConfig extends AbstractMap<String, String> {
+
+    /** The canonical instances of the known topic config keys. */
+    private static final Map<String, String> KNOWN_KEYS;
+
+    static {
+        Map<String, String> knownKeys = new HashMap<>();
+        Iterator<String> it = LogConfig.configNames().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            knownKeys.put(key, key);
+        }
+        KNOWN_KEYS = Collections.unmodifiableMap(knownKeys);
+    }
+
+    private static final String[] NO_STRINGS = new String[0];
+
+    static final TopicConfig EMPTY = new TopicConfig(NO_STRINGS, NO_STRINGS);
+
+    /** The keys, in ascending order. */
+    private final String[] keys;
+
+    /** The values, in the same order as the {@link #keys}. */
+    private final String[] values;
+
+    private int hash;
+
+    private TopicConfig(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Return a TopicConfig with the same entries as the given map.
+     * @throws NullPointerException if the map contains null keys or values.
+     */
+    static TopicConfig of(Map<String, String> config) {
+        if (config instanceof TopicConfig) {
+            return (TopicConfig) config;
+        }
+        if (config == null || config.isEmpty()) {
+            return EMPTY;
+        }
+        String[] keys = new String[config.size()];
+        int i = 0;
+        for (String key : config.keySet()) {
+            keys[i++] = internKey(key);
+        }
+        Arrays.sort(keys);
+        String[] values = new String[keys.length];
+        for (i = 0; i < keys.length; i++) {
+            values[i] = internValue(config.get(keys[i]));
+        }
+        return new TopicConfig(keys, values);
+    }
+
+    private static String internKey(String key) {
+        if (key == null) {
+            throw new NullPointerException("Null config key");
+        }
+        String known = KNOWN_KEYS.get(key);
+        return known != null ? known : key;
+    }
+
+    private static String internValue(String value) {
+        if (value == null) {
+            throw new NullPointerException("Null config value");
+        }
+        return value.intern();
+    }
+
+    /** The number of entries. */
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    /** The key at the given index in the sort order. */
+    String keyAt(int index) {
+        return keys[index];
+    }
+
+    /** The value at the given index in the sort order. */
+    String valueAt(int index) {
+        return values[index];
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        return Arrays.binarySearch(keys, key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public java.util.Iterator<Entry<String, String>> iterator() {
+                return new java.util.Iterator<Entry<String, String>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof TopicConfig) {
+            TopicConfig that = (TopicConfig) o;
+            return Arrays.equals(keys, that.keys) && Arrays.equals(values, that.values);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // Consistent with the Map contract, so TopicConfig can be compared with other maps
+        int h = hash;
+        if (h == 0 && keys.length != 0) {
+            for (int i = 0; i < keys.length; i++) {
+                h += keys[i].hashCode() ^ values[i].hashCode();
+            }
+            hash = h;
+        }
+        return h;
+    }
+}
@@ -235,28 +235,39 @@ public class TopicDiff {
             NumReplicasDifference numReplicasDifference = new NumReplicasDifference(target.getNumReplicas());
             differences.put(numReplicasDifference.address(), numReplicasDifference);
         }
-        if (!source.getConfig().equals(target.getConfig())) {
-            //Removed keys
-            HashSet<String> removed = new HashSet<>(source.getConfig().keySet());
-            removed.removeAll(target.getConfig().keySet());
-            for (String removedKey : removed) {
-                RemovedConfigEntry removedConfigEntry = new RemovedConfigEntry(removedKey);
-                differences.put(removedConfigEntry.address(), removedConfigEntry);
-            }
-            //Added keys
-            HashSet<String> added = new HashSet<>(target.getConfig().keySet());
-            added.removeAll(source.getConfig().keySet());
-            for (String addedKey : added) {
-                AddedConfigEntry addedConfigEntry = new AddedConfigEntry(addedKey, target.getConfig().get(addedKey));
-                differences.put(addedConfigEntry.address(), addedConfigEntry);
-            }
-            //Changed values
-            HashSet<String> retained = new HashSet<>(source.getConfig().keySet());
-            retained.retainAll(target.getConfig().keySet());
-            for (String retainedKey : retained) {
-                if (!source.getConfig().get(retainedKey).equals(target.getConfig().get(retainedKey))) {
-                    AddedConfigEntry addedConfigEntry = new AddedConfigEntry(retainedKey, target.getConfig().get(retainedKey));
+        TopicConfig sourceConfig = source.getTopicConfig();
+        TopicConfig targetConfig = target.getTopicConfig();
+        if (!sourceConfig.equals(targetConfig)) {
+            // Both configs are sorted by key, so we can walk them together
+            int sourceIndex = 0;
+            int targetIndex = 0;
+            while (sourceIndex < sourceConfig.size() || targetIndex < targetConfig.size()) {
+                int cmp;
+                if (sourceIndex >= sourceConfig.size()) {
+                    cmp = 1;
+                } else if (targetIndex >= targetConfig.size()) {
+                    cmp = -1;
+                } else {
+                    cmp = sourceConfig.keyAt(sourceIndex).compareTo(targetConfig.keyAt(targetIndex));
+                }
+                if (cmp < 0) {
+                    //Removed key
+                    RemovedConfigEntry removedConfigEntry = new RemovedConfigEntry(sourceConfig.keyAt(sourceIndex));
+                    differences.put(removedConfigEntry.address(), removedConfigEntry);
+                    sourceIndex++;
+                } else if (cmp > 0) {
+                    //Added key
+                    AddedConfigEntry addedConfigEntry = new AddedConfigEntry(targetConfig.keyAt(targetIndex), targetConfig.valueAt(targetIndex));
                     differences.put(addedConfigEntry.address(), addedConfigEntry);
+                    targetIndex++;
+                } else {
+                    //Changed value
+                    if (!sourceConfig.valueAt(sourceIndex).equals(targetConfig.valueAt(targetIndex))) {
+                        AddedConfigEntry addedConfigEntry = new AddedConfigEntry(targetConfig.keyAt(targetIndex), targetConfig.valueAt(targetIndex));
+                        differences.put(addedConfigEntry.address(), addedConfigEntry);
+                    }
+                    sourceIndex++;
+                    targetIndex++;
                 }
             }
         }
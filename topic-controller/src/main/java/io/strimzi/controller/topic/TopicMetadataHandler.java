@@ -19,12 +19,9 @@ package io.strimzi.controller.topic;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Represents a handler for getting Kafka topic metadata, providing a helper {@link #retry} method
  * for subclasses which want to retry when they need to do that
@@ -35,20 +32,23 @@ public abstract class TopicMetadataHandler implements Handler<AsyncResult<TopicM
 
     private final BackOff backOff;
 
-    private final Vertx vertx;
+    private final RetryScheduler retryScheduler;
+    private final String operation;
     private final Kafka kafka;
     private final TopicName topicName;
 
     /**
      * Constructor
      *
-     * @param vertx Vert.x instance to use for retrying mechanism
+     * @param retryScheduler scheduler to use for retrying
+     * @param operation name of the operation getting the metadata, for the retry metrics
      * @param kafka Kafka client for getting topic metadata
      * @param topicName topic name for which to get metadata
      * @param backOff   backoff information to use for retrying
      */
-    TopicMetadataHandler(Vertx vertx, Kafka kafka, TopicName topicName, BackOff backOff) {
-        this.vertx = vertx;
+    TopicMetadataHandler(RetryScheduler retryScheduler, String operation, Kafka kafka, TopicName topicName, BackOff backOff) {
+        this.retryScheduler = retryScheduler;
+        this.operation = operation;
         this.kafka = kafka;
         this.topicName = topicName;
         this.backOff = backOff;
@@ -57,17 +57,19 @@ public abstract class TopicMetadataHandler implements Handler<AsyncResult<TopicM
     /**
      * Constructor
      *
-     * @param vertx Vert.x instance to use for retrying mechanism
+     * @param retryScheduler scheduler to use for retrying
+     * @param operation name of the operation getting the metadata, for the retry metrics
      * @param kafka Kafka client for getting topic metadata
      * @param topicName topic name for which to get metadata
      */
-    TopicMetadataHandler(Vertx vertx, Kafka kafka, TopicName topicName) {
-        this(vertx, kafka, topicName, new BackOff());
+    TopicMetadataHandler(RetryScheduler retryScheduler, String operation, Kafka kafka, TopicName topicName) {
+        this(retryScheduler, operation, kafka, topicName, retryScheduler.newBackOff());
     }
 
     /**
      * Schedules this handler to execute again after a delay defined by the {@code BackOff}.
-     * Calls {@link #onMaxAttemptsExceeded} if the backoff has reached its permitted number of retries.
+     * Calls {@link #onMaxAttemptsExceeded} if the backoff has reached its permitted number of retries,
+     * or if the scheduler's retry budget is exhausted.
      */
     protected void retry() {
 
@@ -77,16 +79,14 @@ public abstract class TopicMetadataHandler implements Handler<AsyncResult<TopicM
             log.debug("Backing off for {}ms on getting metadata for {}", delay, topicName);
         } catch (MaxAttemptsExceededException e) {
             log.info("Max attempts reached on getting metadata for {} after {}ms, giving up for now", topicName, backOff.totalDelayMs());
+            retryScheduler.maxAttemptsExceeded(operation);
             this.onMaxAttemptsExceeded(e);
             return;
         }
 
-        if (delay < 1) {
-            // vertx won't tolerate a zero delay
-            vertx.runOnContext(timerId -> kafka.topicMetadata(topicName, this));
-        } else {
-            vertx.setTimer(TimeUnit.MILLISECONDS.convert(delay, TimeUnit.MILLISECONDS),
-                    timerId -> kafka.topicMetadata(topicName, this));
+        if (!retryScheduler.schedule(operation, delay, ignored -> kafka.topicMetadata(topicName, this))) {
+            log.info("Retry budget exhausted on getting metadata for {}, giving up for now", topicName);
+            this.onMaxAttemptsExceeded(new RetryBudgetExhaustedException());
         }
     }
 
@@ -40,6 +40,11 @@ public interface Zk {
      */
     Zk disconnect() throws InterruptedException;
 
+    /**
+     * Whether the client is currently connected to the ZooKeeper ensemble.
+     */
+    boolean isConnected();
+
     /**
      * Asynchronously create the znode at the given path and with the given data and ACL, using the
      * given createMode, then invoke the given handler with the result.
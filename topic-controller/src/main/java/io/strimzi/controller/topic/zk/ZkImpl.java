@@ -130,6 +130,11 @@ public class ZkImpl implements Zk {
         return zk;
     }
 
+    @Override
+    public boolean isConnected() {
+        return zk.getState().isConnected();
+    }
+
 
     /**
      * Map the given rc result code to a KeeperException, then run the given handler on the vertx context.
@@ -17,6 +17,7 @@
 
 package io.strimzi.controller.topic;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -128,6 +129,27 @@ public class InFlightTest {
         });
     }
 
+    @Test
+    public void testBacklog(TestContext context) {
+        Async secondCompleted = context.async();
+        InFlight<String> inflight = new InFlight(vertx);
+        context.assertEquals(0, inflight.backlog());
+        context.assertEquals(0L, inflight.oldestAgeMs());
+        Future<Void>[] first = new Future[1];
+        inflight.enqueue("test", v -> { }, fut -> first[0] = fut);
+        inflight.enqueue("test", v -> secondCompleted.complete(), fut -> fut.complete());
+        // Two actions are queued for the same key
+        context.assertEquals(1, inflight.size());
+        context.assertEquals(2, inflight.backlog());
+        vertx.setTimer(50, timerId -> {
+            context.assertTrue(inflight.oldestAgeMs() >= 50);
+            first[0].complete();
+        });
+        secondCompleted.await();
+        context.assertEquals(0, inflight.backlog());
+        context.assertEquals(0L, inflight.oldestAgeMs());
+    }
+
     @Test
     public void test0(TestContext context) {
         testSingleTask(context);
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JitteredBackOffTest {
+
+    @Test
+    public void testBounds() {
+        for (int seed = 0; seed < 100; seed++) {
+            JitteredBackOff b = new JitteredBackOff(100, 1000, 10, new Random(seed));
+            assertEquals(0L, b.delayMs());
+            long total = 0;
+            long previous = 100;
+            for (int i = 1; i < 10; i++) {
+                long delay = b.delayMs();
+                assertTrue("Delay " + delay + " below base", delay >= 100);
+                assertTrue("Delay " + delay + " above cap", delay <= 1000);
+                assertTrue("Delay " + delay + " more than three times the previous " + previous, delay <= Math.max(100, previous * 3));
+                previous = delay;
+                total += delay;
+            }
+            try {
+                b.delayMs();
+                fail("Should throw");
+            } catch (MaxAttemptsExceededException e) {
+
+            }
+            assertEquals(total, b.totalDelayMs());
+        }
+    }
+
+    @Test
+    public void testDecorrelated() {
+        JitteredBackOff b1 = new JitteredBackOff(100, 100_000, 10, new Random(1));
+        JitteredBackOff b2 = new JitteredBackOff(100, 100_000, 10, new Random(2));
+        boolean differ = false;
+        for (int i = 0; i < 10; i++) {
+            differ |= b1.delayMs() != b2.delayMs();
+        }
+        assertTrue(differ);
+        assertNotEquals(b1.totalDelayMs(), b2.totalDelayMs());
+    }
+}
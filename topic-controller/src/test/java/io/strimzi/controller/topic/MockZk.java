@@ -57,6 +57,11 @@ class MockZk implements Zk {
         return this;
     }
 
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
     @Override
     public Zk create(String path, byte[] data, List<ACL> acls, CreateMode createMode, Handler<AsyncResult<Void>> handler) {
         handler.handle(createResult);
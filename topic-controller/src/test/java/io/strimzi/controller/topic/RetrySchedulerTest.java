@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(VertxUnitRunner.class)
+public class RetrySchedulerTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    @Test
+    public void testRunsInOrderAfterDelay(TestContext context) {
+        Async async = context.async(3);
+        RetryScheduler scheduler = new RetryScheduler(vertx, 10, 8, 100, 10);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        long t0 = System.currentTimeMillis();
+        // 200ms is more than one revolution of the wheel
+        context.assertTrue(scheduler.schedule("op", 200, v -> {
+            context.assertTrue(System.currentTimeMillis() - t0 >= 200);
+            order.add(3);
+            context.assertEquals(3, order.size());
+            context.assertEquals(3, order.get(2));
+            async.countDown();
+        }));
+        context.assertTrue(scheduler.schedule("op", 50, v -> {
+            order.add(2);
+            async.countDown();
+        }));
+        context.assertTrue(scheduler.schedule("op", 0, v -> {
+            order.add(1);
+            async.countDown();
+        }));
+        async.await();
+        context.assertEquals(1, order.get(0));
+        context.assertEquals(2, order.get(1));
+        context.assertEquals(3L, scheduler.metrics().get("op").retries.get());
+        context.assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void testBudget(TestContext context) {
+        RetryScheduler scheduler = new RetryScheduler(vertx, 10, 8, 2, 1);
+        context.assertTrue(scheduler.schedule("op", 10, v -> { }));
+        context.assertTrue(scheduler.schedule("other", 10, v -> { }));
+        context.assertFalse(scheduler.schedule("op", 10, v -> { }));
+        context.assertEquals(1L, scheduler.metrics().get("op").retries.get());
+        context.assertEquals(1L, scheduler.metrics().get("op").budgetExhausted.get());
+        context.assertEquals(1L, scheduler.metrics().get("other").retries.get());
+        context.assertEquals(0L, scheduler.metrics().get("other").budgetExhausted.get());
+    }
+
+    @Test
+    public void testMaxAttemptsExceeded(TestContext context) {
+        RetryScheduler scheduler = new RetryScheduler(vertx);
+        scheduler.maxAttemptsExceeded("op");
+        context.assertEquals(1L, scheduler.metrics().get("op").maxAttemptsExceeded.get());
+        context.assertEquals(0L, scheduler.metrics().get("op").retries.get());
+    }
+}
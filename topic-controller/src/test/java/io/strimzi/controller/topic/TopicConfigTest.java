@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TopicConfigTest {
+
+    private Map<String, String> map() {
+        Map<String, String> map = new HashMap<>();
+        map.put("retention.ms", "1000");
+        map.put("cleanup.policy", "compact");
+        map.put("custom", "value");
+        return map;
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(TopicConfig.EMPTY, TopicConfig.of(null));
+        assertSame(TopicConfig.EMPTY, TopicConfig.of(new HashMap<>()));
+        assertTrue(TopicConfig.EMPTY.isEmpty());
+        assertEquals(new HashMap<>(), TopicConfig.EMPTY);
+    }
+
+    @Test
+    public void testMapContract() {
+        Map<String, String> map = map();
+        TopicConfig config = TopicConfig.of(map);
+        assertEquals(3, config.size());
+        assertEquals(map, config);
+        assertEquals(config, map);
+        assertEquals(map.hashCode(), config.hashCode());
+        assertEquals("compact", config.get("cleanup.policy"));
+        assertTrue(config.containsKey("custom"));
+        assertFalse(config.containsKey("other"));
+        assertNull(config.get("other"));
+        assertNull(config.get(1));
+        assertSame(config, TopicConfig.of(config));
+    }
+
+    @Test
+    public void testSorted() {
+        TopicConfig config = TopicConfig.of(map());
+        List<String> keys = new ArrayList<>(config.keySet());
+        assertEquals(asList("cleanup.policy", "custom", "retention.ms"), keys);
+        for (int i = 0; i < config.size(); i++) {
+            assertEquals(keys.get(i), config.keyAt(i));
+            assertEquals(config.get(keys.get(i)), config.valueAt(i));
+        }
+    }
+
+    @Test
+    public void testInterning() {
+        TopicConfig config1 = TopicConfig.of(map());
+        TopicConfig config2 = TopicConfig.of(map());
+        Map<String, String> map = new HashMap<>();
+        map.put(new String("retention.ms"), new String("1000"));
+        TopicConfig config3 = TopicConfig.of(map);
+        assertSame(config1.valueAt(2), config2.valueAt(2));
+        assertSame(config1.keyAt(2), config3.keyAt(0));
+        assertSame(config1.valueAt(2), config3.valueAt(0));
+    }
+
+    @Test
+    public void testImmutable() {
+        TopicConfig config = TopicConfig.of(map());
+        try {
+            config.put("foo", "bar");
+            fail("Should throw");
+        } catch (UnsupportedOperationException e) {
+
+        }
+        try {
+            config.entrySet().iterator().remove();
+            fail("Should throw");
+        } catch (UnsupportedOperationException | IllegalStateException e) {
+
+        }
+    }
+
+    @Test
+    public void testNulls() {
+        Map<String, String> map = new HashMap<>();
+        map.put("foo", null);
+        try {
+            TopicConfig.of(map);
+            fail("Should throw");
+        } catch (NullPointerException e) {
+
+        }
+    }
+}